@@ -0,0 +1,281 @@
+package com.burc.novadiveplannerupdated.data.mapper;
+
+import com.burc.novadiveplannerupdated.data.room.converter.TissueCheckpointCodec;
+import com.burc.novadiveplannerupdated.data.room.entity.DecoStopEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DivePlanEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveSegmentEntity;
+import com.burc.novadiveplannerupdated.data.room.relation.DivePlanWithDives;
+import com.burc.novadiveplannerupdated.data.room.relation.DiveWithSegments;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.CalculationStamp;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Mapper class for converting between the {@link DivePlan} domain entity and its normalized
+ * plan/dive/segment rows.
+ * <p>
+ * User inputs are always mapped. The calculated results of the current (last) dive are mapped only
+ * together with a {@link CalculationStamp}: segment end states as checkpoints, each delta-encoded against
+ * the previous one (the dive's initial state for the first segment), plus the deco stops and dive totals.
+ */
+public class DivePlanMapper {
+
+    // Private constructor to prevent instantiation
+    private DivePlanMapper() {}
+
+    /**
+     * Converts a DivePlan to its plan row.
+     *
+     * @param divePlan  The DivePlan domain entity.
+     * @param updatedAt Save time in epoch milliseconds.
+     * @return The corresponding DivePlanEntity, or null if divePlan is null.
+     */
+    public static DivePlanEntity toEntity(DivePlan divePlan, long updatedAt) {
+        if (divePlan == null) {
+            return null;
+        }
+        return new DivePlanEntity(
+                divePlan.getId(),
+                divePlan.getPlanTitle(),
+                SettingsMapper.toEntity(divePlan.getSettings()),
+                updatedAt
+        );
+    }
+
+    /**
+     * Converts the dives of a DivePlan to dive rows with their segment rows, inputs only.
+     * Row ids are left unset; the DAO assigns them on insert.
+     *
+     * @param divePlan The DivePlan domain entity.
+     * @return The dives in plan order, each with its segments.
+     */
+    public static List<DiveWithSegments> toDiveEntities(DivePlan divePlan) {
+        return toDiveEntities(divePlan, null);
+    }
+
+    /**
+     * Converts the dives of a DivePlan to dive rows with their segment rows, plus the calculated results
+     * of the current dive if a stamp is given and that dive is fully calculated.
+     *
+     * @param divePlan The DivePlan domain entity.
+     * @param stamp    What the current dive's results were calculated with, or null to store inputs only.
+     * @return The dives in plan order, each with its segments (and cached deco stops).
+     */
+    public static List<DiveWithSegments> toDiveEntities(DivePlan divePlan, CalculationStamp stamp) {
+        if (divePlan == null) {
+            return new ArrayList<>();
+        }
+        List<Dive> dives = divePlan.getDives();
+        List<DiveWithSegments> diveRows = new ArrayList<>(dives.size());
+        for (int d = 0; d < dives.size(); d++) {
+            Dive dive = dives.get(d);
+            // Önceki dalışların sonuçları eski ayarlarla hesaplanmış olabilir; sadece güncel dalış önbelleğe alınır
+            boolean withResults = stamp != null && d == dives.size() - 1 && isFullyCalculated(dive);
+
+            DiveEntity diveEntity = new DiveEntity(
+                    divePlan.getId(),
+                    dive.getDiveNumber(),
+                    dive.getSurfaceIntervalBeforeDiveInSeconds(),
+                    dive.getInitialTissueStateForThisDive()
+            );
+            List<DiveSegmentEntity> segmentRows = new ArrayList<>(dive.getSegments().size());
+            TissueState previousCheckpoint = dive.getInitialTissueStateForThisDive();
+            for (DiveSegment segment : dive.getSegments()) {
+                DiveSegmentEntity segmentEntity = new DiveSegmentEntity(
+                        segment.getSegmentNumber(),
+                        segment.getTargetDepth(),
+                        segment.getUserInputTotalDurationInSeconds(),
+                        GasMapper.toEntity(segment.getGas()),
+                        segment.getDescentRate(),
+                        segment.getAscentRate(),
+                        segment.getSetPoint()
+                );
+                if (withResults) {
+                    TissueState checkpoint = segment.getTissueStateAtEndOfSegment();
+                    segmentEntity.endTissueCheckpoint = TissueCheckpointCodec.encodeDelta(checkpoint, previousCheckpoint);
+                    segmentEntity.calculatedTransitDurationSeconds = segment.getCalculatedTransitDurationSeconds();
+                    segmentEntity.gasConsumedInSegmentCuft = segment.getGasConsumedInSegmentCuft();
+                    segmentEntity.cnsAddedInSegmentPercent = segment.getCnsAddedInSegmentPercent();
+                    segmentEntity.otusAddedInSegment = segment.getOtusAddedInSegment();
+                    previousCheckpoint = checkpoint;
+                }
+                segmentRows.add(segmentEntity);
+            }
+
+            List<DecoStopEntity> decoStopRows = new ArrayList<>();
+            if (withResults) {
+                diveEntity.engineVersion = stamp.getEngineVersion();
+                diveEntity.settingsHash = stamp.getSettingsHash();
+                diveEntity.endTissueCheckpoint = TissueCheckpointCodec.encodeDelta(dive.getTissueStateAtEndOfDive(), previousCheckpoint);
+                diveEntity.calculatedMaxDepthMeters = dive.getCalculatedMaxDepthMeters();
+                diveEntity.calculatedNdlSeconds = dive.getCalculatedNdlSeconds();
+                diveEntity.calculatedTimeToSurfaceSeconds = dive.getCalculatedTimeToSurfaceSeconds();
+                diveEntity.calculatedTotalGasConsumedCuft = dive.getCalculatedTotalGasConsumedCuft();
+                diveEntity.calculatedTotalCnsPercent = dive.getCalculatedTotalCNSPercent();
+                diveEntity.calculatedTotalOtu = dive.getCalculatedTotalOTU();
+                List<DecoStop> decoStops = dive.getDecoStops();
+                for (int i = 0; i < decoStops.size(); i++) {
+                    DecoStop decoStop = decoStops.get(i);
+                    decoStopRows.add(new DecoStopEntity(i, decoStop.getDepthFsw(), decoStop.getDurationMinutes(),
+                            GasMapper.toEntity(decoStop.getGas())));
+                }
+            }
+            diveRows.add(new DiveWithSegments(diveEntity, segmentRows, decoStopRows));
+        }
+        return diveRows;
+    }
+
+    /**
+     * Converts a loaded plan with its dives and segments to a DivePlan, inputs only.
+     * Dives and segments are ordered by their numbers, since Room does not order relation lists.
+     *
+     * @param planWithDives The loaded rows.
+     * @return The corresponding DivePlan, or null if planWithDives or its plan row is null.
+     * @throws IllegalArgumentException if the stored rows do not form a valid plan (e.g. no dives).
+     */
+    public static DivePlan toDomain(DivePlanWithDives planWithDives) {
+        return toDomain(planWithDives, null);
+    }
+
+    /**
+     * Converts a loaded plan to a DivePlan whose current (last) dive carries its cached results.
+     *
+     * @param planWithDives The loaded rows.
+     * @param stamp         The stamp of the current engine and inputs.
+     * @return The DivePlan with its current dive calculated, or null if the plan row is missing or the
+     *         cached results are incomplete, unreadable or were stamped differently.
+     * @throws IllegalArgumentException if the stored rows do not form a valid plan (e.g. no dives).
+     */
+    public static DivePlan toCalculatedDomain(DivePlanWithDives planWithDives, CalculationStamp stamp) {
+        if (stamp == null) {
+            return null;
+        }
+        return toDomain(planWithDives, stamp);
+    }
+
+    private static DivePlan toDomain(DivePlanWithDives planWithDives, CalculationStamp stamp) {
+        if (planWithDives == null || planWithDives.plan == null) {
+            return null;
+        }
+        DiveSettings settings = SettingsMapper.toDomain(planWithDives.plan.settings);
+
+        List<DiveWithSegments> diveRows = new ArrayList<>(planWithDives.dives);
+        Collections.sort(diveRows, Comparator.comparingInt(row -> row.dive.diveNumber));
+
+        List<Dive> dives = new ArrayList<>(diveRows.size());
+        for (int d = 0; d < diveRows.size(); d++) {
+            DiveWithSegments diveRow = diveRows.get(d);
+            TissueState initialTissueState = diveRow.dive.initialTissueState;
+            if (initialTissueState == null) {
+                if (stamp != null) {
+                    return null; // Checkpoint zinciri başlangıç durumu olmadan çözülemez
+                }
+                // BLOB okunamadıysa plan irtifasındaki doymuş yüzey durumuna dön
+                initialTissueState = new TissueState(settings.getAltitudeLevel().getInitialAmbientPressureFsw());
+            }
+            boolean withResults = stamp != null && d == diveRows.size() - 1;
+            if (withResults && !hasResultsFor(diveRow.dive, stamp)) {
+                return null;
+            }
+
+            List<DiveSegmentEntity> segmentRows = new ArrayList<>(diveRow.segments);
+            Collections.sort(segmentRows, Comparator.comparingInt(row -> row.segmentNumber));
+
+            List<DiveSegment> segments = new ArrayList<>(segmentRows.size());
+            TissueState previousCheckpoint = initialTissueState;
+            for (DiveSegmentEntity segmentRow : segmentRows) {
+                DiveSegment.Builder segmentBuilder = new DiveSegment.Builder()
+                        .segmentNumber(segmentRow.segmentNumber)
+                        .targetDepth(segmentRow.targetDepth)
+                        .userInputTotalDurationInSeconds(segmentRow.userInputTotalDurationInSeconds)
+                        .gas(GasMapper.toDomain(segmentRow.gas))
+                        .descentRate(segmentRow.descentRate)
+                        .ascentRate(segmentRow.ascentRate)
+                        .setPoint(segmentRow.setPoint);
+                if (withResults) {
+                    TissueState checkpoint = TissueCheckpointCodec.decode(segmentRow.endTissueCheckpoint, previousCheckpoint);
+                    if (checkpoint == null
+                            || segmentRow.gasConsumedInSegmentCuft == null
+                            || segmentRow.cnsAddedInSegmentPercent == null
+                            || segmentRow.otusAddedInSegment == null) {
+                        return null;
+                    }
+                    segmentBuilder
+                            .tissueStateAtEndOfSegment(checkpoint)
+                            .calculatedTransitDurationSeconds(segmentRow.calculatedTransitDurationSeconds)
+                            .gasConsumedInSegmentCuft(segmentRow.gasConsumedInSegmentCuft)
+                            .cnsAddedInSegmentPercent(segmentRow.cnsAddedInSegmentPercent)
+                            .otusAddedInSegment(segmentRow.otusAddedInSegment);
+                    previousCheckpoint = checkpoint;
+                }
+                segments.add(segmentBuilder.build());
+            }
+
+            Dive.Builder diveBuilder = new Dive.Builder(diveRow.dive.diveNumber)
+                    .surfaceIntervalBeforeDiveInSeconds(diveRow.dive.surfaceIntervalBeforeDiveInSeconds)
+                    .initialTissueStateForThisDive(initialTissueState)
+                    .segments(segments);
+            if (withResults) {
+                List<DecoStopEntity> decoStopRows = new ArrayList<>(diveRow.decoStops);
+                Collections.sort(decoStopRows, Comparator.comparingInt(row -> row.stopIndex));
+                List<DecoStop> decoStops = new ArrayList<>(decoStopRows.size());
+                for (DecoStopEntity decoStopRow : decoStopRows) {
+                    decoStops.add(new DecoStop(decoStopRow.depthFsw, decoStopRow.durationMinutes,
+                            GasMapper.toDomain(decoStopRow.gas)));
+                }
+                TissueState endOfDiveCheckpoint = TissueCheckpointCodec.decode(diveRow.dive.endTissueCheckpoint, previousCheckpoint);
+                if (endOfDiveCheckpoint == null) {
+                    return null;
+                }
+                diveBuilder
+                        .tissueStateAtEndOfDive(endOfDiveCheckpoint)
+                        .decoStops(decoStops)
+                        .calculatedMaxDepthMeters(diveRow.dive.calculatedMaxDepthMeters)
+                        .calculatedNdlSeconds(diveRow.dive.calculatedNdlSeconds)
+                        .calculatedTimeToSurfaceSeconds(diveRow.dive.calculatedTimeToSurfaceSeconds)
+                        .calculatedTotalGasConsumedCuft(diveRow.dive.calculatedTotalGasConsumedCuft)
+                        .calculatedTotalCNSPercent(diveRow.dive.calculatedTotalCnsPercent)
+                        .calculatedTotalOTU(diveRow.dive.calculatedTotalOtu);
+            }
+            dives.add(diveBuilder.build());
+        }
+
+        return new DivePlan.Builder(planWithDives.plan.id, settings)
+                .planTitle(planWithDives.plan.planTitle)
+                .dives(dives)
+                .build();
+    }
+
+    /**
+     * A dive is cached only once every segment, the dive totals and the surfacing state hold results.
+     */
+    private static boolean isFullyCalculated(Dive dive) {
+        if (dive.getCalculatedTimeToSurfaceSeconds() == null || dive.getTissueStateAtEndOfDive() == null) {
+            return false;
+        }
+        for (DiveSegment segment : dive.getSegments()) {
+            if (!segment.hasCalculatedResults()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasResultsFor(DiveEntity dive, CalculationStamp stamp) {
+        return dive.engineVersion != null
+                && dive.settingsHash != null
+                && dive.engineVersion == stamp.getEngineVersion()
+                && dive.settingsHash == stamp.getSettingsHash()
+                && dive.calculatedTimeToSurfaceSeconds != null;
+    }
+}
@@ -1,17 +1,40 @@
 package com.burc.novadiveplannerupdated.data.repository;
 
+import android.util.Log;
+
+import com.burc.novadiveplannerupdated.data.mapper.DivePlanMapper;
+import com.burc.novadiveplannerupdated.data.room.dao.DivePlanDao;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
 import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.model.CalculationStamp;
 import com.burc.novadiveplannerupdated.domain.repository.ActiveDivePlanRepository;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
 
+/**
+ * Keeps the active DivePlan in memory and writes every new version through to Room.
+ * Observers get the new plan immediately; the disk write happens later on the IO scheduler,
+ * so callers (often on the UI thread) never wait on the database.
+ * Calculated results go through the same queue, so they are always written after the edit they belong to.
+ */
 @Singleton
 public class ActiveDivePlanRepositoryImpl implements ActiveDivePlanRepository {
 
+    private static final String TAG = "ActiveDivePlanRepo";
+
     // BehaviorSubject, en son yayınlanan değeri saklar ve yeni abonelere hemen bu değeri iletir.
     // Başlangıçta bir değer olmayabilir, bu yüzden null ile başlatılabilir veya
     // ilk DivePlan set edildiğinde oluşturulabilir.
@@ -19,9 +42,25 @@ public class ActiveDivePlanRepositoryImpl implements ActiveDivePlanRepository {
     // null kontrolleri ile sarmalanabilir.
     private final BehaviorSubject<DivePlan> activeDivePlanSubject = BehaviorSubject.create();
 
+    // Kaydedilmeyi bekleyen plan sürümleri. Yazımlar sırayla yapılır; bir yazım sürerken gelen
+    // ara sürümler atlanır ve yalnızca en sonuncusu yazılır (her yazım planın tamamını değiştirir).
+    // Düzenlemeler UI thread'inden, sonuçlar hesaplama thread'inden gelir; bu yüzden serialized.
+    private final Subject<PendingWrite> pendingWrites = PublishSubject.<PendingWrite>create().toSerialized();
+    private final Disposable writeThroughDisposable; // Singleton, uygulama boyunca açık kalır
+
+    private final DivePlanDao divePlanDao;
+
+    // Diskten yüklenen plan; aktif yapıldığında geri yazılmaz (önbellekteki sonuçları silerdi)
+    private volatile DivePlan restoredDivePlan;
+
     @Inject
-    public ActiveDivePlanRepositoryImpl() {
-        // Constructor
+    public ActiveDivePlanRepositoryImpl(DivePlanDao divePlanDao) {
+        this.divePlanDao = divePlanDao;
+        this.writeThroughDisposable = pendingWrites
+                .toFlowable(BackpressureStrategy.LATEST)
+                .observeOn(Schedulers.io(), false, 1)
+                .subscribe(this::writeDivePlan,
+                        throwable -> Log.e(TAG, "Dive plan write-through stopped", throwable));
     }
 
     @Override
@@ -37,6 +76,9 @@ public class ActiveDivePlanRepositoryImpl implements ActiveDivePlanRepository {
     public void setActiveDivePlan(DivePlan divePlan) {
         if (divePlan != null) {
             activeDivePlanSubject.onNext(divePlan);
+            if (divePlan != restoredDivePlan) {
+                pendingWrites.onNext(new PendingWrite(divePlan, null));
+            }
         } else {
             // Eğer null bir plan set edilmeye çalışılırsa ne yapılacağına karar verilmeli.
             // Örneğin, bir hata fırlatılabilir veya konu temizlenebilir (eğer destekleniyorsa).
@@ -47,6 +89,98 @@ public class ActiveDivePlanRepositoryImpl implements ActiveDivePlanRepository {
         }
     }
 
+    @Override
+    public Maybe<DivePlan> getLastSavedDivePlan() {
+        return divePlanDao.getLastSavedDivePlan()
+                .map(DivePlanMapper::toDomain)
+                .doOnSuccess(divePlan -> restoredDivePlan = divePlan)
+                .doOnError(throwable -> Log.e(TAG, "Saved dive plan could not be loaded", throwable))
+                .onErrorComplete() // Okunamayan kayıt, kayıt yokmuş gibi ele alınır
+                .subscribeOn(Schedulers.io());
+    }
+
+    @Override
+    public void saveCalculatedDivePlan(DivePlan calculatedPlan, CalculationStamp stamp) {
+        if (calculatedPlan == null || stamp == null) {
+            return;
+        }
+        // Hesaplama sürerken plan düzenlendiyse sonuçlar eskidir; yeni düzenlemenin üzerine yazılmamalı
+        if (hasSameInputs(calculatedPlan, activeDivePlanSubject.getValue())) {
+            pendingWrites.onNext(new PendingWrite(calculatedPlan, stamp));
+        }
+    }
+
+    @Override
+    public Maybe<DivePlan> getCalculatedDivePlan(String planId, CalculationStamp stamp) {
+        return divePlanDao.getDivePlanById(planId)
+                .flatMap(planWithDives -> {
+                    DivePlan calculatedPlan = DivePlanMapper.toCalculatedDomain(planWithDives, stamp);
+                    // Sonuçlar eksik ya da farklı ayarlarla hesaplanmışsa önbellek yok sayılır
+                    return calculatedPlan != null ? Maybe.just(calculatedPlan) : Maybe.<DivePlan>empty();
+                })
+                .doOnError(throwable -> Log.e(TAG, "Cached results of dive plan " + planId + " could not be loaded", throwable))
+                .onErrorComplete() // Okunamayan önbellek, önbellek yokmuş gibi ele alınır
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Replaces the stored copy of the plan in one transaction, with the current dive's results if the
+     * write carries a stamp. Runs on the IO scheduler.
+     * Errors are logged and swallowed so one failed write does not stop later ones.
+     */
+    private void writeDivePlan(PendingWrite write) {
+        try {
+            divePlanDao.replaceDivePlan(
+                    DivePlanMapper.toEntity(write.divePlan, System.currentTimeMillis()),
+                    DivePlanMapper.toDiveEntities(write.divePlan, write.stamp));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Dive plan " + write.divePlan.getId() + " could not be saved", e);
+        }
+    }
+
+    /**
+     * @return true if both plans are the same plan with the same user inputs, whatever their calculated fields.
+     */
+    private static boolean hasSameInputs(DivePlan plan, DivePlan other) {
+        if (other == null
+                || !plan.getId().equals(other.getId())
+                || !plan.getSettings().equals(other.getSettings())
+                || plan.getDives().size() != other.getDives().size()) {
+            return false;
+        }
+        for (int d = 0; d < plan.getDives().size(); d++) {
+            Dive dive = plan.getDives().get(d);
+            Dive otherDive = other.getDives().get(d);
+            if (dive.getDiveNumber() != otherDive.getDiveNumber()
+                    || dive.getSurfaceIntervalBeforeDiveInSeconds() != otherDive.getSurfaceIntervalBeforeDiveInSeconds()
+                    || !dive.getInitialTissueStateForThisDive().equals(otherDive.getInitialTissueStateForThisDive())) {
+                return false;
+            }
+            List<DiveSegment> segments = dive.getSegments();
+            List<DiveSegment> otherSegments = otherDive.getSegments();
+            if (segments.size() != otherSegments.size()) {
+                return false;
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                if (!segments.get(i).hasSameInputsAs(otherSegments.get(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** A plan version waiting to be written; the stamp is null for an edit without results. */
+    private static final class PendingWrite {
+        final DivePlan divePlan;
+        final CalculationStamp stamp;
+
+        PendingWrite(DivePlan divePlan, CalculationStamp stamp) {
+            this.divePlan = divePlan;
+            this.stamp = stamp;
+        }
+    }
+
     // Opsiyonel getCurrentActiveDivePlan() implementasyonu:
     /*
     @Override
@@ -1,21 +1,176 @@
 package com.burc.novadiveplannerupdated.data.room;
 
+import android.database.Cursor;
+
 import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.burc.novadiveplannerupdated.data.room.converter.TissueCheckpointCodec;
+import com.burc.novadiveplannerupdated.data.room.dao.DivePlanDao;
 import com.burc.novadiveplannerupdated.data.room.dao.GasDao;
 import com.burc.novadiveplannerupdated.data.room.dao.SettingsDao;
+import com.burc.novadiveplannerupdated.data.room.entity.DecoStopEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DivePlanEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveSegmentEntity;
 import com.burc.novadiveplannerupdated.data.room.entity.DiveSettingsEntity;
 import com.burc.novadiveplannerupdated.data.room.entity.GasEntity;
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Room database for the application.
- * It contains the DiveSettingsEntity and GasEntity, and provides access to their DAOs.
+ * It contains the DiveSettingsEntity and GasEntity, the saved dive plan tables
+ * (DivePlanEntity, DiveEntity, DiveSegmentEntity, DecoStopEntity), and provides access to their DAOs.
+ * <p>
+ * Every schema change comes with a migration, so stored gases and settings survive app updates.
  */
-@Database(entities = {DiveSettingsEntity.class, GasEntity.class}, version = 1, exportSchema = false)
+@Database(entities = {DiveSettingsEntity.class, GasEntity.class,
+        DivePlanEntity.class, DiveEntity.class, DiveSegmentEntity.class, DecoStopEntity.class},
+        version = 3, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
+    /** Columns of a GasEntity embedded with the "gas_" prefix, as in dive_segments and dive_deco_stops. */
+    private static final String GAS_SNAPSHOT_COLUMNS = "`gas_slot_number` INTEGER NOT NULL, "
+            + "`gas_is_enabled` INTEGER NOT NULL, "
+            + "`gas_gas_name` TEXT, "
+            + "`gas_fo2` REAL NOT NULL, "
+            + "`gas_fhe` REAL NOT NULL, "
+            + "`gas_po2_max` REAL, "
+            + "`gas_gas_type` TEXT, "
+            + "`gas_tank_capacity` REAL NOT NULL, "
+            + "`gas_reserve_pressure_percentage` REAL NOT NULL, ";
+
+    /**
+     * Version 2 adds the saved dive plan tables: dive_plans, dives and dive_segments.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `dive_plans` ("
+                    + "`id` TEXT NOT NULL, "
+                    + "`plan_title` TEXT, "
+                    + "`settings_id` INTEGER NOT NULL, "
+                    + "`settings_unit_system` TEXT, "
+                    + "`settings_altitude_level` TEXT, "
+                    + "`settings_last_stop_depth_option` TEXT, "
+                    + "`settings_gf_gfLow` INTEGER NOT NULL, "
+                    + "`settings_gf_gfHigh` INTEGER NOT NULL, "
+                    + "`settings_alarm_isEndAlarmEnabled` INTEGER NOT NULL, "
+                    + "`settings_alarm_endAlarmThresholdFt` REAL NOT NULL, "
+                    + "`settings_alarm_isWobAlarmEnabled` INTEGER NOT NULL, "
+                    + "`settings_alarm_wobAlarmThresholdFt` REAL NOT NULL, "
+                    + "`settings_alarm_isOxygenNarcoticEnabled` INTEGER NOT NULL, "
+                    + "`settings_sr_rmvDiveCuFtMin` REAL NOT NULL, "
+                    + "`settings_sr_rmvDecoCuFtMin` REAL NOT NULL, "
+                    + "`updated_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`id`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `dives` ("
+                    + "`dive_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`plan_id` TEXT, "
+                    + "`dive_number` INTEGER NOT NULL, "
+                    + "`surface_interval_seconds` INTEGER NOT NULL, "
+                    + "`initial_tissue_state` BLOB, "
+                    + "FOREIGN KEY(`plan_id`) REFERENCES `dive_plans`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_dives_plan_id_dive_number` "
+                    + "ON `dives` (`plan_id`, `dive_number`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `dive_segments` ("
+                    + "`segment_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`dive_id` INTEGER NOT NULL, "
+                    + "`segment_number` INTEGER NOT NULL, "
+                    + "`target_depth` REAL NOT NULL, "
+                    + "`duration_seconds` INTEGER NOT NULL, "
+                    + GAS_SNAPSHOT_COLUMNS
+                    + "`descent_rate` REAL NOT NULL, "
+                    + "`ascent_rate` REAL NOT NULL, "
+                    + "`set_point` REAL NOT NULL, "
+                    + "FOREIGN KEY(`dive_id`) REFERENCES `dives`(`dive_id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_dive_segments_dive_id_segment_number` "
+                    + "ON `dive_segments` (`dive_id`, `segment_number`)");
+        }
+    };
+
+    /**
+     * Version 3 caches calculated results: nullable result columns on dives and dive_segments, the
+     * dive_deco_stops table, and initial tissue states re-encoded in the {@link TissueCheckpointCodec} format.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `engine_version` INTEGER");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `settings_hash` INTEGER");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `end_tissue_checkpoint` BLOB");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `max_depth_meters` REAL");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `ndl_seconds` INTEGER");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `time_to_surface_seconds` INTEGER");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `total_gas_consumed_cuft` REAL");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `total_cns_percent` REAL");
+            db.execSQL("ALTER TABLE `dives` ADD COLUMN `total_otu` REAL");
+
+            db.execSQL("ALTER TABLE `dive_segments` ADD COLUMN `end_tissue_checkpoint` BLOB");
+            db.execSQL("ALTER TABLE `dive_segments` ADD COLUMN `transit_duration_seconds` REAL");
+            db.execSQL("ALTER TABLE `dive_segments` ADD COLUMN `gas_consumed_cuft` REAL");
+            db.execSQL("ALTER TABLE `dive_segments` ADD COLUMN `cns_added_percent` REAL");
+            db.execSQL("ALTER TABLE `dive_segments` ADD COLUMN `otus_added` REAL");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `dive_deco_stops` ("
+                    + "`stop_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`dive_id` INTEGER NOT NULL, "
+                    + "`stop_index` INTEGER NOT NULL, "
+                    + "`depth_fsw` REAL NOT NULL, "
+                    + "`duration_minutes` INTEGER NOT NULL, "
+                    + GAS_SNAPSHOT_COLUMNS
+                    + "FOREIGN KEY(`dive_id`) REFERENCES `dives`(`dive_id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_dive_deco_stops_dive_id_stop_index` "
+                    + "ON `dive_deco_stops` (`dive_id`, `stop_index`)");
+
+            reencodeInitialTissueStates(db);
+        }
+    };
+
+    /**
+     * Version 2 stored initial tissue states as the N2 then He pressures, big-endian, without a format byte.
+     * Rewrites them in the codec's full format; a blob of the wrong size becomes null, as it would have
+     * been read before.
+     */
+    private static void reencodeInitialTissueStates(SupportSQLiteDatabase db) {
+        List<Long> diveIds = new ArrayList<>();
+        List<byte[]> blobs = new ArrayList<>();
+        try (Cursor cursor = db.query(
+                "SELECT `dive_id`, `initial_tissue_state` FROM `dives` WHERE `initial_tissue_state` IS NOT NULL")) {
+            while (cursor.moveToNext()) {
+                diveIds.add(cursor.getLong(0));
+                blobs.add(cursor.getBlob(1));
+            }
+        }
+        int valueCount = 2 * DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS;
+        for (int i = 0; i < diveIds.size(); i++) {
+            byte[] blob = blobs.get(i);
+            byte[] encoded = null;
+            if (blob.length == valueCount * Double.BYTES) {
+                ByteBuffer buffer = ByteBuffer.wrap(blob);
+                double[] nitrogen = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+                double[] helium = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+                for (int c = 0; c < nitrogen.length; c++) {
+                    nitrogen[c] = buffer.getDouble();
+                }
+                for (int c = 0; c < helium.length; c++) {
+                    helium[c] = buffer.getDouble();
+                }
+                encoded = TissueCheckpointCodec.encode(new TissueState(nitrogen, helium));
+            }
+            db.execSQL("UPDATE `dives` SET `initial_tissue_state` = ? WHERE `dive_id` = ?",
+                    new Object[]{encoded, diveIds.get(i)});
+        }
+    }
+
     /**
      * Abstract method to get the Data Access Object for Settings.
      *
@@ -30,6 +185,13 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     public abstract GasDao gasDao();
 
+    /**
+     * Abstract method to get the Data Access Object for saved dive plans.
+     *
+     * @return The DivePlanDao instance.
+     */
+    public abstract DivePlanDao divePlanDao();
+
     // Singleton yönetimi Hilt tarafından yapıldığı için aşağıdaki kodlar Hilt ile gereksizdir.
     /*
     private static volatile AppDatabase INSTANCE;
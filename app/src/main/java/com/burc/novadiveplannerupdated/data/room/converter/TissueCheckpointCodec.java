@@ -0,0 +1,144 @@
+package com.burc.novadiveplannerupdated.data.room.converter;
+
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compact binary encoding of {@link TissueState} checkpoints.
+ * <p>
+ * A checkpoint is the 17 N2 pressures followed by the 17 He pressures (34 little-endian doubles),
+ * after a one-byte format tag:
+ * <ul>
+ *     <li>{@link #FORMAT_FULL}: the raw doubles.</li>
+ *     <li>{@link #FORMAT_XOR_DELTA}: each double XOR-ed bitwise with the same compartment of a reference
+ *         checkpoint (usually the previous segment's), stored as a length byte and that many low-order bytes.
+ *         Consecutive checkpoints share sign, exponent and leading mantissa bits, so most values shrink to a
+ *         few bytes. The XOR is exact, so decoding returns the very same doubles.</li>
+ * </ul>
+ */
+public final class TissueCheckpointCodec {
+
+    public static final byte FORMAT_FULL = 0;
+    public static final byte FORMAT_XOR_DELTA = 1;
+
+    private static final int VALUE_COUNT = 2 * DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS;
+    private static final int FULL_SIZE_BYTES = 1 + VALUE_COUNT * Double.BYTES;
+
+    private TissueCheckpointCodec() {
+        // Bu sınıfın örneği oluşturulamaz
+    }
+
+    /**
+     * Encodes a checkpoint on its own.
+     *
+     * @param tissueState The state to encode.
+     * @return The encoded bytes, or null if tissueState is null.
+     */
+    public static byte[] encode(TissueState tissueState) {
+        if (tissueState == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(FULL_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMAT_FULL);
+        for (double value : toValues(tissueState)) {
+            buffer.putDouble(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Encodes a checkpoint as the difference to a reference checkpoint.
+     * Decoding needs the same reference, see {@link #decode(byte[], TissueState)}.
+     *
+     * @param tissueState The state to encode.
+     * @param reference   The state to encode against; if null, the full encoding is used.
+     * @return The encoded bytes, or null if tissueState is null.
+     */
+    public static byte[] encodeDelta(TissueState tissueState, TissueState reference) {
+        if (tissueState == null) {
+            return null;
+        }
+        if (reference == null) {
+            return encode(tissueState);
+        }
+        double[] values = toValues(tissueState);
+        double[] referenceValues = toValues(reference);
+
+        ByteBuffer buffer = ByteBuffer.allocate(FULL_SIZE_BYTES + VALUE_COUNT).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMAT_XOR_DELTA);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            long xor = Double.doubleToRawLongBits(values[i]) ^ Double.doubleToRawLongBits(referenceValues[i]);
+            int byteCount = (Long.SIZE - Long.numberOfLeadingZeros(xor) + 7) / 8; // 0 if unchanged
+            buffer.put((byte) byteCount);
+            for (int b = 0; b < byteCount; b++) {
+                buffer.put((byte) (xor >>> (8 * b))); // Düşük anlamlı byte önce (little-endian)
+            }
+        }
+        byte[] encoded = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, encoded, 0, encoded.length);
+        return encoded;
+    }
+
+    /**
+     * Decodes a checkpoint written by {@link #encode(TissueState)} or {@link #encodeDelta(TissueState, TissueState)}.
+     *
+     * @param encoded   The encoded bytes.
+     * @param reference The reference the checkpoint was delta-encoded against; ignored for full checkpoints.
+     * @return The decoded state, or null if encoded is null, malformed, or a delta without its reference.
+     */
+    public static TissueState decode(byte[] encoded, TissueState reference) {
+        if (encoded == null || encoded.length == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN);
+        byte format = buffer.get();
+        double[] values = new double[VALUE_COUNT];
+        if (format == FORMAT_FULL) {
+            if (encoded.length != FULL_SIZE_BYTES) {
+                return null; // Farklı kompartman sayısıyla yazılmış veri
+            }
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                values[i] = buffer.getDouble();
+            }
+        } else if (format == FORMAT_XOR_DELTA && reference != null) {
+            double[] referenceValues = toValues(reference);
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                if (!buffer.hasRemaining()) {
+                    return null;
+                }
+                int byteCount = buffer.get();
+                if (byteCount < 0 || byteCount > Long.BYTES || buffer.remaining() < byteCount) {
+                    return null;
+                }
+                long xor = 0;
+                for (int b = 0; b < byteCount; b++) {
+                    xor |= (buffer.get() & 0xFFL) << (8 * b);
+                }
+                values[i] = Double.longBitsToDouble(Double.doubleToRawLongBits(referenceValues[i]) ^ xor);
+            }
+            if (buffer.hasRemaining()) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+
+        double[] nitrogen = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+        double[] helium = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+        System.arraycopy(values, 0, nitrogen, 0, nitrogen.length);
+        System.arraycopy(values, nitrogen.length, helium, 0, helium.length);
+        return new TissueState(nitrogen, helium);
+    }
+
+    private static double[] toValues(TissueState tissueState) {
+        double[] values = new double[VALUE_COUNT];
+        double[] nitrogen = tissueState.getNitrogenPressuresFsw();
+        double[] helium = tissueState.getHeliumPressuresFsw();
+        System.arraycopy(nitrogen, 0, values, 0, nitrogen.length);
+        System.arraycopy(helium, 0, values, nitrogen.length, helium.length);
+        return values;
+    }
+}
@@ -0,0 +1,23 @@
+package com.burc.novadiveplannerupdated.data.room.converter;
+
+import androidx.room.TypeConverter;
+
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+
+/**
+ * Stores a {@link TissueState} as a BLOB in the full {@link TissueCheckpointCodec} format.
+ * Delta-encoded checkpoints need their reference state and are decoded by the mapper instead.
+ */
+public class TissueStateConverter {
+
+    @TypeConverter
+    public static byte[] fromTissueState(TissueState tissueState) {
+        return TissueCheckpointCodec.encode(tissueState);
+    }
+
+    @TypeConverter
+    public static TissueState toTissueState(byte[] blob) {
+        // Okunamayan veri için null döner; çağıran varsayılan duruma döner
+        return TissueCheckpointCodec.decode(blob, null);
+    }
+}
@@ -0,0 +1,117 @@
+package com.burc.novadiveplannerupdated.data.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.burc.novadiveplannerupdated.data.room.entity.DecoStopEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DivePlanEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveSegmentEntity;
+import com.burc.novadiveplannerupdated.data.room.relation.DivePlanWithDives;
+import com.burc.novadiveplannerupdated.data.room.relation.DiveWithSegments;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+
+@Dao
+public abstract class DivePlanDao {
+
+    /**
+     * Replaces a stored plan, its dives and all of their segments in a single transaction.
+     * Old dives are deleted (their segments and deco stops follow by cascade), the dives are inserted
+     * in one batch, and every segment (and cached deco stop) of every dive is then inserted in one batch.
+     * Blocking; call it off the main thread.
+     *
+     * @param plan  The plan row to insert or replace.
+     * @param dives The plan's dives, each with its segments. Dive and segment ids are assigned here.
+     */
+    @Transaction
+    public void replaceDivePlan(DivePlanEntity plan, List<DiveWithSegments> dives) {
+        deleteDivesOfPlan(plan.id);
+        insertOrReplacePlan(plan);
+
+        List<DiveEntity> diveRows = new ArrayList<>(dives.size());
+        int segmentCount = 0;
+        int decoStopCount = 0;
+        for (DiveWithSegments dive : dives) {
+            dive.dive.planId = plan.id;
+            dive.dive.diveId = 0; // Yeni id üretilsin
+            diveRows.add(dive.dive);
+            segmentCount += dive.segments.size();
+            decoStopCount += dive.decoStops.size();
+        }
+        List<Long> diveIds = insertDives(diveRows);
+
+        List<DiveSegmentEntity> segmentRows = new ArrayList<>(segmentCount);
+        List<DecoStopEntity> decoStopRows = new ArrayList<>(decoStopCount);
+        for (int i = 0; i < dives.size(); i++) {
+            long diveId = diveIds.get(i);
+            for (DiveSegmentEntity segment : dives.get(i).segments) {
+                segment.diveId = diveId;
+                segment.segmentId = 0;
+                segmentRows.add(segment);
+            }
+            for (DecoStopEntity decoStop : dives.get(i).decoStops) {
+                decoStop.diveId = diveId;
+                decoStop.stopId = 0;
+                decoStopRows.add(decoStop);
+            }
+        }
+        if (!segmentRows.isEmpty()) {
+            insertSegments(segmentRows);
+        }
+        if (!decoStopRows.isEmpty()) {
+            insertDecoStops(decoStopRows);
+        }
+    }
+
+    /**
+     * Loads the most recently saved plan with all of its dives and segments.
+     *
+     * @return A Maybe emitting the plan if one is stored, or completing without a value if not.
+     */
+    @Transaction
+    @Query("SELECT * FROM dive_plans ORDER BY updated_at DESC LIMIT 1")
+    public abstract Maybe<DivePlanWithDives> getLastSavedDivePlan();
+
+    /**
+     * Loads a plan with all of its dives and segments.
+     *
+     * @param planId The id of the plan.
+     * @return A Maybe emitting the plan if found, or completing without a value if not found.
+     */
+    @Transaction
+    @Query("SELECT * FROM dive_plans WHERE id = :planId")
+    public abstract Maybe<DivePlanWithDives> getDivePlanById(String planId);
+
+    /**
+     * Deletes a plan; its dives and segments are removed by cascade.
+     *
+     * @param planId The id of the plan to delete.
+     * @return A Completable that completes when the operation is finished.
+     */
+    @Query("DELETE FROM dive_plans WHERE id = :planId")
+    public abstract Completable deleteDivePlan(String planId);
+
+    // replaceDivePlan içinde kullanılan blocking yardımcılar; doğrudan çağrılmamalı
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertOrReplacePlan(DivePlanEntity plan);
+
+    @Insert
+    public abstract List<Long> insertDives(List<DiveEntity> dives);
+
+    @Insert
+    public abstract void insertSegments(List<DiveSegmentEntity> segments);
+
+    @Insert
+    public abstract void insertDecoStops(List<DecoStopEntity> decoStops);
+
+    @Query("DELETE FROM dives WHERE plan_id = :planId")
+    public abstract void deleteDivesOfPlan(String planId);
+}
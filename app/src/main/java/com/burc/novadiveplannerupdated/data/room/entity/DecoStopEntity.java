@@ -0,0 +1,53 @@
+package com.burc.novadiveplannerupdated.data.room.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import com.burc.novadiveplannerupdated.data.room.converter.GasTypeConverter;
+
+/**
+ * One cached decompression stop of a dive. Written together with the dive's other results.
+ */
+@Entity(tableName = "dive_deco_stops",
+        foreignKeys = @ForeignKey(entity = DiveEntity.class,
+                parentColumns = "dive_id",
+                childColumns = "dive_id",
+                onDelete = ForeignKey.CASCADE), // Dalış silinince durakları da silinir
+        indices = @Index(value = {"dive_id", "stop_index"}, unique = true))
+@TypeConverters(GasTypeConverter.class) // Gömülü gazın GasType alanı için
+public class DecoStopEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "stop_id")
+    public long stopId;
+
+    @ColumnInfo(name = "dive_id")
+    public long diveId; // Yazma sırasında DAO tarafından atanır
+
+    @ColumnInfo(name = "stop_index")
+    public int stopIndex; // Çıkış sırası, 0 en derin durak
+
+    @ColumnInfo(name = "depth_fsw")
+    public double depthFsw;
+
+    @ColumnInfo(name = "duration_minutes")
+    public int durationMinutes;
+
+    @Embedded(prefix = "gas_")
+    public GasEntity gas;
+
+    // Room için gerekli boş constructor
+    public DecoStopEntity() {}
+
+    public DecoStopEntity(int stopIndex, double depthFsw, int durationMinutes, GasEntity gas) {
+        this.stopIndex = stopIndex;
+        this.depthFsw = depthFsw;
+        this.durationMinutes = durationMinutes;
+        this.gas = gas;
+    }
+}
@@ -0,0 +1,78 @@
+package com.burc.novadiveplannerupdated.data.room.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import com.burc.novadiveplannerupdated.data.room.converter.TissueStateConverter;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+
+@Entity(tableName = "dives",
+        foreignKeys = @ForeignKey(entity = DivePlanEntity.class,
+                parentColumns = "id",
+                childColumns = "plan_id",
+                onDelete = ForeignKey.CASCADE), // Plan silinince dalışları da silinir
+        indices = @Index(value = {"plan_id", "dive_number"}, unique = true))
+@TypeConverters(TissueStateConverter.class)
+public class DiveEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "dive_id")
+    public long diveId;
+
+    @ColumnInfo(name = "plan_id")
+    public String planId;
+
+    @ColumnInfo(name = "dive_number")
+    public int diveNumber; // Plan içindeki 1 tabanlı sıra
+
+    @ColumnInfo(name = "surface_interval_seconds")
+    public long surfaceIntervalBeforeDiveInSeconds;
+
+    @ColumnInfo(name = "initial_tissue_state")
+    public TissueState initialTissueState; // BLOB olarak saklanır
+
+    // --- Hesaplanmış sonuçlar (önbellek), yoksa null ---
+    // Sadece engine_version ve settings_hash güncel hesaplamayla eşleşirse kullanılır.
+
+    @ColumnInfo(name = "engine_version")
+    public Integer engineVersion;
+
+    @ColumnInfo(name = "settings_hash")
+    public Long settingsHash;
+
+    @ColumnInfo(name = "end_tissue_checkpoint", typeAffinity = ColumnInfo.BLOB)
+    public byte[] endTissueCheckpoint; // Dalış sonu; son segmentin checkpoint'ine göre delta
+
+    @ColumnInfo(name = "max_depth_meters")
+    public Double calculatedMaxDepthMeters;
+
+    @ColumnInfo(name = "ndl_seconds")
+    public Integer calculatedNdlSeconds;
+
+    @ColumnInfo(name = "time_to_surface_seconds")
+    public Integer calculatedTimeToSurfaceSeconds;
+
+    @ColumnInfo(name = "total_gas_consumed_cuft")
+    public Double calculatedTotalGasConsumedCuft;
+
+    @ColumnInfo(name = "total_cns_percent")
+    public Double calculatedTotalCnsPercent;
+
+    @ColumnInfo(name = "total_otu")
+    public Double calculatedTotalOtu;
+
+    // Room için gerekli boş constructor
+    public DiveEntity() {}
+
+    public DiveEntity(String planId, int diveNumber, long surfaceIntervalBeforeDiveInSeconds,
+                      TissueState initialTissueState) {
+        this.planId = planId;
+        this.diveNumber = diveNumber;
+        this.surfaceIntervalBeforeDiveInSeconds = surfaceIntervalBeforeDiveInSeconds;
+        this.initialTissueState = initialTissueState;
+    }
+}
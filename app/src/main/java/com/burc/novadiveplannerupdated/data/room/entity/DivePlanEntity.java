@@ -0,0 +1,35 @@
+package com.burc.novadiveplannerupdated.data.room.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+@Entity(tableName = "dive_plans")
+public class DivePlanEntity {
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "id")
+    public String id = ""; // DivePlan UUID'si
+
+    @ColumnInfo(name = "plan_title")
+    public String planTitle;
+
+    @Embedded(prefix = "settings_")
+    public DiveSettingsEntity settings; // Plan oluşturulurken alınan ayar snapshot'ı
+
+    @ColumnInfo(name = "updated_at")
+    public long updatedAt; // Son kaydedilme zamanı (epoch ms), son planı bulmak için
+
+    // Room için gerekli boş constructor
+    public DivePlanEntity() {}
+
+    public DivePlanEntity(@NonNull String id, String planTitle, DiveSettingsEntity settings, long updatedAt) {
+        this.id = id;
+        this.planTitle = planTitle;
+        this.settings = settings;
+        this.updatedAt = updatedAt;
+    }
+}
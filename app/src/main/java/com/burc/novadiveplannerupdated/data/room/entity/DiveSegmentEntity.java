@@ -0,0 +1,84 @@
+package com.burc.novadiveplannerupdated.data.room.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import com.burc.novadiveplannerupdated.data.room.converter.GasTypeConverter;
+
+/**
+ * One user-entered segment of a dive, with its calculated results when the dive's results are cached.
+ * The result columns are null for plans saved straight from an edit.
+ */
+@Entity(tableName = "dive_segments",
+        foreignKeys = @ForeignKey(entity = DiveEntity.class,
+                parentColumns = "dive_id",
+                childColumns = "dive_id",
+                onDelete = ForeignKey.CASCADE), // Dalış silinince segmentleri de silinir
+        indices = @Index(value = {"dive_id", "segment_number"}, unique = true))
+@TypeConverters(GasTypeConverter.class) // Gömülü gazın GasType alanı için
+public class DiveSegmentEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "segment_id")
+    public long segmentId;
+
+    @ColumnInfo(name = "dive_id")
+    public long diveId; // Yazma sırasında DAO tarafından atanır
+
+    @ColumnInfo(name = "segment_number")
+    public int segmentNumber;
+
+    @ColumnInfo(name = "target_depth")
+    public double targetDepth; // feet
+
+    @ColumnInfo(name = "duration_seconds")
+    public long userInputTotalDurationInSeconds;
+
+    @Embedded(prefix = "gas_")
+    public GasEntity gas; // Segmentte kullanılan gazın snapshot'ı; gaz slotu sonradan değişse de plan bozulmaz
+
+    @ColumnInfo(name = "descent_rate")
+    public double descentRate; // ft/min
+
+    @ColumnInfo(name = "ascent_rate")
+    public double ascentRate; // ft/min
+
+    @ColumnInfo(name = "set_point")
+    public double setPoint; // CC için PPO2
+
+    // --- Hesaplanmış sonuçlar (önbellek), yoksa null ---
+
+    @ColumnInfo(name = "end_tissue_checkpoint", typeAffinity = ColumnInfo.BLOB)
+    public byte[] endTissueCheckpoint; // TissueCheckpointCodec; bir önceki checkpoint'e göre delta
+
+    @ColumnInfo(name = "transit_duration_seconds")
+    public Double calculatedTransitDurationSeconds;
+
+    @ColumnInfo(name = "gas_consumed_cuft")
+    public Double gasConsumedInSegmentCuft;
+
+    @ColumnInfo(name = "cns_added_percent")
+    public Double cnsAddedInSegmentPercent;
+
+    @ColumnInfo(name = "otus_added")
+    public Double otusAddedInSegment;
+
+    // Room için gerekli boş constructor
+    public DiveSegmentEntity() {}
+
+    public DiveSegmentEntity(int segmentNumber, double targetDepth, long userInputTotalDurationInSeconds,
+                             GasEntity gas, double descentRate, double ascentRate, double setPoint) {
+        this.segmentNumber = segmentNumber;
+        this.targetDepth = targetDepth;
+        this.userInputTotalDurationInSeconds = userInputTotalDurationInSeconds;
+        this.gas = gas;
+        this.descentRate = descentRate;
+        this.ascentRate = ascentRate;
+        this.setPoint = setPoint;
+    }
+}
@@ -0,0 +1,31 @@
+package com.burc.novadiveplannerupdated.data.room.relation;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+import com.burc.novadiveplannerupdated.data.room.entity.DiveEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DivePlanEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dive plan row with its dives and their segments, loaded by one {@code @Transaction} query.
+ * Room does not guarantee the order of {@link #dives}; sort by dive number after loading.
+ */
+public class DivePlanWithDives {
+
+    @Embedded
+    public DivePlanEntity plan;
+
+    @Relation(entity = DiveEntity.class, parentColumn = "id", entityColumn = "plan_id")
+    public List<DiveWithSegments> dives = new ArrayList<>();
+
+    // Room için gerekli boş constructor
+    public DivePlanWithDives() {}
+
+    public DivePlanWithDives(DivePlanEntity plan, List<DiveWithSegments> dives) {
+        this.plan = plan;
+        this.dives = dives;
+    }
+}
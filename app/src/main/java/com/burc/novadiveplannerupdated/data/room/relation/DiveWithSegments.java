@@ -0,0 +1,36 @@
+package com.burc.novadiveplannerupdated.data.room.relation;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+import com.burc.novadiveplannerupdated.data.room.entity.DecoStopEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveEntity;
+import com.burc.novadiveplannerupdated.data.room.entity.DiveSegmentEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dive row together with all of its segment rows and cached deco stop rows.
+ * Room does not guarantee the order of the lists; sort by segment number / stop index after loading.
+ */
+public class DiveWithSegments {
+
+    @Embedded
+    public DiveEntity dive;
+
+    @Relation(parentColumn = "dive_id", entityColumn = "dive_id")
+    public List<DiveSegmentEntity> segments = new ArrayList<>();
+
+    @Relation(parentColumn = "dive_id", entityColumn = "dive_id")
+    public List<DecoStopEntity> decoStops = new ArrayList<>(); // Sonuçlar önbellekte yoksa boş
+
+    // Room için gerekli boş constructor
+    public DiveWithSegments() {}
+
+    public DiveWithSegments(DiveEntity dive, List<DiveSegmentEntity> segments, List<DecoStopEntity> decoStops) {
+        this.dive = dive;
+        this.segments = segments;
+        this.decoStops = decoStops;
+    }
+}
@@ -0,0 +1,23 @@
+package com.burc.novadiveplannerupdated.di;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.hilt.InstallIn;
+import dagger.hilt.components.SingletonComponent;
+
+@Module
+@InstallIn(SingletonComponent.class)
+public abstract class CalculationModule {
+
+    @Provides
+    @Singleton
+    public static CalculationSchedulers provideCalculationSchedulers() {
+        // One calculation thread per core; the pool is shared by interactive and background work,
+        // and background work never takes the last free thread
+        return new CalculationSchedulers(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+}
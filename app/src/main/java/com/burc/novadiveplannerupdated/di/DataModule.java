@@ -12,6 +12,7 @@ import com.burc.novadiveplannerupdated.data.mapper.SettingsMapper;
 import com.burc.novadiveplannerupdated.data.repository.GasRepositoryImpl;
 import com.burc.novadiveplannerupdated.data.repository.SettingsRepositoryImpl;
 import com.burc.novadiveplannerupdated.data.room.AppDatabase;
+import com.burc.novadiveplannerupdated.data.room.dao.DivePlanDao;
 import com.burc.novadiveplannerupdated.data.room.dao.GasDao;
 import com.burc.novadiveplannerupdated.data.room.dao.SettingsDao;
 import com.burc.novadiveplannerupdated.data.room.entity.DiveSettingsEntity;
@@ -90,7 +91,7 @@ public abstract class DataModule {
                 });
             }
         })
-        .fallbackToDestructiveMigration()
+        .addMigrations(AppDatabase.MIGRATION_1_2, AppDatabase.MIGRATION_2_3)
         .build();
     }
 
@@ -127,6 +128,12 @@ public abstract class DataModule {
         return appDatabase.gasDao();
     }
 
+    @Provides
+    @Singleton
+    public static DivePlanDao provideDivePlanDao(AppDatabase appDatabase) {
+        return appDatabase.divePlanDao();
+    }
+
     @Binds
     @Singleton
     public abstract SettingsRepository bindSettingsRepository(SettingsRepositoryImpl settingsRepositoryImpl);
@@ -0,0 +1,193 @@
+package com.burc.novadiveplannerupdated.domain.common;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * Schedulers for CPU-bound domain calculations (gas properties, segment loading, NDL, deco).
+ * <p>
+ * Both schedulers share one fixed pool with a thread per core, so calculations never spawn more threads
+ * than the device can run, unlike {@code Schedulers.io()} which grows without bound and is meant for
+ * blocking I/O. Queued work is ordered by priority: {@link #interactive()} tasks (recalculating what the
+ * user is looking at) always run before {@link #background()} tasks (precomputing alternatives), and tasks
+ * of the same priority run in submission order.
+ * <p>
+ * Priority alone cannot preempt a background task that is already running, so background work is also
+ * limited to {@link #getBackgroundParallelism()} running tasks: one thread is kept free for interactive work
+ * whenever the pool has more than one thread. Background tasks over the limit wait in submission order.
+ */
+public final class CalculationSchedulers {
+
+    private static final int PRIORITY_INTERACTIVE = 0;
+    private static final int PRIORITY_BACKGROUND = 1;
+
+    private final ThreadPoolExecutor calculationPool;
+    private final int backgroundParallelism;
+    private final Scheduler interactive;
+    private final Scheduler background;
+    private final AtomicLong submissionSequence = new AtomicLong();
+
+    /**
+     * @param threadCount Number of calculation threads, usually the number of available cores.
+     */
+    public CalculationSchedulers(int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive. Was: " + threadCount);
+        }
+        this.calculationPool = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                new CalculationThreadFactory()
+        );
+        // Keep one thread for interactive work, unless there is only one
+        this.backgroundParallelism = Math.max(1, threadCount - 1);
+        this.interactive = Schedulers.from(new PrioritizedExecutor(PRIORITY_INTERACTIVE));
+        this.background = Schedulers.from(new BoundedExecutor(new PrioritizedExecutor(PRIORITY_BACKGROUND),
+                backgroundParallelism));
+    }
+
+    /**
+     * @return Scheduler for calculations whose results the user is waiting for.
+     */
+    public Scheduler interactive() {
+        return interactive;
+    }
+
+    /**
+     * @return Scheduler for speculative or precomputed calculations; only runs when no interactive work is queued,
+     *         on at most {@link #getBackgroundParallelism()} threads at a time.
+     */
+    public Scheduler background() {
+        return background;
+    }
+
+    public int getThreadCount() {
+        return calculationPool.getCorePoolSize();
+    }
+
+    /**
+     * @return The number of background tasks that may run at the same time: all threads but one, or one
+     *         for a single-thread pool.
+     */
+    public int getBackgroundParallelism() {
+        return backgroundParallelism;
+    }
+
+    /**
+     * Submits every task to the shared pool with a fixed priority.
+     */
+    private final class PrioritizedExecutor implements Executor {
+        private final int priority;
+
+        PrioritizedExecutor(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            calculationPool.execute(new PrioritizedTask(command, priority, submissionSequence.getAndIncrement()));
+        }
+    }
+
+    /**
+     * Passes at most {@code maxRunning} tasks at a time to the delegate and holds the rest in submission order.
+     */
+    private static final class BoundedExecutor implements Executor {
+        private final Executor delegate;
+        private final int maxRunning;
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private int running; // Guarded by this
+
+        BoundedExecutor(Executor delegate, int maxRunning) {
+            this.delegate = delegate;
+            this.maxRunning = maxRunning;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            synchronized (this) {
+                if (running >= maxRunning) {
+                    pending.add(command);
+                    return;
+                }
+                running++;
+            }
+            submit(command);
+        }
+
+        private void submit(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    onTaskFinished();
+                }
+            });
+        }
+
+        private void onTaskFinished() {
+            Runnable next;
+            synchronized (this) {
+                next = pending.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+            // The finished task's slot passes straight to the next one
+            submit(next);
+        }
+    }
+
+    /**
+     * Queue entry ordered by priority, then by submission order.
+     */
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable delegate;
+        private final int priority;
+        private final long sequence;
+
+        PrioritizedTask(Runnable delegate, int priority, long sequence) {
+            this.delegate = delegate;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class CalculationThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "NovaCalculation-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
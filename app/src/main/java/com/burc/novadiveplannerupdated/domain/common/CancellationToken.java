@@ -0,0 +1,38 @@
+package com.burc.novadiveplannerupdated.domain.common;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation flag for long-running calculations.
+ * The caller cancels the token from any thread; the calculation polls it at safe points
+ * (between segments, between deco stops) and abandons its work by throwing a {@link CancellationException}.
+ */
+public final class CancellationToken {
+
+    /** A token that is never cancelled, for callers that do not need cancellation. */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests cancellation. Has no effect on {@link #NONE}.
+     */
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if cancellation has been requested.
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Calculation cancelled.");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.burc.novadiveplannerupdated.domain.entity;
 
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -19,7 +21,7 @@ public final class Dive {
     private final List<DiveSegment> segments; // Must not be empty
 
     // Calculated fields
-    private final List<InstantaneousDiveState> timelineStates;
+    private final DiveTimeline timeline; // Columnar samples; empty if not yet calculated
     private final Double calculatedMaxDepthMeters;
     private final Integer calculatedNdlSeconds;
     private final Integer calculatedTimeToSurfaceSeconds;
@@ -27,6 +29,7 @@ public final class Dive {
     private final Double calculatedTotalCNSPercent;
     private final Double calculatedTotalOTU;
     private final TissueState tissueStateAtEndOfDive;
+    private final List<DecoStop> decoStops; // Empty for a no-deco dive or if not yet calculated
 
     private Dive(Builder builder) {
         this.diveNumber = builder.diveNumber;
@@ -36,9 +39,7 @@ public final class Dive {
         Objects.requireNonNull(builder.segments, "Segments list cannot be null for a Dive.");
         this.segments = Collections.unmodifiableList(new ArrayList<>(builder.segments)); // Defensive copy
 
-        this.timelineStates = builder.timelineStates != null ?
-                Collections.unmodifiableList(new ArrayList<>(builder.timelineStates)) :
-                Collections.emptyList(); // Defensive copy or empty list
+        this.timeline = builder.timeline != null ? builder.timeline : DiveTimeline.EMPTY; // Already immutable
 
         this.calculatedMaxDepthMeters = builder.calculatedMaxDepthMeters;
         this.calculatedNdlSeconds = builder.calculatedNdlSeconds;
@@ -49,6 +50,9 @@ public final class Dive {
         this.tissueStateAtEndOfDive = builder.tissueStateAtEndOfDive != null ?
                 new TissueState(builder.tissueStateAtEndOfDive) : // Defensive copy if not null
                 null;
+        this.decoStops = builder.decoStops != null ?
+                Collections.unmodifiableList(new ArrayList<>(builder.decoStops)) :
+                Collections.emptyList();
     }
 
     // --- Getters ---
@@ -71,8 +75,16 @@ public final class Dive {
         return segments; // Already unmodifiable
     }
 
+    /**
+     * @return A read-only view of the timeline as InstantaneousDiveState objects, built on access.
+     *         Prefer {@link #getTimeline()} when iterating over many samples.
+     */
     public List<InstantaneousDiveState> getTimelineStates() {
-        return timelineStates; // Already unmodifiable
+        return timeline.asInstantaneousStates();
+    }
+
+    public DiveTimeline getTimeline() {
+        return timeline; // Already immutable
     }
 
     public Double getCalculatedMaxDepthMeters() {
@@ -104,6 +116,10 @@ public final class Dive {
         return tissueStateAtEndOfDive != null ? new TissueState(tissueStateAtEndOfDive) : null;
     }
 
+    public List<DecoStop> getDecoStops() {
+        return decoStops; // Already unmodifiable
+    }
+
     // --- equals(), hashCode(), toString() ---
 
     @Override
@@ -115,21 +131,22 @@ public final class Dive {
                 surfaceIntervalBeforeDiveInSeconds == dive.surfaceIntervalBeforeDiveInSeconds &&
                 initialTissueStateForThisDive.equals(dive.initialTissueStateForThisDive) &&
                 segments.equals(dive.segments) &&
-                Objects.equals(timelineStates, dive.timelineStates) &&
+                timeline.equals(dive.timeline) &&
                 Objects.equals(calculatedMaxDepthMeters, dive.calculatedMaxDepthMeters) &&
                 Objects.equals(calculatedNdlSeconds, dive.calculatedNdlSeconds) &&
                 Objects.equals(calculatedTimeToSurfaceSeconds, dive.calculatedTimeToSurfaceSeconds) &&
                 Objects.equals(calculatedTotalGasConsumedCuft, dive.calculatedTotalGasConsumedCuft) &&
                 Objects.equals(calculatedTotalCNSPercent, dive.calculatedTotalCNSPercent) &&
                 Objects.equals(calculatedTotalOTU, dive.calculatedTotalOTU) &&
-                Objects.equals(tissueStateAtEndOfDive, dive.tissueStateAtEndOfDive);
+                Objects.equals(tissueStateAtEndOfDive, dive.tissueStateAtEndOfDive) &&
+                Objects.equals(decoStops, dive.decoStops);
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(diveNumber, surfaceIntervalBeforeDiveInSeconds, initialTissueStateForThisDive, segments,
-                timelineStates, calculatedMaxDepthMeters, calculatedNdlSeconds, calculatedTimeToSurfaceSeconds,
-                calculatedTotalGasConsumedCuft, calculatedTotalCNSPercent, calculatedTotalOTU, tissueStateAtEndOfDive);
+                timeline, calculatedMaxDepthMeters, calculatedNdlSeconds, calculatedTimeToSurfaceSeconds,
+                calculatedTotalGasConsumedCuft, calculatedTotalCNSPercent, calculatedTotalOTU, tissueStateAtEndOfDive, decoStops);
     }
 
     @Override
@@ -146,7 +163,8 @@ public final class Dive {
                 ", calculatedTotalCNSPercent=" + calculatedTotalCNSPercent +
                 ", calculatedTotalOTU=" + calculatedTotalOTU +
                 ", tissueStateAtEndOfDive=" + tissueStateAtEndOfDive +
-                ", timelineStatesSize=" + (timelineStates != null ? timelineStates.size() : 0) +
+                ", decoStops=" + decoStops +
+                ", timelineSamples=" + timeline.size() +
                 '}';
     }
 
@@ -159,7 +177,7 @@ public final class Dive {
         private final List<DiveSegment> segments = new ArrayList<>();
 
         // Calculated fields
-        private List<InstantaneousDiveState> timelineStates = new ArrayList<>();
+        private DiveTimeline timeline;
         private Double calculatedMaxDepthMeters;
         private Integer calculatedNdlSeconds;
         private Integer calculatedTimeToSurfaceSeconds;
@@ -167,6 +185,7 @@ public final class Dive {
         private Double calculatedTotalCNSPercent;
         private Double calculatedTotalOTU;
         private TissueState tissueStateAtEndOfDive;
+        private List<DecoStop> decoStops = new ArrayList<>();
 
         /**
          * Builder constructor.
@@ -206,11 +225,15 @@ public final class Dive {
         }
 
         public Builder timelineStates(List<InstantaneousDiveState> timelineStates) {
-            if (timelineStates != null) {
-                this.timelineStates = new ArrayList<>(timelineStates); // Defensive copy
-            } else {
-                this.timelineStates.clear();
-            }
+            // Stored in columnar form; the Dive no longer keeps the objects themselves
+            this.timeline = timelineStates != null ?
+                    new DiveTimeline.Builder(timelineStates.size()).addStates(timelineStates).build() :
+                    null;
+            return this;
+        }
+
+        public Builder timeline(DiveTimeline timeline) {
+            this.timeline = timeline;
             return this;
         }
 
@@ -249,6 +272,15 @@ public final class Dive {
             return this;
         }
 
+        public Builder decoStops(List<DecoStop> decoStops) {
+            if (decoStops != null) {
+                this.decoStops = new ArrayList<>(decoStops); // Defensive copy
+            } else {
+                this.decoStops.clear();
+            }
+            return this;
+        }
+
         public Dive build() {
             // initialTissueStateForThisDive will be checked for null in the Dive constructor.
             // segments list emptiness will also be checked in the Dive constructor.
@@ -98,6 +98,39 @@ public final class DiveSegment {
         return otusAddedInSegment;
     }
 
+    /**
+     * Compares only the user-entered inputs of two segments, ignoring any calculated results.
+     * Two segments with the same inputs produce the same loading from the same starting state,
+     * so the stored results of one can stand in for the other.
+     *
+     * @param other The segment to compare with.
+     * @return true if number, depth, duration, gas, rates and setpoint are all equal.
+     */
+    public boolean hasSameInputsAs(DiveSegment other) {
+        if (other == null) return false;
+        if (this == other) return true;
+        return segmentNumber == other.segmentNumber &&
+                Double.compare(other.targetDepth, targetDepth) == 0 &&
+                userInputTotalDurationInSeconds == other.userInputTotalDurationInSeconds &&
+                Double.compare(other.descentRate, descentRate) == 0 &&
+                Double.compare(other.ascentRate, ascentRate) == 0 &&
+                Double.compare(other.setPoint, setPoint) == 0 &&
+                Objects.equals(gas, other.gas);
+    }
+
+    /**
+     * Checks whether the segment holds the results of a calculation, so they can be reused instead of
+     * recalculating the segment.
+     *
+     * @return true if the end tissue state, gas consumed, CNS and OTUs are all set.
+     */
+    public boolean hasCalculatedResults() {
+        return tissueStateAtEndOfSegment != null
+                && gasConsumedInSegmentCuft != null
+                && cnsAddedInSegmentPercent != null
+                && otusAddedInSegment != null;
+    }
+
     // --- equals() and hashCode() ---
     @Override
     public boolean equals(Object o) {
@@ -164,6 +197,26 @@ public final class DiveSegment {
             // No-arg constructor
         }
 
+        /**
+         * Copy constructor, including any calculated fields.
+         * @param source The segment to copy.
+         */
+        public Builder(DiveSegment source) {
+            Objects.requireNonNull(source, "Source DiveSegment cannot be null.");
+            this.segmentNumber = source.segmentNumber;
+            this.targetDepth = source.targetDepth;
+            this.userInputTotalDurationInSeconds = source.userInputTotalDurationInSeconds;
+            this.gas = source.gas;
+            this.descentRate = source.descentRate;
+            this.ascentRate = source.ascentRate;
+            this.setPoint = source.setPoint;
+            this.tissueStateAtEndOfSegment = source.tissueStateAtEndOfSegment;
+            this.calculatedTransitDurationSeconds = source.calculatedTransitDurationSeconds;
+            this.gasConsumedInSegmentCuft = source.gasConsumedInSegmentCuft;
+            this.cnsAddedInSegmentPercent = source.cnsAddedInSegmentPercent;
+            this.otusAddedInSegment = source.otusAddedInSegment;
+        }
+
         public Builder segmentNumber(int segmentNumber) {
             this.segmentNumber = segmentNumber;
             return this;
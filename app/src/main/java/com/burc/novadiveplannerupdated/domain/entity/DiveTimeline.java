@@ -0,0 +1,500 @@
+package com.burc.novadiveplannerupdated.domain.entity;
+
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The sampled profile of a dive, stored column by column.
+ * <p>
+ * Every sample is a row across parallel primitive arrays (time, depth, ppO2, GF, cumulative CNS, OTU and
+ * gas consumed, and an index into a small gas palette). The tissue tensions of all samples share one flat
+ * block of {@link #TISSUE_VALUES_PER_SAMPLE} doubles per sample: the 17 nitrogen pressures followed by the
+ * 17 helium pressures. A long dive at 1-second resolution therefore costs a handful of arrays instead of
+ * one {@link InstantaneousDiveState} (plus its TissueState and two arrays) per second.
+ * <p>
+ * Values are read with the indexed getters or a reusable {@link Cursor}; neither allocates.
+ * {@link #asInstantaneousStates()} offers the old object view for code that still needs it.
+ * Instances are immutable and created via the Builder.
+ */
+public final class DiveTimeline {
+
+    /** Tissue values stored per sample: nitrogen pressures, then helium pressures, in fsw. */
+    public static final int TISSUE_VALUES_PER_SAMPLE = 2 * DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS;
+
+    /** Timeline without any samples, e.g. for a dive that has not been calculated yet. */
+    public static final DiveTimeline EMPTY = new Builder(0).build();
+
+    private static final int MAX_GAS_COUNT = Byte.MAX_VALUE;
+
+    private final int sampleCount;
+    private final long[] timeSeconds;
+    private final double[] depthFsw;
+    private final double[] ppo2Ata;
+    private final double[] gradientFactor;
+    private final double[] cumulativeCnsPercent;
+    private final double[] cumulativeOtu;
+    private final double[] cumulativeGasConsumedLiters;
+    private final byte[] gasIndex;
+    private final List<Gas> gases; // Palette referenced by gasIndex
+    private final double[] tissueTensionsFsw; // sampleCount * TISSUE_VALUES_PER_SAMPLE
+
+    private DiveTimeline(Builder builder) {
+        // Trim the growable builder columns to the exact size
+        this.sampleCount = builder.sampleCount;
+        this.timeSeconds = Arrays.copyOf(builder.timeSeconds, sampleCount);
+        this.depthFsw = Arrays.copyOf(builder.depthFsw, sampleCount);
+        this.ppo2Ata = Arrays.copyOf(builder.ppo2Ata, sampleCount);
+        this.gradientFactor = Arrays.copyOf(builder.gradientFactor, sampleCount);
+        this.cumulativeCnsPercent = Arrays.copyOf(builder.cumulativeCnsPercent, sampleCount);
+        this.cumulativeOtu = Arrays.copyOf(builder.cumulativeOtu, sampleCount);
+        this.cumulativeGasConsumedLiters = Arrays.copyOf(builder.cumulativeGasConsumedLiters, sampleCount);
+        this.gasIndex = Arrays.copyOf(builder.gasIndex, sampleCount);
+        this.gases = Collections.unmodifiableList(new ArrayList<>(builder.gases));
+        this.tissueTensionsFsw = Arrays.copyOf(builder.tissueTensionsFsw, sampleCount * TISSUE_VALUES_PER_SAMPLE);
+    }
+
+    // --- Indexed getters ---
+
+    public int size() {
+        return sampleCount;
+    }
+
+    public boolean isEmpty() {
+        return sampleCount == 0;
+    }
+
+    public long getTimeSeconds(int index) {
+        checkIndex(index);
+        return timeSeconds[index];
+    }
+
+    public double getDepthFsw(int index) {
+        checkIndex(index);
+        return depthFsw[index];
+    }
+
+    public double getPpo2Ata(int index) {
+        checkIndex(index);
+        return ppo2Ata[index];
+    }
+
+    public double getGradientFactor(int index) {
+        checkIndex(index);
+        return gradientFactor[index];
+    }
+
+    public double getCumulativeCnsPercent(int index) {
+        checkIndex(index);
+        return cumulativeCnsPercent[index];
+    }
+
+    public double getCumulativeOtu(int index) {
+        checkIndex(index);
+        return cumulativeOtu[index];
+    }
+
+    public double getCumulativeGasConsumedLiters(int index) {
+        checkIndex(index);
+        return cumulativeGasConsumedLiters[index];
+    }
+
+    public int getGasIndex(int index) {
+        checkIndex(index);
+        return gasIndex[index];
+    }
+
+    public Gas getGas(int index) {
+        return gases.get(getGasIndex(index));
+    }
+
+    /**
+     * @return The distinct gases breathed during the timeline, in the order they first appear.
+     */
+    public List<Gas> getGases() {
+        return gases; // Already unmodifiable
+    }
+
+    public double getNitrogenPressureFsw(int index, int compartmentIndex) {
+        return tissueTensionsFsw[tissueOffset(index, compartmentIndex)];
+    }
+
+    public double getHeliumPressureFsw(int index, int compartmentIndex) {
+        return tissueTensionsFsw[tissueOffset(index, compartmentIndex) + DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+    }
+
+    /**
+     * Copies the tissue tensions of a sample into caller-owned arrays.
+     *
+     * @param index          The sample index.
+     * @param nitrogenTarget Array of at least 17 elements receiving the nitrogen pressures in fsw.
+     * @param heliumTarget   Array of at least 17 elements receiving the helium pressures in fsw.
+     */
+    public void copyTissueTensionsInto(int index, double[] nitrogenTarget, double[] heliumTarget) {
+        int offset = tissueOffset(index, 0);
+        System.arraycopy(tissueTensionsFsw, offset, nitrogenTarget, 0, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+        System.arraycopy(tissueTensionsFsw, offset + DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS,
+                heliumTarget, 0, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+    }
+
+    /**
+     * @return A new TissueState holding the tissue tensions of a sample. Allocates; prefer
+     *         {@link #copyTissueTensionsInto(int, double[], double[])} in loops.
+     */
+    public TissueState getTissueState(int index) {
+        double[] nitrogen = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+        double[] helium = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+        copyTissueTensionsInto(index, nitrogen, helium);
+        return new TissueState(nitrogen, helium);
+    }
+
+    /**
+     * Finds the last sample taken at or before the given time.
+     *
+     * @param timeSeconds Time from the start of the dive in seconds.
+     * @return The sample index, or -1 if the timeline is empty or starts after {@code timeSeconds}.
+     */
+    public int indexAtOrBefore(long timeSeconds) {
+        int low = 0;
+        int high = sampleCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (this.timeSeconds[middle] <= timeSeconds) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return A new cursor positioned before the first sample. One cursor can be reused for any number of reads.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return A read-only list view presenting each sample as an InstantaneousDiveState.
+     *         Elements are created on access, so iterating it allocates; it exists for compatibility.
+     */
+    public List<InstantaneousDiveState> asInstantaneousStates() {
+        return new InstantaneousStateView();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= sampleCount) {
+            throw new IndexOutOfBoundsException("Sample index " + index + " out of range [0, " + sampleCount + ").");
+        }
+    }
+
+    private int tissueOffset(int index, int compartmentIndex) {
+        checkIndex(index);
+        if (compartmentIndex < 0 || compartmentIndex >= DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS) {
+            throw new IndexOutOfBoundsException("Invalid compartment index: " + compartmentIndex);
+        }
+        return index * TISSUE_VALUES_PER_SAMPLE + compartmentIndex;
+    }
+
+    // --- equals(), hashCode(), toString() ---
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DiveTimeline that = (DiveTimeline) o;
+        return sampleCount == that.sampleCount &&
+                Arrays.equals(timeSeconds, that.timeSeconds) &&
+                Arrays.equals(depthFsw, that.depthFsw) &&
+                Arrays.equals(ppo2Ata, that.ppo2Ata) &&
+                Arrays.equals(gradientFactor, that.gradientFactor) &&
+                Arrays.equals(cumulativeCnsPercent, that.cumulativeCnsPercent) &&
+                Arrays.equals(cumulativeOtu, that.cumulativeOtu) &&
+                Arrays.equals(cumulativeGasConsumedLiters, that.cumulativeGasConsumedLiters) &&
+                Arrays.equals(gasIndex, that.gasIndex) &&
+                gases.equals(that.gases) &&
+                Arrays.equals(tissueTensionsFsw, that.tissueTensionsFsw);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(sampleCount, gases);
+        result = 31 * result + Arrays.hashCode(timeSeconds);
+        result = 31 * result + Arrays.hashCode(depthFsw);
+        result = 31 * result + Arrays.hashCode(gasIndex);
+        result = 31 * result + Arrays.hashCode(tissueTensionsFsw);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DiveTimeline{" +
+                "sampleCount=" + sampleCount +
+                ", durationSeconds=" + (sampleCount > 0 ? timeSeconds[sampleCount - 1] - timeSeconds[0] : 0) +
+                ", gases=" + gases.size() +
+                '}';
+    }
+
+    /**
+     * Allocation-free reader over the samples of the timeline.
+     * Not thread safe; give every thread its own cursor.
+     */
+    public final class Cursor {
+        private int position = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Positions the cursor on a sample.
+         *
+         * @param index The sample index.
+         * @return This cursor, for chaining.
+         */
+        public Cursor moveTo(int index) {
+            checkIndex(index);
+            position = index;
+            return this;
+        }
+
+        /**
+         * Advances to the next sample.
+         *
+         * @return True if the cursor now stands on a sample, false if it moved past the last one.
+         */
+        public boolean next() {
+            if (position < sampleCount) {
+                position++;
+            }
+            return position < sampleCount;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public long getTimeSeconds() {
+            return timeSeconds[current()];
+        }
+
+        public double getDepthFsw() {
+            return depthFsw[current()];
+        }
+
+        public double getPpo2Ata() {
+            return ppo2Ata[current()];
+        }
+
+        public double getGradientFactor() {
+            return gradientFactor[current()];
+        }
+
+        public double getCumulativeCnsPercent() {
+            return cumulativeCnsPercent[current()];
+        }
+
+        public double getCumulativeOtu() {
+            return cumulativeOtu[current()];
+        }
+
+        public double getCumulativeGasConsumedLiters() {
+            return cumulativeGasConsumedLiters[current()];
+        }
+
+        public int getGasIndex() {
+            return gasIndex[current()];
+        }
+
+        public Gas getGas() {
+            return gases.get(gasIndex[current()]);
+        }
+
+        public double getNitrogenPressureFsw(int compartmentIndex) {
+            return DiveTimeline.this.getNitrogenPressureFsw(current(), compartmentIndex);
+        }
+
+        public double getHeliumPressureFsw(int compartmentIndex) {
+            return DiveTimeline.this.getHeliumPressureFsw(current(), compartmentIndex);
+        }
+
+        public void copyTissueTensionsInto(double[] nitrogenTarget, double[] heliumTarget) {
+            DiveTimeline.this.copyTissueTensionsInto(current(), nitrogenTarget, heliumTarget);
+        }
+
+        private int current() {
+            if (position < 0 || position >= sampleCount) {
+                throw new IllegalStateException("Cursor is not positioned on a sample.");
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Compatibility view; builds each InstantaneousDiveState from the columns when it is read.
+     */
+    private final class InstantaneousStateView extends AbstractList<InstantaneousDiveState> implements RandomAccess {
+
+        @Override
+        public InstantaneousDiveState get(int index) {
+            return new InstantaneousDiveState.Builder(getTimeSeconds(index), depthFsw[index], getGas(index), getTissueState(index))
+                    .ppo2Ata(ppo2Ata[index])
+                    .currentGF(gradientFactor[index])
+                    .cumulativeCNSPercent((int) Math.round(cumulativeCnsPercent[index]))
+                    .cumulativeOTU((int) Math.round(cumulativeOtu[index]))
+                    .cumulativeGasConsumedLiters(cumulativeGasConsumedLiters[index])
+                    .build();
+        }
+
+        @Override
+        public int size() {
+            return sampleCount;
+        }
+    }
+
+    // --- Builder Class ---
+
+    /**
+     * Appends samples in time order. Columns grow geometrically, so appending is amortised O(1).
+     */
+    public static class Builder {
+        private int sampleCount;
+        private long[] timeSeconds;
+        private double[] depthFsw;
+        private double[] ppo2Ata;
+        private double[] gradientFactor;
+        private double[] cumulativeCnsPercent;
+        private double[] cumulativeOtu;
+        private double[] cumulativeGasConsumedLiters;
+        private byte[] gasIndex;
+        private final List<Gas> gases = new ArrayList<>();
+        private double[] tissueTensionsFsw;
+
+        public Builder() {
+            this(64);
+        }
+
+        /**
+         * @param expectedSampleCount Initial capacity, e.g. the dive duration divided by the sample interval.
+         */
+        public Builder(int expectedSampleCount) {
+            if (expectedSampleCount < 0) {
+                throw new IllegalArgumentException("Expected sample count cannot be negative.");
+            }
+            allocate(expectedSampleCount);
+        }
+
+        /**
+         * Appends a sample.
+         *
+         * @param nitrogenPressuresFsw The 17 nitrogen pressures at this instant; copied.
+         * @param heliumPressuresFsw   The 17 helium pressures at this instant; copied.
+         * @throws IllegalArgumentException if the time goes backwards or the depth is negative.
+         */
+        public Builder addSample(long timeSeconds, double depthFsw, Gas gas, double ppo2Ata, double gradientFactor,
+                                 double cumulativeCnsPercent, double cumulativeOtu, double cumulativeGasConsumedLiters,
+                                 double[] nitrogenPressuresFsw, double[] heliumPressuresFsw) {
+            Objects.requireNonNull(gas, "Gas cannot be null for a timeline sample.");
+            Objects.requireNonNull(nitrogenPressuresFsw, "Nitrogen pressures array cannot be null.");
+            Objects.requireNonNull(heliumPressuresFsw, "Helium pressures array cannot be null.");
+            if (sampleCount > 0 && timeSeconds < this.timeSeconds[sampleCount - 1]) {
+                throw new IllegalArgumentException("Timeline samples must be added in time order.");
+            }
+            if (depthFsw < 0) {
+                throw new IllegalArgumentException("Depth cannot be negative.");
+            }
+
+            ensureCapacity(sampleCount + 1);
+            int row = sampleCount;
+            this.timeSeconds[row] = timeSeconds;
+            this.depthFsw[row] = depthFsw;
+            this.ppo2Ata[row] = ppo2Ata;
+            this.gradientFactor[row] = gradientFactor;
+            this.cumulativeCnsPercent[row] = cumulativeCnsPercent;
+            this.cumulativeOtu[row] = cumulativeOtu;
+            this.cumulativeGasConsumedLiters[row] = cumulativeGasConsumedLiters;
+            this.gasIndex[row] = paletteIndexOf(gas);
+            int offset = row * TISSUE_VALUES_PER_SAMPLE;
+            System.arraycopy(nitrogenPressuresFsw, 0, tissueTensionsFsw, offset, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+            System.arraycopy(heliumPressuresFsw, 0, tissueTensionsFsw, offset + DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS,
+                    DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+            sampleCount++;
+            return this;
+        }
+
+        /**
+         * Appends an InstantaneousDiveState as a sample.
+         */
+        public Builder addState(InstantaneousDiveState state) {
+            Objects.requireNonNull(state, "Cannot add a null state.");
+            TissueState tissueState = state.getTissueState();
+            return addSample(state.getTimeSeconds(), state.getDepthFsw(), state.getGas(), state.getPpo2Ata(),
+                    state.getCurrentGF(), state.getCumulativeCNSPercent(), state.getCumulativeOTU(),
+                    state.getCumulativeGasConsumedLiters(),
+                    tissueState.getNitrogenPressuresFsw(), tissueState.getHeliumPressuresFsw());
+        }
+
+        public Builder addStates(List<InstantaneousDiveState> states) {
+            Objects.requireNonNull(states, "States list cannot be null.");
+            ensureCapacity(sampleCount + states.size());
+            for (InstantaneousDiveState state : states) {
+                addState(state);
+            }
+            return this;
+        }
+
+        public DiveTimeline build() {
+            return new DiveTimeline(this);
+        }
+
+        private byte paletteIndexOf(Gas gas) {
+            // A dive uses a handful of gases; a linear scan beats hashing here
+            for (int i = 0; i < gases.size(); i++) {
+                if (gases.get(i).equals(gas)) {
+                    return (byte) i;
+                }
+            }
+            if (gases.size() >= MAX_GAS_COUNT) {
+                throw new IllegalStateException("A timeline supports at most " + MAX_GAS_COUNT + " gases.");
+            }
+            gases.add(gas);
+            return (byte) (gases.size() - 1);
+        }
+
+        private void allocate(int capacity) {
+            timeSeconds = new long[capacity];
+            depthFsw = new double[capacity];
+            ppo2Ata = new double[capacity];
+            gradientFactor = new double[capacity];
+            cumulativeCnsPercent = new double[capacity];
+            cumulativeOtu = new double[capacity];
+            cumulativeGasConsumedLiters = new double[capacity];
+            gasIndex = new byte[capacity];
+            tissueTensionsFsw = new double[capacity * TISSUE_VALUES_PER_SAMPLE];
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= timeSeconds.length) {
+                return;
+            }
+            int capacity = Math.max(required, Math.max(16, timeSeconds.length * 2));
+            timeSeconds = Arrays.copyOf(timeSeconds, capacity);
+            depthFsw = Arrays.copyOf(depthFsw, capacity);
+            ppo2Ata = Arrays.copyOf(ppo2Ata, capacity);
+            gradientFactor = Arrays.copyOf(gradientFactor, capacity);
+            cumulativeCnsPercent = Arrays.copyOf(cumulativeCnsPercent, capacity);
+            cumulativeOtu = Arrays.copyOf(cumulativeOtu, capacity);
+            cumulativeGasConsumedLiters = Arrays.copyOf(cumulativeGasConsumedLiters, capacity);
+            gasIndex = Arrays.copyOf(gasIndex, capacity);
+            tissueTensionsFsw = Arrays.copyOf(tissueTensionsFsw, capacity * TISSUE_VALUES_PER_SAMPLE);
+        }
+    }
+}
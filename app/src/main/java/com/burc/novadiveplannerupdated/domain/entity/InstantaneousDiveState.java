@@ -20,6 +20,7 @@ public final class InstantaneousDiveState {
     private final double cumulativeGasConsumedLiters; // Cumulative gas consumed in liters from start of dive
     // Optional: NDL and TTS can be calculated on-the-fly by the ViewModel using the tissueState, depth, and gas.
     // Including them here would mean pre-calculating for every point, which might be heavy.
+    // LazyDiveTimeline rebuilds them on demand for any instant instead (see TimelinePoint).
     // private final Integer ndlMinutes;    // NDL from this point forward
     // private final Integer ttsSeconds;    // Time To Surface from this point forward
     // private final Double currentCeilingFsw; // Current ascent ceiling at this instant
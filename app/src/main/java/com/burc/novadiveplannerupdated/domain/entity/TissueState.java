@@ -109,6 +109,18 @@ public class TissueState {
     public double[] getHeliumPressuresFsw() {
         return Arrays.copyOf(heliumPressuresFsw, heliumPressuresFsw.length);
     }
+
+    /**
+     * Copies the Nitrogen and Helium pressures into caller-owned arrays without allocating.
+     * Intended for calculators that keep a reusable working buffer.
+     *
+     * @param nitrogenTarget Array of at least 17 elements to receive the Nitrogen pressures in fsw.
+     * @param heliumTarget   Array of at least 17 elements to receive the Helium pressures in fsw.
+     */
+    public void copyInto(double[] nitrogenTarget, double[] heliumTarget) {
+        System.arraycopy(nitrogenPressuresFsw, 0, nitrogenTarget, 0, nitrogenPressuresFsw.length);
+        System.arraycopy(heliumPressuresFsw, 0, heliumTarget, 0, heliumPressuresFsw.length);
+    }
     
     // It's generally preferred to return new instances of TissueState from calculations
     // rather than mutating existing ones directly with setters.
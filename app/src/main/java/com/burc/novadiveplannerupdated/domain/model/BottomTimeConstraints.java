@@ -0,0 +1,74 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Objects;
+
+/**
+ * Limits a dive must stay within when planning backwards from them, e.g. "TTS at most 60 min and
+ * back gas at most 2/3 of the cylinder". Each limit is optional (null), but at least one must be set.
+ */
+public class BottomTimeConstraints {
+    private final Integer maxTimeToSurfaceSeconds;
+    private final Integer maxTotalRuntimeSeconds;
+    private final Double maxBackGasFraction; // Of the back gas cylinder's capacity, e.g. 2/3
+
+    /**
+     * @param maxTimeToSurfaceSeconds Maximum time to surface from the end of the last segment, or null.
+     * @param maxTotalRuntimeSeconds  Maximum run time from the start of the dive to the surface, or null.
+     * @param maxBackGasFraction      Maximum share of the back gas cylinder's capacity breathed on the whole dive,
+     *                                in (0, 1], or null. The back gas is the gas of the segment being extended.
+     * @throws IllegalArgumentException if no limit is set, a time limit is not positive or the fraction is out of range.
+     */
+    public BottomTimeConstraints(Integer maxTimeToSurfaceSeconds, Integer maxTotalRuntimeSeconds, Double maxBackGasFraction) {
+        if (maxTimeToSurfaceSeconds == null && maxTotalRuntimeSeconds == null && maxBackGasFraction == null) {
+            throw new IllegalArgumentException("At least one bottom time constraint must be set.");
+        }
+        if (maxTimeToSurfaceSeconds != null && maxTimeToSurfaceSeconds <= 0) {
+            throw new IllegalArgumentException("Max time to surface must be positive. Was: " + maxTimeToSurfaceSeconds);
+        }
+        if (maxTotalRuntimeSeconds != null && maxTotalRuntimeSeconds <= 0) {
+            throw new IllegalArgumentException("Max total run time must be positive. Was: " + maxTotalRuntimeSeconds);
+        }
+        if (maxBackGasFraction != null && !(maxBackGasFraction > 0 && maxBackGasFraction <= 1)) {
+            throw new IllegalArgumentException("Max back gas fraction must be in (0, 1]. Was: " + maxBackGasFraction);
+        }
+        this.maxTimeToSurfaceSeconds = maxTimeToSurfaceSeconds;
+        this.maxTotalRuntimeSeconds = maxTotalRuntimeSeconds;
+        this.maxBackGasFraction = maxBackGasFraction;
+    }
+
+    public Integer getMaxTimeToSurfaceSeconds() {
+        return maxTimeToSurfaceSeconds;
+    }
+
+    public Integer getMaxTotalRuntimeSeconds() {
+        return maxTotalRuntimeSeconds;
+    }
+
+    public Double getMaxBackGasFraction() {
+        return maxBackGasFraction;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BottomTimeConstraints that = (BottomTimeConstraints) o;
+        return Objects.equals(maxTimeToSurfaceSeconds, that.maxTimeToSurfaceSeconds) &&
+                Objects.equals(maxTotalRuntimeSeconds, that.maxTotalRuntimeSeconds) &&
+                Objects.equals(maxBackGasFraction, that.maxBackGasFraction);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxTimeToSurfaceSeconds, maxTotalRuntimeSeconds, maxBackGasFraction);
+    }
+
+    @Override
+    public String toString() {
+        return "BottomTimeConstraints{" +
+                "maxTimeToSurfaceSeconds=" + maxTimeToSurfaceSeconds +
+                ", maxTotalRuntimeSeconds=" + maxTotalRuntimeSeconds +
+                ", maxBackGasFraction=" + maxBackGasFraction +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Objects;
+
+/**
+ * Result of planning backwards from {@link BottomTimeConstraints}: the longest whole-minute duration of the
+ * bottom segment that keeps the dive within the limits, and the dive's figures at that duration.
+ */
+public final class BottomTimeSolution {
+
+    private final boolean feasible;
+    private final boolean converged;
+    private final long bottomTimeSeconds;
+    private final int timeToSurfaceSeconds;
+    private final int totalRuntimeSeconds;
+    private final double backGasConsumedCuft;
+    private final int probeCount;
+
+    /**
+     * @param feasible             False if even the shortest bottom time breaks a limit; the figures are then those
+     *                             of the shortest bottom time.
+     * @param converged            False if the time budget ran out first; the bottom time is then a feasible lower
+     *                             bound of the answer, not the answer itself.
+     * @param bottomTimeSeconds    The bottom segment duration (as entered on the segment, transit included).
+     * @param timeToSurfaceSeconds Time to surface at that duration.
+     * @param totalRuntimeSeconds  Total run time at that duration.
+     * @param backGasConsumedCuft  Back gas breathed over the whole dive at that duration.
+     * @param probeCount           Number of durations that were planned.
+     */
+    public BottomTimeSolution(boolean feasible, boolean converged, long bottomTimeSeconds, int timeToSurfaceSeconds,
+                              int totalRuntimeSeconds, double backGasConsumedCuft, int probeCount) {
+        this.feasible = feasible;
+        this.converged = converged;
+        this.bottomTimeSeconds = bottomTimeSeconds;
+        this.timeToSurfaceSeconds = timeToSurfaceSeconds;
+        this.totalRuntimeSeconds = totalRuntimeSeconds;
+        this.backGasConsumedCuft = backGasConsumedCuft;
+        this.probeCount = probeCount;
+    }
+
+    public boolean isFeasible() {
+        return feasible;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public long getBottomTimeSeconds() {
+        return bottomTimeSeconds;
+    }
+
+    public int getTimeToSurfaceSeconds() {
+        return timeToSurfaceSeconds;
+    }
+
+    public int getTotalRuntimeSeconds() {
+        return totalRuntimeSeconds;
+    }
+
+    public double getBackGasConsumedCuft() {
+        return backGasConsumedCuft;
+    }
+
+    public int getProbeCount() {
+        return probeCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BottomTimeSolution that = (BottomTimeSolution) o;
+        return feasible == that.feasible &&
+                converged == that.converged &&
+                bottomTimeSeconds == that.bottomTimeSeconds &&
+                timeToSurfaceSeconds == that.timeToSurfaceSeconds &&
+                totalRuntimeSeconds == that.totalRuntimeSeconds &&
+                Double.compare(that.backGasConsumedCuft, backGasConsumedCuft) == 0 &&
+                probeCount == that.probeCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(feasible, converged, bottomTimeSeconds, timeToSurfaceSeconds, totalRuntimeSeconds,
+                backGasConsumedCuft, probeCount);
+    }
+
+    @Override
+    public String toString() {
+        return "BottomTimeSolution{" +
+                "feasible=" + feasible +
+                ", converged=" + converged +
+                ", bottomTimeSeconds=" + bottomTimeSeconds +
+                ", timeToSurfaceSeconds=" + timeToSurfaceSeconds +
+                ", totalRuntimeSeconds=" + totalRuntimeSeconds +
+                ", backGasConsumedCuft=" + backGasConsumedCuft +
+                ", probeCount=" + probeCount +
+                '}';
+    }
+}
@@ -0,0 +1,126 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Identifies what a stored calculation result was computed with: the engine version and a hash of
+ * the plan settings and deco gases. A cached result is only reused when its stamp equals the stamp
+ * of the current inputs.
+ * <p>
+ * The hash is built from field values only (enum names, raw double bits), never from
+ * {@code hashCode()}, so it is stable across processes and app restarts.
+ */
+public final class CalculationStamp {
+
+    /**
+     * Version of the calculation engine. Bump it whenever a change to the algorithm or its constants
+     * changes results, so results cached by older versions are recomputed.
+     */
+    public static final int ENGINE_VERSION = 2;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int engineVersion;
+    private final long settingsHash;
+
+    public CalculationStamp(int engineVersion, long settingsHash) {
+        this.engineVersion = engineVersion;
+        this.settingsHash = settingsHash;
+    }
+
+    /**
+     * Creates the stamp of the current engine for these inputs.
+     *
+     * @param settings  The dive settings of the plan.
+     * @param decoGases The gases available for decompression, in the order the engine receives them.
+     */
+    public static CalculationStamp of(DiveSettings settings, List<Gas> decoGases) {
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(decoGases, "Deco gas list cannot be null.");
+
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, settings.getUnitSystem().name());
+        hash = mix(hash, settings.getAltitudeLevel().name());
+        hash = mix(hash, settings.getLastStopDepthOption().name());
+        hash = mix(hash, settings.getGradientFactors().getGfLow());
+        hash = mix(hash, settings.getGradientFactors().getGfHigh());
+        hash = mix(hash, settings.getAlarmSettings().isEndAlarmEnabled() ? 1 : 0);
+        hash = mix(hash, Double.doubleToLongBits(settings.getAlarmSettings().getEndAlarmThresholdFt()));
+        hash = mix(hash, settings.getAlarmSettings().isWobAlarmEnabled() ? 1 : 0);
+        hash = mix(hash, Double.doubleToLongBits(settings.getAlarmSettings().getWobAlarmThresholdFt()));
+        hash = mix(hash, settings.getAlarmSettings().isOxygenNarcoticEnabled() ? 1 : 0);
+        hash = mix(hash, Double.doubleToLongBits(settings.getSurfaceConsumptionRates().getRmvDiveCuFtMin()));
+        hash = mix(hash, Double.doubleToLongBits(settings.getSurfaceConsumptionRates().getRmvDecoCuFtMin()));
+
+        // Deco stops hold the gas itself, so every field of every gas counts, names included
+        hash = mix(hash, decoGases.size());
+        for (Gas gas : decoGases) {
+            hash = mix(hash, gas.getSlotNumber());
+            hash = mix(hash, gas.isEnabled() ? 1 : 0);
+            hash = mix(hash, gas.getGasName() != null ? gas.getGasName() : "");
+            hash = mix(hash, Double.doubleToLongBits(gas.getFo2()));
+            hash = mix(hash, Double.doubleToLongBits(gas.getFhe()));
+            hash = mix(hash, gas.getPo2Max() != null ? Double.doubleToLongBits(gas.getPo2Max()) : -1L);
+            hash = mix(hash, gas.getGasType().name());
+            hash = mix(hash, Double.doubleToLongBits(gas.getTankCapacity()));
+            hash = mix(hash, Double.doubleToLongBits(gas.getReservePressurePercentage()));
+        }
+        return new CalculationStamp(ENGINE_VERSION, hash);
+    }
+
+    public int getEngineVersion() {
+        return engineVersion;
+    }
+
+    public long getSettingsHash() {
+        return settingsHash;
+    }
+
+    /** FNV-1a over the 8 bytes of the value, low byte first. */
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= (value >>> (8 * i)) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /** FNV-1a over the UTF-8 bytes of the text, preceded by its length so adjacent strings cannot run together. */
+    private static long mix(long hash, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        hash = mix(hash, bytes.length);
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CalculationStamp that = (CalculationStamp) o;
+        return engineVersion == that.engineVersion &&
+                settingsHash == that.settingsHash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(engineVersion, settingsHash);
+    }
+
+    @Override
+    public String toString() {
+        return "CalculationStamp{" +
+                "engineVersion=" + engineVersion +
+                ", settingsHash=" + Long.toHexString(settingsHash) +
+                '}';
+    }
+}
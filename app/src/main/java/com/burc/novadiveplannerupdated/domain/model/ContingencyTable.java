@@ -0,0 +1,84 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Grid of contingency schedules: one {@link ContingencyVariant} per combination of a depth offset
+ * and a bottom time offset, stored row by row (depth offset major).
+ */
+public final class ContingencyTable {
+
+    private final double[] depthOffsetsFsw;
+    private final long[] bottomTimeOffsetsSeconds;
+    private final List<ContingencyVariant> variants;
+
+    public ContingencyTable(double[] depthOffsetsFsw, long[] bottomTimeOffsetsSeconds, List<ContingencyVariant> variants) {
+        Objects.requireNonNull(depthOffsetsFsw, "Depth offsets cannot be null.");
+        Objects.requireNonNull(bottomTimeOffsetsSeconds, "Bottom time offsets cannot be null.");
+        Objects.requireNonNull(variants, "Variants cannot be null.");
+        if (variants.size() != depthOffsetsFsw.length * bottomTimeOffsetsSeconds.length) {
+            throw new IllegalArgumentException("Expected one variant per grid cell. Cells: "
+                    + depthOffsetsFsw.length * bottomTimeOffsetsSeconds.length + ", variants: " + variants.size());
+        }
+        this.depthOffsetsFsw = depthOffsetsFsw.clone();
+        this.bottomTimeOffsetsSeconds = bottomTimeOffsetsSeconds.clone();
+        this.variants = Collections.unmodifiableList(new ArrayList<>(variants));
+    }
+
+    public double[] getDepthOffsetsFsw() {
+        return depthOffsetsFsw.clone();
+    }
+
+    public long[] getBottomTimeOffsetsSeconds() {
+        return bottomTimeOffsetsSeconds.clone();
+    }
+
+    /**
+     * @return All variants, depth offset major: index = depthIndex * timeOffsetCount + timeIndex.
+     */
+    public List<ContingencyVariant> getVariants() {
+        return variants;
+    }
+
+    /**
+     * @param depthIndex Index into {@link #getDepthOffsetsFsw()}.
+     * @param timeIndex  Index into {@link #getBottomTimeOffsetsSeconds()}.
+     */
+    public ContingencyVariant getVariant(int depthIndex, int timeIndex) {
+        if (depthIndex < 0 || depthIndex >= depthOffsetsFsw.length
+                || timeIndex < 0 || timeIndex >= bottomTimeOffsetsSeconds.length) {
+            throw new IndexOutOfBoundsException("No variant at (" + depthIndex + ", " + timeIndex + ").");
+        }
+        return variants.get(depthIndex * bottomTimeOffsetsSeconds.length + timeIndex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContingencyTable that = (ContingencyTable) o;
+        return Arrays.equals(depthOffsetsFsw, that.depthOffsetsFsw) &&
+                Arrays.equals(bottomTimeOffsetsSeconds, that.bottomTimeOffsetsSeconds) &&
+                variants.equals(that.variants);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(variants);
+        result = 31 * result + Arrays.hashCode(depthOffsetsFsw);
+        return 31 * result + Arrays.hashCode(bottomTimeOffsetsSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return "ContingencyTable{" +
+                "depthOffsetsFsw=" + Arrays.toString(depthOffsetsFsw) +
+                ", bottomTimeOffsetsSeconds=" + Arrays.toString(bottomTimeOffsetsSeconds) +
+                ", variants=" + variants +
+                '}';
+    }
+}
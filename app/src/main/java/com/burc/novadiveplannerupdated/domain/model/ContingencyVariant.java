@@ -0,0 +1,136 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Runtime table of one contingency schedule: the planned dive with its deepest segment made deeper
+ * and/or longer by fixed offsets, e.g. "+10 ft / +5 min".
+ * <p>
+ * Stop {@code i} of {@link #getDecoStops()} ends at run time {@link #getRuntimeAtStopEndSeconds()}{@code [i]},
+ * measured from the start of the dive.
+ */
+public final class ContingencyVariant {
+
+    private final double depthOffsetFsw;
+    private final long bottomTimeOffsetSeconds;
+    private final double maxDepthFsw;
+    private final double bottomRuntimeSeconds; // Run time when the ascent from the last segment starts
+    private final List<DecoStop> decoStops;
+    private final int[] runtimeAtStopEndSeconds;
+    private final int timeToSurfaceSeconds;
+    private final int totalRuntimeSeconds;
+    private final double totalCnsPercent;
+    private final double totalOtu;
+    private final double bottomGasConsumedCuft; // Gas of the segments only; deco gas is not planned here
+
+    public ContingencyVariant(double depthOffsetFsw, long bottomTimeOffsetSeconds, double maxDepthFsw,
+                              double bottomRuntimeSeconds, List<DecoStop> decoStops, int[] runtimeAtStopEndSeconds,
+                              int timeToSurfaceSeconds, int totalRuntimeSeconds, double totalCnsPercent,
+                              double totalOtu, double bottomGasConsumedCuft) {
+        Objects.requireNonNull(decoStops, "Deco stops cannot be null for a ContingencyVariant.");
+        Objects.requireNonNull(runtimeAtStopEndSeconds, "Stop run times cannot be null for a ContingencyVariant.");
+        if (runtimeAtStopEndSeconds.length != decoStops.size()) {
+            throw new IllegalArgumentException("Expected one run time per deco stop. Stops: " + decoStops.size()
+                    + ", run times: " + runtimeAtStopEndSeconds.length);
+        }
+        this.depthOffsetFsw = depthOffsetFsw;
+        this.bottomTimeOffsetSeconds = bottomTimeOffsetSeconds;
+        this.maxDepthFsw = maxDepthFsw;
+        this.bottomRuntimeSeconds = bottomRuntimeSeconds;
+        this.decoStops = Collections.unmodifiableList(new ArrayList<>(decoStops));
+        this.runtimeAtStopEndSeconds = runtimeAtStopEndSeconds.clone();
+        this.timeToSurfaceSeconds = timeToSurfaceSeconds;
+        this.totalRuntimeSeconds = totalRuntimeSeconds;
+        this.totalCnsPercent = totalCnsPercent;
+        this.totalOtu = totalOtu;
+        this.bottomGasConsumedCuft = bottomGasConsumedCuft;
+    }
+
+    public double getDepthOffsetFsw() {
+        return depthOffsetFsw;
+    }
+
+    public long getBottomTimeOffsetSeconds() {
+        return bottomTimeOffsetSeconds;
+    }
+
+    public double getMaxDepthFsw() {
+        return maxDepthFsw;
+    }
+
+    public double getBottomRuntimeSeconds() {
+        return bottomRuntimeSeconds;
+    }
+
+    /**
+     * @return The deco stops, deepest first; empty for a no-deco variant.
+     */
+    public List<DecoStop> getDecoStops() {
+        return decoStops;
+    }
+
+    public int[] getRuntimeAtStopEndSeconds() {
+        return runtimeAtStopEndSeconds.clone();
+    }
+
+    public int getTimeToSurfaceSeconds() {
+        return timeToSurfaceSeconds;
+    }
+
+    public int getTotalRuntimeSeconds() {
+        return totalRuntimeSeconds;
+    }
+
+    public double getTotalCnsPercent() {
+        return totalCnsPercent;
+    }
+
+    public double getTotalOtu() {
+        return totalOtu;
+    }
+
+    public double getBottomGasConsumedCuft() {
+        return bottomGasConsumedCuft;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContingencyVariant that = (ContingencyVariant) o;
+        return Double.compare(that.depthOffsetFsw, depthOffsetFsw) == 0 &&
+                bottomTimeOffsetSeconds == that.bottomTimeOffsetSeconds &&
+                Double.compare(that.maxDepthFsw, maxDepthFsw) == 0 &&
+                Double.compare(that.bottomRuntimeSeconds, bottomRuntimeSeconds) == 0 &&
+                timeToSurfaceSeconds == that.timeToSurfaceSeconds &&
+                totalRuntimeSeconds == that.totalRuntimeSeconds &&
+                Double.compare(that.totalCnsPercent, totalCnsPercent) == 0 &&
+                Double.compare(that.totalOtu, totalOtu) == 0 &&
+                Double.compare(that.bottomGasConsumedCuft, bottomGasConsumedCuft) == 0 &&
+                decoStops.equals(that.decoStops) &&
+                Arrays.equals(runtimeAtStopEndSeconds, that.runtimeAtStopEndSeconds);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(depthOffsetFsw, bottomTimeOffsetSeconds, maxDepthFsw, bottomRuntimeSeconds, decoStops,
+                timeToSurfaceSeconds, totalRuntimeSeconds, totalCnsPercent, totalOtu, bottomGasConsumedCuft);
+        return 31 * result + Arrays.hashCode(runtimeAtStopEndSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return "ContingencyVariant{" +
+                "depthOffsetFsw=" + depthOffsetFsw +
+                ", bottomTimeOffsetSeconds=" + bottomTimeOffsetSeconds +
+                ", maxDepthFsw=" + maxDepthFsw +
+                ", stops=" + decoStops.size() +
+                ", timeToSurfaceSeconds=" + timeToSurfaceSeconds +
+                ", totalRuntimeSeconds=" + totalRuntimeSeconds +
+                '}';
+    }
+}
@@ -0,0 +1,119 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The graph series of one time window, reduced to roughly one point per pixel column.
+ * Each series keeps its own points (x = time in seconds), since the shape-preserving selection
+ * differs between depth, ceiling and ppO2.
+ */
+public final class DecimatedProfile {
+
+    private final double windowStartSeconds;
+    private final double windowEndSeconds;
+    private final double[] depthTimes;
+    private final double[] depthValues;
+    private final double[] ceilingTimes;
+    private final double[] ceilingValues;
+    private final double[] ppo2Times;
+    private final double[] ppo2Values;
+
+    public DecimatedProfile(double windowStartSeconds, double windowEndSeconds,
+                            double[] depthTimes, double[] depthValues,
+                            double[] ceilingTimes, double[] ceilingValues,
+                            double[] ppo2Times, double[] ppo2Values) {
+        if (depthTimes.length != depthValues.length || ceilingTimes.length != ceilingValues.length
+                || ppo2Times.length != ppo2Values.length) {
+            throw new IllegalArgumentException("Times and values of a series must have the same length.");
+        }
+        this.windowStartSeconds = windowStartSeconds;
+        this.windowEndSeconds = windowEndSeconds;
+        // Arrays are built by the decimator for this instance only and never exposed
+        this.depthTimes = depthTimes;
+        this.depthValues = depthValues;
+        this.ceilingTimes = ceilingTimes;
+        this.ceilingValues = ceilingValues;
+        this.ppo2Times = ppo2Times;
+        this.ppo2Values = ppo2Values;
+    }
+
+    public double getWindowStartSeconds() {
+        return windowStartSeconds;
+    }
+
+    public double getWindowEndSeconds() {
+        return windowEndSeconds;
+    }
+
+    public int getDepthPointCount() {
+        return depthTimes.length;
+    }
+
+    public double getDepthTime(int index) {
+        return depthTimes[index];
+    }
+
+    public double getDepthFsw(int index) {
+        return depthValues[index];
+    }
+
+    public int getCeilingPointCount() {
+        return ceilingTimes.length;
+    }
+
+    public double getCeilingTime(int index) {
+        return ceilingTimes[index];
+    }
+
+    public double getCeilingDepthFsw(int index) {
+        return ceilingValues[index];
+    }
+
+    public int getPpo2PointCount() {
+        return ppo2Times.length;
+    }
+
+    public double getPpo2Time(int index) {
+        return ppo2Times[index];
+    }
+
+    public double getPpo2Ata(int index) {
+        return ppo2Values[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DecimatedProfile that = (DecimatedProfile) o;
+        return Double.compare(that.windowStartSeconds, windowStartSeconds) == 0 &&
+                Double.compare(that.windowEndSeconds, windowEndSeconds) == 0 &&
+                Arrays.equals(depthTimes, that.depthTimes) &&
+                Arrays.equals(depthValues, that.depthValues) &&
+                Arrays.equals(ceilingTimes, that.ceilingTimes) &&
+                Arrays.equals(ceilingValues, that.ceilingValues) &&
+                Arrays.equals(ppo2Times, that.ppo2Times) &&
+                Arrays.equals(ppo2Values, that.ppo2Values);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(windowStartSeconds, windowEndSeconds);
+        result = 31 * result + Arrays.hashCode(depthTimes);
+        result = 31 * result + Arrays.hashCode(depthValues);
+        result = 31 * result + Arrays.hashCode(ceilingValues);
+        result = 31 * result + Arrays.hashCode(ppo2Values);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DecimatedProfile{" +
+                "window=[" + windowStartSeconds + ", " + windowEndSeconds + ']' +
+                ", depthPoints=" + depthTimes.length +
+                ", ceilingPoints=" + ceilingTimes.length +
+                ", ppo2Points=" + ppo2Times.length +
+                '}';
+    }
+}
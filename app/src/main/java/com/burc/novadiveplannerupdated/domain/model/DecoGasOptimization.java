@@ -0,0 +1,73 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Result of the deco gas subset search: the best sets of deco gases for a dive, and how the best set
+ * performs if any one of its gases is lost.
+ */
+public final class DecoGasOptimization {
+
+    private final List<DecoGasOption> bestOptions;
+    private final Map<Gas, DecoGasOption> lostGasOptions;
+
+    /**
+     * @param bestOptions    The best options, best first (shortest run time, then lowest CNS, then fewest gases).
+     * @param lostGasOptions For every gas of the best option, the outcome without that gas, in the option's gas order;
+     *                       null if the dive has no valid plan without it.
+     */
+    public DecoGasOptimization(List<DecoGasOption> bestOptions, Map<Gas, DecoGasOption> lostGasOptions) {
+        Objects.requireNonNull(bestOptions, "Best options cannot be null.");
+        Objects.requireNonNull(lostGasOptions, "Lost gas options cannot be null.");
+        this.bestOptions = Collections.unmodifiableList(new ArrayList<>(bestOptions));
+        this.lostGasOptions = Collections.unmodifiableMap(new LinkedHashMap<>(lostGasOptions));
+    }
+
+    public List<DecoGasOption> getBestOptions() {
+        return bestOptions;
+    }
+
+    /**
+     * @return The best option, or null if there is none.
+     */
+    public DecoGasOption getBestOption() {
+        return bestOptions.isEmpty() ? null : bestOptions.get(0);
+    }
+
+    /**
+     * @return For each gas of the best option, the option that remains when that gas is lost, or null if no
+     *         valid plan remains.
+     */
+    public Map<Gas, DecoGasOption> getLostGasOptions() {
+        return lostGasOptions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DecoGasOptimization that = (DecoGasOptimization) o;
+        return bestOptions.equals(that.bestOptions) &&
+                lostGasOptions.equals(that.lostGasOptions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bestOptions, lostGasOptions);
+    }
+
+    @Override
+    public String toString() {
+        return "DecoGasOptimization{" +
+                "bestOptions=" + bestOptions +
+                ", lostGasOptions=" + lostGasOptions.values() +
+                '}';
+    }
+}
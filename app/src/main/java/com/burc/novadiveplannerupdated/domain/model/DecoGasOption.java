@@ -0,0 +1,83 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outcome of decompressing a dive with one particular set of deco gases carried in addition to the
+ * gases breathed on the segments.
+ */
+public final class DecoGasOption {
+
+    private final List<Gas> decoGases;
+    private final List<DecoStop> decoStops;
+    private final int timeToSurfaceSeconds;
+    private final int totalRuntimeSeconds;
+    private final double totalCnsPercent; // Segments plus ascent and stops
+
+    public DecoGasOption(List<Gas> decoGases, List<DecoStop> decoStops, int timeToSurfaceSeconds,
+                         int totalRuntimeSeconds, double totalCnsPercent) {
+        Objects.requireNonNull(decoGases, "Deco gases cannot be null for a DecoGasOption.");
+        Objects.requireNonNull(decoStops, "Deco stops cannot be null for a DecoGasOption.");
+        this.decoGases = Collections.unmodifiableList(new ArrayList<>(decoGases));
+        this.decoStops = Collections.unmodifiableList(new ArrayList<>(decoStops));
+        this.timeToSurfaceSeconds = timeToSurfaceSeconds;
+        this.totalRuntimeSeconds = totalRuntimeSeconds;
+        this.totalCnsPercent = totalCnsPercent;
+    }
+
+    /**
+     * @return The deco gases of this option, not including the gases of the segments; may be empty.
+     */
+    public List<Gas> getDecoGases() {
+        return decoGases;
+    }
+
+    public List<DecoStop> getDecoStops() {
+        return decoStops;
+    }
+
+    public int getTimeToSurfaceSeconds() {
+        return timeToSurfaceSeconds;
+    }
+
+    public int getTotalRuntimeSeconds() {
+        return totalRuntimeSeconds;
+    }
+
+    public double getTotalCnsPercent() {
+        return totalCnsPercent;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DecoGasOption that = (DecoGasOption) o;
+        return timeToSurfaceSeconds == that.timeToSurfaceSeconds &&
+                totalRuntimeSeconds == that.totalRuntimeSeconds &&
+                Double.compare(that.totalCnsPercent, totalCnsPercent) == 0 &&
+                decoGases.equals(that.decoGases) &&
+                decoStops.equals(that.decoStops);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(decoGases, decoStops, timeToSurfaceSeconds, totalRuntimeSeconds, totalCnsPercent);
+    }
+
+    @Override
+    public String toString() {
+        return "DecoGasOption{" +
+                "decoGases=" + decoGases.size() +
+                ", stops=" + decoStops.size() +
+                ", timeToSurfaceSeconds=" + timeToSurfaceSeconds +
+                ", totalRuntimeSeconds=" + totalRuntimeSeconds +
+                ", totalCnsPercent=" + totalCnsPercent +
+                '}';
+    }
+}
@@ -0,0 +1,125 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Decompression of one dive for every combination of a grid of GF Low and GF High values, as flat
+ * primitive matrices stored row by row (GF Low major): index = lowIndex * gfHighCount + highIndex.
+ * <p>
+ * Cells where GF Low is greater than GF High are not valid settings; they hold {@link #NOT_EVALUATED}.
+ * Cells whose decompression has a stop that cannot be cleared within the planner's maximum stop time have
+ * no valid plan; they hold {@link #STOP_TIME_EXCEEDED}.
+ */
+public final class GradientFactorSweep {
+
+    /** Value of the cells that were not calculated because GF Low is greater than GF High. */
+    public static final int NOT_EVALUATED = -1;
+    /** Value of the cells without a valid plan because a stop cannot be cleared within the maximum stop time. */
+    public static final int STOP_TIME_EXCEEDED = -2;
+
+    private final int[] gfLows;
+    private final int[] gfHighs;
+    private final double bottomRuntimeSeconds;
+    private final int[] timeToSurfaceSeconds;
+    private final int[] firstStopDepthFsw;
+
+    /**
+     * @param gfLows               GF Low values of the rows (percent).
+     * @param gfHighs              GF High values of the columns (percent).
+     * @param bottomRuntimeSeconds Run time at the end of the bottom phase; the same for every cell.
+     * @param timeToSurfaceSeconds Time to surface (ascent and all stops) per cell, in seconds.
+     * @param firstStopDepthFsw    Depth of the first stop per cell; 0 if the cell needs no stops.
+     */
+    public GradientFactorSweep(int[] gfLows, int[] gfHighs, double bottomRuntimeSeconds,
+                               int[] timeToSurfaceSeconds, int[] firstStopDepthFsw) {
+        Objects.requireNonNull(gfLows, "GF Low values cannot be null.");
+        Objects.requireNonNull(gfHighs, "GF High values cannot be null.");
+        Objects.requireNonNull(timeToSurfaceSeconds, "Time to surface matrix cannot be null.");
+        Objects.requireNonNull(firstStopDepthFsw, "First stop matrix cannot be null.");
+        int cellCount = gfLows.length * gfHighs.length;
+        if (timeToSurfaceSeconds.length != cellCount || firstStopDepthFsw.length != cellCount) {
+            throw new IllegalArgumentException("Expected " + cellCount + " cells per matrix. Time to surface: "
+                    + timeToSurfaceSeconds.length + ", first stop: " + firstStopDepthFsw.length);
+        }
+        this.gfLows = gfLows.clone();
+        this.gfHighs = gfHighs.clone();
+        this.bottomRuntimeSeconds = bottomRuntimeSeconds;
+        this.timeToSurfaceSeconds = timeToSurfaceSeconds.clone();
+        this.firstStopDepthFsw = firstStopDepthFsw.clone();
+    }
+
+    public int[] getGfLows() {
+        return gfLows.clone();
+    }
+
+    public int[] getGfHighs() {
+        return gfHighs.clone();
+    }
+
+    public double getBottomRuntimeSeconds() {
+        return bottomRuntimeSeconds;
+    }
+
+    /**
+     * @return Time to surface per cell in seconds, GF Low major; {@link #NOT_EVALUATED} for invalid cells and
+     *         {@link #STOP_TIME_EXCEEDED} for cells without a valid plan.
+     *         The total run time of a cell is {@link #getBottomRuntimeSeconds()} plus its value.
+     */
+    public int[] getTimeToSurfaceMatrixSeconds() {
+        return timeToSurfaceSeconds.clone();
+    }
+
+    /**
+     * @return First stop depth per cell in fsw, GF Low major; 0 without stops, {@link #NOT_EVALUATED} for invalid cells,
+     *         {@link #STOP_TIME_EXCEEDED} for cells without a valid plan.
+     */
+    public int[] getFirstStopDepthMatrixFsw() {
+        return firstStopDepthFsw.clone();
+    }
+
+    public int getTimeToSurfaceSeconds(int lowIndex, int highIndex) {
+        return timeToSurfaceSeconds[cellIndex(lowIndex, highIndex)];
+    }
+
+    public int getFirstStopDepthFsw(int lowIndex, int highIndex) {
+        return firstStopDepthFsw[cellIndex(lowIndex, highIndex)];
+    }
+
+    private int cellIndex(int lowIndex, int highIndex) {
+        if (lowIndex < 0 || lowIndex >= gfLows.length || highIndex < 0 || highIndex >= gfHighs.length) {
+            throw new IndexOutOfBoundsException("No cell at (" + lowIndex + ", " + highIndex + ").");
+        }
+        return lowIndex * gfHighs.length + highIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GradientFactorSweep that = (GradientFactorSweep) o;
+        return Double.compare(that.bottomRuntimeSeconds, bottomRuntimeSeconds) == 0 &&
+                Arrays.equals(gfLows, that.gfLows) &&
+                Arrays.equals(gfHighs, that.gfHighs) &&
+                Arrays.equals(timeToSurfaceSeconds, that.timeToSurfaceSeconds) &&
+                Arrays.equals(firstStopDepthFsw, that.firstStopDepthFsw);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(bottomRuntimeSeconds);
+        result = 31 * result + Arrays.hashCode(gfLows);
+        result = 31 * result + Arrays.hashCode(gfHighs);
+        result = 31 * result + Arrays.hashCode(timeToSurfaceSeconds);
+        return 31 * result + Arrays.hashCode(firstStopDepthFsw);
+    }
+
+    @Override
+    public String toString() {
+        return "GradientFactorSweep{" +
+                "gfLows=" + Arrays.toString(gfLows) +
+                ", gfHighs=" + Arrays.toString(gfHighs) +
+                ", bottomRuntimeSeconds=" + bottomRuntimeSeconds +
+                '}';
+    }
+}
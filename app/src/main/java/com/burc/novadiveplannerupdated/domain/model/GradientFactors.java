@@ -44,6 +44,20 @@ public class GradientFactors {
         return gfHigh;
     }
 
+    /**
+     * @return GF Low as a fraction (e.g., 0.30 for 30%), as used in the M-value equations.
+     */
+    public double getGfLowFraction() {
+        return gfLow / 100.0;
+    }
+
+    /**
+     * @return GF High as a fraction (e.g., 0.85 for 85%), as used in the M-value equations.
+     */
+    public double getGfHighFraction() {
+        return gfHigh / 100.0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,72 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
+
+import java.util.Objects;
+
+/**
+ * Outcome of calculating the active DivePlan.
+ * On success the plan's current (last) dive carries all calculated fields; on failure the plan is the
+ * uncalculated one the calculation was started for, so the segments can still be shown.
+ */
+public final class PlanCalculationResult {
+
+    private final DivePlan divePlan;
+    private final String errorMessage; // Null on success
+
+    public PlanCalculationResult(DivePlan divePlan, String errorMessage) {
+        this.divePlan = Objects.requireNonNull(divePlan, "DivePlan cannot be null for a PlanCalculationResult.");
+        this.errorMessage = errorMessage;
+    }
+
+    public static PlanCalculationResult success(DivePlan calculatedPlan) {
+        return new PlanCalculationResult(calculatedPlan, null);
+    }
+
+    public static PlanCalculationResult failure(DivePlan sourcePlan, String errorMessage) {
+        return new PlanCalculationResult(sourcePlan,
+                errorMessage != null ? errorMessage : "Plan calculation failed.");
+    }
+
+    public DivePlan getDivePlan() {
+        return divePlan;
+    }
+
+    /**
+     * @return The dive being planned, i.e. the last dive of the plan.
+     */
+    public Dive getCurrentDive() {
+        return divePlan.getDives().get(divePlan.getDives().size() - 1);
+    }
+
+    public boolean isSuccessful() {
+        return errorMessage == null;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PlanCalculationResult that = (PlanCalculationResult) o;
+        return divePlan.equals(that.divePlan) &&
+                Objects.equals(errorMessage, that.errorMessage);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(divePlan, errorMessage);
+    }
+
+    @Override
+    public String toString() {
+        return "PlanCalculationResult{" +
+                "divePlan=" + divePlan +
+                ", errorMessage='" + errorMessage + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,108 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+
+import java.util.Objects;
+
+/**
+ * One straight piece of a dive profile: a constant-rate depth change or a constant depth,
+ * breathed on a single gas. A whole dive (segments, deco ascent and stops) is a short list of legs.
+ */
+public final class ProfileLeg {
+
+    private final double startTimeSeconds; // From the start of the dive
+    private final double durationSeconds;
+    private final double startDepthFsw;
+    private final double endDepthFsw;
+    private final Gas gas;
+    private final Double setPointAta; // Closed circuit set point; null on open circuit
+
+    public ProfileLeg(double startTimeSeconds, double durationSeconds, double startDepthFsw, double endDepthFsw, Gas gas) {
+        this(startTimeSeconds, durationSeconds, startDepthFsw, endDepthFsw, gas, null);
+    }
+
+    public ProfileLeg(double startTimeSeconds, double durationSeconds, double startDepthFsw, double endDepthFsw,
+                      Gas gas, Double setPointAta) {
+        if (startTimeSeconds < 0) {
+            throw new IllegalArgumentException("Start time cannot be negative.");
+        }
+        if (durationSeconds <= 0) {
+            throw new IllegalArgumentException("Duration must be positive.");
+        }
+        if (startDepthFsw < 0 || endDepthFsw < 0) {
+            throw new IllegalArgumentException("Depth cannot be negative.");
+        }
+        this.startTimeSeconds = startTimeSeconds;
+        this.durationSeconds = durationSeconds;
+        this.startDepthFsw = startDepthFsw;
+        this.endDepthFsw = endDepthFsw;
+        this.gas = Objects.requireNonNull(gas, "Gas cannot be null for a profile leg.");
+        this.setPointAta = setPointAta;
+    }
+
+    public double getStartTimeSeconds() {
+        return startTimeSeconds;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public double getEndTimeSeconds() {
+        return startTimeSeconds + durationSeconds;
+    }
+
+    public double getStartDepthFsw() {
+        return startDepthFsw;
+    }
+
+    public double getEndDepthFsw() {
+        return endDepthFsw;
+    }
+
+    public Gas getGas() {
+        return gas;
+    }
+
+    public Double getSetPointAta() {
+        return setPointAta;
+    }
+
+    /**
+     * @param timeSeconds Time from the start of the dive; clamped to this leg.
+     * @return The depth at that time, interpolated linearly along the leg.
+     */
+    public double getDepthAt(double timeSeconds) {
+        double elapsed = Math.max(0, Math.min(durationSeconds, timeSeconds - startTimeSeconds));
+        return startDepthFsw + (endDepthFsw - startDepthFsw) * (elapsed / durationSeconds);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProfileLeg that = (ProfileLeg) o;
+        return Double.compare(that.startTimeSeconds, startTimeSeconds) == 0 &&
+                Double.compare(that.durationSeconds, durationSeconds) == 0 &&
+                Double.compare(that.startDepthFsw, startDepthFsw) == 0 &&
+                Double.compare(that.endDepthFsw, endDepthFsw) == 0 &&
+                gas.equals(that.gas) &&
+                Objects.equals(setPointAta, that.setPointAta);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startTimeSeconds, durationSeconds, startDepthFsw, endDepthFsw, gas, setPointAta);
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileLeg{" +
+                "startTimeSeconds=" + startTimeSeconds +
+                ", durationSeconds=" + durationSeconds +
+                ", startDepthFsw=" + startDepthFsw +
+                ", endDepthFsw=" + endDepthFsw +
+                ", gas=" + gas.getGasName() +
+                '}';
+    }
+}
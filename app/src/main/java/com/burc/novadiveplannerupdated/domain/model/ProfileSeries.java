@@ -0,0 +1,109 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Evenly sampled graph series of a dive: depth, GF-low ceiling and ppO2 against time.
+ * This is the raw input of the profile graph, before decimation.
+ */
+public final class ProfileSeries {
+
+    private final double[] timeSeconds;
+    private final double[] depthFsw;
+    private final double[] ceilingDepthFsw;
+    private final double[] ppo2Ata;
+
+    /**
+     * @param timeSeconds     Sample times in seconds, ascending.
+     * @param depthFsw        Depth at each sample.
+     * @param ceilingDepthFsw GF-low ceiling at each sample, fsw relative to P_init.
+     * @param ppo2Ata         ppO2 at each sample.
+     * @throws IllegalArgumentException if the arrays differ in length.
+     */
+    public ProfileSeries(double[] timeSeconds, double[] depthFsw, double[] ceilingDepthFsw, double[] ppo2Ata) {
+        Objects.requireNonNull(timeSeconds, "Time array cannot be null.");
+        Objects.requireNonNull(depthFsw, "Depth array cannot be null.");
+        Objects.requireNonNull(ceilingDepthFsw, "Ceiling array cannot be null.");
+        Objects.requireNonNull(ppo2Ata, "ppO2 array cannot be null.");
+        int size = timeSeconds.length;
+        if (depthFsw.length != size || ceilingDepthFsw.length != size || ppo2Ata.length != size) {
+            throw new IllegalArgumentException("All series must have the same number of samples.");
+        }
+        this.timeSeconds = Arrays.copyOf(timeSeconds, size);
+        this.depthFsw = Arrays.copyOf(depthFsw, size);
+        this.ceilingDepthFsw = Arrays.copyOf(ceilingDepthFsw, size);
+        this.ppo2Ata = Arrays.copyOf(ppo2Ata, size);
+    }
+
+    public int size() {
+        return timeSeconds.length;
+    }
+
+    public double getTimeSeconds(int index) {
+        return timeSeconds[index];
+    }
+
+    public double getDepthFsw(int index) {
+        return depthFsw[index];
+    }
+
+    public double getCeilingDepthFsw(int index) {
+        return ceilingDepthFsw[index];
+    }
+
+    public double getPpo2Ata(int index) {
+        return ppo2Ata[index];
+    }
+
+    public double getDurationSeconds() {
+        return timeSeconds.length > 0 ? timeSeconds[timeSeconds.length - 1] - timeSeconds[0] : 0;
+    }
+
+    /**
+     * @return The last sample at or before {@code time}, or -1 if all samples are later.
+     */
+    public int indexAtOrBefore(double time) {
+        int low = 0;
+        int high = timeSeconds.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timeSeconds[middle] <= time) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProfileSeries that = (ProfileSeries) o;
+        return Arrays.equals(timeSeconds, that.timeSeconds) &&
+                Arrays.equals(depthFsw, that.depthFsw) &&
+                Arrays.equals(ceilingDepthFsw, that.ceilingDepthFsw) &&
+                Arrays.equals(ppo2Ata, that.ppo2Ata);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(timeSeconds);
+        result = 31 * result + Arrays.hashCode(depthFsw);
+        result = 31 * result + Arrays.hashCode(ceilingDepthFsw);
+        result = 31 * result + Arrays.hashCode(ppo2Ata);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileSeries{" +
+                "samples=" + timeSeconds.length +
+                ", durationSeconds=" + getDurationSeconds() +
+                '}';
+    }
+}
@@ -0,0 +1,116 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Objects;
+
+/**
+ * What the tissues must allow after a surface interval before the next dive may start, e.g.
+ * "an NDL of at least 20 min at 60 ft", "at most 10 min of deco" or "a surface GF99 of at most 30%".
+ */
+public final class SurfaceIntervalConstraint {
+
+    public enum Type {
+        /** The no-decompression limit at a given depth must be at least a given number of minutes. */
+        MIN_NDL_AT_DEPTH,
+        /** The next dive, as planned, must need at most a given number of minutes of stops. */
+        MAX_DECO_TIME,
+        /** The current gradient factor (GF99) at the surface must be at most a given percentage. */
+        MAX_SURFACE_GF
+    }
+
+    private final Type type;
+    private final double depthFsw; // Only used by MIN_NDL_AT_DEPTH
+    private final double limit;    // Minutes for the time constraints, percent for MAX_SURFACE_GF
+
+    private SurfaceIntervalConstraint(Type type, double depthFsw, double limit) {
+        this.type = type;
+        this.depthFsw = depthFsw;
+        this.limit = limit;
+    }
+
+    /**
+     * @param depthFsw      The depth (fsw) the NDL is calculated for.
+     * @param minNdlMinutes The NDL required at that depth.
+     * @throws IllegalArgumentException if the depth is not positive or the NDL is negative.
+     */
+    public static SurfaceIntervalConstraint minNdlAtDepth(double depthFsw, int minNdlMinutes) {
+        if (!(depthFsw > 0)) {
+            throw new IllegalArgumentException("NDL depth must be positive. Was: " + depthFsw);
+        }
+        if (minNdlMinutes < 0) {
+            throw new IllegalArgumentException("Required NDL cannot be negative. Was: " + minNdlMinutes);
+        }
+        return new SurfaceIntervalConstraint(Type.MIN_NDL_AT_DEPTH, depthFsw, minNdlMinutes);
+    }
+
+    /**
+     * @param maxDecoMinutes The longest total stop time allowed on the next dive; 0 for a no-stop dive.
+     * @throws IllegalArgumentException if the time is negative.
+     */
+    public static SurfaceIntervalConstraint maxDecoTime(int maxDecoMinutes) {
+        if (maxDecoMinutes < 0) {
+            throw new IllegalArgumentException("Max deco time cannot be negative. Was: " + maxDecoMinutes);
+        }
+        return new SurfaceIntervalConstraint(Type.MAX_DECO_TIME, 0, maxDecoMinutes);
+    }
+
+    /**
+     * @param maxGf99Percent The highest surface GF99 allowed, in percent.
+     * @throws IllegalArgumentException if the percentage is negative.
+     */
+    public static SurfaceIntervalConstraint maxSurfaceGf(double maxGf99Percent) {
+        if (!(maxGf99Percent >= 0)) {
+            throw new IllegalArgumentException("Max surface GF cannot be negative. Was: " + maxGf99Percent);
+        }
+        return new SurfaceIntervalConstraint(Type.MAX_SURFACE_GF, 0, maxGf99Percent);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The depth (fsw) of a {@link Type#MIN_NDL_AT_DEPTH} constraint; 0 for the other types.
+     */
+    public double getDepthFsw() {
+        return depthFsw;
+    }
+
+    /**
+     * @return The NDL or deco time in minutes, or the GF99 in percent, depending on the type.
+     */
+    public double getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param value The NDL or deco minutes, or the GF99 percentage, after a candidate interval.
+     * @return True if the value meets this constraint.
+     */
+    public boolean isSatisfiedBy(double value) {
+        return type == Type.MIN_NDL_AT_DEPTH ? value >= limit : value <= limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SurfaceIntervalConstraint that = (SurfaceIntervalConstraint) o;
+        return type == that.type &&
+                Double.compare(that.depthFsw, depthFsw) == 0 &&
+                Double.compare(that.limit, limit) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, depthFsw, limit);
+    }
+
+    @Override
+    public String toString() {
+        return "SurfaceIntervalConstraint{" +
+                "type=" + type +
+                ", depthFsw=" + depthFsw +
+                ", limit=" + limit +
+                '}';
+    }
+}
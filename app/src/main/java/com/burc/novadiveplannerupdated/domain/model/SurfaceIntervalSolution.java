@@ -0,0 +1,88 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import java.util.Objects;
+
+/**
+ * The shortest surface interval before a dive of a plan that meets a {@link SurfaceIntervalConstraint},
+ * given the dives before it as planned.
+ */
+public final class SurfaceIntervalSolution {
+
+    private final int diveNumber;
+    private final boolean feasible;
+    private final long minimumIntervalSeconds;
+    private final long plannedIntervalSeconds;
+    private final double valueAtMinimum;
+
+    /**
+     * @param diveNumber             The dive the interval precedes.
+     * @param feasible               False if even the longest interval searched does not meet the constraint;
+     *                               the interval and value are then those of the longest interval.
+     * @param minimumIntervalSeconds The shortest interval meeting the constraint, in whole minutes.
+     * @param plannedIntervalSeconds The interval entered on the dive.
+     * @param valueAtMinimum         The NDL or deco minutes, or the GF99 percentage, after the shortest interval.
+     */
+    public SurfaceIntervalSolution(int diveNumber, boolean feasible, long minimumIntervalSeconds,
+                                   long plannedIntervalSeconds, double valueAtMinimum) {
+        this.diveNumber = diveNumber;
+        this.feasible = feasible;
+        this.minimumIntervalSeconds = minimumIntervalSeconds;
+        this.plannedIntervalSeconds = plannedIntervalSeconds;
+        this.valueAtMinimum = valueAtMinimum;
+    }
+
+    public int getDiveNumber() {
+        return diveNumber;
+    }
+
+    public boolean isFeasible() {
+        return feasible;
+    }
+
+    public long getMinimumIntervalSeconds() {
+        return minimumIntervalSeconds;
+    }
+
+    public long getPlannedIntervalSeconds() {
+        return plannedIntervalSeconds;
+    }
+
+    public double getValueAtMinimum() {
+        return valueAtMinimum;
+    }
+
+    /**
+     * @return True if the planned interval is at least the shortest one meeting the constraint.
+     */
+    public boolean isPlannedIntervalSufficient() {
+        return feasible && plannedIntervalSeconds >= minimumIntervalSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SurfaceIntervalSolution that = (SurfaceIntervalSolution) o;
+        return diveNumber == that.diveNumber &&
+                feasible == that.feasible &&
+                minimumIntervalSeconds == that.minimumIntervalSeconds &&
+                plannedIntervalSeconds == that.plannedIntervalSeconds &&
+                Double.compare(that.valueAtMinimum, valueAtMinimum) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(diveNumber, feasible, minimumIntervalSeconds, plannedIntervalSeconds, valueAtMinimum);
+    }
+
+    @Override
+    public String toString() {
+        return "SurfaceIntervalSolution{" +
+                "diveNumber=" + diveNumber +
+                ", feasible=" + feasible +
+                ", minimumIntervalSeconds=" + minimumIntervalSeconds +
+                ", plannedIntervalSeconds=" + plannedIntervalSeconds +
+                ", valueAtMinimum=" + valueAtMinimum +
+                '}';
+    }
+}
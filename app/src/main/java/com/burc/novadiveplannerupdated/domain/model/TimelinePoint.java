@@ -0,0 +1,107 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+
+import java.util.Objects;
+
+/**
+ * The reconstructed state of a dive at one instant, including the values that are too expensive
+ * to precompute for every second: ceiling, GF99, NDL and TTS.
+ */
+public final class TimelinePoint {
+
+    /** Time to surface of a point from which no valid decompression plan exists. */
+    public static final int NO_VALID_PLAN = -1;
+
+    private final long timeSeconds;
+    private final double depthFsw;
+    private final Gas gas;
+    private final TissueState tissueState;
+    private final double ceilingDepthFsw;       // GF-low ceiling, fsw relative to P_init (0 if at/above surface)
+    private final double currentGradientFactor; // GF99 as a fraction
+    private final int ndlSeconds;               // 0 when in deco
+    private final int timeToSurfaceSeconds;     // NO_VALID_PLAN if a stop cannot be cleared
+
+    public TimelinePoint(long timeSeconds, double depthFsw, Gas gas, TissueState tissueState,
+                         double ceilingDepthFsw, double currentGradientFactor, int ndlSeconds, int timeToSurfaceSeconds) {
+        this.timeSeconds = timeSeconds;
+        this.depthFsw = depthFsw;
+        this.gas = Objects.requireNonNull(gas, "Gas cannot be null for a TimelinePoint.");
+        this.tissueState = new TissueState(Objects.requireNonNull(tissueState, "TissueState cannot be null for a TimelinePoint."));
+        this.ceilingDepthFsw = ceilingDepthFsw;
+        this.currentGradientFactor = currentGradientFactor;
+        this.ndlSeconds = ndlSeconds;
+        this.timeToSurfaceSeconds = timeToSurfaceSeconds;
+    }
+
+    public long getTimeSeconds() {
+        return timeSeconds;
+    }
+
+    public double getDepthFsw() {
+        return depthFsw;
+    }
+
+    public Gas getGas() {
+        return gas;
+    }
+
+    public TissueState getTissueState() {
+        return new TissueState(tissueState); // Return a copy for safety
+    }
+
+    public double getCeilingDepthFsw() {
+        return ceilingDepthFsw;
+    }
+
+    public double getCurrentGradientFactor() {
+        return currentGradientFactor;
+    }
+
+    public int getNdlSeconds() {
+        return ndlSeconds;
+    }
+
+    public int getTimeToSurfaceSeconds() {
+        return timeToSurfaceSeconds;
+    }
+
+    public boolean isInDeco() {
+        return ceilingDepthFsw > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimelinePoint that = (TimelinePoint) o;
+        return timeSeconds == that.timeSeconds &&
+                Double.compare(that.depthFsw, depthFsw) == 0 &&
+                Double.compare(that.ceilingDepthFsw, ceilingDepthFsw) == 0 &&
+                Double.compare(that.currentGradientFactor, currentGradientFactor) == 0 &&
+                ndlSeconds == that.ndlSeconds &&
+                timeToSurfaceSeconds == that.timeToSurfaceSeconds &&
+                gas.equals(that.gas) &&
+                tissueState.equals(that.tissueState);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timeSeconds, depthFsw, gas, tissueState, ceilingDepthFsw, currentGradientFactor,
+                ndlSeconds, timeToSurfaceSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return "TimelinePoint{" +
+                "timeS=" + timeSeconds +
+                ", depthFt=" + depthFsw +
+                ", gas=" + gas.getGasName() +
+                ", ceilingFt=" + ceilingDepthFsw +
+                ", GF99=" + currentGradientFactor +
+                ", ndlS=" + ndlSeconds +
+                ", ttsS=" + timeToSurfaceSeconds +
+                '}';
+    }
+}
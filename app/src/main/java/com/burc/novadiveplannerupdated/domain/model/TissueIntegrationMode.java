@@ -0,0 +1,20 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+/**
+ * Selects how {@link com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService}
+ * integrates tissue tensions over a leg (a period at constant depth or at a constant ascent/descent rate).
+ */
+public enum TissueIntegrationMode {
+    /**
+     * Closed-form integration: the Haldane solution for constant depth and the Schreiner equation
+     * for a constant-rate depth change. Each leg costs one exponential per compartment and gas,
+     * regardless of its duration.
+     */
+    ANALYTIC,
+
+    /**
+     * Reference integration: the Pelagic update applied every second at depth and every minute
+     * on the surface. Kept so the analytic results can be diffed against it.
+     */
+    STEPPED
+}
@@ -0,0 +1,105 @@
+package com.burc.novadiveplannerupdated.domain.model;
+
+/**
+ * Result of evaluating all 17 compartments against their M-values at one ambient pressure:
+ * the controlling (leading) compartment, its blended a/b coefficients, the ceiling and the gradient factors.
+ */
+public final class TissueLimitSummary {
+
+    private final int controllingCompartmentIndex;
+    private final double aMixFsw;
+    private final double bMix;
+    private final double ceilingDepthFsw;
+    private final double gradientFactor;
+    private final double currentGradientFactor;
+
+    /**
+     * @param controllingCompartmentIndex Index (0-16) of the compartment with the deepest ceiling.
+     * @param aMixFsw                     Blended 'a' coefficient of that compartment, in fsw.
+     * @param bMix                        Blended 'b' coefficient of that compartment.
+     * @param ceilingDepthFsw             Deepest ceiling for {@code gradientFactor}, in fsw relative to P_init (0 if at/above surface).
+     * @param gradientFactor              Gradient factor (fraction) the ceiling was evaluated with.
+     * @param currentGradientFactor       Highest supersaturation of any compartment at the evaluated ambient pressure,
+     *                                    as a fraction of its raw M-value gradient (often shown as GF99). 0 or negative when under-saturated.
+     */
+    public TissueLimitSummary(
+            int controllingCompartmentIndex,
+            double aMixFsw,
+            double bMix,
+            double ceilingDepthFsw,
+            double gradientFactor,
+            double currentGradientFactor) {
+        if (controllingCompartmentIndex < 0) {
+            throw new IllegalArgumentException("Controlling compartment index cannot be negative.");
+        }
+        if (ceilingDepthFsw < 0) {
+            throw new IllegalArgumentException("Ceiling depth cannot be negative.");
+        }
+        this.controllingCompartmentIndex = controllingCompartmentIndex;
+        this.aMixFsw = aMixFsw;
+        this.bMix = bMix;
+        this.ceilingDepthFsw = ceilingDepthFsw;
+        this.gradientFactor = gradientFactor;
+        this.currentGradientFactor = currentGradientFactor;
+    }
+
+    public int getControllingCompartmentIndex() {
+        return controllingCompartmentIndex;
+    }
+
+    public double getAMixFsw() {
+        return aMixFsw;
+    }
+
+    public double getBMix() {
+        return bMix;
+    }
+
+    public double getCeilingDepthFsw() {
+        return ceilingDepthFsw;
+    }
+
+    public double getGradientFactor() {
+        return gradientFactor;
+    }
+
+    public double getCurrentGradientFactor() {
+        return currentGradientFactor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TissueLimitSummary that = (TissueLimitSummary) o;
+        return controllingCompartmentIndex == that.controllingCompartmentIndex &&
+                Double.compare(that.aMixFsw, aMixFsw) == 0 &&
+                Double.compare(that.bMix, bMix) == 0 &&
+                Double.compare(that.ceilingDepthFsw, ceilingDepthFsw) == 0 &&
+                Double.compare(that.gradientFactor, gradientFactor) == 0 &&
+                Double.compare(that.currentGradientFactor, currentGradientFactor) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = controllingCompartmentIndex;
+        result = 31 * result + Double.hashCode(aMixFsw);
+        result = 31 * result + Double.hashCode(bMix);
+        result = 31 * result + Double.hashCode(ceilingDepthFsw);
+        result = 31 * result + Double.hashCode(gradientFactor);
+        result = 31 * result + Double.hashCode(currentGradientFactor);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TissueLimitSummary{" +
+                "controllingCompartmentIndex=" + controllingCompartmentIndex +
+                ", aMixFsw=" + aMixFsw +
+                ", bMix=" + bMix +
+                ", ceilingDepthFsw=" + ceilingDepthFsw +
+                ", gradientFactor=" + gradientFactor +
+                ", currentGradientFactor=" + currentGradientFactor +
+                '}';
+    }
+}
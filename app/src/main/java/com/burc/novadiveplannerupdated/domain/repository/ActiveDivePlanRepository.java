@@ -1,10 +1,14 @@
 package com.burc.novadiveplannerupdated.domain.repository;
 
 import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
+import com.burc.novadiveplannerupdated.domain.model.CalculationStamp;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
 
 /**
  * Repository responsible for managing the currently active DivePlan in memory.
+ * Every plan set as active is also saved to local storage in the background,
+ * so the last plan can be restored on the next start.
  */
 public interface ActiveDivePlanRepository {
 
@@ -19,11 +23,41 @@ public interface ActiveDivePlanRepository {
     /**
      * Sets the given DivePlan as the currently active one.
      * This will also trigger an emission to observers of getActiveDivePlan().
+     * The plan is saved asynchronously; this method does not wait for the write.
      *
      * @param divePlan The DivePlan to set as active.
      */
     void setActiveDivePlan(DivePlan divePlan);
 
+    /**
+     * Loads the most recently saved DivePlan from local storage.
+     * Only user inputs are restored; calculated fields are empty until the plan is recalculated.
+     *
+     * @return A Maybe emitting the saved plan, or completing without a value if none is stored
+     *         or the stored plan cannot be read.
+     */
+    Maybe<DivePlan> getLastSavedDivePlan();
+
+    /**
+     * Saves the calculated results of the plan's current (last) dive next to the plan, stamped with
+     * what they were calculated with. Asynchronous like {@link #setActiveDivePlan(DivePlan)}; the results
+     * are dropped if the active plan's inputs changed in the meantime.
+     *
+     * @param calculatedPlan The plan whose current dive carries all calculated fields.
+     * @param stamp          The engine version and settings hash the results were calculated with.
+     */
+    void saveCalculatedDivePlan(DivePlan calculatedPlan, CalculationStamp stamp);
+
+    /**
+     * Loads a saved plan with the stored results of its current (last) dive.
+     *
+     * @param planId The id of the plan.
+     * @param stamp  The stamp of the current engine and inputs.
+     * @return A Maybe emitting the plan with its current dive calculated, or completing without a value
+     *         if the plan is not stored or its results are missing or were stamped differently.
+     */
+    Maybe<DivePlan> getCalculatedDivePlan(String planId, CalculationStamp stamp);
+
     /**
      * Retrieves the current active DivePlan synchronously.
      * This might return null if no plan has been set yet.
@@ -1,5 +1,6 @@
 package com.burc.novadiveplannerupdated.domain.service;
 
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
 import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
 import com.burc.novadiveplannerupdated.domain.common.DomainDefaults;
 import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
@@ -12,22 +13,40 @@ import com.burc.novadiveplannerupdated.domain.model.GasType;
 import com.burc.novadiveplannerupdated.domain.model.GradientFactors;
 import com.burc.novadiveplannerupdated.domain.model.LastStopDepthOption;
 import com.burc.novadiveplannerupdated.domain.model.SegmentCalculationResult;
+import com.burc.novadiveplannerupdated.domain.model.TissueIntegrationMode;
+import com.burc.novadiveplannerupdated.domain.model.TissueLimitSummary;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
 /**
  * Service class implementing the Buhlmann ZHL-16c algorithm for dive calculations.
  * This service is designed to be stateless, taking all necessary inputs for calculations
  * and returning new states or results.
  */
+@Singleton
 public class BuhlmannAlgorithmService {
 
     private final List<TissueCompartment> allCompartments;
     private final OxygenToxicityService oxygenToxicityService;
     private final GasConsumptionService gasConsumptionService;
+    private final TissueIntegrationMode integrationMode;
+    private final TissueDecayTable decayTable;
+    private final CompartmentKernel compartmentKernel;
+    /** Deco gas index of the last plan; immutable, so sharing it between threads only needs the volatile read. */
+    private volatile DecoGasIndex lastDecoGasIndex;
+
+    /** Max search time for NDL, e.g., 5 hours. Prevents excessively long searches for very shallow depths. */
+    public static final int MAX_NDL_SEARCH_MINUTES = 300;
+    /** Upper bound on whole-minute corrections applied after the analytic NDL solve. */
+    private static final int NDL_REFINE_MAX_STEPS = 3;
+    /** Longest single decompression stop the planner will schedule, in minutes. */
+    private static final int MAX_SINGLE_STOP_MINUTES = 240;
 
     /**
      * Helper data class to return multiple values from determineNextStop method.
@@ -48,33 +67,17 @@ public class BuhlmannAlgorithmService {
      * Helper data class to return multiple values from ascendToNextStop method.
      */
     private static class AscentToStopResult {
-        final TissueState tissueStateAfterAscent;
         final Gas gasUsedForAscent;
         final double ascentDurationSeconds;
         final double newCurrentDepthFsw; // This will be the targetStopDepthFsw
 
-        AscentToStopResult(TissueState tissueStateAfterAscent, Gas gasUsedForAscent, double ascentDurationSeconds, double newCurrentDepthFsw) {
-            this.tissueStateAfterAscent = tissueStateAfterAscent;
+        AscentToStopResult(Gas gasUsedForAscent, double ascentDurationSeconds, double newCurrentDepthFsw) {
             this.gasUsedForAscent = gasUsedForAscent;
             this.ascentDurationSeconds = ascentDurationSeconds;
             this.newCurrentDepthFsw = newCurrentDepthFsw;
         }
     }
 
-    /**
-     * Helper data class to return the calculated DecoStop (if any) and the final tissue state 
-     * from the performDecoAtStop method.
-     */
-    private static class CalculatedStopDetails {
-        final DecoStop decoStopEntry; // Can be null if stopDurationMinutes is 0
-        final TissueState tissueStateAtEndOfProcessing;
-
-        CalculatedStopDetails(DecoStop decoStopEntry, TissueState tissueStateAtEndOfProcessing) {
-            this.decoStopEntry = decoStopEntry;
-            this.tissueStateAtEndOfProcessing = Objects.requireNonNull(tissueStateAtEndOfProcessing, "tissueStateAtEndOfProcessing cannot be null");
-        }
-    }
-
     /**
      * Constructor for BuhlmannAlgorithmService.
      * Initializes the list of 17 tissue compartments based on DiveConstants.
@@ -85,9 +88,28 @@ public class BuhlmannAlgorithmService {
      * @param oxygenToxicityService Instance of OxygenToxicityService.
      * @param gasConsumptionService Instance of GasConsumptionService.
      */
+    @Inject
     public BuhlmannAlgorithmService(OxygenToxicityService oxygenToxicityService, GasConsumptionService gasConsumptionService) {
+        this(oxygenToxicityService, gasConsumptionService, TissueIntegrationMode.ANALYTIC);
+    }
+
+    /**
+     * Constructor for BuhlmannAlgorithmService with an explicit tissue integration mode.
+     * {@link TissueIntegrationMode#STEPPED} reproduces the per-second reference integration and
+     * is intended for diffing against the default {@link TissueIntegrationMode#ANALYTIC} mode.
+     *
+     * @param oxygenToxicityService Instance of OxygenToxicityService.
+     * @param gasConsumptionService Instance of GasConsumptionService.
+     * @param integrationMode       How tissue tensions are integrated over each leg.
+     */
+    public BuhlmannAlgorithmService(OxygenToxicityService oxygenToxicityService,
+                                    GasConsumptionService gasConsumptionService,
+                                    TissueIntegrationMode integrationMode) {
         this.oxygenToxicityService = Objects.requireNonNull(oxygenToxicityService, "oxygenToxicityService cannot be null");
         this.gasConsumptionService = Objects.requireNonNull(gasConsumptionService, "gasConsumptionService cannot be null");
+        this.integrationMode = Objects.requireNonNull(integrationMode, "integrationMode cannot be null");
+        this.decayTable = new TissueDecayTable();
+        this.compartmentKernel = new CompartmentKernel();
 
         List<TissueCompartment> compartments = new ArrayList<>(DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
         for (int i = 0; i < DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS; i++) {
@@ -106,11 +128,26 @@ public class BuhlmannAlgorithmService {
         return allCompartments;
     }
 
+    /**
+     * @return The tissue integration mode this service was created with.
+     */
+    public TissueIntegrationMode getIntegrationMode() {
+        return integrationMode;
+    }
+
+    /**
+     * @return The oxygen toxicity service this service was created with.
+     */
+    OxygenToxicityService getOxygenToxicityService() {
+        return oxygenToxicityService;
+    }
+
     // --- Core Calculation Methods (to be implemented) ---
 
     /**
      * Calculates the new tissue state after a specific duration at a constant depth or during a continuous ascent/descent.
-     * This is the core Schreiner equation implementation.
+     * Depending on {@link #getIntegrationMode()} this either evaluates the Haldane/Schreiner closed form once per
+     * compartment or walks the leg in 1-second steps (60-second steps on the surface).
      *
      * @param initialTissueState        The tissue state at the beginning of this calculation period.
      * @param startDepthFsw             The depth in FSW at the beginning of the period.
@@ -140,21 +177,229 @@ public class BuhlmannAlgorithmService {
             throw new IllegalArgumentException("Depth cannot be negative.");
         }
 
-        // Initialize current tissue pressures from the initial state
-        double[] currentN2PressuresFsw = initialTissueState.getNitrogenPressuresFsw();
-        double[] currentHePressuresFsw = initialTissueState.getHeliumPressuresFsw();
+        TissueWorkspace workspace = new TissueWorkspace(initialTissueState);
+        integrate(workspace, startDepthFsw, endDepthFsw, durationSeconds, breathingGas, initialAmbientPressureFsw, isSurfaceInterval);
+        return workspace.freeze();
+    }
+
+    /**
+     * Calculates the tissue state after a surface interval on air, in closed form with the surface half-times
+     * whatever the integration mode, so an interval of any length costs one exponential per compartment.
+     *
+     * @param tissueStateAtSurfacing    The tissue state when the diver reached the surface.
+     * @param intervalSeconds           The length of the surface interval in seconds.
+     * @param initialAmbientPressureFsw The initial ambient pressure at the surface/altitude (P_init).
+     * @return The tissue state at the end of the surface interval.
+     */
+    public TissueState calculateSurfaceIntervalTissueState(
+            TissueState tissueStateAtSurfacing,
+            double intervalSeconds,
+            double initialAmbientPressureFsw) {
+
+        if (tissueStateAtSurfacing == null) {
+            throw new IllegalArgumentException("Tissue state at surfacing cannot be null.");
+        }
+        if (intervalSeconds < 0) {
+            throw new IllegalArgumentException("Surface interval cannot be negative.");
+        }
+        TissueWorkspace workspace = new TissueWorkspace(tissueStateAtSurfacing);
+        if (intervalSeconds > 0) {
+            integrateAnalytic(workspace, 0, 0, intervalSeconds, null, initialAmbientPressureFsw, true, false, 0, 0);
+        }
+        return workspace.freeze();
+    }
+
+    /**
+     * Replays the ascent of a decompression plan and returns the tissue state on reaching the surface:
+     * every ascent leg on the gas the planner selects for it and every stop on its gas, or the direct NDL
+     * ascent on the bottom gas when there are no stops. The leg times are those of
+     * {@link #calculateTimeToSurfaceSeconds}.
+     *
+     * @param tissueStateAtEndOfBottom  The tissue state at the end of the bottom phase.
+     * @param bottomDepthFsw            The depth (fsw) the ascent starts from.
+     * @param gasAtEndOfBottom          The gas breathed at the end of the bottom phase.
+     * @param decoPlan                  The stops returned by {@link #calculateDecompressionPlan}, deepest first. May be empty.
+     * @param settings                  The dive settings the plan was calculated with.
+     * @param allAvailableGases         The gases the plan was calculated with.
+     * @param initialAmbientPressureFsw The initial ambient pressure at the surface/altitude (P_init).
+     * @return The tissue state at the surface.
+     */
+    public TissueState calculateTissueStateAtSurfacing(
+            TissueState tissueStateAtEndOfBottom,
+            double bottomDepthFsw,
+            Gas gasAtEndOfBottom,
+            List<DecoStop> decoPlan,
+            DiveSettings settings,
+            List<Gas> allAvailableGases,
+            double initialAmbientPressureFsw) {
+
+        if (tissueStateAtEndOfBottom == null || gasAtEndOfBottom == null || decoPlan == null || settings == null) {
+            throw new IllegalArgumentException("Parameters for the ascent replay cannot be null.");
+        }
+        TissueWorkspace workspace = new TissueWorkspace(tissueStateAtEndOfBottom);
+        if (decoPlan.isEmpty()) {
+            integrate(workspace, bottomDepthFsw, 0, getNdlAscentDurationSeconds(Math.max(0, bottomDepthFsw)),
+                    gasAtEndOfBottom, initialAmbientPressureFsw, false);
+            return workspace.freeze();
+        }
+
+        DecoGasIndex decoGasIndex = getDecoGasIndex(allAvailableGases, initialAmbientPressureFsw);
+        double currentDepthFsw = bottomDepthFsw;
+        Gas currentGas = gasAtEndOfBottom;
+        for (DecoStop stop : decoPlan) {
+            currentGas = ascendToNextStop(workspace, currentDepthFsw, stop.getDepthFsw(), currentGas,
+                    decoGasIndex, settings, initialAmbientPressureFsw).gasUsedForAscent;
+            integrate(workspace, stop.getDepthFsw(), stop.getDepthFsw(), stop.getDurationMinutes() * 60.0,
+                    stop.getGas(), initialAmbientPressureFsw, false);
+            currentDepthFsw = stop.getDepthFsw();
+            currentGas = stop.getGas();
+        }
+        ascendToNextStop(workspace, currentDepthFsw, 0, currentGas, decoGasIndex, settings, initialAmbientPressureFsw);
+        return workspace.freeze();
+    }
+
+    /**
+     * Advances the tensions held in {@code workspace} over one leg, in place.
+     * Same contract as {@link #calculateTissueStateForDuration}, minus validation; used by the planner loops
+     * so that simulating a step does not allocate.
+     */
+    void integrate(
+            TissueWorkspace workspace,
+            double startDepthFsw,
+            double endDepthFsw,
+            double durationSeconds,
+            Gas breathingGas,
+            double initialAmbientPressureFsw,
+            boolean isSurfaceInterval) {
+
+        if (durationSeconds == 0) { // If duration is zero, no change in tissue pressures
+            return;
+        }
+        if (integrationMode == TissueIntegrationMode.STEPPED) {
+            integrateStepped(workspace, startDepthFsw, endDepthFsw, durationSeconds,
+                    breathingGas, initialAmbientPressureFsw, isSurfaceInterval);
+        } else {
+            integrateAnalytic(workspace, startDepthFsw, endDepthFsw, durationSeconds,
+                    breathingGas, initialAmbientPressureFsw, isSurfaceInterval, false, 0, 0);
+        }
+    }
+
+    /**
+     * Advances the workspace over one leg like {@link #integrate}, then checks the M-values at
+     * {@code checkAmbientPressureFsw}. In analytic mode loading and the check share one pass over the
+     * compartments; either way the workspace holds the full limit evaluation afterwards.
+     *
+     * @return true if every compartment is within its M-value at the end of the leg.
+     */
+    private boolean integrateAndCheckLimits(
+            TissueWorkspace workspace,
+            double startDepthFsw,
+            double endDepthFsw,
+            double durationSeconds,
+            Gas breathingGas,
+            double initialAmbientPressureFsw,
+            double checkAmbientPressureFsw,
+            double gradientFactor) {
+
+        if (integrationMode == TissueIntegrationMode.ANALYTIC && durationSeconds > 0) {
+            return integrateAnalytic(workspace, startDepthFsw, endDepthFsw, durationSeconds,
+                    breathingGas, initialAmbientPressureFsw, false, true, checkAmbientPressureFsw, gradientFactor);
+        }
+        integrate(workspace, startDepthFsw, endDepthFsw, durationSeconds, breathingGas, initialAmbientPressureFsw, false);
+        return compartmentKernel.evaluate(workspace, checkAmbientPressureFsw, gradientFactor);
+    }
+
+    /**
+     * Closed-form leg integration.
+     * Constant depth (and the surface) uses the Haldane solution:
+     *   P(t) = Pi + (P0 - Pi) * e^(-k*t)
+     * A constant-rate depth change uses the Schreiner equation, where the inspired pressure Pi(t) = Pi0 + R*t:
+     *   P(t) = Pi0 + R*(t - 1/k) - (Pi0 - P0 - R/k) * e^(-k*t)
+     * with k = ln2 / half-time (per minute) and t in minutes.
+     * When {@code evaluateLimits} is set, the M-value check at {@code checkAmbientPressureFsw} is fused into the same pass.
+     *
+     * @return The M-value check result, or true when no check was requested.
+     */
+    private boolean integrateAnalytic(
+            TissueWorkspace workspace,
+            double startDepthFsw,
+            double endDepthFsw,
+            double durationSeconds,
+            Gas breathingGas,
+            double initialAmbientPressureFsw,
+            boolean isSurfaceInterval,
+            boolean evaluateLimits,
+            double checkAmbientPressureFsw,
+            double gradientFactor) {
+
+        double fN2;
+        double fHe;
+        double startInspiredDepthFsw;
+        double depthChangeRateFswPerMin;
+        if (isSurfaceInterval) { // On surface, assume breathing air at P_init
+            fN2 = DiveConstants.FN2_IN_AIR;
+            fHe = DiveConstants.FHE_IN_AIR;
+            startInspiredDepthFsw = 0;
+            depthChangeRateFswPerMin = 0;
+        } else {
+            fN2 = breathingGas.getFo2() + breathingGas.getFhe() > 1.0 ? 0.0 : 1.0 - breathingGas.getFo2() - breathingGas.getFhe();
+            fHe = breathingGas.getFhe();
+            startInspiredDepthFsw = startDepthFsw;
+            depthChangeRateFswPerMin = (endDepthFsw - startDepthFsw) / (durationSeconds / 60.0);
+        }
+
+        double durationMinutes = durationSeconds / 60.0;
+        double pAmbientStartFsw = startInspiredDepthFsw + initialAmbientPressureFsw;
+        double pInspiredN2Start = fN2 * pAmbientStartFsw;
+        double pInspiredHeStart = fHe * pAmbientStartFsw;
+        double rateN2 = fN2 * depthChangeRateFswPerMin; // R for nitrogen, fsw/min
+        double rateHe = fHe * depthChangeRateFswPerMin; // R for helium, fsw/min
+
+        // e^(-k*t) comes from the decay table; the common leg lengths (1 min stops, 10 ft ascents) stay cached.
+        TissueDecayTable.Decay decay = decayTable.forDuration(durationMinutes, isSurfaceInterval);
+        double[] inverseKN2 = isSurfaceInterval ? decayTable.inverseKN2Surface : decayTable.inverseKN2;
+        double[] inverseKHe = isSurfaceInterval ? decayTable.inverseKHeSurface : decayTable.inverseKHe;
+
+        if (evaluateLimits) {
+            return compartmentKernel.integrateAndEvaluate(workspace, pInspiredN2Start, pInspiredHeStart, rateN2, rateHe,
+                    durationMinutes, inverseKN2, inverseKHe, decay, checkAmbientPressureFsw, gradientFactor);
+        }
+        compartmentKernel.integrate(workspace, pInspiredN2Start, pInspiredHeStart, rateN2, rateHe,
+                durationMinutes, inverseKN2, inverseKHe, decay);
+        return true;
+    }
+
+    /**
+     * Reference leg integration: applies the Pelagic per-step update every second at depth
+     * and every minute on the surface, sampling the depth at the start of each step.
+     */
+    private void integrateStepped(
+            TissueWorkspace workspace,
+            double startDepthFsw,
+            double endDepthFsw,
+            double durationSeconds,
+            Gas breathingGas,
+            double initialAmbientPressureFsw,
+            boolean isSurfaceInterval) {
+
+        // Tensions are updated in place in the workspace
+        double[] currentN2PressuresFsw = workspace.n2;
+        double[] currentHePressuresFsw = workspace.he;
 
         double fN2 = breathingGas.getFo2() + breathingGas.getFhe() > 1.0 ? 0.0 : 1.0 - breathingGas.getFo2() - breathingGas.getFhe();
         double fHe = breathingGas.getFhe();
 
         // Determine the time step: 1 second for depth, 60 seconds for surface interval
         double timeStepSeconds = isSurfaceInterval ? 60.0 : 1.0;
-        int numberOfSteps = (int) Math.max(1, Math.round(durationSeconds / timeStepSeconds)); // Ensure at least one step for very short durations, or if duration is 0
+        int numberOfSteps = (int) Math.max(1, Math.round(durationSeconds / timeStepSeconds)); // Ensure at least one step for very short durations
+        // Per-step decay e^(-k_step) for each compartment, precomputed for the 1 s and 60 s steps
+        TissueDecayTable.Decay stepDecay = isSurfaceInterval ? decayTable.oneMinuteSurface : decayTable.oneSecond;
+        double[] n2StepDecay = stepDecay.n2;
+        double[] heStepDecay = stepDecay.he;
+        // Nitrogen-only fast path: no helium in the tissues and none breathed (surface air has none either)
+        double fHeInspired = isSurfaceInterval ? DiveConstants.FHE_IN_AIR : fHe;
+        boolean skipHelium = workspace.heliumFree && fHeInspired == 0;
 
-        if (durationSeconds == 0) { // If duration is zero, no change in tissue pressures
-            return new TissueState(initialTissueState);
-        }
-        
         for (int step = 0; step < numberOfSteps; step++) {
             double currentDepthFsw;
             // Calculate current depth for this step
@@ -184,25 +429,23 @@ public class BuhlmannAlgorithmService {
 
 
             for (int i = 0; i < DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS; i++) {
-                TissueCompartment compartment = this.allCompartments.get(i);
-
                 // Nitrogen calculation
-                double n2HalfTimeMin = isSurfaceInterval ? compartment.getN2SurfaceHalfTimeMin() : compartment.getN2HalfTimeMin();
                 // Check for special surface off-gassing rule (Pelagic doc - Repetitive Diving section)
                 // "for compartments i = 1 to 8 τuN2 = 86.6 ... with the exception for tension values of nitrogen less than the initial "clean" values of 0.79Pinit fsw."
                 // This implies symmetric off-gassing (using depth half-time) if below initial saturation with P_init.
                 // We'll simplify and use N2_SURFACE_HALF_TIMES_MIN directly as defined in DiveConstants,
                 // which already has the 86.6 min for faster tissues. More complex logic can be added if strictly following that rule.
-                double k_n2_per_step = DiveConstants.LN_2 / (n2HalfTimeMin * (60.0 / timeStepSeconds)); // k per timeStepSeconds
-                currentN2PressuresFsw[i] = pInspiredN2 + (currentN2PressuresFsw[i] - pInspiredN2) * Math.exp(-k_n2_per_step * 1.0); // dt is 1 step
+                currentN2PressuresFsw[i] = pInspiredN2 + (currentN2PressuresFsw[i] - pInspiredN2) * n2StepDecay[i]; // dt is 1 step
 
                 // Helium calculation
-                double heHalfTimeMin = isSurfaceInterval ? compartment.getHeSurfaceHalfTimeMin() : compartment.getHeHalfTimeMin();
-                double k_he_per_step = DiveConstants.LN_2 / (heHalfTimeMin * (60.0 / timeStepSeconds)); // k per timeStepSeconds
-                currentHePressuresFsw[i] = pInspiredHe + (currentHePressuresFsw[i] - pInspiredHe) * Math.exp(-k_he_per_step * 1.0); // dt is 1 step
+                if (!skipHelium) {
+                    currentHePressuresFsw[i] = pInspiredHe + (currentHePressuresFsw[i] - pInspiredHe) * heStepDecay[i]; // dt is 1 step
+                }
             }
         }
-        return new TissueState(currentN2PressuresFsw, currentHePressuresFsw);
+        if (!skipHelium) {
+            workspace.heliumFree = false;
+        }
     }
 
     /**
@@ -235,14 +478,8 @@ public class BuhlmannAlgorithmService {
 
         double initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
         double targetDepthFsw = segment.getTargetDepth();
-        TissueState tissueStateAfterTransit = previousSegmentEndState;
-
-        // Variables to accumulate toxicity and gas consumption for the segment
-        // These are not returned by this method in this iteration, but calculated.
-        double segmentCumulativeCNS = 0;
-        double segmentCumulativeOTUS = 0;
-        // double segmentCumulativeOTUD = 0; // OTUD is usually tracked per dive or globally, not typically per segment directly for accumulation in this manner
-        double segmentTotalGasConsumedCuft = 0;
+        TissueWorkspace workspace = new TissueWorkspace(previousSegmentEndState);
+        SegmentExposure exposure = new SegmentExposure(); // CNS, OTUS and gas of both legs, summed in place
 
         double rmvDiveCuFtMin = settings.getSurfaceConsumptionRates().getRmvDiveCuFtMin(); // Already in cuft/min
 
@@ -262,42 +499,8 @@ public class BuhlmannAlgorithmService {
             }
 
             if (transitDurationSeconds > 0) {
-                tissueStateAfterTransit = calculateTissueStateForDuration(
-                        previousSegmentEndState,
-                        previousDepthFsw,
-                        targetDepthFsw,
-                        transitDurationSeconds,
-                        gasForTransit,
-                        initialAmbientPressureFsw,
-                        false
-                );
-
-                // Calculate toxicity and consumption for transit phase
-                double averageTransitDepthFsw = (previousDepthFsw + targetDepthFsw) / 2.0;
-                Double transitSetPointAta = (gasForTransit.getGasType() == GasType.CLOSED_CIRCUIT) ? segment.getSetPoint() : null;
-
-                double transitPpo2Ata = oxygenToxicityService.calculatePpo2(
-                        gasForTransit,
-                        averageTransitDepthFsw,
-                        initialAmbientPressureFsw,
-                        transitSetPointAta
-                );
-
-                double transitCnsRate = oxygenToxicityService.calculateCnsToxicityRate(transitPpo2Ata);
-                double transitRotd = oxygenToxicityService.calculateRotd(transitPpo2Ata);
-                double transitRots = oxygenToxicityService.calculateRots(transitPpo2Ata, transitRotd);
-                double transitDurationMinutes = transitDurationSeconds / 60.0;
-
-                segmentCumulativeCNS += transitCnsRate * transitDurationMinutes;
-                segmentCumulativeOTUS += transitRots * transitDurationMinutes;
-                // segmentCumulativeOTUD += transitRotd * transitDurationMinutes;
-
-                segmentTotalGasConsumedCuft += gasConsumptionService.calculateTotalGasConsumedCuft(
-                        rmvDiveCuFtMin, // Use dive RMV for transit associated with a dive segment
-                        averageTransitDepthFsw,
-                        transitDurationMinutes,
-                        initialAmbientPressureFsw
-                );
+                integrateSegmentLeg(workspace, exposure, previousDepthFsw, targetDepthFsw, transitDurationSeconds,
+                        gasForTransit, segment.getSetPoint(), initialAmbientPressureFsw, rmvDiveCuFtMin);
             }
         }
 
@@ -308,70 +511,106 @@ public class BuhlmannAlgorithmService {
             timeAtTargetDepthSeconds = 0;
         }
 
-        TissueState finalTissueState = tissueStateAfterTransit;
         if (timeAtTargetDepthSeconds > 0) {
-            finalTissueState = calculateTissueStateForDuration(
-                    tissueStateAfterTransit,
-                    targetDepthFsw,
-                    targetDepthFsw,
-                    timeAtTargetDepthSeconds,
-                    segment.getGas(), // Use the segment's designated gas
-                    initialAmbientPressureFsw,
-                    false
-            );
-
-            // Calculate toxicity and consumption for time at target depth
-            Double targetDepthSetPointAta = (segment.getGas().getGasType() == GasType.CLOSED_CIRCUIT) ? segment.getSetPoint() : null;
-            double targetDepthPpo2Ata = oxygenToxicityService.calculatePpo2(
-                    segment.getGas(),
-                    targetDepthFsw,
-                    initialAmbientPressureFsw,
-                    targetDepthSetPointAta
-            );
-
-            double targetDepthCnsRate = oxygenToxicityService.calculateCnsToxicityRate(targetDepthPpo2Ata);
-            double targetDepthRotd = oxygenToxicityService.calculateRotd(targetDepthPpo2Ata);
-            double targetDepthRots = oxygenToxicityService.calculateRots(targetDepthPpo2Ata, targetDepthRotd);
-            double timeAtTargetDepthMinutes = timeAtTargetDepthSeconds / 60.0;
-
-            segmentCumulativeCNS += targetDepthCnsRate * timeAtTargetDepthMinutes;
-            segmentCumulativeOTUS += targetDepthRots * timeAtTargetDepthMinutes;
-            // segmentCumulativeOTUD += targetDepthRotd * timeAtTargetDepthMinutes;
-
-            segmentTotalGasConsumedCuft += gasConsumptionService.calculateTotalGasConsumedCuft(
-                    rmvDiveCuFtMin, // Use dive RMV for segment time at depth
-                    targetDepthFsw,
-                    timeAtTargetDepthMinutes,
-                    initialAmbientPressureFsw
-            );
+            integrateSegmentLeg(workspace, exposure, targetDepthFsw, targetDepthFsw, timeAtTargetDepthSeconds,
+                    segment.getGas(), segment.getSetPoint(), initialAmbientPressureFsw, rmvDiveCuFtMin);
         }
-        
-        // TODO: Store segmentCumulativeCNS, segmentCumulativeOTUS, segmentTotalGasConsumedCuft
-        // in the DiveSegment object or a calculation result object in a future step.
-        // For now, they are calculated but not explicitly returned or stored beyond this method's scope.
 
         return new SegmentCalculationResult(
-                finalTissueState,
-                segmentCumulativeCNS,
-                segmentCumulativeOTUS,
-                segmentTotalGasConsumedCuft,
+                workspace.freeze(),
+                exposure.cnsPercent,
+                exposure.otus,
+                exposure.gasConsumedCuft,
                 (transitDurationSeconds > 1e-6 ? transitDurationSeconds : null) // Store null if no transit
         );
     }
 
+    /**
+     * Integrates one leg of a segment (a linear depth ramp, or a constant depth) in a single pass:
+     * the tissues through {@link #integrate}, and CNS, OTUS and gas use as exact integrals over the ramp.
+     * <p>
+     * The PPO2 of an open-circuit gas is linear in depth, and so in time, so the piecewise CNS and OTU rates
+     * are integrated exactly by {@link OxygenToxicityService}. A closed-circuit PPO2 is the set point capped by
+     * the ambient pressure; the ramp is split where the cap starts or stops applying. Gas use is proportional
+     * to ambient pressure, which is linear too, so the average depth gives its exact integral.
+     * A constant-depth leg gives exactly {@code rate * time}, as before.
+     *
+     * @param workspace  Tissue tensions, updated in place.
+     * @param exposure   Totals of the segment, updated in place.
+     * @param setPointAta The segment's set point; only used for a closed-circuit gas.
+     */
+    private void integrateSegmentLeg(
+            TissueWorkspace workspace,
+            SegmentExposure exposure,
+            double startDepthFsw,
+            double endDepthFsw,
+            double durationSeconds,
+            Gas gas,
+            Double setPointAta,
+            double initialAmbientPressureFsw,
+            double rmvCuFtMin) {
+
+        integrate(workspace, startDepthFsw, endDepthFsw, durationSeconds, gas, initialAmbientPressureFsw, false);
+
+        double durationMinutes = durationSeconds / 60.0;
+        boolean closedCircuit = gas.getGasType() == GasType.CLOSED_CIRCUIT;
+        Double legSetPointAta = closedCircuit ? setPointAta : null;
+        double startPpo2Ata = oxygenToxicityService.calculatePpo2(gas, startDepthFsw, initialAmbientPressureFsw, legSetPointAta);
+        double endPpo2Ata = oxygenToxicityService.calculatePpo2(gas, endDepthFsw, initialAmbientPressureFsw, legSetPointAta);
+
+        // Depth at which the ambient pressure equals the set point; above it the loop PPO2 follows the ambient pressure
+        double capDepthFsw = closedCircuit
+                ? setPointAta * DomainDefaults.DEPTH_CONSTANT_IMPERIAL - initialAmbientPressureFsw
+                : Double.NaN;
+        if (closedCircuit && (capDepthFsw - startDepthFsw) * (capDepthFsw - endDepthFsw) < 0) {
+            double fraction = (capDepthFsw - startDepthFsw) / (endDepthFsw - startDepthFsw);
+            addOxygenExposure(exposure, startPpo2Ata, setPointAta, durationMinutes * fraction);
+            addOxygenExposure(exposure, setPointAta, endPpo2Ata, durationMinutes * (1 - fraction));
+        } else {
+            addOxygenExposure(exposure, startPpo2Ata, endPpo2Ata, durationMinutes);
+        }
+
+        exposure.gasConsumedCuft += gasConsumptionService.calculateTotalGasConsumedCuft(
+                rmvCuFtMin, // Use dive RMV for transit and time at depth of a dive segment
+                (startDepthFsw + endDepthFsw) / 2.0,
+                durationMinutes,
+                initialAmbientPressureFsw
+        );
+    }
+
+    private void addOxygenExposure(SegmentExposure exposure, double startPpo2Ata, double endPpo2Ata, double durationMinutes) {
+        exposure.cnsPercent += oxygenToxicityService.calculateCnsPercentOverRamp(startPpo2Ata, endPpo2Ata, durationMinutes);
+        exposure.otus += oxygenToxicityService.calculateOtusOverRamp(startPpo2Ata, endPpo2Ata, durationMinutes);
+        // OTUD is tracked per dive, not accumulated per segment here
+    }
+
+    /**
+     * Running totals of one segment; a single mutable holder so the legs add to it without allocating.
+     */
+    private static final class SegmentExposure {
+        double cnsPercent;
+        double otus;
+        double gasConsumedCuft;
+    }
+
     // --- Other main methods (NDL, Deco Plan etc. - to be defined later) ---
 
     /**
      * Calculates the No Decompression Limit (NDL) in minutes for a given depth and initial tissue state.
      * NDL is the maximum additional time a diver can stay at targetDepthFsw before requiring decompression stops
      * upon direct ascent to the surface, considering the initialAmbientPressureFsw and GFHigh.
+     * <p>
+     * In {@link TissueIntegrationMode#ANALYTIC} mode the limit is solved directly: the bottom loading and the
+     * direct ascent are both closed-form, so each compartment's surfacing tension is inverted against its GF-high
+     * surface M-value and the smallest crossing time wins. A couple of whole-minute checks then confirm the
+     * result against the same M-value test the minute-by-minute search uses.
      *
      * @param initialTissueState        The tissue state at the moment the NDL calculation begins (e.g., upon reaching targetDepthFsw).
      * @param targetDepthFsw            The constant depth for which NDL is being calculated.
      * @param bottomGas                 The gas being breathed at the targetDepthFsw.
      * @param settings                  Dive settings, including GradientFactors and potentially ascent rates.
      * @param initialAmbientPressureFsw The initial ambient pressure at the surface/altitude (P_init from AltitudeLevel).
-     * @return The NDL in whole minutes.
+     * @return The NDL in whole minutes, capped at {@link #MAX_NDL_SEARCH_MINUTES}.
      */
     public int calculateNdlMinutes(
             TissueState initialTissueState,
@@ -387,74 +626,48 @@ public class BuhlmannAlgorithmService {
             throw new IllegalArgumentException("Target depth for NDL cannot be negative.");
         }
 
-        int ndlMinutes = 0;
-        // Max search time for NDL, e.g., 5 hours. Prevents excessively long loops for very shallow depths.
-        int maxNdlSearchMinutes = 300; 
-
-        // TODO: Consider making ascent rate for NDL configurable in DiveSettings
-        double ascentRateFpm = DomainDefaults.DEFAULT_ASCENT_RATE_FT_MIN;
-        // Example if ascent rate were in DiveSettings (e.g., settings.getPlanningAscentRateFpm()):
-        // if (settings.getPlanningAscentRateFpm() > 0) { 
-        //     ascentRateFpm = settings.getPlanningAscentRateFpm();
-        // }
-
-        for (int currentBottomTimeMinutes = 0; currentBottomTimeMinutes <= maxNdlSearchMinutes; currentBottomTimeMinutes++) {
-            // 1. Simulate staying at targetDepthFsw for currentBottomTimeMinutes
-            TissueState tissueAfterBottomTime = calculateTissueStateForDuration(
-                    initialTissueState,
-                    targetDepthFsw, // startDepth is targetDepth (already there)
-                    targetDepthFsw, // endDepth is targetDepth (constant depth)
-                    currentBottomTimeMinutes * 60.0, // duration in seconds
-                    bottomGas,
-                    initialAmbientPressureFsw,
-                    false // isSurfaceInterval
-            );
+        if (integrationMode == TissueIntegrationMode.STEPPED) {
+            return calculateNdlMinutesBySearch(initialTissueState, targetDepthFsw, bottomGas, settings, initialAmbientPressureFsw);
+        }
 
-            // 2. Simulate direct ascent to surface
-            double ascentDurationSeconds = 0;
-            if (targetDepthFsw > 1e-6 && ascentRateFpm > 1e-6) { // Only if there's depth and rate to ascend
-                ascentDurationSeconds = (targetDepthFsw / ascentRateFpm) * 60.0;
-            }
+        TissueWorkspace workspace = new TissueWorkspace();
+        // Legacy semantics: if the diver cannot surface right now, NDL is 0.
+        if (!isNdlBottomTimeWithinLimits(initialTissueState, targetDepthFsw, 0, bottomGas, settings, initialAmbientPressureFsw, workspace)) {
+            return 0;
+        }
 
-            TissueState tissueAtSurface;
-            if (ascentDurationSeconds > 0) {
-                tissueAtSurface = calculateTissueStateForDuration(
-                        tissueAfterBottomTime, // Start from state after bottom time
-                        targetDepthFsw,        // Start ascent from targetDepth
-                        0.0,                   // End ascent at surface (0 fsw relative to P_init)
-                        ascentDurationSeconds,
-                        bottomGas,             // Assume ascent on bottom gas for NDL planning
-                        initialAmbientPressureFsw,
-                        false                  // Not a surface interval
-                );
-            } else { // No ascent needed (e.g., already at surface or zero ascent rate/depth)
-                tissueAtSurface = tissueAfterBottomTime;
-            }
+        double crossingMinutes = solveNdlCrossingMinutes(initialTissueState, targetDepthFsw, bottomGas, settings, initialAmbientPressureFsw);
+        int ndlMinutes = (int) Math.min(MAX_NDL_SEARCH_MINUTES, Math.floor(crossingMinutes));
 
-            // 3. Check M-Values at surface for all compartments
-            boolean withinLimits = true;
-            for (int i = 0; i < DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS; i++) {
-                TissueCompartment compartment = this.allCompartments.get(i);
-                double n2AtSurface = tissueAtSurface.getNitrogenPressureFsw(i);
-                double heAtSurface = tissueAtSurface.getHeliumPressureFsw(i);
-                double totalInertGasAtSurface = n2AtSurface + heAtSurface;
-
-                // M-Value at surface (P_init) using GFHigh
-                double mValueSurface = calculateMValueFsw(
-                        compartment,
-                        n2AtSurface, // Current tissue pressures for accurate a_mix, b_mix
-                        heAtSurface,
-                        initialAmbientPressureFsw, // Ambient pressure at target (surface = P_init)
-                        settings.getGradientFactors().getGfHigh()
-                );
+        // Refine against the exact whole-minute check. The closed form only differs by rounding noise,
+        // so each loop normally runs at most once.
+        for (int step = 0; step < NDL_REFINE_MAX_STEPS && ndlMinutes > 0
+                && !isNdlBottomTimeWithinLimits(initialTissueState, targetDepthFsw, ndlMinutes, bottomGas, settings, initialAmbientPressureFsw, workspace); step++) {
+            ndlMinutes--;
+        }
+        for (int step = 0; step < NDL_REFINE_MAX_STEPS && ndlMinutes < MAX_NDL_SEARCH_MINUTES
+                && isNdlBottomTimeWithinLimits(initialTissueState, targetDepthFsw, ndlMinutes + 1, bottomGas, settings, initialAmbientPressureFsw, workspace); step++) {
+            ndlMinutes++;
+        }
+        return ndlMinutes;
+    }
 
-                if (totalInertGasAtSurface > mValueSurface) {
-                    withinLimits = false;
-                    break; // One compartment over limit is enough
-                }
-            }
+    /**
+     * Reference NDL search: re-simulates the bottom time and the direct ascent for every whole minute
+     * until the first minute whose surfacing tensions exceed the GF-high M-values.
+     */
+    private int calculateNdlMinutesBySearch(
+            TissueState initialTissueState,
+            double targetDepthFsw,
+            Gas bottomGas,
+            DiveSettings settings,
+            double initialAmbientPressureFsw) {
 
-            if (withinLimits) {
+        int ndlMinutes = 0;
+        TissueWorkspace workspace = new TissueWorkspace();
+        for (int currentBottomTimeMinutes = 0; currentBottomTimeMinutes <= MAX_NDL_SEARCH_MINUTES; currentBottomTimeMinutes++) {
+            if (isNdlBottomTimeWithinLimits(initialTissueState, targetDepthFsw, currentBottomTimeMinutes,
+                    bottomGas, settings, initialAmbientPressureFsw, workspace)) {
                 ndlMinutes = currentBottomTimeMinutes;
             } else {
                 // Limits exceeded, the NDL is the previous minute value
@@ -464,6 +677,193 @@ public class BuhlmannAlgorithmService {
         return ndlMinutes;
     }
 
+    /**
+     * Simulates {@code bottomTimeMinutes} at the target depth followed by a direct ascent on the bottom gas,
+     * and checks the surfacing tensions of every compartment against its GF-high M-value at P_init.
+     *
+     * @param workspace Scratch buffer, overwritten by this call.
+     * @return true if no compartment exceeds its surface M-value.
+     */
+    private boolean isNdlBottomTimeWithinLimits(
+            TissueState initialTissueState,
+            double targetDepthFsw,
+            int bottomTimeMinutes,
+            Gas bottomGas,
+            DiveSettings settings,
+            double initialAmbientPressureFsw,
+            TissueWorkspace workspace) {
+
+        workspace.load(initialTissueState);
+
+        // 1. Simulate staying at targetDepthFsw for bottomTimeMinutes
+        integrate(
+                workspace,
+                targetDepthFsw, // startDepth is targetDepth (already there)
+                targetDepthFsw, // endDepth is targetDepth (constant depth)
+                bottomTimeMinutes * 60.0, // duration in seconds
+                bottomGas,
+                initialAmbientPressureFsw,
+                false // isSurfaceInterval
+        );
+
+        // 2. Simulate direct ascent to surface (no-op when already at the surface)
+        // 3. and check M-Values at surface (P_init) for all compartments, using GFHigh
+        return integrateAndCheckLimits(
+                workspace,
+                targetDepthFsw,        // Start ascent from targetDepth
+                0.0,                   // End ascent at surface (0 fsw relative to P_init)
+                getNdlAscentDurationSeconds(targetDepthFsw),
+                bottomGas,             // Assume ascent on bottom gas for NDL planning
+                initialAmbientPressureFsw,
+                initialAmbientPressureFsw,
+                settings.getGradientFactors().getGfHighFraction()
+        );
+    }
+
+    /**
+     * Duration of the direct NDL ascent from the target depth to the surface.
+     * TODO: Consider making ascent rate for NDL configurable in DiveSettings
+     */
+    double getNdlAscentDurationSeconds(double targetDepthFsw) {
+        double ascentRateFpm = DomainDefaults.DEFAULT_ASCENT_RATE_FT_MIN;
+        if (targetDepthFsw > 1e-6 && ascentRateFpm > 1e-6) { // Only if there's depth and rate to ascend
+            return (targetDepthFsw / ascentRateFpm) * 60.0;
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the earliest (fractional) bottom time at which any compartment would surface above its GF-high
+     * M-value after a direct ascent.
+     * <p>
+     * Both legs are closed-form, and the ascent is affine in the tension it starts from:
+     *   P_surface = A + d * P_bottom(t),  with P_bottom(t) = Pi + (P0 - Pi) * e^(-k*t)
+     * where d = e^(-k*T_ascent) and A is the ascent result from a zero tension. A compartment that holds
+     * only nitrogen (and breathes no helium) has a constant M-value, so its crossing time is solved directly.
+     * Compartments with both gases have a blended a/b that moves with the loading; those are sampled on a
+     * coarse grid and bisected inside the first failing interval.
+     *
+     * @return The crossing time in minutes, or a value above {@link #MAX_NDL_SEARCH_MINUTES} if no compartment crosses.
+     */
+    private double solveNdlCrossingMinutes(
+            TissueState initialTissueState,
+            double targetDepthFsw,
+            Gas bottomGas,
+            DiveSettings settings,
+            double initialAmbientPressureFsw) {
+
+        double fHe = bottomGas.getFhe();
+        double fN2 = bottomGas.getFo2() + fHe > 1.0 ? 0.0 : 1.0 - bottomGas.getFo2() - fHe;
+        double pAmbientBottomFsw = targetDepthFsw + initialAmbientPressureFsw;
+        double ascentDurationMinutes = getNdlAscentDurationSeconds(targetDepthFsw) / 60.0;
+        double ascentRateFswPerMin = ascentDurationMinutes > 0 ? -targetDepthFsw / ascentDurationMinutes : 0;
+        double gfHigh = settings.getGradientFactors().getGfHighFraction();
+
+        TissueDecayTable.Decay ascentDecay = decayTable.forDuration(ascentDurationMinutes, false);
+
+        double earliestCrossingMinutes = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS; i++) {
+            NdlCompartmentModel model = new NdlCompartmentModel(
+                    this.allCompartments.get(i), initialAmbientPressureFsw, gfHigh,
+                    initialTissueState.getNitrogenPressureFsw(i), fN2 * pAmbientBottomFsw, decayTable.kN2[i],
+                    CompartmentKernel.schreiner(0, fN2 * pAmbientBottomFsw, fN2 * ascentRateFswPerMin,
+                            decayTable.inverseKN2[i], ascentDurationMinutes, ascentDecay.n2[i]),
+                    ascentDecay.n2[i],
+                    initialTissueState.getHeliumPressureFsw(i), fHe * pAmbientBottomFsw, decayTable.kHe[i],
+                    CompartmentKernel.schreiner(0, fHe * pAmbientBottomFsw, fHe * ascentRateFswPerMin,
+                            decayTable.inverseKHe[i], ascentDurationMinutes, ascentDecay.he[i]),
+                    ascentDecay.he[i]);
+
+            double crossingMinutes = (fHe == 0 && model.heStart == 0)
+                    ? model.solveNitrogenOnlyCrossing()
+                    : model.searchCrossing(Math.min(earliestCrossingMinutes, MAX_NDL_SEARCH_MINUTES + 1));
+            if (crossingMinutes < earliestCrossingMinutes) {
+                earliestCrossingMinutes = crossingMinutes;
+            }
+        }
+        return earliestCrossingMinutes;
+    }
+
+    /**
+     * Closed-form surfacing tension of a single compartment as a function of bottom time, used by the NDL solver.
+     */
+    private final class NdlCompartmentModel {
+        private static final int SCAN_INTERVALS = 30;
+        private static final int BISECTION_ITERATIONS = 24;
+
+        final TissueCompartment compartment;
+        final double pSurfaceFsw;
+        final double gfHigh;
+        final double n2Start, n2Inspired, kN2, n2AscentOffset, n2AscentDecay;
+        final double heStart, heInspired, kHe, heAscentOffset, heAscentDecay;
+
+        NdlCompartmentModel(TissueCompartment compartment, double pSurfaceFsw, double gfHigh,
+                            double n2Start, double n2Inspired, double kN2, double n2AscentOffset, double n2AscentDecay,
+                            double heStart, double heInspired, double kHe, double heAscentOffset, double heAscentDecay) {
+            this.compartment = compartment;
+            this.pSurfaceFsw = pSurfaceFsw;
+            this.gfHigh = gfHigh;
+            this.n2Start = n2Start;
+            this.n2Inspired = n2Inspired;
+            this.kN2 = kN2;
+            this.n2AscentOffset = n2AscentOffset;
+            this.n2AscentDecay = n2AscentDecay;
+            this.heStart = heStart;
+            this.heInspired = heInspired;
+            this.kHe = kHe;
+            this.heAscentOffset = heAscentOffset;
+            this.heAscentDecay = heAscentDecay;
+        }
+
+        /** Surfacing tension minus surface M-value after t minutes at the bottom; positive means violation. */
+        double excess(double t) {
+            double n2 = n2AscentOffset + n2AscentDecay * (n2Inspired + (n2Start - n2Inspired) * Math.exp(-kN2 * t));
+            double he = heAscentOffset + heAscentDecay * (heInspired + (heStart - heInspired) * Math.exp(-kHe * t));
+            return n2 + he - calculateMValueFsw(compartment, n2, he, pSurfaceFsw, gfHigh);
+        }
+
+        /** Nitrogen-only compartment: M-value is constant, so invert the Haldane loading directly. */
+        double solveNitrogenOnlyCrossing() {
+            double mValue = calculateMValueFsw(compartment, 1.0, 0.0, pSurfaceFsw, gfHigh);
+            // Bottom tension at which the surfacing tension reaches M.
+            double criticalBottomTension = (mValue - n2AscentOffset) / n2AscentDecay;
+            if (n2Start >= criticalBottomTension) {
+                return 0;
+            }
+            if (n2Inspired <= criticalBottomTension) {
+                return Double.POSITIVE_INFINITY; // Saturation at this depth never reaches the limit
+            }
+            return -Math.log((criticalBottomTension - n2Inspired) / (n2Start - n2Inspired)) / kN2;
+        }
+
+        /**
+         * Mixed-gas compartment: scan [0, horizon] and bisect the first interval that ends in a violation.
+         * The horizon shrinks to the best crossing found so far, since later crossings cannot lower the minimum.
+         */
+        double searchCrossing(double horizonMinutes) {
+            double previousT = 0;
+            double stepMinutes = horizonMinutes / SCAN_INTERVALS;
+            for (int s = 1; s <= SCAN_INTERVALS; s++) {
+                double t = s * stepMinutes;
+                if (excess(t) > 0) {
+                    double low = previousT;
+                    double high = t;
+                    for (int iteration = 0; iteration < BISECTION_ITERATIONS; iteration++) {
+                        double mid = 0.5 * (low + high);
+                        if (excess(mid) > 0) {
+                            high = mid;
+                        } else {
+                            low = mid;
+                        }
+                    }
+                    return low;
+                }
+                previousT = t;
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
     /*
     public List<DecoStop> calculateDecommissionPlan(
             TissueState tissueStateAtEndOfBottom,
@@ -518,8 +918,8 @@ public class BuhlmannAlgorithmService {
             DiveSettings settings,
             double initialAmbientPressureFsw) {
 
-        double gfLow = settings.getGradientFactors().getGfLow();
-        double gfHigh = settings.getGradientFactors().getGfHigh();
+        double gfLow = settings.getGradientFactors().getGfLowFraction();
+        double gfHigh = settings.getGradientFactors().getGfHighFraction();
 
         if (firstStopDepthFsw <= 1e-6) { // No deco stop defined yet, or checking against surface
             return gfHigh;
@@ -578,6 +978,33 @@ public class BuhlmannAlgorithmService {
         return ambientPressureAtTargetDepthFsw + gradientFactor * (a_mix + ambientPressureAtTargetDepthFsw * ((1.0 / b_mix) - 1.0));
     }
 
+    /**
+     * Evaluates all compartments of a tissue state in one pass: the controlling compartment, its blended a/b,
+     * the ceiling for the given gradient factor and the current gradient factor (GF99) at the given depth.
+     *
+     * @param tissueState               The tissue state to evaluate.
+     * @param currentDepthFsw           The depth (fsw, relative to P_init) the diver is at.
+     * @param gradientFactor            The gradient factor (fraction) for the ceiling, e.g. the interpolated GF(D).
+     * @param initialAmbientPressureFsw The initial ambient pressure at the surface/altitude (P_init).
+     * @return A {@link TissueLimitSummary} for the state.
+     */
+    public TissueLimitSummary calculateTissueLimits(
+            TissueState tissueState,
+            double currentDepthFsw,
+            double gradientFactor,
+            double initialAmbientPressureFsw) {
+
+        if (tissueState == null) {
+            throw new IllegalArgumentException("Tissue state cannot be null.");
+        }
+        if (currentDepthFsw < 0) {
+            throw new IllegalArgumentException("Depth cannot be negative.");
+        }
+        TissueWorkspace workspace = new TissueWorkspace(tissueState);
+        compartmentKernel.evaluate(workspace, currentDepthFsw + initialAmbientPressureFsw, gradientFactor);
+        return compartmentKernel.summarize(workspace, initialAmbientPressureFsw);
+    }
+
     /**
      * Calculates the deepest ascent ceiling across all tissue compartments based on their current loading and GFLow.
      * The ceiling is the shallowest absolute pressure a tissue can tolerate, then converted to relative depth.
@@ -587,50 +1014,20 @@ public class BuhlmannAlgorithmService {
      * @param initialAmbientPressureFsw The initial ambient pressure at the surface/altitude (P_init).
      * @return The depth (fsw, relative to P_init) of the deepest ceiling. Positive if below surface, 0 or negative if at/above surface.
      */
-    private double findDeepestCeilingFsw(
-            TissueState currentTissueState,
+    double findDeepestCeilingFsw(
+            TissueWorkspace currentTissueState,
             GradientFactors gradientFactors,
             double initialAmbientPressureFsw) {
 
-        double deepestCeilingAbsoluteFsw = 0; // Smallest absolute pressure a tissue can be at (i.e. most restrictive ceiling)
-
-        for (int i = 0; i < DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS; i++) {
-            TissueCompartment compartment = this.allCompartments.get(i);
-            double n2Pressure = currentTissueState.getNitrogenPressureFsw(i);
-            double hePressure = currentTissueState.getHeliumPressureFsw(i);
-            double totalInertGasPressure = n2Pressure + hePressure;
-
-            double a_mix = getInstantaneousA(compartment, n2Pressure, hePressure);
-            double b_mix = getInstantaneousB(compartment, n2Pressure, hePressure);
-            double gfLow = gradientFactors.getGfLow();
-
-            // Formula for absolute ceiling pressure (P_ceil_abs) from Pelagic doc (rearranged from M-value):
-            // P_ceil_abs = (P_tissue - GF * a_mix) / (1 + GF * (1/b_mix - 1))
-            // Where P_tissue is totalInertGasPressure.
-            // We use GFLow for conservative ceiling calculation as per common practice and Pelagic page 14 discussion.
-            double denominator = (1.0 + gfLow * ((1.0 / b_mix) - 1.0));
-
-            double compartmentCeilingAbsoluteFsw;
-            if (Math.abs(denominator) < 1e-9) { // Avoid division by zero if denominator is effectively zero
-                // This implies b_mix is such that GF_low * (1 - 1/b_mix) approx 1. Highly unlikely.
-                // If P_tissue > GF_low * a_mix, this would mean a very deep ceiling.
-                // If P_tissue <= GF_low * a_mix, could mean surface is okay.
-                // For safety, if denominator is zero, assume a very deep ceiling or current depth if very high P_tissue.
-                // Or, more simply, if P_tissue is already low, then ceiling is high (less restrictive).
-                compartmentCeilingAbsoluteFsw = (totalInertGasPressure > gfLow * a_mix) ? Double.MAX_VALUE : initialAmbientPressureFsw; 
-            } else {
-                compartmentCeilingAbsoluteFsw = (totalInertGasPressure - gfLow * a_mix) / denominator;
-            }
+        // We use GFLow for conservative ceiling calculation as per common practice and Pelagic page 14 discussion.
+        // The kernel keeps the deepest absolute ceiling, P_ceil_abs = (P_tissue - GF * a_mix) / (1 + GF * (1/b_mix - 1)).
+        compartmentKernel.evaluate(currentTissueState, initialAmbientPressureFsw, gradientFactors.getGfLowFraction());
 
-            if (compartmentCeilingAbsoluteFsw > deepestCeilingAbsoluteFsw) {
-                deepestCeilingAbsoluteFsw = compartmentCeilingAbsoluteFsw;
-            }
-        }
         // Convert absolute ceiling pressure to depth relative to P_init (surface/altitude ambient pressure)
         // Depth = P_ceil_abs - P_init.
         // If P_ceil_abs is less than P_init, it means the ceiling is at or above the surface (depth is 0 or negative).
-        double deepestCeilingDepthFsw = deepestCeilingAbsoluteFsw - initialAmbientPressureFsw;
-        
+        double deepestCeilingDepthFsw = currentTissueState.ceilingAbsoluteFsw - initialAmbientPressureFsw;
+
         return Math.max(0, deepestCeilingDepthFsw); // Return 0 if ceiling is at or above surface.
     }
 
@@ -661,12 +1058,26 @@ public class BuhlmannAlgorithmService {
         return Math.ceil(ceilingFsw / 10.0) * 10.0;
     }
 
+    /**
+     * Returns the next standard stop above a decompression stop: 10 fsw shallower, or the surface once
+     * that would be shallower than the configured last stop depth.
+     *
+     * @param stopDepthFsw   The depth of the current stop (fsw).
+     * @param lastStopOption The user's configured last stop depth option.
+     * @return The next stop depth (fsw), or 0 for the surface.
+     */
+    private double getNextShallowerStopFsw(double stopDepthFsw, LastStopDepthOption lastStopOption) {
+        double nextStopFsw = stopDepthFsw - 10.0;
+        return nextStopFsw < lastStopOption.getDepthFt() ? 0 : nextStopFsw;
+    }
+
     /**
      * Determines the next decompression stop depth based on the current tissue state and settings.
      * It also tracks if this stop is the first in the overall deco plan and updates the
      * depth of the first actual stop encountered, which is used for GF interpolation.
      *
      * @param currentTissueState          The current tissue saturation state.
+     * @param currentDepthFsw             The depth (fsw) the diver is at, i.e. the last stop once deco has started.
      * @param decoPlanSoFar               The list of deco stops already added to the plan.
      * @param currentOverallFirstStopFsw  The depth of the first deco stop determined so far in the plan (0 if none yet).
      * @param settings                    The dive settings.
@@ -674,7 +1085,8 @@ public class BuhlmannAlgorithmService {
      * @return A {@link NextStopInfo} object containing the next stop depth, updated overall first stop depth, and whether it's the first stop.
      */
     private NextStopInfo determineNextStop(
-            TissueState currentTissueState,
+            TissueWorkspace currentTissueState,
+            double currentDepthFsw,
             List<DecoStop> decoPlanSoFar,
             double currentOverallFirstStopFsw, // Pass in the value tracked by the main deco loop
             DiveSettings settings,
@@ -690,7 +1102,12 @@ public class BuhlmannAlgorithmService {
         boolean isFirstStop = decoPlanSoFar.isEmpty();
         double updatedOverallFirstStopFsw = currentOverallFirstStopFsw;
 
-        if (deepestCeilingFsw <= 0) {
+        if (!isFirstStop) {
+            // Once deco has started, stops move up one 10 ft step at a time. performDecoAtStop only clears a stop
+            // when the ascent to the next shallower stop is within the interpolated GF(D); the GFLow ceiling is
+            // only used to place the first stop (it would otherwise keep pointing at the stop just cleared).
+            calculatedNextStopFsw = getNextShallowerStopFsw(currentDepthFsw, settings.getLastStopDepthOption());
+        } else if (deepestCeilingFsw <= 0) {
             calculatedNextStopFsw = 0; // Indicates ascent to surface
             // If overallFirstStopFsw is still 0 (e.g. NDL dive or direct ascent from very shallow),
             // and we are going to surface, set a nominal first stop for GF calculation if needed.
@@ -726,29 +1143,29 @@ public class BuhlmannAlgorithmService {
     }
 
     /**
-     * Simulates the ascent from a current depth to a target stop depth, calculating tissue changes.
+     * Simulates the ascent from a current depth to a target stop depth, updating the tissues in place.
      *
-     * @param tissueStateBeforeAscent   The tissue state before starting the ascent.
+     * @param tissues                   The tissue state before starting the ascent; holds the state after it on return.
      * @param currentActualDepthFsw     The actual depth (fsw) from which the ascent starts.
      * @param targetStopDepthFsw        The target depth (fsw) of the next stop (can be 0 for surface).
      * @param gasAtStartOfAscent        The gas being breathed when ascent begins.
-     * @param allAvailableGases         List of all available gases for potential switch during ascent.
+     * @param decoGasIndex              Index of the available gases for a potential switch during ascent.
      * @param settings                  Dive settings, used for last stop depth and ascent rates.
      * @param initialAmbientPressureFsw Initial ambient pressure at the surface/altitude.
-     * @return An {@link AscentToStopResult} object containing the new tissue state, gas used, duration, and new depth.
+     * @return An {@link AscentToStopResult} object containing the gas used, duration, and new depth.
      */
     private AscentToStopResult ascendToNextStop(
-            TissueState tissueStateBeforeAscent,
+            TissueWorkspace tissues,
             double currentActualDepthFsw,
             double targetStopDepthFsw,
             Gas gasAtStartOfAscent,
-            List<Gas> allAvailableGases,
+            DecoGasIndex decoGasIndex,
             DiveSettings settings,
             double initialAmbientPressureFsw) {
 
         if (currentActualDepthFsw <= targetStopDepthFsw) {
             // Already at or shallower than the target stop depth, no ascent needed.
-            return new AscentToStopResult(tissueStateBeforeAscent, gasAtStartOfAscent, 0, currentActualDepthFsw);
+            return new AscentToStopResult(gasAtStartOfAscent, 0, currentActualDepthFsw);
         }
 
         double ascentRateFpm;
@@ -763,9 +1180,8 @@ public class BuhlmannAlgorithmService {
         // Select gas for ascent - typically, best gas for average depth of this ascent leg.
         Gas gasForAscent = getBestDecoGas(
                 (currentActualDepthFsw + targetStopDepthFsw) / 2.0, // Average depth for this specific ascent leg
-                allAvailableGases,
+                decoGasIndex,
                 gasAtStartOfAscent, // Current gas can be a candidate
-                settings,
                 initialAmbientPressureFsw
         );
         if (gasForAscent == null) {
@@ -777,8 +1193,8 @@ public class BuhlmannAlgorithmService {
 
         double ascentDurationSeconds = ((currentActualDepthFsw - targetStopDepthFsw) / ascentRateFpm) * 60.0;
 
-        TissueState tissueStateAfterAscent = calculateTissueStateForDuration(
-                tissueStateBeforeAscent,
+        integrate(
+                tissues,
                 currentActualDepthFsw,
                 targetStopDepthFsw,
                 ascentDurationSeconds,
@@ -787,37 +1203,49 @@ public class BuhlmannAlgorithmService {
                 false // Not a surface interval
         );
 
-        return new AscentToStopResult(tissueStateAfterAscent, gasForAscent, ascentDurationSeconds, targetStopDepthFsw);
+        return new AscentToStopResult(gasForAscent, ascentDurationSeconds, targetStopDepthFsw);
     }
 
     /**
      * Calculates the required duration at a specific decompression stop and the resulting tissue state.
-     * It iterates minute by minute, checking if an ascent to the next shallower stop (or surface)
+     * The stop ends at the first whole minute after which an ascent to the next shallower stop (or surface)
      * would be permissible according to M-Values and the current interpolated Gradient Factor.
+     * <p>
+     * Rather than checking the ascent after every minute, the solver probes minutes 1, 2, 4, 8, ... until the
+     * ascent becomes safe and then bisects between the last unsafe and first safe probe, so a stop of n minutes
+     * needs O(log n) trial ascents. The stop state for any minute t is still built from t successive one-minute
+     * updates from the arrival state, exactly as the minute-by-minute search did, and off-gassing at a stop makes
+     * "safe to ascend" monotone in t, so the result is the same whole-minute answer.
      *
-     * @param tissueStateAtArrivalAtStop The tissue state upon arrival at this stop.
+     * @param tissuesInStop              The tissue state upon arrival at this stop; holds the state at the end of the stop on return.
+     * @param probe                      Scratch workspace for the trial ascents, overwritten by this call.
+     * @param lastUnsafe                 Scratch workspace for the bisection, overwritten by this call.
+     * @param candidate                  Scratch workspace for the bisection, overwritten by this call.
      * @param stopDepthFsw               The depth of the current decompression stop (fsw).
      * @param gasInitiallyAtStop         The gas being breathed upon arrival at the stop.
-     * @param allAvailableGases          List of all available gases for selection.
+     * @param decoGasIndex               Index of the available gases for selection.
      * @param settings                   Dive settings.
      * @param initialAmbientPressureFsw  Initial ambient pressure at the surface/altitude.
      * @param overallFirstStopDepthFsw   The depth of the first actual deco stop in the entire plan (for GF interpolation).
-     * @return A {@link CalculatedStopDetails} object containing the calculated DecoStop (if any) and the final tissue state.
+     * @return The calculated {@link DecoStop}, or null if no time is needed at this depth.
+     * @throws DecompressionLimitException if the ascent is still unsafe after {@link #MAX_SINGLE_STOP_MINUTES}.
      */
-    private CalculatedStopDetails performDecoAtStop(
-            TissueState tissueStateAtArrivalAtStop,
+    private DecoStop performDecoAtStop(
+            TissueWorkspace tissuesInStop,
+            TissueWorkspace probe,
+            TissueWorkspace lastUnsafe,
+            TissueWorkspace candidate,
             double stopDepthFsw,
             Gas gasInitiallyAtStop,
-            List<Gas> allAvailableGases,
+            DecoGasIndex decoGasIndex,
             DiveSettings settings,
             double initialAmbientPressureFsw,
             double overallFirstStopDepthFsw) {
 
         Gas gasForThisStop = getBestDecoGas(
                 stopDepthFsw,
-                allAvailableGases,
+                decoGasIndex,
                 gasInitiallyAtStop,
-                settings,
                 initialAmbientPressureFsw
         );
         if (gasForThisStop == null) {
@@ -825,113 +1253,84 @@ public class BuhlmannAlgorithmService {
             gasForThisStop = gasInitiallyAtStop;
         }
 
-        int calculatedStopDurationMinutes = 0;
-        TissueState currentTissueStateInStop = new TissueState(tissueStateAtArrivalAtStop); // Work on a copy
-        // TODO: Make maxSingleStopMinutes configurable or a constant in DomainDefaults
-        int maxSingleStopMinutes = 240; // Max duration for a single stop (e.g. 4 hours)
+        // The trial ascent does not depend on the time spent at the stop, so set it up once.
+        // Determine the next potential shallower stop to check ascent against
+        double nextShallowStopCandidateFsw = getNextShallowerStopFsw(stopDepthFsw, settings.getLastStopDepthOption());
 
-        for (int t = 1; t <= maxSingleStopMinutes; t++) {
-            // Simulate one more minute at the current stop depth
-            TissueState tissueAfterOneMoreMinute = calculateTissueStateForDuration(
-                    currentTissueStateInStop,
-                    stopDepthFsw,
-                    stopDepthFsw,
-                    60.0, // 1 minute in seconds
-                    gasForThisStop,
-                    initialAmbientPressureFsw,
-                    false // Not a surface interval
-            );
+        // Simulate ascent to this next shallower stop candidate
+        double ascentRateForCheck;
+        if (nextShallowStopCandidateFsw == 0 || stopDepthFsw <= settings.getLastStopDepthOption().getDepthFt()) {
+            // If target is surface, or if current stop is the last stop type (or shallower) heading to surface
+            ascentRateForCheck = DomainDefaults.DEFAULT_FINAL_ASCENT_RATE_FPM;
+        } else {
+            ascentRateForCheck = DomainDefaults.DEFAULT_DECO_ASCENT_RATE_FPM;
+        }
 
-            // Determine the next potential shallower stop to check ascent against
-            double nextShallowStopCandidateFsw = Math.max(0, stopDepthFsw - 10.0);
+        Gas gasForAscentCheck = getBestDecoGas(
+            (stopDepthFsw + nextShallowStopCandidateFsw) / 2.0, // Avg depth for ascent check
+            decoGasIndex,
+            gasForThisStop, // Current stop gas is a candidate
+            initialAmbientPressureFsw
+        );
+        if (gasForAscentCheck == null) {
+            gasForAscentCheck = gasForThisStop; // Fallback
+        }
 
-            // Simulate ascent to this next shallower stop candidate
-            double ascentRateForCheck;
-            if (nextShallowStopCandidateFsw == 0 || stopDepthFsw <= settings.getLastStopDepthOption().getDepthFt()) {
-                // If target is surface, or if current stop is the last stop type (or shallower) heading to surface
-                ascentRateForCheck = DomainDefaults.DEFAULT_FINAL_ASCENT_RATE_FPM;
-            } else {
-                ascentRateForCheck = DomainDefaults.DEFAULT_DECO_ASCENT_RATE_FPM;
-            }
+        double ascentToCheckDurationSec = 0;
+        if (stopDepthFsw > nextShallowStopCandidateFsw && ascentRateForCheck > 0) {
+            ascentToCheckDurationSec = ((stopDepthFsw - nextShallowStopCandidateFsw) / ascentRateForCheck) * 60.0;
+        }
 
-            Gas gasForAscentCheck = getBestDecoGas(
-                (stopDepthFsw + nextShallowStopCandidateFsw) / 2.0, // Avg depth for ascent check
-                allAvailableGases,
-                gasForThisStop, // Current stop gas is a candidate
+        // GF(D) is GF at the target depth of ascent (nextShallowStopCandidateFsw)
+        double interpolatedGF = getInterpolatedGradientFactor(
+                nextShallowStopCandidateFsw,
+                overallFirstStopDepthFsw,
                 settings,
                 initialAmbientPressureFsw
-            );
-            if (gasForAscentCheck == null) {
-                gasForAscentCheck = gasForThisStop; // Fallback
-            }
-
-            double ascentToCheckDurationSec = 0;
-            if (stopDepthFsw > nextShallowStopCandidateFsw && ascentRateForCheck > 0) {
-                ascentToCheckDurationSec = ((stopDepthFsw - nextShallowStopCandidateFsw) / ascentRateForCheck) * 60.0;
-            }
-
-            TissueState tissueAtNextShallowCandidate;
-            if (ascentToCheckDurationSec > 0) {
-                tissueAtNextShallowCandidate = calculateTissueStateForDuration(
-                        tissueAfterOneMoreMinute, // Start from state after this minute at stop
-                        stopDepthFsw,
-                        nextShallowStopCandidateFsw,
-                        ascentToCheckDurationSec,
-                        gasForAscentCheck,
-                        initialAmbientPressureFsw,
-                        false
-                );
-            } else {
-                // No ascent needed for check (e.g. already at surface or candidate is same depth - though latter shouldn't happen)
-                tissueAtNextShallowCandidate = tissueAfterOneMoreMinute;
-            }
-
-            // Check M-Values at the next shallow stop candidate
-            boolean safeToAscend = true;
-            for (int i = 0; i < DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS; i++) {
-                TissueCompartment compartment = this.allCompartments.get(i);
-                double n2AtCandidate = tissueAtNextShallowCandidate.getNitrogenPressureFsw(i);
-                double heAtCandidate = tissueAtNextShallowCandidate.getHeliumPressureFsw(i);
-                double totalInertGasAtCandidate = n2AtCandidate + heAtCandidate;
-
-                // GF(D) is GF at the target depth of ascent (nextShallowStopCandidateFsw)
-                double interpolatedGF = getInterpolatedGradientFactor(
-                        nextShallowStopCandidateFsw,
-                        overallFirstStopDepthFsw,
-                        settings,
-                        initialAmbientPressureFsw
-                );
-
-                double mValueAtCandidate = calculateMValueFsw(
-                        compartment,
-                        n2AtCandidate, heAtCandidate, // Tissue pressures in compartment for a/b mix
-                        nextShallowStopCandidateFsw + initialAmbientPressureFsw, // Ambient pressure at target depth of ascent
-                        interpolatedGF
-                );
-
-                if (totalInertGasAtCandidate > mValueAtCandidate) {
-                    safeToAscend = false;
-                    break; // One compartment over limit is enough
-                }
-            }
-
-            // Update state for the current stop
-            currentTissueStateInStop = tissueAfterOneMoreMinute;
-            calculatedStopDurationMinutes = t;
+        );
 
-            if (safeToAscend) {
-                // It's safe to ascend after 't' minutes at this stop
+        StopAscentCheck ascentCheck = new StopAscentCheck(probe, stopDepthFsw, gasForThisStop,
+                nextShallowStopCandidateFsw, ascentToCheckDurationSec, gasForAscentCheck, interpolatedGF, initialAmbientPressureFsw);
+
+        // 1. Galloping: probe t = 1, 2, 4, 8, ... (capped at the maximum). tissuesInStop always holds minute t.
+        int lastUnsafeMinute = 0;
+        lastUnsafe.copyFrom(tissuesInStop);
+        int t = 0;
+        int nextProbeMinute = 1;
+        boolean safeToAscend = false;
+        while (true) {
+            ascentCheck.advance(tissuesInStop, nextProbeMinute - t);
+            t = nextProbeMinute;
+            safeToAscend = ascentCheck.isSafeToAscend(tissuesInStop);
+            if (safeToAscend || t == MAX_SINGLE_STOP_MINUTES) {
                 break;
             }
+            lastUnsafeMinute = t;
+            lastUnsafe.copyFrom(tissuesInStop);
+            nextProbeMinute = Math.min(MAX_SINGLE_STOP_MINUTES, t * 2);
+        }
 
-            if (t == maxSingleStopMinutes && !safeToAscend) {
-                // Max stop time reached, and it's still not safe to ascend.
-                // This is an error condition or an excessively long deco.
-                // The main deco loop should handle this (e.g., by stopping planning).
-                // The loop will break, returning the maxSingleStopMinutes.
-                System.err.println("WARNING: Max stop time (" + maxSingleStopMinutes +
-                                   " min) reached at " + stopDepthFsw + "ft and still not safe to ascend.");
+        int calculatedStopDurationMinutes = t;
+        if (safeToAscend) {
+            // 2. Bisection on (lastUnsafeMinute, t]: the answer is the smallest safe minute.
+            int safeMinute = t;
+            while (safeMinute - lastUnsafeMinute > 1) {
+                int midMinute = (lastUnsafeMinute + safeMinute) >>> 1;
+                candidate.copyFrom(lastUnsafe);
+                ascentCheck.advance(candidate, midMinute - lastUnsafeMinute);
+                if (ascentCheck.isSafeToAscend(candidate)) {
+                    safeMinute = midMinute;
+                    tissuesInStop.copyFrom(candidate);
+                } else {
+                    lastUnsafeMinute = midMinute;
+                    lastUnsafe.copyFrom(candidate);
+                }
             }
+            calculatedStopDurationMinutes = safeMinute;
+        } else {
+            // Max stop time reached and still not safe to ascend: the tissues cannot be cleared from this stop
+            // (e.g. slow compartments still on-gassing at a shallow last stop), so there is no valid plan.
+            throw new DecompressionLimitException(stopDepthFsw, MAX_SINGLE_STOP_MINUTES);
         }
 
         DecoStop decoStopEntry = null;
@@ -940,86 +1339,204 @@ public class BuhlmannAlgorithmService {
             decoStopEntry = new DecoStop(stopDepthFsw, calculatedStopDurationMinutes, gasForThisStop);
         }
 
-        return new CalculatedStopDetails(decoStopEntry, currentTissueStateInStop);
+        return decoStopEntry;
     }
 
+    /**
+     * The fixed parts of one stop's "safe to ascend" predicate: the stop leg used to advance the stop state one
+     * minute at a time, and the trial ascent to the next shallower stop with its gas and GF(D).
+     */
+    private final class StopAscentCheck {
+        final TissueWorkspace probe;
+        final double stopDepthFsw;
+        final Gas gasForThisStop;
+        final double nextShallowStopCandidateFsw;
+        final double ascentToCheckDurationSec;
+        final Gas gasForAscentCheck;
+        final double interpolatedGF;
+        final double initialAmbientPressureFsw;
+
+        StopAscentCheck(TissueWorkspace probe, double stopDepthFsw, Gas gasForThisStop,
+                        double nextShallowStopCandidateFsw, double ascentToCheckDurationSec,
+                        Gas gasForAscentCheck, double interpolatedGF, double initialAmbientPressureFsw) {
+            this.probe = probe;
+            this.stopDepthFsw = stopDepthFsw;
+            this.gasForThisStop = gasForThisStop;
+            this.nextShallowStopCandidateFsw = nextShallowStopCandidateFsw;
+            this.ascentToCheckDurationSec = ascentToCheckDurationSec;
+            this.gasForAscentCheck = gasForAscentCheck;
+            this.interpolatedGF = interpolatedGF;
+            this.initialAmbientPressureFsw = initialAmbientPressureFsw;
+        }
+
+        /** Simulates {@code minutes} more minutes at the stop, one minute at a time. */
+        void advance(TissueWorkspace stopState, int minutes) {
+            for (int minute = 0; minute < minutes; minute++) {
+                integrate(
+                        stopState,
+                        stopDepthFsw,
+                        stopDepthFsw,
+                        60.0, // 1 minute in seconds
+                        gasForThisStop,
+                        initialAmbientPressureFsw,
+                        false // Not a surface interval
+                );
+            }
+        }
+
+        /** Trial ascent from {@code stopState} to the next shallower stop, checked against M-Values at GF(D). */
+        boolean isSafeToAscend(TissueWorkspace stopState) {
+            probe.copyFrom(stopState);
+            return integrateAndCheckLimits(
+                    probe,
+                    stopDepthFsw,
+                    nextShallowStopCandidateFsw,
+                    ascentToCheckDurationSec,
+                    gasForAscentCheck,
+                    initialAmbientPressureFsw,
+                    nextShallowStopCandidateFsw + initialAmbientPressureFsw, // Ambient pressure at target depth of ascent
+                    interpolatedGF
+            );
+        }
+    }
+
+    /**
+     * Selects the gas for a depth during the ascent: the best usable gas of the index, or the current gas
+     * if no indexed gas is usable there but the current one still is.
+     *
+     * @return The selected gas, or null if neither is usable (callers then keep the current gas).
+     */
     private Gas getBestDecoGas(
             double targetDepthFsw,
-            List<Gas> allAvailableGases,
+            DecoGasIndex decoGasIndex,
             Gas currentGas, // Can be used to prefer sticking with current gas if still optimal
-            DiveSettings settings,
             double initialAmbientPressureFsw) {
 
-        if (allAvailableGases == null || allAvailableGases.isEmpty()) {
-            return currentGas; // No other gases to choose from, stick with current or return null if currentGas is also null
-        }
+        Gas bestGas = decoGasIndex.bestGasAt(targetDepthFsw); // O(1) band lookup
 
-        Gas bestGas = null;
-        double bestGasHighestFo2 = -1.0; // Prioritize higher FO2
-        // double bestGasLowestFHe = Double.MAX_VALUE; // Secondary criteria (optional, for ICD)
+        // If no suitable new gas found, but currentGas is still valid at this depth, prefer sticking to it if it's not null.
+        // This avoids unnecessary gas switches if current gas is already good.
+        if (bestGas == null && currentGas != null && currentGas.isEnabled()
+                && DecoGasIndex.isUsableAt(currentGas, targetDepthFsw, initialAmbientPressureFsw)) {
+            return currentGas;
+        }
 
-        // Global PPO2 Max from settings (e.g., 1.6 ATA as a common default/max)
-        // This should ideally come from settings, but DiveSettings doesn't have a direct PO2Max for planning yet.
-        // Let's use a common value or a constant for now.
-        // TODO: Add a global max PPO2 setting to DiveSettings (e.g., settings.getPlanningMaxPpo2Ata())
-        double globalMaxPpo2Ata = 1.6; // Default assumption
+        return bestGas;
+    }
 
-        for (Gas candidateGas : allAvailableGases) {
-            if (!candidateGas.isEnabled()) { // Skip disabled gases
-                continue;
+    /**
+     * Filters a gas list down to the gases the decompression planner can actually switch to on an ascent
+     * from {@code maxDepthFsw}. A gas is dropped if it is not usable anywhere between the surface and that
+     * depth, or if a preferred gas of the list (more oxygen, then less helium) is usable everywhere it is, since
+     * the planner then always picks the other one. Planning with the filtered list gives the same stops.
+     *
+     * @param gases                     Candidate gases; disabled ones are dropped.
+     * @param maxDepthFsw               Deepest depth the ascent starts from (fsw).
+     * @param initialAmbientPressureFsw Initial ambient pressure at the surface/altitude (P_init).
+     * @return The gases that can be selected, in the planner's preference order.
+     */
+    public List<Gas> getSelectableDecoGases(List<Gas> gases, double maxDepthFsw, double initialAmbientPressureFsw) {
+        DecoGasIndex index = DecoGasIndex.build(gases, initialAmbientPressureFsw);
+        List<Gas> candidates = index.getCandidates();
+        List<Gas> selectable = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            double shallowestFsw = Math.max(0, index.getHypoxicFloorFsw(i));
+            double deepestFsw = Math.min(maxDepthFsw, index.getModFsw(i));
+            if (shallowestFsw > deepestFsw) {
+                continue; // Never usable on this ascent
             }
-            
-            // Calculate PPO2 of the candidate gas at targetDepthFsw
-            double pAmbientTotalFsw = targetDepthFsw + initialAmbientPressureFsw;
-            double ppo2AtDepthAta = candidateGas.getFo2() * (pAmbientTotalFsw / DomainDefaults.DEPTH_CONSTANT_IMPERIAL);
-
-            // 1. Check against Gas's own PO2Max (if defined, typically for OC)
-            if (candidateGas.getGasType() == GasType.OPEN_CIRCUIT && candidateGas.getPo2Max() != null) {
-                if (ppo2AtDepthAta > candidateGas.getPo2Max()) {
-                    continue; // Exceeds this gas's specific PO2 Max
-                }
+            boolean shadowed = false;
+            for (int j = 0; j < i && !shadowed; j++) { // Only preferred gases can shadow it
+                shadowed = index.getHypoxicFloorFsw(j) <= shallowestFsw && index.getModFsw(j) >= deepestFsw;
             }
-
-            // 2. Check against global planning PO2Max
-            if (ppo2AtDepthAta > globalMaxPpo2Ata) {
-                continue; // Exceeds global PPO2 Max limit for deco
+            if (!shadowed) {
+                selectable.add(candidates.get(i));
             }
+        }
+        return selectable;
+    }
 
-            // 3. Check for Hypoxia (minimum PPO2)
-            if (ppo2AtDepthAta < DomainDefaults.MIN_SAFE_PPO2_ATA) {
-                continue; // Hypoxic at this depth
-            }
+    /**
+     * Returns the deco gas index for these gases and altitude, reusing the last one built when it matches.
+     * Successive plans of the same dive (edits, timeline points, sweeps) share one index.
+     */
+    DecoGasIndex getDecoGasIndex(List<Gas> allAvailableGases, double initialAmbientPressureFsw) {
+        List<Gas> gases = allAvailableGases != null ? allAvailableGases : Collections.<Gas>emptyList();
+        DecoGasIndex index = lastDecoGasIndex;
+        if (index == null || !index.isFor(gases, initialAmbientPressureFsw)) {
+            index = DecoGasIndex.build(gases, initialAmbientPressureFsw);
+            lastDecoGasIndex = index;
+        }
+        return index;
+    }
 
-            // If all checks pass, consider this gas.
-            // Prioritize higher FO2. If FO2 is same, one might consider FHe (lower is better for ICD), but keep it simple for now.
-            if (candidateGas.getFo2() > bestGasHighestFo2) {
-                bestGasHighestFo2 = candidateGas.getFo2();
-                bestGas = candidateGas;
-            } else if (candidateGas.getFo2() == bestGasHighestFo2 && bestGas != null) {
-                // If FO2 is the same, prefer the one with lower FHe (less narcotic, potentially better for ICD)
-                if (candidateGas.getFhe() < bestGas.getFhe()) {
-                    bestGas = candidateGas;
-                }
-            }
+    /**
+     * Calculates the total time to surface (TTS) for a decompression plan: every ascent leg plus every stop.
+     * The legs use the same rates the planner simulates in {@code ascendToNextStop}; a dive without stops
+     * surfaces directly at the NDL ascent rate.
+     *
+     * @param bottomDepthFsw The depth (fsw) the ascent starts from.
+     * @param decoPlan       The stops returned by {@link #calculateDecompressionPlan}, deepest first. May be empty.
+     * @param settings       The dive settings, used for the last stop depth.
+     * @return The time to surface in seconds.
+     */
+    public double calculateTimeToSurfaceSeconds(double bottomDepthFsw, List<DecoStop> decoPlan, DiveSettings settings) {
+        if (decoPlan == null || settings == null) {
+            throw new IllegalArgumentException("Deco plan and settings cannot be null for TTS calculation.");
+        }
+        if (decoPlan.isEmpty()) {
+            return getNdlAscentDurationSeconds(Math.max(0, bottomDepthFsw));
         }
-        
-        // If no suitable new gas found, but currentGas is still valid at this depth, prefer sticking to it if it's not null.
-        // This avoids unnecessary gas switches if current gas is already good.
-        if (bestGas == null && currentGas != null && currentGas.isEnabled()) {
-            double currentGasPpo2AtDepthAta = currentGas.getFo2() * ((targetDepthFsw + initialAmbientPressureFsw) / DomainDefaults.DEPTH_CONSTANT_IMPERIAL);
-            boolean currentGasModOk = true;
-            if (currentGas.getGasType() == GasType.OPEN_CIRCUIT && currentGas.getPo2Max() != null) {
-                if (currentGasPpo2AtDepthAta > currentGas.getPo2Max()) currentGasModOk = false;
-            }
-            if (currentGasPpo2AtDepthAta > globalMaxPpo2Ata) currentGasModOk = false;
-            if (currentGasPpo2AtDepthAta < DomainDefaults.MIN_SAFE_PPO2_ATA) currentGasModOk = false;
 
-            if (currentGasModOk) {
-                return currentGas;
-            }
+        double lastStopDepthFsw = settings.getLastStopDepthOption().getDepthFt();
+        double timeToSurfaceSeconds = 0;
+        double currentDepthFsw = bottomDepthFsw;
+        for (DecoStop stop : decoPlan) {
+            timeToSurfaceSeconds += getPlannedAscentSeconds(currentDepthFsw, stop.getDepthFsw(), lastStopDepthFsw);
+            timeToSurfaceSeconds += stop.getDurationMinutes() * 60.0;
+            currentDepthFsw = stop.getDepthFsw();
         }
+        return timeToSurfaceSeconds + getPlannedAscentSeconds(currentDepthFsw, 0, lastStopDepthFsw);
+    }
 
-        return bestGas;
+    /**
+     * Calculates when each stop of a decompression plan ends, counted from the start of the ascent,
+     * using the same ascent legs as {@link #calculateTimeToSurfaceSeconds}.
+     *
+     * @param bottomDepthFsw The depth (fsw) the ascent starts from.
+     * @param decoPlan       The stops returned by {@link #calculateDecompressionPlan}, deepest first. May be empty.
+     * @param settings       The dive settings, used for the last stop depth.
+     * @return One entry per stop: seconds from leaving the bottom to leaving that stop.
+     */
+    public double[] calculateStopEndTimesSeconds(double bottomDepthFsw, List<DecoStop> decoPlan, DiveSettings settings) {
+        if (decoPlan == null || settings == null) {
+            throw new IllegalArgumentException("Deco plan and settings cannot be null for stop time calculation.");
+        }
+        double lastStopDepthFsw = settings.getLastStopDepthOption().getDepthFt();
+        double[] stopEndTimesSeconds = new double[decoPlan.size()];
+        double elapsedSeconds = 0;
+        double currentDepthFsw = bottomDepthFsw;
+        for (int i = 0; i < decoPlan.size(); i++) {
+            DecoStop stop = decoPlan.get(i);
+            elapsedSeconds += getPlannedAscentSeconds(currentDepthFsw, stop.getDepthFsw(), lastStopDepthFsw);
+            elapsedSeconds += stop.getDurationMinutes() * 60.0;
+            stopEndTimesSeconds[i] = elapsedSeconds;
+            currentDepthFsw = stop.getDepthFsw();
+        }
+        return stopEndTimesSeconds;
+    }
+
+    /**
+     * Duration of one planned ascent leg, using the rate selection of {@code ascendToNextStop}.
+     */
+    double getPlannedAscentSeconds(double fromDepthFsw, double toDepthFsw, double lastStopDepthFsw) {
+        if (fromDepthFsw <= toDepthFsw) {
+            return 0;
+        }
+        double ascentRateFpm = (toDepthFsw == 0 || fromDepthFsw <= lastStopDepthFsw)
+                ? DomainDefaults.DEFAULT_FINAL_ASCENT_RATE_FPM
+                : DomainDefaults.DEFAULT_DECO_ASCENT_RATE_FPM;
+        return ((fromDepthFsw - toDepthFsw) / ascentRateFpm) * 60.0;
     }
 
     /**
@@ -1033,7 +1550,7 @@ public class BuhlmannAlgorithmService {
      *                                  It's assumed this list contains only enabled gases.
      * @param initialAmbientPressureFsw The initial ambient pressure at the surface/altitude (P_init).
      * @return A list of {@link DecoStop} objects representing the decompression plan. Returns an empty list if no deco is required.
-     * @throws IllegalStateException if a decompression stop duration becomes excessively long. // Or handle differently
+     * @throws DecompressionLimitException if a stop cannot be cleared within the maximum stop time.
      */
     public List<DecoStop> calculateDecompressionPlan(
             TissueState tissueStateAtEndOfBottom,
@@ -1042,23 +1559,99 @@ public class BuhlmannAlgorithmService {
             DiveSettings settings,
             List<Gas> allAvailableGases,
             double initialAmbientPressureFsw) {
+        return calculateDecompressionPlan(tissueStateAtEndOfBottom, bottomDepthFsw, gasAtEndOfBottom,
+                settings, allAvailableGases, initialAmbientPressureFsw, CancellationToken.NONE);
+    }
+
+    /**
+     * Calculates the full decompression plan, checking {@code cancellationToken} before every stop
+     * so that a calculation superseded by a newer plan can be abandoned early.
+     *
+     * @param cancellationToken Token polled once per stop.
+     * @throws java.util.concurrent.CancellationException if the token is cancelled during the calculation.
+     * @see #calculateDecompressionPlan(TissueState, double, Gas, DiveSettings, List, double)
+     */
+    public List<DecoStop> calculateDecompressionPlan(
+            TissueState tissueStateAtEndOfBottom,
+            double bottomDepthFsw,
+            Gas gasAtEndOfBottom,
+            DiveSettings settings,
+            List<Gas> allAvailableGases,
+            double initialAmbientPressureFsw,
+            CancellationToken cancellationToken) {
+        return calculateDecompressionPlan(tissueStateAtEndOfBottom, bottomDepthFsw, gasAtEndOfBottom,
+                settings, allAvailableGases, initialAmbientPressureFsw, new DecoWorkspace(), cancellationToken);
+    }
 
+    /**
+     * Calculates the full decompression plan in a caller-provided workspace, so that callers planning many
+     * decompressions on the same thread (e.g. a gradient factor sweep) do not allocate scratch memory per plan.
+     *
+     * @param workspace Scratch memory for this call; must not be used by another thread at the same time.
+     * @see #calculateDecompressionPlan(TissueState, double, Gas, DiveSettings, List, double, CancellationToken)
+     */
+    public List<DecoStop> calculateDecompressionPlan(
+            TissueState tissueStateAtEndOfBottom,
+            double bottomDepthFsw,
+            Gas gasAtEndOfBottom,
+            DiveSettings settings,
+            List<Gas> allAvailableGases,
+            double initialAmbientPressureFsw,
+            DecoWorkspace workspace,
+            CancellationToken cancellationToken) {
+        return calculateDecompressionPlan(tissueStateAtEndOfBottom, bottomDepthFsw, gasAtEndOfBottom, settings,
+                allAvailableGases, initialAmbientPressureFsw, workspace, Double.POSITIVE_INFINITY, cancellationToken);
+    }
+
+    /**
+     * Calculates the full decompression plan, giving up as soon as the plan is known to take longer than
+     * {@code timeToSurfaceLimitSeconds}. Searches that only need plans better than the best found so far
+     * (e.g. choosing deco gases) use it to stop evaluating a losing plan after its first long stops.
+     *
+     * @param timeToSurfaceLimitSeconds The plan is abandoned once its ascent legs and stops so far, as counted by
+     *                                  {@link #calculateTimeToSurfaceSeconds}, exceed this; may be infinite.
+     * @return The plan, or null if it was abandoned because it exceeds the limit.
+     * @see #calculateDecompressionPlan(TissueState, double, Gas, DiveSettings, List, double, DecoWorkspace, CancellationToken)
+     */
+    public List<DecoStop> calculateDecompressionPlan(
+            TissueState tissueStateAtEndOfBottom,
+            double bottomDepthFsw,
+            Gas gasAtEndOfBottom,
+            DiveSettings settings,
+            List<Gas> allAvailableGases,
+            double initialAmbientPressureFsw,
+            DecoWorkspace workspace,
+            double timeToSurfaceLimitSeconds,
+            CancellationToken cancellationToken) {
+
+        Objects.requireNonNull(workspace, "workspace cannot be null");
+        Objects.requireNonNull(cancellationToken, "cancellationToken cannot be null");
         List<DecoStop> decoPlan = new ArrayList<>();
-        TissueState currentTissueState = new TissueState(tissueStateAtEndOfBottom); // Work on a copy
+        TissueWorkspace currentTissueState = workspace.current;
+        currentTissueState.load(tissueStateAtEndOfBottom); // Work on a copy
+        TissueWorkspace probe = workspace.probe; // Scratch for trial ascents at each stop
+        TissueWorkspace lastUnsafe = workspace.lastUnsafe; // Scratch for the stop-time search
+        TissueWorkspace candidate = workspace.candidate;
         double currentActualDepthFsw = bottomDepthFsw;
         Gas currentGasInUse = gasAtEndOfBottom;
+        DecoGasIndex decoGasIndex = getDecoGasIndex(allAvailableGases, initialAmbientPressureFsw); // Built once per gas set
 
         double overallFirstStopDepthFsw = 0; // Will be set by determineNextStop for the first actual stop
+        double lastStopDepthFsw = settings.getLastStopDepthOption().getDepthFt();
+        double elapsedSeconds = 0; // Ascent legs and stops so far, counted as calculateTimeToSurfaceSeconds does
+        double lastPlannedStopDepthFsw = bottomDepthFsw;
 
         int maxMainLoopIterations = 50; // Max number of stops/calculation cycles to prevent infinite loops
         int iteration = 0;
 
         while (currentActualDepthFsw > 0 && iteration < maxMainLoopIterations) {
+            cancellationToken.throwIfCancelled();
             iteration++;
 
             // 1. Determine the next stop depth and update overallFirstStopDepthFsw if it's the first stop
             NextStopInfo nextStopInfo = determineNextStop(
                     currentTissueState,
+                    currentActualDepthFsw,
                     decoPlan, // Pass the current plan to see if it's the first stop
                     overallFirstStopDepthFsw, // Pass the current known overall first stop
                     settings,
@@ -1092,11 +1685,10 @@ public class BuhlmannAlgorithmService {
                     currentActualDepthFsw,
                     targetStopDepthFsw,
                     currentGasInUse,
-                    allAvailableGases,
+                    decoGasIndex,
                     settings,
                     initialAmbientPressureFsw
             );
-            currentTissueState = ascentResult.tissueStateAfterAscent;
             currentGasInUse = ascentResult.gasUsedForAscent;
             currentActualDepthFsw = ascentResult.newCurrentDepthFsw; // Should be targetStopDepthFsw
             
@@ -1106,33 +1698,30 @@ public class BuhlmannAlgorithmService {
             }
 
             // 3. Perform decompression at currentActualDepthFsw (which is the targetStopDepthFsw)
-            CalculatedStopDetails stopDetails = performDecoAtStop(
+            DecoStop decoStopEntry = performDecoAtStop(
                     currentTissueState,
+                    probe,
+                    lastUnsafe,
+                    candidate,
                     currentActualDepthFsw,
                     currentGasInUse,
-                    allAvailableGases,
+                    decoGasIndex,
                     settings,
                     initialAmbientPressureFsw,
                     overallFirstStopDepthFsw // Crucial for GF interpolation during stop time calculation
             );
 
-            currentTissueState = stopDetails.tissueStateAtEndOfProcessing;
-            if (stopDetails.decoStopEntry != null) {
-                decoPlan.add(stopDetails.decoStopEntry);
-                currentGasInUse = stopDetails.decoStopEntry.getGas(); // Update current gas if stop used a different one
-                
-                // Check for excessively long stop from performDecoAtStop's internal check
-                // performDecoAtStop logs a warning if maxSingleStopMinutes is hit and still not safe.
-                // Here, we can decide to halt further planning if a stop is excessively long.
-                // For now, we rely on performDecoAtStop's warning and continue building the plan.
-                // A more robust error handling might throw an exception from performDecoAtStop or here.
-                if (stopDetails.decoStopEntry.getDurationMinutes() >= 240) { // Example threshold from performDecoAtStop warning
-                     System.err.println("CRITICAL: Deco stop at " + stopDetails.decoStopEntry.getDepthFsw() + 
-                                       "ft is " + stopDetails.decoStopEntry.getDurationMinutes() + " min. Planning might be unreliable or stop.");
-                    // Consider breaking the main loop or throwing an exception if policy is to stop on very long stops.
-                    // throw new IllegalStateException("Decompression stop at " + stopDetails.decoStopEntry.getDepthFsw() + "ft exceeds maximum allowed time.");
+            if (decoStopEntry != null) {
+                decoPlan.add(decoStopEntry);
+                currentGasInUse = decoStopEntry.getGas(); // Update current gas if stop used a different one
+
+                elapsedSeconds += getPlannedAscentSeconds(lastPlannedStopDepthFsw, decoStopEntry.getDepthFsw(), lastStopDepthFsw)
+                        + decoStopEntry.getDurationMinutes() * 60.0;
+                lastPlannedStopDepthFsw = decoStopEntry.getDepthFsw();
+                if (elapsedSeconds > timeToSurfaceLimitSeconds) {
+                    return null; // The remaining ascent can only add time
                 }
-            } else if (stopDetails.decoStopEntry == null && currentActualDepthFsw > 0) {
+            } else if (decoStopEntry == null && currentActualDepthFsw > 0) {
                 // This means performDecoAtStop determined 0 minutes were needed at this depth
                 // to proceed to the next shallower stop. This is plausible if tissues cleared rapidly
                 // during ascent or if the target stop was very conservative initially.
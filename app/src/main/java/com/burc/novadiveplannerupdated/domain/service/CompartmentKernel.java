@@ -0,0 +1,216 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+import com.burc.novadiveplannerupdated.domain.model.TissueLimitSummary;
+
+/**
+ * Fused per-compartment kernel over primitive coefficient arrays.
+ * In a single pass over the 17 compartments it can advance the tensions over a leg (Schreiner/Haldane),
+ * blend the N2/He a and b coefficients, compare against the M-value, compute the ceiling and track the
+ * controlling compartment. Results are written to the evaluation fields of the {@link TissueWorkspace},
+ * so nothing is allocated; {@link #summarize(TissueWorkspace, double)} turns them into a
+ * {@link TissueLimitSummary} at API boundaries.
+ * <p>
+ * While the workspace is {@link TissueWorkspace#heliumFree helium-free} and the leg adds no helium (air, nitrox,
+ * and surface intervals after such dives), a nitrogen-only path skips every helium update and uses the pure N2
+ * a/b coefficients. With all helium tensions at zero this is exactly the blended result. The full trimix path takes
+ * over as soon as any helium is breathed.
+ * <p>
+ * The arithmetic deliberately mirrors {@code BuhlmannAlgorithmService.calculateMValueFsw} and the
+ * instantaneous a/b blend, so the fused checks give the same answers as the per-method ones.
+ */
+final class CompartmentKernel {
+
+    private static final int N = DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS;
+
+    private final double[] n2A = DiveConstants.N2_A_COEFFICIENTS_FSW.clone();
+    private final double[] n2B = DiveConstants.N2_B_COEFFICIENTS.clone();
+    private final double[] heA = DiveConstants.HE_A_COEFFICIENTS_FSW.clone();
+    private final double[] heB = DiveConstants.HE_B_COEFFICIENTS.clone();
+
+    /**
+     * Schreiner equation for a single compartment and gas. Reduces to the Haldane solution when rate is zero.
+     *
+     * @param initialPressureFsw  Tissue tension at the start of the leg (P0).
+     * @param inspiredStartFsw    Inspired inert gas pressure at the start of the leg (Pi0).
+     * @param rateFswPerMin       Rate of change of the inspired inert gas pressure (R).
+     * @param inverseKMin         Inverse of the compartment rate constant, half-time / ln2.
+     * @param durationMinutes     Leg duration (t).
+     * @param decay               e^(-k*t) for this compartment and duration.
+     * @return The tissue tension at the end of the leg.
+     */
+    static double schreiner(double initialPressureFsw, double inspiredStartFsw, double rateFswPerMin,
+                            double inverseKMin, double durationMinutes, double decay) {
+        if (rateFswPerMin == 0) {
+            return inspiredStartFsw + (initialPressureFsw - inspiredStartFsw) * decay;
+        }
+        return inspiredStartFsw + rateFswPerMin * (durationMinutes - inverseKMin)
+                - (inspiredStartFsw - initialPressureFsw - rateFswPerMin * inverseKMin) * decay;
+    }
+
+    /**
+     * Advances the workspace tensions over one leg, in place.
+     */
+    void integrate(TissueWorkspace workspace,
+                   double inspiredN2StartFsw, double inspiredHeStartFsw,
+                   double rateN2FswPerMin, double rateHeFswPerMin, double durationMinutes,
+                   double[] inverseKN2, double[] inverseKHe, TissueDecayTable.Decay decay) {
+        double[] n2 = workspace.n2;
+        if (staysHeliumFree(workspace, inspiredHeStartFsw, rateHeFswPerMin)) {
+            for (int i = 0; i < N; i++) {
+                n2[i] = schreiner(n2[i], inspiredN2StartFsw, rateN2FswPerMin, inverseKN2[i], durationMinutes, decay.n2[i]);
+            }
+            return;
+        }
+        double[] he = workspace.he;
+        for (int i = 0; i < N; i++) {
+            n2[i] = schreiner(n2[i], inspiredN2StartFsw, rateN2FswPerMin, inverseKN2[i], durationMinutes, decay.n2[i]);
+            he[i] = schreiner(he[i], inspiredHeStartFsw, rateHeFswPerMin, inverseKHe[i], durationMinutes, decay.he[i]);
+        }
+        workspace.heliumFree = false;
+    }
+
+    /**
+     * Advances the workspace tensions over one leg and evaluates the limits at the end of it, in the same pass.
+     *
+     * @return true if every compartment is within its M-value at {@code ambientPressureFsw}.
+     */
+    boolean integrateAndEvaluate(TissueWorkspace workspace,
+                                 double inspiredN2StartFsw, double inspiredHeStartFsw,
+                                 double rateN2FswPerMin, double rateHeFswPerMin, double durationMinutes,
+                                 double[] inverseKN2, double[] inverseKHe, TissueDecayTable.Decay decay,
+                                 double ambientPressureFsw, double gradientFactor) {
+        double[] n2 = workspace.n2;
+        beginEvaluation(workspace, gradientFactor);
+        if (staysHeliumFree(workspace, inspiredHeStartFsw, rateHeFswPerMin)) {
+            for (int i = 0; i < N; i++) {
+                n2[i] = schreiner(n2[i], inspiredN2StartFsw, rateN2FswPerMin, inverseKN2[i], durationMinutes, decay.n2[i]);
+                evaluateCompartmentNitrogenOnly(workspace, i, ambientPressureFsw, gradientFactor);
+            }
+            return workspace.withinMValues;
+        }
+        double[] he = workspace.he;
+        for (int i = 0; i < N; i++) {
+            n2[i] = schreiner(n2[i], inspiredN2StartFsw, rateN2FswPerMin, inverseKN2[i], durationMinutes, decay.n2[i]);
+            he[i] = schreiner(he[i], inspiredHeStartFsw, rateHeFswPerMin, inverseKHe[i], durationMinutes, decay.he[i]);
+            evaluateCompartment(workspace, i, ambientPressureFsw, gradientFactor);
+        }
+        workspace.heliumFree = false;
+        return workspace.withinMValues;
+    }
+
+    /**
+     * Evaluates the limits for the current workspace tensions without changing them.
+     *
+     * @param ambientPressureFsw Absolute ambient pressure (P_water + P_init) for the M-value check and current GF.
+     * @param gradientFactor     Gradient factor (fraction) for the M-values and the ceiling.
+     * @return true if every compartment is within its M-value at {@code ambientPressureFsw}.
+     */
+    boolean evaluate(TissueWorkspace workspace, double ambientPressureFsw, double gradientFactor) {
+        beginEvaluation(workspace, gradientFactor);
+        if (workspace.heliumFree) {
+            for (int i = 0; i < N; i++) {
+                evaluateCompartmentNitrogenOnly(workspace, i, ambientPressureFsw, gradientFactor);
+            }
+        } else {
+            for (int i = 0; i < N; i++) {
+                evaluateCompartment(workspace, i, ambientPressureFsw, gradientFactor);
+            }
+        }
+        return workspace.withinMValues;
+    }
+
+    /**
+     * Freezes the last evaluation held in the workspace.
+     *
+     * @param initialAmbientPressureFsw P_init, used to express the ceiling as a depth.
+     */
+    TissueLimitSummary summarize(TissueWorkspace workspace, double initialAmbientPressureFsw) {
+        return new TissueLimitSummary(
+                workspace.controllingCompartment,
+                workspace.controllingAMixFsw,
+                workspace.controllingBMix,
+                Math.max(0, workspace.ceilingAbsoluteFsw - initialAmbientPressureFsw),
+                workspace.evaluatedGradientFactor,
+                workspace.currentGradientFactor);
+    }
+
+    /**
+     * @return true if the workspace carries no helium and this leg does not add any.
+     */
+    private static boolean staysHeliumFree(TissueWorkspace workspace, double inspiredHeStartFsw, double rateHeFswPerMin) {
+        return workspace.heliumFree && inspiredHeStartFsw == 0 && rateHeFswPerMin == 0;
+    }
+
+    private static void beginEvaluation(TissueWorkspace workspace, double gradientFactor) {
+        workspace.withinMValues = true;
+        workspace.controllingCompartment = 0;
+        workspace.controllingAMixFsw = 0;
+        workspace.controllingBMix = 0;
+        workspace.ceilingAbsoluteFsw = 0;
+        workspace.evaluatedGradientFactor = gradientFactor;
+        workspace.currentGradientFactor = Double.NEGATIVE_INFINITY;
+    }
+
+    private void evaluateCompartment(TissueWorkspace workspace, int i, double ambientPressureFsw, double gradientFactor) {
+        double n2Pressure = workspace.n2[i];
+        double hePressure = workspace.he[i];
+        double totalPressure = n2Pressure + hePressure;
+
+        // Instantaneous a/b, weighted by the partial tensions
+        double aMix;
+        double bMix;
+        if (totalPressure <= 1e-6) { // Avoid division by zero if both pressures are effectively zero
+            boolean heliumOnly = n2Pressure <= 1e-6 && hePressure > 1e-6;
+            aMix = heliumOnly ? heA[i] : n2A[i];
+            bMix = heliumOnly ? heB[i] : n2B[i];
+        } else {
+            aMix = (n2Pressure * n2A[i] + hePressure * heA[i]) / totalPressure;
+            bMix = (n2Pressure * n2B[i] + hePressure * heB[i]) / totalPressure;
+        }
+
+        evaluateLimits(workspace, i, totalPressure, aMix, bMix, ambientPressureFsw, gradientFactor);
+    }
+
+    /**
+     * Nitrogen-only evaluation: with no helium the blended a/b are exactly the N2 coefficients.
+     */
+    private void evaluateCompartmentNitrogenOnly(TissueWorkspace workspace, int i, double ambientPressureFsw, double gradientFactor) {
+        evaluateLimits(workspace, i, workspace.n2[i], n2A[i], n2B[i], ambientPressureFsw, gradientFactor);
+    }
+
+    private static void evaluateLimits(TissueWorkspace workspace, int i, double totalPressure, double aMix, double bMix,
+                                       double ambientPressureFsw, double gradientFactor) {
+        // M-value check: M = P_amb + GF * (a + P_amb * (1/b - 1))
+        double mValue = bMix <= 1e-6
+                ? Double.MAX_VALUE
+                : ambientPressureFsw + gradientFactor * (aMix + ambientPressureFsw * ((1.0 / bMix) - 1.0));
+        if (totalPressure > mValue) {
+            workspace.withinMValues = false;
+        }
+
+        // Ceiling: P_ceil_abs = (P_tissue - GF * a) / (1 + GF * (1/b - 1))
+        double denominator = (1.0 + gradientFactor * ((1.0 / bMix) - 1.0));
+        double ceilingAbsoluteFsw;
+        if (Math.abs(denominator) < 1e-9) {
+            ceilingAbsoluteFsw = (totalPressure > gradientFactor * aMix) ? Double.MAX_VALUE : 0;
+        } else {
+            ceilingAbsoluteFsw = (totalPressure - gradientFactor * aMix) / denominator;
+        }
+        if (ceilingAbsoluteFsw > workspace.ceilingAbsoluteFsw) {
+            workspace.ceilingAbsoluteFsw = ceilingAbsoluteFsw;
+            workspace.controllingCompartment = i;
+            workspace.controllingAMixFsw = aMix;
+            workspace.controllingBMix = bMix;
+        }
+
+        // Current GF (GF99): supersaturation as a fraction of the raw M-value gradient at this ambient pressure
+        double rawGradient = aMix + ambientPressureFsw * ((1.0 / bMix) - 1.0);
+        if (rawGradient > 1e-9) {
+            double currentGradientFactor = (totalPressure - ambientPressureFsw) / rawGradient;
+            if (currentGradientFactor > workspace.currentGradientFactor) {
+                workspace.currentGradientFactor = currentGradientFactor;
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.common.DomainDefaults;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.model.GasType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable lookup of the best decompression gas at a depth, built once for a list of gases and an altitude.
+ * <p>
+ * A gas is usable at a depth when its PPO2 there is within its own PPO2 max (open circuit), the global
+ * planning maximum and above the hypoxic minimum. Usability only changes at each gas's MOD and hypoxic floor,
+ * so the best gas is precomputed for every 1 ft depth band that contains none of those boundaries and
+ * looked up in O(1). The few bands that contain a boundary are resolved exactly against the candidates,
+ * which are sorted in preference order (highest FO2, then lowest FHe), so the answer is always the one the
+ * full scan over the gas list gives.
+ */
+final class DecoGasIndex {
+
+    /**
+     * Global planning PPO2 maximum for deco gases.
+     * TODO: Add a global max PPO2 setting to DiveSettings (e.g., settings.getPlanningMaxPpo2Ata())
+     */
+    static final double GLOBAL_MAX_PPO2_ATA = 1.6;
+
+    /** Deepest band kept in the table; below the deepest boundary the best gas no longer changes anyway. */
+    private static final int MAX_BAND_COUNT = 2000;
+    /** Bands this close to a boundary are resolved exactly, absorbing rounding in the boundary depth. */
+    private static final double BOUNDARY_MARGIN_FSW = 1e-6;
+
+    private final List<Gas> sourceGases;
+    private final double initialAmbientPressureFsw;
+
+    // Enabled gases that can be breathed at some depth, in preference order, with their usable depth range
+    private final Gas[] candidates;
+    private final double[] modFsw;
+    private final double[] hypoxicFloorFsw;
+
+    private final Gas[] bestGasByBand; // Band k covers [k, k + 1) fsw; null if no gas is usable
+    private final boolean[] boundaryBand;
+    private final Gas bestGasBelowBands;
+
+    private DecoGasIndex(List<Gas> sourceGases, double initialAmbientPressureFsw) {
+        this.sourceGases = sourceGases;
+        this.initialAmbientPressureFsw = initialAmbientPressureFsw;
+
+        List<Gas> usable = new ArrayList<>();
+        for (Gas gas : sourceGases) {
+            if (gas.isEnabled() && gas.getFo2() > 0) { // FO2 = 0 is hypoxic at every depth
+                usable.add(gas);
+            }
+        }
+        // Stable sort: among equal mixes the earlier slot wins, as in the scan
+        Collections.sort(usable, (a, b) -> {
+            int byFo2 = Double.compare(b.getFo2(), a.getFo2());
+            return byFo2 != 0 ? byFo2 : Double.compare(a.getFhe(), b.getFhe());
+        });
+        candidates = usable.toArray(new Gas[0]);
+        modFsw = new double[candidates.length];
+        hypoxicFloorFsw = new double[candidates.length];
+
+        double deepestBoundaryFsw = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            Gas gas = candidates[i];
+            double maxPpo2Ata = GLOBAL_MAX_PPO2_ATA;
+            if (gas.getGasType() == GasType.OPEN_CIRCUIT && gas.getPo2Max() != null) {
+                maxPpo2Ata = Math.min(maxPpo2Ata, gas.getPo2Max());
+            }
+            modFsw[i] = maxPpo2Ata / gas.getFo2() * DomainDefaults.DEPTH_CONSTANT_IMPERIAL - initialAmbientPressureFsw;
+            hypoxicFloorFsw[i] = DomainDefaults.MIN_SAFE_PPO2_ATA / gas.getFo2() * DomainDefaults.DEPTH_CONSTANT_IMPERIAL
+                    - initialAmbientPressureFsw;
+            deepestBoundaryFsw = Math.max(deepestBoundaryFsw, Math.max(modFsw[i], hypoxicFloorFsw[i]));
+        }
+
+        int bandCount = (int) Math.min(MAX_BAND_COUNT, Math.ceil(deepestBoundaryFsw) + 2);
+        bestGasByBand = new Gas[bandCount];
+        boundaryBand = new boolean[bandCount];
+        for (int i = 0; i < candidates.length; i++) {
+            markBoundary(modFsw[i]);
+            markBoundary(hypoxicFloorFsw[i]);
+        }
+        for (int band = 0; band < bandCount; band++) {
+            if (!boundaryBand[band]) {
+                bestGasByBand[band] = scan(band + 0.5);
+            }
+        }
+        // Past the table the best gas is that of its last band, unless the table was capped
+        bestGasBelowBands = bandCount < MAX_BAND_COUNT ? scan(bandCount + 0.5) : null;
+    }
+
+    /**
+     * Builds the index.
+     *
+     * @param gases                     All gases of the plan; disabled ones are never chosen.
+     * @param initialAmbientPressureFsw Initial ambient pressure at the surface/altitude (P_init).
+     */
+    static DecoGasIndex build(List<Gas> gases, double initialAmbientPressureFsw) {
+        Objects.requireNonNull(gases, "Gas list cannot be null.");
+        return new DecoGasIndex(Collections.unmodifiableList(new ArrayList<>(gases)), initialAmbientPressureFsw);
+    }
+
+    /**
+     * @return true if this index was built for these gases and this altitude, so it can be reused.
+     */
+    boolean isFor(List<Gas> gases, double initialAmbientPressureFsw) {
+        return this.initialAmbientPressureFsw == initialAmbientPressureFsw && sourceGases.equals(gases);
+    }
+
+    /**
+     * @param depthFsw Depth in fsw.
+     * @return The most oxygen-rich (then least helium) enabled gas usable at the depth, or null if there is none.
+     */
+    Gas bestGasAt(double depthFsw) {
+        if (!(depthFsw >= 0)) {
+            return scan(depthFsw);
+        }
+        if (depthFsw >= bestGasByBand.length) {
+            return bestGasBelowBands != null ? bestGasBelowBands : scan(depthFsw);
+        }
+        int band = (int) depthFsw;
+        return boundaryBand[band] ? scan(depthFsw) : bestGasByBand[band];
+    }
+
+    /**
+     * Checks whether a gas can be breathed at a depth: within its own PPO2 max (open circuit),
+     * the global planning maximum and above the hypoxic minimum.
+     */
+    static boolean isUsableAt(Gas gas, double depthFsw, double initialAmbientPressureFsw) {
+        double pAmbientTotalFsw = depthFsw + initialAmbientPressureFsw;
+        double ppo2AtDepthAta = gas.getFo2() * (pAmbientTotalFsw / DomainDefaults.DEPTH_CONSTANT_IMPERIAL);
+        if (gas.getGasType() == GasType.OPEN_CIRCUIT && gas.getPo2Max() != null && ppo2AtDepthAta > gas.getPo2Max()) {
+            return false; // Exceeds this gas's specific PO2 Max
+        }
+        if (ppo2AtDepthAta > GLOBAL_MAX_PPO2_ATA) {
+            return false; // Exceeds global PPO2 Max limit for deco
+        }
+        // Hypoxic below the minimum; written as !(<) so that NaN passes, as in the original scan
+        return !(ppo2AtDepthAta < DomainDefaults.MIN_SAFE_PPO2_ATA);
+    }
+
+    /**
+     * @return The gases that can be chosen at some depth, in preference order.
+     */
+    List<Gas> getCandidates() {
+        return Collections.unmodifiableList(Arrays.asList(candidates));
+    }
+
+    /**
+     * @return The deepest depth (fsw) at which the candidate at {@code index} of {@link #getCandidates()} is usable.
+     */
+    double getModFsw(int index) {
+        return modFsw[index];
+    }
+
+    /**
+     * @return The shallowest depth (fsw) at which the candidate at {@code index} of {@link #getCandidates()} is not hypoxic.
+     */
+    double getHypoxicFloorFsw(int index) {
+        return hypoxicFloorFsw[index];
+    }
+
+    private void markBoundary(double boundaryFsw) {
+        int first = (int) Math.floor(boundaryFsw - BOUNDARY_MARGIN_FSW);
+        int last = (int) Math.floor(boundaryFsw + BOUNDARY_MARGIN_FSW);
+        for (int band = Math.max(0, first); band <= last && band < boundaryBand.length; band++) {
+            boundaryBand[band] = true;
+        }
+    }
+
+    /** First usable candidate in preference order; the exact answer at any depth. */
+    private Gas scan(double depthFsw) {
+        for (Gas gas : candidates) {
+            if (isUsableAt(gas, depthFsw, initialAmbientPressureFsw)) {
+                return gas;
+            }
+        }
+        return null;
+    }
+}
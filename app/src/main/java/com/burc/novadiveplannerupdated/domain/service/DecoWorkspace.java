@@ -0,0 +1,20 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+/**
+ * Scratch memory for {@link BuhlmannAlgorithmService#calculateDecompressionPlan}: the working tissue state
+ * and the trial states of the stop-time search.
+ * <p>
+ * Callers that plan many decompressions in a row (sweeps, what-if tables) can create one workspace per
+ * thread and pass it to every call, instead of letting each call allocate its own. A workspace holds no
+ * result between calls, but it must never be used by two threads at the same time.
+ */
+public final class DecoWorkspace {
+
+    final TissueWorkspace current = new TissueWorkspace();
+    final TissueWorkspace probe = new TissueWorkspace(); // Trial ascents at each stop
+    final TissueWorkspace lastUnsafe = new TissueWorkspace(); // Stop-time search
+    final TissueWorkspace candidate = new TissueWorkspace();
+
+    public DecoWorkspace() {
+    }
+}
@@ -0,0 +1,32 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+/**
+ * Thrown when a decompression stop reaches the longest stop time the planner allows and the ascent from it
+ * is still outside the gradient factors, e.g. slow compartments that keep on-gassing at a shallow last stop
+ * on a lean gas. No valid plan exists for the dive with these settings and gases.
+ */
+public class DecompressionLimitException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double stopDepthFsw;
+    private final int maxStopMinutes;
+
+    public DecompressionLimitException(double stopDepthFsw, int maxStopMinutes) {
+        super("Decompression stop at " + Math.round(stopDepthFsw) + " ft cannot be cleared within "
+                + maxStopMinutes + " min.");
+        this.stopDepthFsw = stopDepthFsw;
+        this.maxStopMinutes = maxStopMinutes;
+    }
+
+    /**
+     * @return The depth (fsw) of the stop that could not be cleared.
+     */
+    public double getStopDepthFsw() {
+        return stopDepthFsw;
+    }
+
+    public int getMaxStopMinutes() {
+        return maxStopMinutes;
+    }
+}
@@ -5,11 +5,14 @@ import com.burc.novadiveplannerupdated.domain.entity.Gas;
 
 import java.util.Objects;
 
+import javax.inject.Inject;
+
 /**
  * Service class for calculating gas consumption related parameters.
  */
 public class GasConsumptionService {
 
+    @Inject
     public GasConsumptionService() {
         // Constructor
     }
@@ -0,0 +1,158 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.model.UnitSystem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Memoizes the per-gas depth limits of {@link GasCalculationService} (MOD, hypoxic threshold,
+ * END and WOB alarm depths).
+ * <p>
+ * Each limit is keyed only on the inputs its formula reads, so toggling a gas, renaming it or changing an
+ * unrelated setting (RMV, GF, ...) reuses the cached values:
+ * <ul>
+ *     <li>MOD: FO2, PPO2 max, unit system</li>
+ *     <li>Hypoxic threshold: FO2, unit system</li>
+ *     <li>END alarm depth: FO2, FHe, unit system, O2-narcotic flag, END threshold</li>
+ *     <li>WOB alarm depth: FO2, FHe, unit system, WOB threshold</li>
+ * </ul>
+ * Gas type and altitude are not part of any key: the formulas use a fixed 1 ATA surface pressure
+ * and do not distinguish OC from CC.
+ */
+@Singleton
+public class GasPropertiesCache {
+
+    /** 10 gas slots x 4 limits, with room for a unit-system switch and a few edits in between. */
+    private static final int CACHE_SIZE = 128;
+
+    private enum Property { MOD, HYPOXIC_THRESHOLD, END_ALARM_DEPTH, WOB_ALARM_DEPTH }
+
+    // Values are Integer and may be null ("not applicable"), so presence is checked with containsKey
+    private final Map<CacheKey, Integer> cache = new LinkedHashMap<CacheKey, Integer>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, Integer> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final GasCalculationService gasCalculationService;
+
+    @Inject
+    public GasPropertiesCache(GasCalculationService gasCalculationService) {
+        this.gasCalculationService = gasCalculationService;
+    }
+
+    /**
+     * @see GasCalculationService#calculateMod(Gas, UnitSystem)
+     */
+    public Integer getMod(Gas gas, UnitSystem unitSystem) {
+        Objects.requireNonNull(gas, "Gas cannot be null.");
+        CacheKey key = new CacheKey(Property.MOD, gas.getFo2(), 0, gas.getPo2Max(), unitSystem, false, 0);
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                return cache.get(key);
+            }
+        }
+        return store(key, gasCalculationService.calculateMod(gas, unitSystem));
+    }
+
+    /**
+     * @see GasCalculationService#calculateHypoxicThreshold(Gas, UnitSystem)
+     */
+    public Integer getHypoxicThreshold(Gas gas, UnitSystem unitSystem) {
+        Objects.requireNonNull(gas, "Gas cannot be null.");
+        CacheKey key = new CacheKey(Property.HYPOXIC_THRESHOLD, gas.getFo2(), 0, null, unitSystem, false, 0);
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                return cache.get(key);
+            }
+        }
+        return store(key, gasCalculationService.calculateHypoxicThreshold(gas, unitSystem));
+    }
+
+    /**
+     * @see GasCalculationService#calculateEndAlarmDepth(Gas, UnitSystem, boolean, int)
+     */
+    public Integer getEndAlarmDepth(Gas gas, UnitSystem unitSystem, boolean isOxygenNarcotic, int targetEndDepth) {
+        Objects.requireNonNull(gas, "Gas cannot be null.");
+        CacheKey key = new CacheKey(Property.END_ALARM_DEPTH, gas.getFo2(), gas.getFhe(), null, unitSystem,
+                isOxygenNarcotic, targetEndDepth);
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                return cache.get(key);
+            }
+        }
+        return store(key, gasCalculationService.calculateEndAlarmDepth(gas, unitSystem, isOxygenNarcotic, targetEndDepth));
+    }
+
+    /**
+     * @see GasCalculationService#calculateWobAlarmDepth(Gas, UnitSystem, int)
+     */
+    public Integer getWobAlarmDepth(Gas gas, UnitSystem unitSystem, int targetWobDepth) {
+        Objects.requireNonNull(gas, "Gas cannot be null.");
+        CacheKey key = new CacheKey(Property.WOB_ALARM_DEPTH, gas.getFo2(), gas.getFhe(), null, unitSystem,
+                false, targetWobDepth);
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                return cache.get(key);
+            }
+        }
+        return store(key, gasCalculationService.calculateWobAlarmDepth(gas, unitSystem, targetWobDepth));
+    }
+
+    private Integer store(CacheKey key, Integer value) {
+        synchronized (cache) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Inputs of one limit; fields a limit does not read are left at a constant.
+     */
+    private static final class CacheKey {
+        private final Property property;
+        private final double fo2;
+        private final double fhe;
+        private final Double po2Max;
+        private final UnitSystem unitSystem;
+        private final boolean isOxygenNarcotic;
+        private final int threshold;
+
+        CacheKey(Property property, double fo2, double fhe, Double po2Max, UnitSystem unitSystem,
+                 boolean isOxygenNarcotic, int threshold) {
+            this.property = property;
+            this.fo2 = fo2;
+            this.fhe = fhe;
+            this.po2Max = po2Max;
+            this.unitSystem = unitSystem;
+            this.isOxygenNarcotic = isOxygenNarcotic;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey that = (CacheKey) o;
+            return property == that.property &&
+                    Double.compare(that.fo2, fo2) == 0 &&
+                    Double.compare(that.fhe, fhe) == 0 &&
+                    Objects.equals(po2Max, that.po2Max) &&
+                    unitSystem == that.unitSystem &&
+                    isOxygenNarcotic == that.isOxygenNarcotic &&
+                    threshold == that.threshold;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(property, fo2, fhe, po2Max, unitSystem, isOxygenNarcotic, threshold);
+        }
+    }
+}
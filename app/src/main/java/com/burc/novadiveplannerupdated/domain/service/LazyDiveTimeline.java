@@ -0,0 +1,479 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.GasType;
+import com.burc.novadiveplannerupdated.domain.model.ProfileLeg;
+import com.burc.novadiveplannerupdated.domain.model.ProfileSeries;
+import com.burc.novadiveplannerupdated.domain.model.TimelinePoint;
+import com.burc.novadiveplannerupdated.domain.model.TissueLimitSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Timeline of a calculated dive that keeps only the profile legs and a few tissue checkpoints,
+ * and rebuilds the state at any instant when it is asked for.
+ * <p>
+ * The full tissue state is stored at the start and end of every leg (so at every segment boundary, where
+ * the stored segment results are used as-is) and every {@code checkpointIntervalSeconds} within long legs.
+ * The state at time t is the nearest earlier checkpoint advanced to t along its leg with the service's leg
+ * integration; in analytic mode that is one closed-form step per compartment, however far the checkpoint is.
+ * Ceiling, GF99, NDL and TTS are derived from that state. Memory grows with the number of segments and stops
+ * rather than with the dive time, and the last {@code cacheSize} queried points are kept, so moving a graph
+ * cursor back and forth mostly hits the cache.
+ * <p>
+ * Deco ascent legs are rebuilt from the stored stops: each ascent is breathed on the gas of the stop it leads to,
+ * the final ascent on the gas of the last stop, with the rates used for the TTS.
+ * Instances are immutable apart from the cache and safe to query from several threads.
+ */
+public final class LazyDiveTimeline {
+
+    /** Default spacing of the checkpoints inside long legs. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL_SECONDS = 600;
+    /** Default number of reconstructed points kept in the LRU cache. */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static final int TISSUE_VALUES = 2 * DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS;
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final DiveSettings settings;
+    private final List<Gas> decoGases;
+    private final double initialAmbientPressureFsw;
+
+    private final List<ProfileLeg> legs;
+    private final double[] legStartTimes;
+    private final double totalDurationSeconds;
+
+    private final int checkpointCount;
+    private final double[] checkpointTimes;
+    private final double[] checkpointTensions; // TISSUE_VALUES per checkpoint: N2 then He
+
+    private final Map<Long, TimelinePoint> pointCache; // Access-ordered; guarded by itself
+
+    private LazyDiveTimeline(BuhlmannAlgorithmService buhlmannAlgorithmService, DiveSettings settings,
+                             List<Gas> decoGases, TimelineBuilder builder, int cacheSize) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.settings = settings;
+        this.decoGases = Collections.unmodifiableList(new ArrayList<>(decoGases));
+        this.initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+
+        this.legs = Collections.unmodifiableList(new ArrayList<>(builder.legs));
+        this.legStartTimes = new double[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            legStartTimes[i] = legs.get(i).getStartTimeSeconds();
+        }
+        this.totalDurationSeconds = builder.timeSeconds;
+
+        this.checkpointCount = builder.checkpointCount;
+        this.checkpointTimes = Arrays.copyOf(builder.checkpointTimes, checkpointCount);
+        this.checkpointTensions = Arrays.copyOf(builder.checkpointTensions, checkpointCount * TISSUE_VALUES);
+
+        this.pointCache = new LinkedHashMap<Long, TimelinePoint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TimelinePoint> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Builds the timeline of a calculated dive with the default checkpoint spacing and cache size.
+     *
+     * @see #create(BuhlmannAlgorithmService, Dive, DiveSettings, List, int, int)
+     */
+    public static LazyDiveTimeline create(BuhlmannAlgorithmService buhlmannAlgorithmService, Dive calculatedDive,
+                                          DiveSettings settings, List<Gas> decoGases) {
+        return create(buhlmannAlgorithmService, calculatedDive, settings, decoGases,
+                DEFAULT_CHECKPOINT_INTERVAL_SECONDS, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Builds the timeline of a calculated dive: its segments, its deco stops and the final ascent.
+     *
+     * @param buhlmannAlgorithmService  The service the dive was calculated with.
+     * @param calculatedDive            A Dive whose segments all hold their calculated end state.
+     * @param settings                  The settings the dive was calculated with.
+     * @param decoGases                 The gases available for decompression, used for the TTS at each point.
+     * @param checkpointIntervalSeconds Maximum spacing of the checkpoints inside a leg.
+     * @param cacheSize                 Number of reconstructed points to keep.
+     * @return The timeline.
+     * @throws IllegalArgumentException if the dive has not been calculated or a size is not positive.
+     */
+    public static LazyDiveTimeline create(BuhlmannAlgorithmService buhlmannAlgorithmService, Dive calculatedDive,
+                                          DiveSettings settings, List<Gas> decoGases,
+                                          int checkpointIntervalSeconds, int cacheSize) {
+        Objects.requireNonNull(buhlmannAlgorithmService, "BuhlmannAlgorithmService cannot be null.");
+        Objects.requireNonNull(calculatedDive, "Dive cannot be null.");
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(decoGases, "Deco gas list cannot be null.");
+        if (checkpointIntervalSeconds <= 0 || cacheSize <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval and cache size must be positive.");
+        }
+
+        TimelineBuilder builder = new TimelineBuilder(buhlmannAlgorithmService,
+                settings.getAltitudeLevel().getInitialAmbientPressureFsw(), checkpointIntervalSeconds,
+                calculatedDive.getInitialTissueStateForThisDive());
+
+        // 1. Segments: transit on the previous segment's gas, then the time at depth
+        double depthFsw = 0;
+        Gas gas = null;
+        for (DiveSegment segment : calculatedDive.getSegments()) {
+            TissueState endState = segment.getTissueStateAtEndOfSegment();
+            if (endState == null) {
+                throw new IllegalArgumentException("Segment " + segment.getSegmentNumber() + " has not been calculated.");
+            }
+            Gas transitGas = gas != null ? gas : segment.getGas();
+            double transitSeconds = segment.getCalculatedTransitDurationSeconds() != null
+                    ? segment.getCalculatedTransitDurationSeconds() : 0;
+            double timeAtDepthSeconds = Math.max(0, segment.getUserInputTotalDurationInSeconds() - transitSeconds);
+
+            builder.addLeg(transitSeconds, depthFsw, segment.getTargetDepth(), transitGas,
+                    setPointFor(transitGas, segment));
+            builder.addLeg(timeAtDepthSeconds, segment.getTargetDepth(), segment.getTargetDepth(), segment.getGas(),
+                    setPointFor(segment.getGas(), segment));
+            // Segment boundary: use the calculated end state rather than our own re-integration
+            builder.snapCheckpoint(endState);
+
+            depthFsw = segment.getTargetDepth();
+            gas = segment.getGas();
+        }
+        if (gas == null) {
+            throw new IllegalArgumentException("Dive has no segments.");
+        }
+
+        // 2. Deco stops and the final ascent
+        List<DecoStop> decoStops = calculatedDive.getDecoStops();
+        double lastStopDepthFsw = settings.getLastStopDepthOption().getDepthFt();
+        for (DecoStop stop : decoStops) {
+            builder.addLeg(buhlmannAlgorithmService.getPlannedAscentSeconds(depthFsw, stop.getDepthFsw(), lastStopDepthFsw),
+                    depthFsw, stop.getDepthFsw(), stop.getGas(), null);
+            builder.addLeg(stop.getDurationMinutes() * 60.0, stop.getDepthFsw(), stop.getDepthFsw(), stop.getGas(), null);
+            depthFsw = stop.getDepthFsw();
+            gas = stop.getGas();
+        }
+        double finalAscentSeconds = decoStops.isEmpty()
+                ? buhlmannAlgorithmService.getNdlAscentDurationSeconds(depthFsw)
+                : buhlmannAlgorithmService.getPlannedAscentSeconds(depthFsw, 0, lastStopDepthFsw);
+        builder.addLeg(finalAscentSeconds, depthFsw, 0, gas, null);
+
+        return new LazyDiveTimeline(buhlmannAlgorithmService, settings, decoGases, builder, cacheSize);
+    }
+
+    /**
+     * Same set point rule as the segment loading: only closed circuit gases use the segment's set point.
+     */
+    private static Double setPointFor(Gas gas, DiveSegment segment) {
+        return gas.getGasType() == GasType.CLOSED_CIRCUIT ? segment.getSetPoint() : null;
+    }
+
+    // --- Profile ---
+
+    public double getTotalDurationSeconds() {
+        return totalDurationSeconds;
+    }
+
+    public List<ProfileLeg> getLegs() {
+        return legs; // Already unmodifiable
+    }
+
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * @param timeSeconds Time from the start of the dive in seconds; clamped to the timeline.
+     * @return The depth at that time in fsw.
+     */
+    public double getDepthAt(double timeSeconds) {
+        double time = clampTime(timeSeconds);
+        return legAt(time).getDepthAt(time);
+    }
+
+    /**
+     * @param timeSeconds Time from the start of the dive in seconds; clamped to the timeline.
+     * @return The gas breathed at that time.
+     */
+    public Gas getGasAt(double timeSeconds) {
+        return legAt(clampTime(timeSeconds)).getGas();
+    }
+
+    /**
+     * Samples depth, GF-low ceiling and ppO2 at a fixed interval over the whole dive, e.g. as the raw input
+     * of the profile graph. The tensions are carried forward from sample to sample (and reloaded from the
+     * checkpoint at each leg start), so every sample costs one leg integration.
+     *
+     * @param intervalSeconds Spacing of the samples in seconds; the last sample is at the end of the dive.
+     * @return The sampled series.
+     */
+    public ProfileSeries sampleSeries(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Sample interval must be positive.");
+        }
+        int sampleCount = (int) Math.ceil(totalDurationSeconds / intervalSeconds) + 1;
+        double[] times = new double[sampleCount];
+        double[] depths = new double[sampleCount];
+        double[] ceilings = new double[sampleCount];
+        double[] ppo2s = new double[sampleCount];
+
+        OxygenToxicityService oxygenToxicityService = buhlmannAlgorithmService.getOxygenToxicityService();
+        TissueWorkspace workspace = new TissueWorkspace();
+        int currentLeg = -1;
+        double workspaceTime = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            double time = Math.min(totalDurationSeconds, (double) i * intervalSeconds);
+            int legIndex = Math.max(0, lastIndexAtOrBefore(legStartTimes, legStartTimes.length, time));
+            ProfileLeg leg = legs.get(legIndex);
+            if (legIndex != currentLeg) {
+                // Every leg starts with a checkpoint
+                int checkpoint = Math.max(0, lastIndexAtOrBefore(checkpointTimes, checkpointCount, leg.getStartTimeSeconds()));
+                loadCheckpoint(checkpoint, workspace);
+                workspaceTime = checkpointTimes[checkpoint];
+                currentLeg = legIndex;
+            }
+            if (time > workspaceTime) {
+                buhlmannAlgorithmService.integrate(workspace, leg.getDepthAt(workspaceTime), leg.getDepthAt(time),
+                        time - workspaceTime, leg.getGas(), initialAmbientPressureFsw, false);
+                workspaceTime = time;
+            }
+
+            double depthFsw = leg.getDepthAt(time);
+            times[i] = time;
+            depths[i] = depthFsw;
+            ceilings[i] = buhlmannAlgorithmService.findDeepestCeilingFsw(
+                    workspace, settings.getGradientFactors(), initialAmbientPressureFsw);
+            ppo2s[i] = oxygenToxicityService.calculatePpo2(
+                    leg.getGas(), depthFsw, initialAmbientPressureFsw, leg.getSetPointAta());
+        }
+        return new ProfileSeries(times, depths, ceilings, ppo2s);
+    }
+
+    // --- Reconstruction ---
+
+    /**
+     * Rebuilds the tissue tensions at a time into caller-owned arrays. Not cached; this is the cheap
+     * path for callers that only need the tensions.
+     *
+     * @param timeSeconds    Time from the start of the dive in seconds; clamped to the timeline.
+     * @param nitrogenTarget Array of at least 17 elements receiving the nitrogen pressures in fsw.
+     * @param heliumTarget   Array of at least 17 elements receiving the helium pressures in fsw.
+     */
+    public void copyTissueTensionsAt(double timeSeconds, double[] nitrogenTarget, double[] heliumTarget) {
+        TissueWorkspace workspace = new TissueWorkspace();
+        loadTensionsAt(clampTime(timeSeconds), workspace);
+        System.arraycopy(workspace.n2, 0, nitrogenTarget, 0, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+        System.arraycopy(workspace.he, 0, heliumTarget, 0, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+    }
+
+    /**
+     * @param timeSeconds Time from the start of the dive in seconds; clamped to the timeline.
+     * @return The tissue state at that time.
+     */
+    public TissueState getTissueStateAt(double timeSeconds) {
+        TissueWorkspace workspace = new TissueWorkspace();
+        loadTensionsAt(clampTime(timeSeconds), workspace);
+        return workspace.freeze();
+    }
+
+    /**
+     * Returns the full state at a whole second, with ceiling, GF99, NDL and TTS.
+     * Recently queried points are served from the cache.
+     *
+     * @param timeSeconds Time from the start of the dive in seconds; values past the end return the surfaced state.
+     * @return The point.
+     * @throws IllegalArgumentException if {@code timeSeconds} is negative.
+     */
+    public TimelinePoint getPointAt(long timeSeconds) {
+        if (timeSeconds < 0) {
+            throw new IllegalArgumentException("Time cannot be negative.");
+        }
+        synchronized (pointCache) {
+            TimelinePoint cached = pointCache.get(timeSeconds);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Computed outside the lock; two threads racing for the same point just compute it twice
+        TimelinePoint point = computePoint(timeSeconds);
+        synchronized (pointCache) {
+            pointCache.put(timeSeconds, point);
+        }
+        return point;
+    }
+
+    private TimelinePoint computePoint(long timeSeconds) {
+        double time = clampTime(timeSeconds);
+        ProfileLeg leg = legAt(time);
+        double depthFsw = leg.getDepthAt(time);
+
+        TissueWorkspace workspace = new TissueWorkspace();
+        loadTensionsAt(time, workspace);
+        TissueState tissueState = workspace.freeze();
+
+        // GF-low ceiling, the one the planner places the first stop with
+        TissueLimitSummary limits = buhlmannAlgorithmService.calculateTissueLimits(
+                tissueState, depthFsw, settings.getGradientFactors().getGfLowFraction(), initialAmbientPressureFsw);
+
+        int ndlSeconds = 0;
+        int timeToSurfaceSeconds = 0;
+        if (depthFsw > 0) {
+            try {
+                List<DecoStop> decoStops = buhlmannAlgorithmService.calculateDecompressionPlan(
+                        tissueState, depthFsw, leg.getGas(), settings, decoGases, initialAmbientPressureFsw);
+                if (decoStops.isEmpty()) {
+                    ndlSeconds = buhlmannAlgorithmService.calculateNdlMinutes(
+                            tissueState, depthFsw, leg.getGas(), settings, initialAmbientPressureFsw) * 60;
+                }
+                timeToSurfaceSeconds = (int) Math.round(
+                        buhlmannAlgorithmService.calculateTimeToSurfaceSeconds(depthFsw, decoStops, settings));
+            } catch (DecompressionLimitException e) {
+                timeToSurfaceSeconds = TimelinePoint.NO_VALID_PLAN;
+            }
+        }
+
+        return new TimelinePoint(timeSeconds, depthFsw, leg.getGas(), tissueState,
+                limits.getCeilingDepthFsw(), limits.getCurrentGradientFactor(), ndlSeconds, timeToSurfaceSeconds);
+    }
+
+    /**
+     * Loads the nearest checkpoint at or before {@code time} and integrates it forward to {@code time}.
+     * Every leg starts with a checkpoint, so the checkpoint always lies on the leg containing {@code time}.
+     */
+    private void loadTensionsAt(double time, TissueWorkspace workspace) {
+        int checkpoint = Math.max(0, lastIndexAtOrBefore(checkpointTimes, checkpointCount, time));
+        loadCheckpoint(checkpoint, workspace);
+
+        double checkpointTime = checkpointTimes[checkpoint];
+        if (time > checkpointTime) {
+            ProfileLeg leg = legAt(time);
+            buhlmannAlgorithmService.integrate(workspace, leg.getDepthAt(checkpointTime), leg.getDepthAt(time),
+                    time - checkpointTime, leg.getGas(), initialAmbientPressureFsw, false);
+        }
+    }
+
+    private void loadCheckpoint(int checkpoint, TissueWorkspace workspace) {
+        int offset = checkpoint * TISSUE_VALUES;
+        System.arraycopy(checkpointTensions, offset, workspace.n2, 0, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+        System.arraycopy(checkpointTensions, offset + DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS,
+                workspace.he, 0, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+        workspace.heliumFree = true;
+        for (double hePressure : workspace.he) {
+            if (hePressure != 0) {
+                workspace.heliumFree = false;
+                break;
+            }
+        }
+    }
+
+    private ProfileLeg legAt(double time) {
+        return legs.get(Math.max(0, lastIndexAtOrBefore(legStartTimes, legStartTimes.length, time)));
+    }
+
+    private double clampTime(double timeSeconds) {
+        return Math.max(0, Math.min(totalDurationSeconds, timeSeconds));
+    }
+
+    /**
+     * @return The last index whose value is at or before {@code time}, or -1 if there is none.
+     */
+    private static int lastIndexAtOrBefore(double[] sortedTimes, int count, double time) {
+        int low = 0;
+        int high = count - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (sortedTimes[middle] <= time) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Walks the profile once, collecting the legs and the checkpoints.
+     */
+    private static final class TimelineBuilder {
+        private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+        private final double initialAmbientPressureFsw;
+        private final int checkpointIntervalSeconds;
+        private final TissueWorkspace workspace;
+
+        final List<ProfileLeg> legs = new ArrayList<>();
+        double timeSeconds = 0;
+        int checkpointCount = 0;
+        double[] checkpointTimes = new double[32];
+        double[] checkpointTensions = new double[32 * TISSUE_VALUES];
+
+        TimelineBuilder(BuhlmannAlgorithmService buhlmannAlgorithmService, double initialAmbientPressureFsw,
+                        int checkpointIntervalSeconds, TissueState initialState) {
+            this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+            this.initialAmbientPressureFsw = initialAmbientPressureFsw;
+            this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+            this.workspace = new TissueWorkspace(initialState);
+            addCheckpoint();
+        }
+
+        /**
+         * Appends a leg and integrates across it, storing a checkpoint every interval and at its end.
+         * Legs without duration are skipped.
+         */
+        void addLeg(double durationSeconds, double startDepthFsw, double endDepthFsw, Gas gas, Double setPointAta) {
+            if (durationSeconds <= 0) {
+                return;
+            }
+            ProfileLeg leg = new ProfileLeg(timeSeconds, durationSeconds, startDepthFsw, endDepthFsw, gas, setPointAta);
+            legs.add(leg);
+
+            int steps = (int) Math.ceil(durationSeconds / checkpointIntervalSeconds);
+            double legStartTime = timeSeconds;
+            double previousOffset = 0;
+            for (int step = 1; step <= steps; step++) {
+                double offset = step == steps ? durationSeconds : (double) step * checkpointIntervalSeconds;
+                buhlmannAlgorithmService.integrate(workspace,
+                        leg.getDepthAt(legStartTime + previousOffset), leg.getDepthAt(legStartTime + offset),
+                        offset - previousOffset, gas, initialAmbientPressureFsw, false);
+                // The leg end is stored with the exact time the next leg starts at
+                timeSeconds = step == steps ? legStartTime + durationSeconds : legStartTime + offset;
+                addCheckpoint();
+                previousOffset = offset;
+            }
+        }
+
+        /**
+         * Replaces the tensions of the checkpoint at the current time (or adds one) with a known state.
+         */
+        void snapCheckpoint(TissueState state) {
+            workspace.load(state);
+            if (checkpointCount > 0 && checkpointTimes[checkpointCount - 1] == timeSeconds) {
+                checkpointCount--;
+            }
+            addCheckpoint();
+        }
+
+        private void addCheckpoint() {
+            if (checkpointCount == checkpointTimes.length) {
+                checkpointTimes = Arrays.copyOf(checkpointTimes, checkpointCount * 2);
+                checkpointTensions = Arrays.copyOf(checkpointTensions, checkpointCount * 2 * TISSUE_VALUES);
+            }
+            int offset = checkpointCount * TISSUE_VALUES;
+            System.arraycopy(workspace.n2, 0, checkpointTensions, offset, DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+            System.arraycopy(workspace.he, 0, checkpointTensions, offset + DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS,
+                    DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS);
+            checkpointTimes[checkpointCount] = timeSeconds;
+            checkpointCount++;
+        }
+    }
+}
@@ -6,11 +6,74 @@ import com.burc.novadiveplannerupdated.domain.model.GasType;
 
 import java.util.Objects;
 
+import javax.inject.Inject;
+
 /**
  * Service class for calculating oxygen toxicity (OTU, CNS%) and related parameters.
  */
 public class OxygenToxicityService {
 
+    // Based on NOAA CNS % per minute table (100 / limit_in_minutes)
+    // PPO2 (ata) | Limit (min) | %/min
+    //------------------------------------
+    // 0.5        | --          | 0.0
+    // 0.6        | 720         | 0.1389
+    // 0.7        | 570         | 0.1754
+    // 0.8        | 450         | 0.2222
+    // 0.9        | 360         | 0.2778
+    // 1.0        | 300         | 0.3333
+    // 1.1        | 240         | 0.4167
+    // 1.2        | 210         | 0.4762
+    // 1.3        | 180         | 0.5556
+    // 1.4        | 150         | 0.6667
+    // 1.5        | 120         | 0.8333
+    // 1.6        | 45          | 2.2222
+    private static final double[] CNS_PPO2_BREAKPOINTS = {
+            0.5, 0.6, 0.7, 0.8, 0.9, 1.0, 1.1, 1.2, 1.3, 1.4, 1.5, 1.6
+    };
+    private static final double[] CNS_RATES_PER_MINUTE = {
+            0.0,
+            0.1388888888888889,  // 100.0/720.0
+            0.17543859649122806, // 100.0/570.0
+            0.2222222222222222,  // 100.0/450.0
+            0.2777777777777778,  // 100.0/360.0
+            0.3333333333333333,  // 100.0/300.0
+            0.4166666666666667,  // 100.0/240.0
+            0.47619047619047616, // 100.0/210.0
+            0.5555555555555556,  // 100.0/180.0
+            0.6666666666666666,  // 100.0/150.0
+            0.8333333333333334,  // 100.0/120.0
+            2.2222222222222223   // 100.0/45.0
+    };
+    /** Number of interpolation bands, (0.5, 0.6] ... (1.5, 1.6]. */
+    private static final int CNS_BAND_COUNT = CNS_PPO2_BREAKPOINTS.length - 1;
+    /** Per band: y1 - y0 and x1 - x0 of the interpolation, computed once. */
+    private static final double[] CNS_BAND_RISE = new double[CNS_BAND_COUNT];
+    private static final double[] CNS_BAND_RUN = new double[CNS_BAND_COUNT];
+
+    /** CNS % per (ata * minute) accumulated from 0.5 ata up to each breakpoint; the antiderivative of the table. */
+    private static final double[] CNS_INTEGRAL_AT_BREAKPOINT = new double[CNS_PPO2_BREAKPOINTS.length];
+
+    static {
+        for (int i = 0; i < CNS_BAND_COUNT; i++) {
+            CNS_BAND_RISE[i] = CNS_RATES_PER_MINUTE[i + 1] - CNS_RATES_PER_MINUTE[i];
+            CNS_BAND_RUN[i] = CNS_PPO2_BREAKPOINTS[i + 1] - CNS_PPO2_BREAKPOINTS[i];
+            // Trapezoid area of the band; exact, as the rate is linear inside it
+            CNS_INTEGRAL_AT_BREAKPOINT[i + 1] = CNS_INTEGRAL_AT_BREAKPOINT[i]
+                    + CNS_BAND_RUN[i] * (CNS_RATES_PER_MINUTE[i] + CNS_RATES_PER_MINUTE[i + 1]) / 2.0;
+        }
+    }
+
+    // Bounds of the ROTS pieces (Pelagic pg. 19); see calculateRotd and calculateRots
+    private static final double OTU_THRESHOLD_PPO2 = 0.5;
+    private static final double OTU_SECOND_PPO2 = 1.0;
+    private static final double OTU_THIRD_PPO2 = 1.13;
+    private static final double OTU_FOURTH_PPO2 = 1.5;
+
+    /** Below this ppO2 change a ramp is integrated at its mid-point ppO2; avoids cancellation in F(p1) - F(p0). */
+    private static final double MIN_RAMP_PPO2_DELTA = 1e-9;
+
+    @Inject
     public OxygenToxicityService() {
         // Constructor
     }
@@ -141,50 +204,168 @@ public class OxygenToxicityService {
             ppo2Ata = 0;
         }
 
-        // Based on NOAA CNS % per minute table (100 / limit_in_minutes)
-        // PPO2 (ata) | Limit (min) | %/min
-        //------------------------------------
-        // 0.5        | --          | 0.0
-        // 0.6        | 720         | 0.1389
-        // 0.7        | 570         | 0.1754
-        // 0.8        | 450         | 0.2222
-        // 0.9        | 360         | 0.2778
-        // 1.0        | 300         | 0.3333
-        // 1.1        | 240         | 0.4167
-        // 1.2        | 210         | 0.4762
-        // 1.3        | 180         | 0.5556
-        // 1.4        | 150         | 0.6667
-        // 1.5        | 120         | 0.8333
-        // 1.6        | 45          | 2.2222
-
-        if (ppo2Ata <= 0.5) return 0.0;
-        if (ppo2Ata <= 0.6) return interpolate(ppo2Ata, 0.5, 0.6, 0.0, 0.1388888888888889); // 100.0/720.0
-        if (ppo2Ata <= 0.7) return interpolate(ppo2Ata, 0.6, 0.7, 0.1388888888888889, 0.17543859649122806); // 100.0/570.0
-        if (ppo2Ata <= 0.8) return interpolate(ppo2Ata, 0.7, 0.8, 0.17543859649122806, 0.2222222222222222);  // 100.0/450.0
-        if (ppo2Ata <= 0.9) return interpolate(ppo2Ata, 0.8, 0.9, 0.2222222222222222, 0.2777777777777778);  // 100.0/360.0
-        if (ppo2Ata <= 1.0) return interpolate(ppo2Ata, 0.9, 1.0, 0.2777777777777778, 0.3333333333333333);  // 100.0/300.0
-        if (ppo2Ata <= 1.1) return interpolate(ppo2Ata, 1.0, 1.1, 0.3333333333333333, 0.4166666666666667);  // 100.0/240.0
-        if (ppo2Ata <= 1.2) return interpolate(ppo2Ata, 1.1, 1.2, 0.4166666666666667, 0.47619047619047616); // 100.0/210.0
-        if (ppo2Ata <= 1.3) return interpolate(ppo2Ata, 1.2, 1.3, 0.47619047619047616, 0.5555555555555556); // 100.0/180.0
-        if (ppo2Ata <= 1.4) return interpolate(ppo2Ata, 1.3, 1.4, 0.5555555555555556, 0.6666666666666666); // 100.0/150.0
-        if (ppo2Ata <= 1.5) return interpolate(ppo2Ata, 1.4, 1.5, 0.6666666666666666, 0.8333333333333334); // 100.0/120.0
-        if (ppo2Ata <= 1.6) return interpolate(ppo2Ata, 1.5, 1.6, 0.8333333333333334, 2.2222222222222223); // 100.0/45.0
+        // Table lookup over the NOAA breakpoints above
+        if (ppo2Ata <= CNS_PPO2_BREAKPOINTS[0]) return 0.0;
         // For PPO2 > 1.6, the rate is the same as at 1.6 (or could be considered off-chart/dangerous)
-        // The reference VB code continues to use the 1.5-1.6 slope.
         // Pelagic document pg 20 states "Above 1.6 PO2, the limit is 45 minutes", implying the rate for 1.6 applies.
-        return 2.2222222222222223; // Rate at 1.6 ata
+        // Written as !(<=) so that NaN falls here, as it did with the original if-chain.
+        if (!(ppo2Ata <= CNS_PPO2_BREAKPOINTS[CNS_BAND_COUNT])) return CNS_RATES_PER_MINUTE[CNS_BAND_COUNT];
+
+        int band = cnsBandOf(ppo2Ata);
+        // Same operations, in the same order, as y0 + (x - x0) * (y1 - y0) / (x1 - x0),
+        // so the result is bit-for-bit that of the NOAA interpolation; only the lookup and the constants are precomputed.
+        // (Multiplying by a precomputed slope would round differently.)
+        return CNS_RATES_PER_MINUTE[band] + (ppo2Ata - CNS_PPO2_BREAKPOINTS[band]) * CNS_BAND_RISE[band] / CNS_BAND_RUN[band];
+    }
+
+    /**
+     * Batch version of {@link #calculateCnsToxicityRate(double)} for sampled timelines.
+     * Each rate is identical to the one returned for the same sample by the single-value method.
+     *
+     * @param ppo2Ata         PPO2 samples in atmospheres absolute (ata).
+     * @param ratesPerMinute  Receives the CNS rate in % per minute of each sample; at least as long as {@code ppo2Ata}.
+     * @throws IllegalArgumentException if the output array is shorter than the input.
+     */
+    public void calculateCnsToxicityRates(double[] ppo2Ata, double[] ratesPerMinute) {
+        Objects.requireNonNull(ppo2Ata, "PPO2 samples cannot be null.");
+        Objects.requireNonNull(ratesPerMinute, "Rate array cannot be null.");
+        if (ratesPerMinute.length < ppo2Ata.length) {
+            throw new IllegalArgumentException("Rate array is shorter than the PPO2 samples.");
+        }
+        for (int i = 0; i < ppo2Ata.length; i++) {
+            ratesPerMinute[i] = calculateCnsToxicityRate(ppo2Ata[i]);
+        }
     }
 
     /**
-     * Helper method for linear interpolation.
-     * Calculates y for a given x, based on two points (x0, y0) and (x1, y1).
-     * y = y0 + (x - x0) * (y1 - y0) / (x1 - x0)
+     * Calculates the CNS % accumulated while the PPO2 changes linearly in time, e.g. over an open-circuit
+     * ascent or descent at a constant rate. The piecewise-linear NOAA rate is integrated exactly across
+     * every band the ramp passes through, instead of being evaluated at the average depth.
+     *
+     * @param startPpo2Ata    PPO2 at the start of the ramp in atmospheres absolute (ata).
+     * @param endPpo2Ata      PPO2 at the end of the ramp in atmospheres absolute (ata).
+     * @param durationMinutes Duration of the ramp in minutes.
+     * @return The CNS % added over the ramp; for a constant PPO2 exactly {@code rate * durationMinutes}.
      */
-    private double interpolate(double x, double x0, double x1, double y0, double y1) {
-        if (x1 == x0) { // Avoid division by zero, should not happen with distinct PPO2 points
-            return y0; // Or y1, they should be the same if x0 == x1 implies y0 == y1
+    public double calculateCnsPercentOverRamp(double startPpo2Ata, double endPpo2Ata, double durationMinutes) {
+        if (durationMinutes <= 0) {
+            return 0.0;
+        }
+        startPpo2Ata = Math.max(0, startPpo2Ata);
+        endPpo2Ata = Math.max(0, endPpo2Ata);
+        if (startPpo2Ata == endPpo2Ata) {
+            return calculateCnsToxicityRate(startPpo2Ata) * durationMinutes;
+        }
+        if (Math.abs(endPpo2Ata - startPpo2Ata) < MIN_RAMP_PPO2_DELTA) {
+            return calculateCnsToxicityRate((startPpo2Ata + endPpo2Ata) / 2.0) * durationMinutes;
+        }
+        // Mean rate over the ramp: (F(p1) - F(p0)) / (p1 - p0), F being the antiderivative of the rate
+        return (cnsRateIntegral(endPpo2Ata) - cnsRateIntegral(startPpo2Ata)) / (endPpo2Ata - startPpo2Ata) * durationMinutes;
+    }
+
+    /**
+     * Calculates the OTUs (OTUS) accumulated while the PPO2 changes linearly in time.
+     * The piecewise ROTS polynomials of {@link #calculateRots(double, double)} are integrated exactly.
+     *
+     * @param startPpo2Ata    PPO2 at the start of the ramp in atmospheres absolute (ata).
+     * @param endPpo2Ata      PPO2 at the end of the ramp in atmospheres absolute (ata).
+     * @param durationMinutes Duration of the ramp in minutes.
+     * @return The OTUs added over the ramp; for a constant PPO2 exactly {@code rots * durationMinutes}.
+     */
+    public double calculateOtusOverRamp(double startPpo2Ata, double endPpo2Ata, double durationMinutes) {
+        if (durationMinutes <= 0) {
+            return 0.0;
+        }
+        startPpo2Ata = Math.max(0, startPpo2Ata);
+        endPpo2Ata = Math.max(0, endPpo2Ata);
+        if (startPpo2Ata == endPpo2Ata) {
+            return calculateRots(startPpo2Ata, calculateRotd(startPpo2Ata)) * durationMinutes;
+        }
+        if (Math.abs(endPpo2Ata - startPpo2Ata) < MIN_RAMP_PPO2_DELTA) {
+            double midPpo2Ata = (startPpo2Ata + endPpo2Ata) / 2.0;
+            return calculateRots(midPpo2Ata, calculateRotd(midPpo2Ata)) * durationMinutes;
+        }
+        return (otusRateIntegral(endPpo2Ata) - otusRateIntegral(startPpo2Ata)) / (endPpo2Ata - startPpo2Ata) * durationMinutes;
+    }
+
+    /**
+     * Antiderivative of the CNS rate: CNS % per minute integrated over PPO2 from 0 to {@code ppo2Ata}.
+     */
+    private static double cnsRateIntegral(double ppo2Ata) {
+        if (ppo2Ata <= CNS_PPO2_BREAKPOINTS[0]) {
+            return 0.0;
+        }
+        if (ppo2Ata > CNS_PPO2_BREAKPOINTS[CNS_BAND_COUNT]) {
+            return CNS_INTEGRAL_AT_BREAKPOINT[CNS_BAND_COUNT]
+                    + (ppo2Ata - CNS_PPO2_BREAKPOINTS[CNS_BAND_COUNT]) * CNS_RATES_PER_MINUTE[CNS_BAND_COUNT];
+        }
+        int band = cnsBandOf(ppo2Ata);
+        double dx = ppo2Ata - CNS_PPO2_BREAKPOINTS[band];
+        return CNS_INTEGRAL_AT_BREAKPOINT[band]
+                + dx * (CNS_RATES_PER_MINUTE[band] + 0.5 * dx * CNS_BAND_RISE[band] / CNS_BAND_RUN[band]);
+    }
+
+    /**
+     * Antiderivative of the ROTS rate: OTUs per minute integrated over PPO2 from 0 to {@code ppo2Ata}.
+     * Each piece is the integral of the matching polynomial in {@link #calculateRotd(double)} / {@link #calculateRots(double, double)}.
+     */
+    private static double otusRateIntegral(double ppo2Ata) {
+        if (ppo2Ata <= OTU_THRESHOLD_PPO2) {
+            return 0.0;
+        }
+        if (ppo2Ata <= OTU_SECOND_PPO2) {
+            return rotdAntiderivative(ppo2Ata) - rotdAntiderivative(OTU_THRESHOLD_PPO2);
+        }
+        double total = rotdAntiderivative(OTU_SECOND_PPO2) - rotdAntiderivative(OTU_THRESHOLD_PPO2);
+        if (ppo2Ata < OTU_THIRD_PPO2) {
+            return total + linearRotsAntiderivative(ppo2Ata) - linearRotsAntiderivative(OTU_SECOND_PPO2);
+        }
+        total += linearRotsAntiderivative(OTU_THIRD_PPO2) - linearRotsAntiderivative(OTU_SECOND_PPO2);
+        if (ppo2Ata < OTU_FOURTH_PPO2) {
+            return total + quadraticRotsAntiderivative(ppo2Ata) - quadraticRotsAntiderivative(OTU_THIRD_PPO2);
+        }
+        total += quadraticRotsAntiderivative(OTU_FOURTH_PPO2) - quadraticRotsAntiderivative(OTU_THIRD_PPO2);
+        return total + highRotsAntiderivative(ppo2Ata) - highRotsAntiderivative(OTU_FOURTH_PPO2);
+    }
+
+    // ∫ (-0.17 + 0.82p + 0.35p²) dp
+    private static double rotdAntiderivative(double p) {
+        return p * (-0.17 + p * (0.41 + p * (0.35 / 3.0)));
+    }
+
+    // ∫ (2.5p - 1.5) dp
+    private static double linearRotsAntiderivative(double p) {
+        return p * (1.25 * p - 1.5);
+    }
+
+    // ∫ (4.56 - 7.2p + 3.84p²) dp
+    private static double quadraticRotsAntiderivative(double p) {
+        return p * (4.56 + p * (-3.6 + p * 1.28));
+    }
+
+    // ∫ (41.7p - 60) dp
+    private static double highRotsAntiderivative(double p) {
+        return p * (20.85 * p - 60.0);
+    }
+
+    /**
+     * Finds the band (x0, x1] of the NOAA table that contains a PPO2 in (0.5, 1.6].
+     * The index comes straight from the 0.1 ata spacing; the comparisons only correct
+     * the rounding of PPO2 values that fall exactly on (or next to) a breakpoint.
+     */
+    private static int cnsBandOf(double ppo2Ata) {
+        int band = (int) Math.ceil((ppo2Ata - CNS_PPO2_BREAKPOINTS[0]) * 10) - 1;
+        if (band < 0) {
+            band = 0;
+        } else if (band >= CNS_BAND_COUNT) {
+            band = CNS_BAND_COUNT - 1;
+        }
+        if (ppo2Ata > CNS_PPO2_BREAKPOINTS[band + 1]) {
+            band++;
+        } else if (band > 0 && ppo2Ata <= CNS_PPO2_BREAKPOINTS[band]) {
+            band--;
         }
-        return y0 + (x - x0) * (y1 - y0) / (x1 - x0);
+        return band;
     }
 
     /**
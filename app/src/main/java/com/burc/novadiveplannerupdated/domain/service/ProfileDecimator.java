@@ -0,0 +1,211 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.model.DecimatedProfile;
+import com.burc.novadiveplannerupdated.domain.model.ProfileSeries;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Reduces the graph series of a dive to a pixel-width budget before they are drawn.
+ * <p>
+ * Each series is decimated with Largest-Triangle-Three-Buckets (LTTB): the visible samples are split into
+ * one bucket per output point, and from each bucket the sample forming the largest triangle with the previously
+ * chosen point and the average of the next bucket is kept. Peaks, stops and gas-switch steps survive, unlike
+ * with plain striding. Only the samples inside the visible window are processed, so zooming and panning cost
+ * O(visible samples), and the last results are cached per (series, window, width).
+ */
+@Singleton
+public class ProfileDecimator {
+
+    /** Number of decimated windows kept; covers a few dives and the recent zoom levels. */
+    private static final int CACHE_SIZE = 16;
+    /** LTTB needs the two end points plus at least one bucket. */
+    private static final int MIN_POINTS = 3;
+
+    private final Map<CacheKey, DecimatedProfile> cache = new LinkedHashMap<CacheKey, DecimatedProfile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, DecimatedProfile> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    @Inject
+    public ProfileDecimator() {
+    }
+
+    /**
+     * Decimates the whole dive.
+     *
+     * @see #decimate(ProfileSeries, double, double, int)
+     */
+    public DecimatedProfile decimate(ProfileSeries series, int widthPx) {
+        Objects.requireNonNull(series, "ProfileSeries cannot be null.");
+        double start = series.size() > 0 ? series.getTimeSeconds(0) : 0;
+        return decimate(series, start, start + series.getDurationSeconds(), widthPx);
+    }
+
+    /**
+     * Decimates the part of the series between two times.
+     * The samples just outside the window are included, so lines run to the edges of the view.
+     *
+     * @param series             The sampled series of one calculated dive. A new series (a new dive version)
+     *                           never shares cache entries with an older one.
+     * @param windowStartSeconds Start of the visible window.
+     * @param windowEndSeconds   End of the visible window.
+     * @param widthPx            Width of the graph in pixels; each series gets at most this many points.
+     * @return The decimated window.
+     */
+    public DecimatedProfile decimate(ProfileSeries series, double windowStartSeconds, double windowEndSeconds, int widthPx) {
+        Objects.requireNonNull(series, "ProfileSeries cannot be null.");
+        if (windowEndSeconds < windowStartSeconds) {
+            throw new IllegalArgumentException("Window end cannot be before its start.");
+        }
+        if (widthPx <= 0) {
+            throw new IllegalArgumentException("Width must be positive.");
+        }
+
+        CacheKey key = new CacheKey(series, windowStartSeconds, windowEndSeconds, widthPx);
+        synchronized (cache) {
+            DecimatedProfile cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        DecimatedProfile profile = decimateWindow(series, windowStartSeconds, windowEndSeconds, Math.max(MIN_POINTS, widthPx));
+        synchronized (cache) {
+            cache.put(key, profile);
+        }
+        return profile;
+    }
+
+    private DecimatedProfile decimateWindow(ProfileSeries series, double windowStartSeconds, double windowEndSeconds, int budget) {
+        if (series.size() == 0) {
+            double[] empty = new double[0];
+            return new DecimatedProfile(windowStartSeconds, windowEndSeconds, empty, empty, empty, empty, empty, empty);
+        }
+
+        int from = Math.max(0, series.indexAtOrBefore(windowStartSeconds));
+        int to = Math.max(from, series.indexAtOrBefore(windowEndSeconds));
+        if (to < series.size() - 1 && series.getTimeSeconds(to) < windowEndSeconds) {
+            to++; // Include the sample just past the window
+        }
+
+        double[][] depth = lttb(series, series::getDepthFsw, from, to, budget);
+        double[][] ceiling = lttb(series, series::getCeilingDepthFsw, from, to, budget);
+        double[][] ppo2 = lttb(series, series::getPpo2Ata, from, to, budget);
+        return new DecimatedProfile(windowStartSeconds, windowEndSeconds,
+                depth[0], depth[1], ceiling[0], ceiling[1], ppo2[0], ppo2[1]);
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets over samples {@code from..to} (inclusive).
+     *
+     * @return {times, values} of the selected points; all samples if they already fit the budget.
+     */
+    private static double[][] lttb(ProfileSeries series, ValueReader values, int from, int to, int budget) {
+        int count = to - from + 1;
+        if (count <= budget) {
+            double[] times = new double[count];
+            double[] selected = new double[count];
+            for (int i = 0; i < count; i++) {
+                times[i] = series.getTimeSeconds(from + i);
+                selected[i] = values.get(from + i);
+            }
+            return new double[][]{times, selected};
+        }
+
+        double[] times = new double[budget];
+        double[] selected = new double[budget];
+        double bucketSize = (double) (count - 2) / (budget - 2);
+
+        int anchor = from; // Point chosen in the previous bucket
+        times[0] = series.getTimeSeconds(from);
+        selected[0] = values.get(from);
+
+        for (int bucket = 0; bucket < budget - 2; bucket++) {
+            // Average of the next bucket (the last point for the final bucket)
+            int nextStart = from + (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * bucketSize) + 1, to + 1);
+            if (nextStart >= nextEnd) {
+                nextStart = to;
+                nextEnd = to + 1;
+            }
+            double averageTime = 0;
+            double averageValue = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageTime += series.getTimeSeconds(i);
+                averageValue += values.get(i);
+            }
+            averageTime /= (nextEnd - nextStart);
+            averageValue /= (nextEnd - nextStart);
+
+            // Point of the current bucket with the largest triangle
+            int rangeStart = from + (int) (bucket * bucketSize) + 1;
+            int rangeEnd = from + (int) ((bucket + 1) * bucketSize) + 1;
+            double anchorTime = series.getTimeSeconds(anchor);
+            double anchorValue = values.get(anchor);
+            double maxArea = -1;
+            int maxIndex = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                // Twice the triangle area; the factor does not change the maximum
+                double area = Math.abs((anchorTime - averageTime) * (values.get(i) - anchorValue)
+                        - (anchorTime - series.getTimeSeconds(i)) * (averageValue - anchorValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            times[bucket + 1] = series.getTimeSeconds(maxIndex);
+            selected[bucket + 1] = values.get(maxIndex);
+            anchor = maxIndex;
+        }
+
+        times[budget - 1] = series.getTimeSeconds(to);
+        selected[budget - 1] = values.get(to);
+        return new double[][]{times, selected};
+    }
+
+    private interface ValueReader {
+        double get(int index);
+    }
+
+    /**
+     * Cache key; the series is compared by identity, as every calculated dive produces a new one.
+     */
+    private static final class CacheKey {
+        private final ProfileSeries series;
+        private final double windowStartSeconds;
+        private final double windowEndSeconds;
+        private final int widthPx;
+
+        CacheKey(ProfileSeries series, double windowStartSeconds, double windowEndSeconds, int widthPx) {
+            this.series = series;
+            this.windowStartSeconds = windowStartSeconds;
+            this.windowEndSeconds = windowEndSeconds;
+            this.widthPx = widthPx;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey that = (CacheKey) o;
+            return series == that.series &&
+                    Double.compare(that.windowStartSeconds, windowStartSeconds) == 0 &&
+                    Double.compare(that.windowEndSeconds, windowEndSeconds) == 0 &&
+                    widthPx == that.widthPx;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(series), windowStartSeconds, windowEndSeconds, widthPx);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputed per-compartment rate constants and decay factors e^(-k*t) for the tissue integrators.
+ * The decay factor depends only on the half-time and the step length, so the fixed steps the planner
+ * uses (1 s and 60 s at depth, 60 s on the surface) are built once, and the leg integrator looks up
+ * arbitrary durations in a small cache. The inner loops then only do multiply-adds.
+ * <p>
+ * Instances are immutable apart from the cache, whose entries are immutable and safely published,
+ * so one table can be shared by any number of threads.
+ */
+final class TissueDecayTable {
+
+    private static final int N = DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS;
+    /** Direct-mapped cache size for arbitrary durations; must be a power of two. */
+    private static final int DURATION_CACHE_SIZE = 64;
+
+    /** Rate constants k = ln2 / half-time, per minute. */
+    final double[] kN2 = new double[N];
+    final double[] kHe = new double[N];
+    final double[] kN2Surface = new double[N];
+    final double[] kHeSurface = new double[N];
+
+    /** 1 / k, in minutes; used by the Schreiner equation. */
+    final double[] inverseKN2 = new double[N];
+    final double[] inverseKHe = new double[N];
+    final double[] inverseKN2Surface = new double[N];
+    final double[] inverseKHeSurface = new double[N];
+
+    /** Per-step decay factors for the stepped integrator: 1 s at depth, 60 s on the surface. */
+    final Decay oneSecond;
+    final Decay oneMinuteSurface;
+
+    private final AtomicReferenceArray<Decay> durationCache = new AtomicReferenceArray<>(DURATION_CACHE_SIZE);
+
+    /**
+     * Decay factors for one step length and set of half-times (depth or surface).
+     */
+    static final class Decay {
+        final double durationMinutes;
+        final boolean surface;
+        final double[] n2;
+        final double[] he;
+
+        private Decay(double durationMinutes, boolean surface, double[] n2, double[] he) {
+            this.durationMinutes = durationMinutes;
+            this.surface = surface;
+            this.n2 = n2;
+            this.he = he;
+        }
+    }
+
+    TissueDecayTable() {
+        for (int i = 0; i < N; i++) {
+            kN2[i] = DiveConstants.LN_2 / DiveConstants.N2_HALF_TIMES_MIN[i];
+            kHe[i] = DiveConstants.LN_2 / DiveConstants.HE_HALF_TIMES_MIN[i];
+            kN2Surface[i] = DiveConstants.LN_2 / DiveConstants.N2_SURFACE_HALF_TIMES_MIN[i];
+            kHeSurface[i] = DiveConstants.LN_2 / DiveConstants.HE_SURFACE_HALF_TIMES_MIN[i];
+            inverseKN2[i] = 1.0 / kN2[i];
+            inverseKHe[i] = 1.0 / kHe[i];
+            inverseKN2Surface[i] = 1.0 / kN2Surface[i];
+            inverseKHeSurface[i] = 1.0 / kHeSurface[i];
+        }
+        oneSecond = buildStepDecay(1.0, false);
+        oneMinuteSurface = buildStepDecay(60.0, true);
+    }
+
+    /**
+     * Builds the per-step factors exactly as the stepped integrator has always evaluated them:
+     * k_step = ln2 / (half-time * steps per minute), decay = e^(-k_step).
+     */
+    private static Decay buildStepDecay(double stepSeconds, boolean surface) {
+        double[] n2HalfTimes = surface ? DiveConstants.N2_SURFACE_HALF_TIMES_MIN : DiveConstants.N2_HALF_TIMES_MIN;
+        double[] heHalfTimes = surface ? DiveConstants.HE_SURFACE_HALF_TIMES_MIN : DiveConstants.HE_HALF_TIMES_MIN;
+        double[] n2 = new double[N];
+        double[] he = new double[N];
+        for (int i = 0; i < N; i++) {
+            n2[i] = Math.exp(-(DiveConstants.LN_2 / (n2HalfTimes[i] * (60.0 / stepSeconds))));
+            he[i] = Math.exp(-(DiveConstants.LN_2 / (heHalfTimes[i] * (60.0 / stepSeconds))));
+        }
+        return new Decay(stepSeconds / 60.0, surface, n2, he);
+    }
+
+    /**
+     * Returns the decay factors e^(-k*t) for an arbitrary leg duration, computing and caching them on a miss.
+     *
+     * @param durationMinutes Leg duration in minutes.
+     * @param surface         True to use the surface half-times.
+     * @return Decay factors for every compartment and gas. The arrays must not be modified.
+     */
+    Decay forDuration(double durationMinutes, boolean surface) {
+        long bits = Double.doubleToLongBits(durationMinutes);
+        int hash = (int) (bits ^ (bits >>> 32)) * 0x9E3779B9 + (surface ? 1 : 0);
+        int slot = (hash ^ (hash >>> 16)) & (DURATION_CACHE_SIZE - 1);
+
+        Decay cached = durationCache.get(slot);
+        if (cached != null && cached.surface == surface
+                && Double.doubleToLongBits(cached.durationMinutes) == bits) {
+            return cached;
+        }
+
+        double[] k2 = surface ? kN2Surface : kN2;
+        double[] kH = surface ? kHeSurface : kHe;
+        double[] n2 = new double[N];
+        double[] he = new double[N];
+        for (int i = 0; i < N; i++) {
+            n2[i] = Math.exp(-k2[i] * durationMinutes);
+            he[i] = Math.exp(-kH[i] * durationMinutes);
+        }
+        Decay computed = new Decay(durationMinutes, surface, n2, he);
+        durationCache.set(slot, computed);
+        return computed;
+    }
+}
@@ -0,0 +1,68 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.common.DiveConstants;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+
+/**
+ * Mutable working copy of the 17 compartment tensions used inside the planner loops.
+ * The calculators update the arrays in place, so simulating a step does not allocate.
+ * A workspace is confined to the call that created it and is turned into an immutable
+ * {@link TissueState} with {@link #freeze()} only when a result leaves the service.
+ */
+final class TissueWorkspace {
+
+    final double[] n2 = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+    final double[] he = new double[DiveConstants.NUMBER_OF_TISSUE_COMPARTMENTS];
+
+    /**
+     * True while every helium tension is exactly zero. Breathing a helium-free gas keeps it that way,
+     * so the kernels can skip the helium arithmetic until a trimix/heliox leg sets it to false.
+     */
+    boolean heliumFree = true;
+
+    // Results of the last CompartmentKernel evaluation of these tensions
+    boolean withinMValues;
+    int controllingCompartment;
+    double controllingAMixFsw;
+    double controllingBMix;
+    double ceilingAbsoluteFsw;
+    double evaluatedGradientFactor;
+    double currentGradientFactor;
+
+    TissueWorkspace() {
+    }
+
+    TissueWorkspace(TissueState initialState) {
+        load(initialState);
+    }
+
+    /**
+     * Overwrites this workspace with the tensions of an immutable state.
+     */
+    void load(TissueState state) {
+        state.copyInto(n2, he);
+        heliumFree = true;
+        for (double hePressure : he) {
+            if (hePressure != 0) {
+                heliumFree = false;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Overwrites this workspace with the tensions of another workspace.
+     */
+    void copyFrom(TissueWorkspace other) {
+        System.arraycopy(other.n2, 0, n2, 0, n2.length);
+        System.arraycopy(other.he, 0, he, 0, he.length);
+        heliumFree = other.heliumFree;
+    }
+
+    /**
+     * @return An immutable snapshot of the current tensions.
+     */
+    TissueState freeze() {
+        return new TissueState(n2, he);
+    }
+}
@@ -0,0 +1,45 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.service.LazyDiveTimeline;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case responsible for building the {@link LazyDiveTimeline} of a calculated Dive,
+ * the source of the profile graph and of the per-instant NDL/TTS readouts.
+ */
+public class BuildDiveTimelineUseCase {
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public BuildDiveTimelineUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                    GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                    CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case on the interactive calculation scheduler.
+     *
+     * @param calculatedDive A Dive whose segments all hold their calculated results.
+     * @param settings       The settings the Dive was calculated with.
+     * @return A Single that emits the timeline of the Dive.
+     */
+    public Single<LazyDiveTimeline> execute(Dive calculatedDive, DiveSettings settings) {
+        return getAvailableGasesUseCase.execute()
+                .observeOn(calculationSchedulers.interactive())
+                .map(decoGases -> LazyDiveTimeline.create(buhlmannAlgorithmService, calculatedDive, settings, decoGases));
+    }
+}
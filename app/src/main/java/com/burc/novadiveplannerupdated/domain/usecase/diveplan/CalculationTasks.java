@@ -0,0 +1,42 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+
+import java.util.concurrent.CancellationException;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Runs synchronous calculations as Singles on a calculation scheduler.
+ */
+final class CalculationTasks {
+
+    /**
+     * A calculation that polls its {@link CancellationToken} at safe points.
+     */
+    interface Calculation<T> {
+        T calculate(CancellationToken cancellationToken);
+    }
+
+    private CalculationTasks() {
+        // Utility class, no instantiation.
+    }
+
+    /**
+     * @return A Single that runs {@code calculation} on {@code scheduler} when subscribed, and cancels it
+     *         through its token when disposed.
+     */
+    static <T> Single<T> cancellableTask(Calculation<T> calculation, Scheduler scheduler) {
+        return Single.<T>create(emitter -> {
+            CancellationToken cancellationToken = new CancellationToken();
+            emitter.setCancellable(cancellationToken::cancel);
+            try {
+                emitter.onSuccess(calculation.calculate(cancellationToken));
+            } catch (CancellationException e) {
+                // Disposed while calculating; nobody is listening for the result any more
+                emitter.tryOnError(e);
+            }
+        }).subscribeOn(scheduler);
+    }
+}
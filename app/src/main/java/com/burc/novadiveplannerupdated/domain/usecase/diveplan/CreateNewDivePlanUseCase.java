@@ -14,8 +14,8 @@ import io.reactivex.rxjava3.core.Single;
 
 /**
  * Use case responsible for creating a new, empty DivePlan
- * every time the application starts or when a new plan is requested.
- * This DivePlan is not persisted locally.
+ * when the application starts without a saved plan or when a new plan is requested.
+ * The plan is saved once it is set as the active plan.
  */
 public class CreateNewDivePlanUseCase {
 
@@ -0,0 +1,348 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.BottomTimeConstraints;
+import com.burc.novadiveplannerupdated.domain.model.BottomTimeSolution;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.SegmentCalculationResult;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.service.DecoWorkspace;
+import com.burc.novadiveplannerupdated.domain.service.DecompressionLimitException;
+import com.burc.novadiveplannerupdated.domain.service.GasConsumptionService;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case that plans backwards: finds the longest bottom time that keeps a dive within a TTS, run time
+ * and/or back gas budget, e.g. "the longest time at 200 ft with TTS &lt;= 60 min and back gas &lt;= 2/3".
+ * <p>
+ * The bottom segment is the deepest segment of the dive (the last one if several share the maximum depth);
+ * the segments after it are kept as planned. A longer bottom time never shortens the ascent, the run time or
+ * the gas used, so the limits are monotone in the bottom time: the solver doubles the bottom time until a
+ * limit breaks, then bisects to the whole minute.
+ * <p>
+ * The tissue state on arrival at the bottom (after the descent) is calculated once; every probe starts from
+ * it and only integrates the time at depth, the later segments and the decompression. Plans are abandoned as
+ * soon as their stops exceed the TTS or run time limit, and count as breaking the limits when a stop cannot be
+ * cleared within the planner's maximum stop time.
+ */
+public class FindMaxBottomTimeUseCase {
+
+    /** Longest bottom time the solver considers. */
+    public static final long MAX_BOTTOM_TIME_SECONDS = TimeUnit.HOURS.toSeconds(6);
+    private static final long STEP_SECONDS = 60; // Bottom times are solved to the whole minute
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final GasConsumptionService gasConsumptionService;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public FindMaxBottomTimeUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                    GasConsumptionService gasConsumptionService,
+                                    GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                    CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.gasConsumptionService = gasConsumptionService;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case without a time budget.
+     *
+     * @see #execute(Dive, DiveSettings, BottomTimeConstraints, long)
+     */
+    public Single<BottomTimeSolution> execute(Dive dive, DiveSettings settings, BottomTimeConstraints constraints) {
+        return execute(dive, settings, constraints, 0);
+    }
+
+    /**
+     * Executes the use case, using the currently enabled gases for decompression.
+     * Disposing the returned Single stops the search.
+     *
+     * @param dive             The planned dive; the duration entered on its bottom segment is ignored.
+     * @param settings         The dive settings of the plan.
+     * @param constraints      The limits to stay within.
+     * @param timeBudgetMillis Calculation time after which the best bottom time found so far is returned,
+     *                         marked as not converged; 0 for no budget.
+     * @return A Single that emits the solution.
+     */
+    public Single<BottomTimeSolution> execute(Dive dive, DiveSettings settings, BottomTimeConstraints constraints,
+                                              long timeBudgetMillis) {
+        Objects.requireNonNull(dive, "Dive cannot be null.");
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(constraints, "BottomTimeConstraints cannot be null.");
+        if (dive.getSegments().isEmpty()) {
+            return Single.error(new IllegalArgumentException("Cannot solve the bottom time of a dive without segments."));
+        }
+        if (timeBudgetMillis < 0) {
+            return Single.error(new IllegalArgumentException("Time budget cannot be negative. Was: " + timeBudgetMillis));
+        }
+
+        return getAvailableGasesUseCase.execute()
+                .flatMap(decoGases -> CalculationTasks.cancellableTask(cancellationToken ->
+                                solve(dive, settings, constraints, decoGases, timeBudgetMillis, cancellationToken),
+                        calculationSchedulers.interactive()));
+    }
+
+    private BottomTimeSolution solve(Dive dive, DiveSettings settings, BottomTimeConstraints constraints,
+                                     List<Gas> decoGases, long timeBudgetMillis, CancellationToken cancellationToken) {
+        long deadlineNanos = timeBudgetMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis) : 0;
+        Solver solver = new Solver(dive, settings, constraints, decoGases, cancellationToken);
+
+        // Shortest bottom time: the descent alone, rounded up to the minute
+        long low = Math.max(STEP_SECONDS, (long) Math.ceil(solver.arrivalTransitSeconds / STEP_SECONDS) * STEP_SECONDS);
+        Probe best = solver.probe(low, true);
+        if (!best.feasible) {
+            // Plan it in full to report its real figures
+            return solver.probe(low, false).toSolution(false, true, solver.probeCount);
+        }
+
+        // Double until a limit breaks, then bisect between the last feasible and the first infeasible time
+        long high = 0;
+        long step = STEP_SECONDS;
+        while (high == 0 && low < MAX_BOTTOM_TIME_SECONDS) {
+            if (isPastDeadline(deadlineNanos)) {
+                return best.toSolution(true, false, solver.probeCount);
+            }
+            long candidate = Math.min(MAX_BOTTOM_TIME_SECONDS, low + step);
+            Probe probe = solver.probe(candidate, true);
+            if (probe.feasible) {
+                low = candidate;
+                best = probe;
+                step *= 2;
+            } else {
+                high = candidate;
+            }
+        }
+        while (high - low > STEP_SECONDS) {
+            if (isPastDeadline(deadlineNanos)) {
+                return best.toSolution(true, false, solver.probeCount);
+            }
+            long middle = low + (high - low) / STEP_SECONDS / 2 * STEP_SECONDS;
+            Probe probe = solver.probe(middle, true);
+            if (probe.feasible) {
+                low = middle;
+                best = probe;
+            } else {
+                high = middle;
+            }
+        }
+        return best.toSolution(true, true, solver.probeCount);
+    }
+
+    private static boolean isPastDeadline(long deadlineNanos) {
+        return deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Plans the dive for one bottom time at a time, from state calculated once up to the arrival at the bottom.
+     */
+    private final class Solver {
+        private final List<DiveSegment> segments;
+        private final DiveSettings settings;
+        private final BottomTimeConstraints constraints;
+        private final List<Gas> decoGases;
+        private final CancellationToken cancellationToken;
+        private final DecoWorkspace workspace = new DecoWorkspace();
+        private final double initialAmbientPressureFsw;
+
+        private final int bottomIndex;
+        private final Gas backGas;
+        private final double backGasBudgetCuft;
+
+        // Warm start: everything up to the arrival at the bottom depth
+        private final TissueState arrivalTissueState;
+        private final double arrivalTransitSeconds;
+        private final double runtimeBeforeBottomSeconds;
+        private final double backGasBeforeArrivalCuft;
+
+        int probeCount;
+
+        Solver(Dive dive, DiveSettings settings, BottomTimeConstraints constraints, List<Gas> decoGases,
+               CancellationToken cancellationToken) {
+            this.segments = dive.getSegments();
+            this.settings = settings;
+            this.constraints = constraints;
+            this.decoGases = decoGases;
+            this.cancellationToken = cancellationToken;
+            this.initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+
+            int deepestIndex = 0;
+            for (int i = 1; i < segments.size(); i++) {
+                if (segments.get(i).getTargetDepth() >= segments.get(deepestIndex).getTargetDepth()) {
+                    deepestIndex = i;
+                }
+            }
+            this.bottomIndex = deepestIndex;
+            this.backGas = segments.get(deepestIndex).getGas();
+            this.backGasBudgetCuft = constraints.getMaxBackGasFraction() != null
+                    ? constraints.getMaxBackGasFraction() * backGas.getTankCapacity()
+                    : Double.POSITIVE_INFINITY;
+
+            SegmentWalker prefix = SegmentWalker.walk(buhlmannAlgorithmService, dive, bottomIndex, settings);
+            this.runtimeBeforeBottomSeconds = prefix.getRuntimeSeconds();
+            double backGasCuft = prefix.getGasConsumedCuft(backGas.getSlotNumber());
+
+            // The descent to the bottom alone: a zero duration segment ends on arrival
+            DiveSegment bottomSegment = segments.get(bottomIndex);
+            SegmentCalculationResult arrival = prefix.calculate(
+                    new DiveSegment.Builder(bottomSegment).userInputTotalDurationInSeconds(0).build());
+            this.arrivalTissueState = arrival.getTissueStateAtEndOfSegment();
+            this.arrivalTransitSeconds = arrival.getCalculatedTransitDurationSeconds() != null
+                    ? arrival.getCalculatedTransitDurationSeconds() : 0;
+            this.backGasBeforeArrivalCuft = backGasCuft + arrival.getGasConsumedCuft();
+        }
+
+        /**
+         * @param abandonOverLimit True to give up on the decompression as soon as it breaks a time limit, and to
+         *                         treat a stop that cannot be cleared as breaking it.
+         * @throws DecompressionLimitException if {@code abandonOverLimit} is false and a stop cannot be cleared.
+         */
+        Probe probe(long bottomTimeSeconds, boolean abandonOverLimit) {
+            cancellationToken.throwIfCancelled();
+            probeCount++;
+
+            // Time at depth from the arrival state; previous depth = bottom depth means no transit
+            DiveSegment bottomSegment = segments.get(bottomIndex);
+            SegmentCalculationResult atDepth = buhlmannAlgorithmService.calculateLoadingForDiveSegment(
+                    arrivalTissueState,
+                    new DiveSegment.Builder(bottomSegment)
+                            // Durations are whole seconds; a fractional descent time is rounded here
+                            .userInputTotalDurationInSeconds(Math.round(bottomTimeSeconds - arrivalTransitSeconds))
+                            .build(),
+                    bottomSegment.getGas(),
+                    bottomSegment.getTargetDepth(),
+                    settings);
+            TissueState tissueState = atDepth.getTissueStateAtEndOfSegment();
+            double runtimeSeconds = runtimeBeforeBottomSeconds + Math.max(bottomTimeSeconds, arrivalTransitSeconds);
+            double backGasCuft = backGasBeforeArrivalCuft + atDepth.getGasConsumedCuft();
+            double depthFsw = bottomSegment.getTargetDepth();
+            Gas gas = bottomSegment.getGas();
+
+            for (int i = bottomIndex + 1; i < segments.size(); i++) {
+                DiveSegment segment = segments.get(i);
+                SegmentCalculationResult result = buhlmannAlgorithmService.calculateLoadingForDiveSegment(
+                        tissueState, segment, gas, depthFsw, settings);
+                tissueState = result.getTissueStateAtEndOfSegment();
+                runtimeSeconds += SegmentWalker.segmentDurationSeconds(segment, result.getCalculatedTransitDurationSeconds());
+                if (isBackGas(segment.getGas())) {
+                    backGasCuft += result.getGasConsumedCuft();
+                }
+                depthFsw = segment.getTargetDepth();
+                gas = segment.getGas();
+            }
+
+            double timeToSurfaceLimitSeconds = Double.POSITIVE_INFINITY;
+            if (constraints.getMaxTimeToSurfaceSeconds() != null) {
+                timeToSurfaceLimitSeconds = constraints.getMaxTimeToSurfaceSeconds();
+            }
+            if (constraints.getMaxTotalRuntimeSeconds() != null) {
+                timeToSurfaceLimitSeconds = Math.min(timeToSurfaceLimitSeconds,
+                        constraints.getMaxTotalRuntimeSeconds() - runtimeSeconds);
+            }
+            List<DecoStop> decoStops;
+            try {
+                decoStops = buhlmannAlgorithmService.calculateDecompressionPlan(
+                        tissueState, depthFsw, gas, settings, decoGases, initialAmbientPressureFsw, workspace,
+                        abandonOverLimit ? timeToSurfaceLimitSeconds : Double.POSITIVE_INFINITY, cancellationToken);
+            } catch (DecompressionLimitException e) {
+                if (!abandonOverLimit) {
+                    throw e; // Planned in full for its figures, but there is no valid plan to report
+                }
+                // No valid plan at this bottom time, nor at any longer one
+                return new Probe(false, bottomTimeSeconds, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, backGasCuft);
+            }
+            if (decoStops == null) {
+                // Already over a time limit part way up
+                return new Probe(false, bottomTimeSeconds, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, backGasCuft);
+            }
+            double timeToSurfaceSeconds = buhlmannAlgorithmService.calculateTimeToSurfaceSeconds(depthFsw, decoStops, settings);
+            backGasCuft += calculateAscentBackGasCuft(depthFsw, gas, decoStops, timeToSurfaceSeconds);
+            double totalRuntimeSeconds = runtimeSeconds + timeToSurfaceSeconds;
+
+            boolean feasible = timeToSurfaceSeconds <= timeToSurfaceLimitSeconds
+                    && (constraints.getMaxTotalRuntimeSeconds() == null
+                        || totalRuntimeSeconds <= constraints.getMaxTotalRuntimeSeconds())
+                    && backGasCuft <= backGasBudgetCuft;
+            return new Probe(feasible, bottomTimeSeconds, timeToSurfaceSeconds, totalRuntimeSeconds, backGasCuft);
+        }
+
+        /**
+         * Back gas breathed on the ascent at the deco RMV: the stops on it, and each ascent leg on the gas of the
+         * previous stop (the switch happens on arrival), with the leg times of the TTS.
+         */
+        private double calculateAscentBackGasCuft(double bottomDepthFsw, Gas gasAtEndOfBottom, List<DecoStop> decoStops,
+                                                  double timeToSurfaceSeconds) {
+            double rmvDecoCuFtMin = settings.getSurfaceConsumptionRates().getRmvDecoCuFtMin();
+            double[] stopEndSeconds = buhlmannAlgorithmService.calculateStopEndTimesSeconds(bottomDepthFsw, decoStops, settings);
+            double consumedCuft = 0;
+            double depthFsw = bottomDepthFsw;
+            Gas gas = gasAtEndOfBottom;
+            double legStartSeconds = 0;
+            for (int i = 0; i < decoStops.size(); i++) {
+                DecoStop stop = decoStops.get(i);
+                double stopStartSeconds = stopEndSeconds[i] - stop.getDurationMinutes() * 60.0;
+                if (isBackGas(gas)) {
+                    consumedCuft += gasConsumptionService.calculateTotalGasConsumedCuft(rmvDecoCuFtMin,
+                            (depthFsw + stop.getDepthFsw()) / 2.0, (stopStartSeconds - legStartSeconds) / 60.0,
+                            initialAmbientPressureFsw);
+                }
+                if (isBackGas(stop.getGas())) {
+                    consumedCuft += gasConsumptionService.calculateTotalGasConsumedCuft(rmvDecoCuFtMin,
+                            stop.getDepthFsw(), stop.getDurationMinutes(), initialAmbientPressureFsw);
+                }
+                depthFsw = stop.getDepthFsw();
+                gas = stop.getGas();
+                legStartSeconds = stopEndSeconds[i];
+            }
+            if (isBackGas(gas)) {
+                consumedCuft += gasConsumptionService.calculateTotalGasConsumedCuft(rmvDecoCuFtMin,
+                        depthFsw / 2.0, (timeToSurfaceSeconds - legStartSeconds) / 60.0, initialAmbientPressureFsw);
+            }
+            return consumedCuft;
+        }
+
+        private boolean isBackGas(Gas gas) {
+            return gas != null && gas.getSlotNumber() == backGas.getSlotNumber();
+        }
+    }
+
+    private static final class Probe {
+        final boolean feasible;
+        final long bottomTimeSeconds;
+        final double timeToSurfaceSeconds;
+        final double totalRuntimeSeconds;
+        final double backGasConsumedCuft;
+
+        Probe(boolean feasible, long bottomTimeSeconds, double timeToSurfaceSeconds, double totalRuntimeSeconds,
+              double backGasConsumedCuft) {
+            this.feasible = feasible;
+            this.bottomTimeSeconds = bottomTimeSeconds;
+            this.timeToSurfaceSeconds = timeToSurfaceSeconds;
+            this.totalRuntimeSeconds = totalRuntimeSeconds;
+            this.backGasConsumedCuft = backGasConsumedCuft;
+        }
+
+        BottomTimeSolution toSolution(boolean feasible, boolean converged, int probeCount) {
+            return new BottomTimeSolution(feasible, converged, bottomTimeSeconds,
+                    (int) Math.round(timeToSurfaceSeconds),
+                    (int) Math.round(totalRuntimeSeconds),
+                    backGasConsumedCuft, probeCount);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.model.ContingencyTable;
+import com.burc.novadiveplannerupdated.domain.model.ContingencyVariant;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case that builds the contingency schedules of a dive: the same dive with its deepest segment
+ * made deeper and/or longer by every combination of a grid of depth and bottom time offsets.
+ * <p>
+ * Everything before the deepest segment is the same in every variant, so its tissue state is calculated
+ * once (or taken from the calculated Dive's checkpoint) and shared. Each variant then only calculates the
+ * deepest segment, the segments after it and its decompression. The variants are independent and run in
+ * parallel on the background scheduler of the shared calculation pool. Queued variants yield to interactive
+ * work, and running variants leave one thread free for it, so the plan on screen is calculated without waiting
+ * for the table (on a single-thread pool it waits for at most the variant already running).
+ */
+public class GenerateContingencyTableUseCase {
+
+    /** Default depth offsets: the plan itself, then 10 ft steps deeper. */
+    public static final double[] DEFAULT_DEPTH_OFFSETS_FSW = {0, 10, 20, 30, 40};
+    /** Default bottom time offsets: the plan itself, then 5 minute steps longer. */
+    public static final long[] DEFAULT_BOTTOM_TIME_OFFSETS_SECONDS = {0, 5 * 60, 10 * 60, 15 * 60, 20 * 60};
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public GenerateContingencyTableUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                           GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                           CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case with the default 5x5 grid.
+     *
+     * @see #execute(Dive, DiveSettings, double[], long[])
+     */
+    public Single<ContingencyTable> execute(Dive dive, DiveSettings settings) {
+        return execute(dive, settings, DEFAULT_DEPTH_OFFSETS_FSW, DEFAULT_BOTTOM_TIME_OFFSETS_SECONDS);
+    }
+
+    /**
+     * Executes the use case, using the currently enabled gases for decompression.
+     * Disposing the returned Single cancels the variants that are still running.
+     *
+     * @param dive                     The planned dive. If it is calculated, the checkpoint before its deepest
+     *                                 segment is reused; otherwise that prefix is calculated once.
+     * @param settings                 The dive settings of the plan.
+     * @param depthOffsetsFsw          Offsets added to the deepest segment's depth (fsw).
+     * @param bottomTimeOffsetsSeconds Offsets added to the deepest segment's duration (seconds).
+     * @return A Single that emits the table, with one variant per combination of offsets. It fails with a
+     *         {@link com.burc.novadiveplannerupdated.domain.service.DecompressionLimitException} if a variant has
+     *         a stop that cannot be cleared, as the table would then list a schedule that cannot be dived.
+     */
+    public Single<ContingencyTable> execute(Dive dive, DiveSettings settings,
+                                            double[] depthOffsetsFsw, long[] bottomTimeOffsetsSeconds) {
+        Objects.requireNonNull(dive, "Dive cannot be null.");
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(depthOffsetsFsw, "Depth offsets cannot be null.");
+        Objects.requireNonNull(bottomTimeOffsetsSeconds, "Bottom time offsets cannot be null.");
+        if (dive.getSegments().isEmpty()) {
+            return Single.error(new IllegalArgumentException("Cannot build contingency schedules for a dive without segments."));
+        }
+        if (depthOffsetsFsw.length == 0 || bottomTimeOffsetsSeconds.length == 0) {
+            return Single.error(new IllegalArgumentException("At least one depth and one bottom time offset are required."));
+        }
+        double[] depthOffsets = depthOffsetsFsw.clone();
+        long[] timeOffsets = bottomTimeOffsetsSeconds.clone();
+
+        return getAvailableGasesUseCase.execute()
+                .observeOn(calculationSchedulers.background())
+                .flatMap(decoGases -> {
+                    SharedPrefix prefix = calculateSharedPrefix(dive, settings);
+
+                    List<Single<ContingencyVariant>> variants = new ArrayList<>(depthOffsets.length * timeOffsets.length);
+                    for (double depthOffsetFsw : depthOffsets) {
+                        for (long timeOffsetSeconds : timeOffsets) {
+                            variants.add(calculateVariantAsync(prefix, dive, settings, decoGases,
+                                    depthOffsetFsw, timeOffsetSeconds));
+                        }
+                    }
+                    // zip keeps the grid order whatever order the variants finish in
+                    return Single.zip(variants, results -> {
+                        List<ContingencyVariant> table = new ArrayList<>(results.length);
+                        for (Object result : results) {
+                            table.add((ContingencyVariant) result);
+                        }
+                        return new ContingencyTable(depthOffsets, timeOffsets, table);
+                    });
+                });
+    }
+
+    private Single<ContingencyVariant> calculateVariantAsync(SharedPrefix prefix, Dive dive, DiveSettings settings,
+                                                             List<Gas> decoGases, double depthOffsetFsw,
+                                                             long timeOffsetSeconds) {
+        return CalculationTasks.cancellableTask(cancellationToken -> calculateVariant(prefix, dive, settings, decoGases,
+                depthOffsetFsw, timeOffsetSeconds, cancellationToken), calculationSchedulers.background());
+    }
+
+    /**
+     * Finds the deepest segment (the last one if several share the maximum depth) and the state before it,
+     * reusing the Dive's calculated results where they exist.
+     */
+    private SharedPrefix calculateSharedPrefix(Dive dive, DiveSettings settings) {
+        List<DiveSegment> segments = dive.getSegments();
+        int deepestIndex = 0;
+        for (int i = 1; i < segments.size(); i++) {
+            if (segments.get(i).getTargetDepth() >= segments.get(deepestIndex).getTargetDepth()) {
+                deepestIndex = i;
+            }
+        }
+        return new SharedPrefix(deepestIndex, SegmentWalker.walk(buhlmannAlgorithmService, dive, deepestIndex, settings));
+    }
+
+    private ContingencyVariant calculateVariant(SharedPrefix prefix, Dive dive, DiveSettings settings,
+                                                List<Gas> decoGases, double depthOffsetFsw, long timeOffsetSeconds,
+                                                CancellationToken cancellationToken) {
+        List<DiveSegment> segments = dive.getSegments();
+        DiveSegment deepestSegment = segments.get(prefix.deepestIndex);
+        double variantDepthFsw = deepestSegment.getTargetDepth() + depthOffsetFsw;
+        long variantDurationSeconds = deepestSegment.getUserInputTotalDurationInSeconds() + timeOffsetSeconds;
+        if (variantDepthFsw < 0 || variantDurationSeconds < 0) {
+            throw new IllegalArgumentException("Offsets (" + depthOffsetFsw + " fsw, " + timeOffsetSeconds
+                    + " s) make the deepest segment negative.");
+        }
+
+        // The segments from the deepest one on differ from the Dive's, so they are always calculated
+        SegmentWalker variant = prefix.walker.copy();
+        double maxDepthFsw = 0;
+        for (int i = prefix.deepestIndex; i < segments.size(); i++) {
+            cancellationToken.throwIfCancelled();
+            DiveSegment segment = i == prefix.deepestIndex
+                    ? new DiveSegment.Builder(deepestSegment)
+                            .targetDepth(variantDepthFsw)
+                            .userInputTotalDurationInSeconds(variantDurationSeconds)
+                            .build()
+                    : segments.get(i);
+            variant.calculate(segment);
+            maxDepthFsw = Math.max(maxDepthFsw, segment.getTargetDepth());
+        }
+        for (int i = 0; i < prefix.deepestIndex; i++) {
+            maxDepthFsw = Math.max(maxDepthFsw, segments.get(i).getTargetDepth());
+        }
+        double depthFsw = variant.getDepthFsw();
+        double runtimeSeconds = variant.getRuntimeSeconds();
+
+        List<DecoStop> decoStops = buhlmannAlgorithmService.calculateDecompressionPlan(
+                variant.getTissueState(),
+                depthFsw,
+                variant.getGas(),
+                settings,
+                decoGases,
+                settings.getAltitudeLevel().getInitialAmbientPressureFsw(),
+                cancellationToken
+        );
+        double timeToSurfaceSeconds = buhlmannAlgorithmService.calculateTimeToSurfaceSeconds(depthFsw, decoStops, settings);
+        double[] stopEndTimesSeconds = buhlmannAlgorithmService.calculateStopEndTimesSeconds(depthFsw, decoStops, settings);
+        int[] runtimeAtStopEndSeconds = new int[stopEndTimesSeconds.length];
+        for (int i = 0; i < stopEndTimesSeconds.length; i++) {
+            runtimeAtStopEndSeconds[i] = (int) Math.round(runtimeSeconds + stopEndTimesSeconds[i]);
+        }
+
+        return new ContingencyVariant(
+                depthOffsetFsw,
+                timeOffsetSeconds,
+                maxDepthFsw,
+                runtimeSeconds,
+                decoStops,
+                runtimeAtStopEndSeconds,
+                (int) Math.round(timeToSurfaceSeconds),
+                (int) Math.round(runtimeSeconds + timeToSurfaceSeconds),
+                variant.getCnsPercent(),
+                variant.getOtu(),
+                variant.getGasConsumedCuft()
+        );
+    }
+
+    /**
+     * State at the start of the deepest segment, shared read-only by every variant; each variant walks on
+     * from a copy.
+     */
+    private static final class SharedPrefix {
+        final int deepestIndex;
+        final SegmentWalker walker;
+
+        SharedPrefix(int deepestIndex, SegmentWalker walker) {
+            this.deepestIndex = deepestIndex;
+            this.walker = walker;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.DecoGasOptimization;
+import com.burc.novadiveplannerupdated.domain.model.DecoGasOption;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.GasType;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.service.DecoWorkspace;
+import com.burc.novadiveplannerupdated.domain.service.DecompressionLimitException;
+import com.burc.novadiveplannerupdated.domain.service.OxygenToxicityService;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case that searches the subsets of a list of candidate deco gases for the ones that get a dive
+ * to the surface fastest, and reports what losing each gas of the best subset would cost.
+ * <p>
+ * The gases breathed on the segments are always carried; only the other candidates (at most the 10 gas
+ * slots, so at most 1024 subsets) are searched. Two things keep the search small:
+ * <ul>
+ *     <li>Subsets containing a gas the planner would never switch to (unusable on this ascent, or shadowed by a
+ *     richer gas usable over its whole depth range) plan exactly like the subset without it, so only subsets
+ *     where every gas can be selected are evaluated.</li>
+ *     <li>Each plan is abandoned as soon as its stops so far already take longer than the k-th best run time
+ *     found so far (branch and bound). Larger subsets are evaluated first, so the bound tightens early.</li>
+ * </ul>
+ * The subsets are split into short background tasks of {@value #SUBSETS_PER_TASK} consecutive subsets, so
+ * interactive work queued behind the search does not wait for long; each task reuses one {@link DecoWorkspace}.
+ * Because only strictly worse plans are abandoned, the result does not depend on the order the tasks finish in.
+ */
+public class OptimizeDecoGasesUseCase {
+
+    /** Number of best subsets reported by {@link #execute(Dive, DiveSettings)}. */
+    public static final int DEFAULT_RESULT_COUNT = 3;
+    /** One bit per gas slot in the subset masks. */
+    private static final int MAX_CANDIDATE_GASES = 10;
+    /** Subsets evaluated by one background task. */
+    private static final int SUBSETS_PER_TASK = 16;
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final OxygenToxicityService oxygenToxicityService;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public OptimizeDecoGasesUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                    OxygenToxicityService oxygenToxicityService,
+                                    GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                    CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.oxygenToxicityService = oxygenToxicityService;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case with the currently enabled gases as candidates.
+     *
+     * @see #execute(Dive, DiveSettings, List, int)
+     */
+    public Single<DecoGasOptimization> execute(Dive dive, DiveSettings settings) {
+        return getAvailableGasesUseCase.execute()
+                .flatMap(enabledGases -> execute(dive, settings, enabledGases, DEFAULT_RESULT_COUNT));
+    }
+
+    /**
+     * Executes the use case. Disposing the returned Single cancels the tasks that are still running.
+     *
+     * @param dive           The planned dive. If it is calculated, its end-of-bottom tissue state is reused.
+     * @param settings       The dive settings of the plan.
+     * @param candidateGases Gases that may be carried for decompression, enabled or not (at most one per slot,
+     *                       at most 10). Gases breathed on the segments are ignored here, as they are always carried.
+     * @param resultCount    Number of best subsets to report.
+     * @return A Single that emits the best subsets and the lost gas outcomes of the best one.
+     */
+    public Single<DecoGasOptimization> execute(Dive dive, DiveSettings settings, List<Gas> candidateGases, int resultCount) {
+        Objects.requireNonNull(dive, "Dive cannot be null.");
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(candidateGases, "Candidate gas list cannot be null.");
+        if (dive.getSegments().isEmpty()) {
+            return Single.error(new IllegalArgumentException("Cannot optimize deco gases for a dive without segments."));
+        }
+        if (resultCount < 1) {
+            return Single.error(new IllegalArgumentException("Result count must be at least 1. Was: " + resultCount));
+        }
+
+        return Single.fromCallable(() -> prepareSearch(dive, settings, candidateGases))
+                .subscribeOn(calculationSchedulers.background())
+                .flatMap(search -> {
+                    BestOptions bestOptions = new BestOptions(resultCount);
+                    int subsetCount = search.subsetMasks.size();
+                    List<Single<Integer>> tasks = new ArrayList<>((subsetCount + SUBSETS_PER_TASK - 1) / SUBSETS_PER_TASK);
+                    // Consecutive chunks keep the largest subsets in the first tasks, which tightens the bound early
+                    for (int start = 0; start < subsetCount; start += SUBSETS_PER_TASK) {
+                        int firstSubset = start;
+                        int endSubset = Math.min(subsetCount, start + SUBSETS_PER_TASK);
+                        tasks.add(CalculationTasks.cancellableTask(cancellationToken -> {
+                            DecoWorkspace workspace = new DecoWorkspace();
+                            for (int i = firstSubset; i < endSubset; i++) {
+                                int mask = search.subsetMasks.get(i);
+                                Evaluation evaluation = evaluate(search, settings, mask,
+                                        bestOptions.getRuntimeLimitSeconds(), workspace, cancellationToken);
+                                if (evaluation != null) {
+                                    bestOptions.offer(evaluation);
+                                }
+                            }
+                            return firstSubset;
+                        }, calculationSchedulers.background()));
+                    }
+                    return Single.zip(tasks, done -> bestOptions.getBest())
+                            .map(best -> buildResult(search, settings, best));
+                });
+    }
+
+    private DecoGasOptimization buildResult(Search search, DiveSettings settings, List<Evaluation> best) {
+        List<DecoGasOption> options = new ArrayList<>(best.size());
+        for (Evaluation evaluation : best) {
+            options.add(evaluation.option);
+        }
+
+        // Lost gas: the best subset without each one of its gases
+        Map<Gas, DecoGasOption> lostGasOptions = new LinkedHashMap<>();
+        if (!best.isEmpty()) {
+            int bestMask = best.get(0).mask;
+            DecoWorkspace workspace = new DecoWorkspace();
+            for (int i = 0; i < search.candidates.size(); i++) {
+                if ((bestMask & (1 << i)) != 0) {
+                    Evaluation withoutGas = evaluate(search, settings, bestMask & ~(1 << i),
+                            Double.POSITIVE_INFINITY, workspace, CancellationToken.NONE);
+                    lostGasOptions.put(search.candidates.get(i), withoutGas != null ? withoutGas.option : null);
+                }
+            }
+        }
+        return new DecoGasOptimization(options, lostGasOptions);
+    }
+
+    /**
+     * Calculates the end-of-bottom state once, and lists the subsets worth evaluating, largest first.
+     */
+    private Search prepareSearch(Dive dive, DiveSettings settings, List<Gas> candidateGases) {
+        SegmentWalker bottomPhase = SegmentWalker.walk(buhlmannAlgorithmService, dive, dive.getSegments().size(), settings);
+        double depthFsw = bottomPhase.getDepthFsw();
+        List<Gas> carriedGases = new ArrayList<>();
+        Set<Integer> carriedSlots = new HashSet<>();
+        for (DiveSegment segment : dive.getSegments()) {
+            if (carriedSlots.add(segment.getGas().getSlotNumber())) {
+                carriedGases.add(carried(segment.getGas()));
+            }
+        }
+        DiveSegment lastSegment = dive.getSegments().get(dive.getSegments().size() - 1);
+
+        List<Gas> candidates = new ArrayList<>();
+        Set<Integer> candidateSlots = new HashSet<>();
+        for (Gas candidate : candidateGases) {
+            if (carriedSlots.contains(candidate.getSlotNumber())) {
+                continue;
+            }
+            if (!candidateSlots.add(candidate.getSlotNumber())) {
+                throw new IllegalArgumentException("Only one candidate gas per slot is allowed. Duplicate slot: "
+                        + candidate.getSlotNumber());
+            }
+            candidates.add(candidate);
+        }
+        if (candidates.size() > MAX_CANDIDATE_GASES) {
+            throw new IllegalArgumentException("At most " + MAX_CANDIDATE_GASES + " candidate gases are allowed. Was: "
+                    + candidates.size());
+        }
+        List<Gas> carriedCandidates = new ArrayList<>(candidates.size());
+        for (Gas candidate : candidates) {
+            carriedCandidates.add(carried(candidate)); // The planner only switches to enabled gases
+        }
+
+        // Keep only subsets in which every gas can be selected; the others duplicate a smaller subset
+        double initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+        List<Integer> subsetMasks = new ArrayList<>();
+        for (int mask = 0; mask < (1 << candidates.size()); mask++) {
+            List<Gas> subset = subsetGases(carriedCandidates, mask);
+            List<Gas> gases = new ArrayList<>(carriedGases);
+            gases.addAll(subset);
+            if (buhlmannAlgorithmService.getSelectableDecoGases(gases, depthFsw, initialAmbientPressureFsw).containsAll(subset)) {
+                subsetMasks.add(mask);
+            }
+        }
+        subsetMasks.sort(Comparator.comparingInt((Integer mask) -> -Integer.bitCount(mask)).thenComparingInt(mask -> mask));
+
+        return new Search(bottomPhase.getTissueState(), depthFsw, carried(bottomPhase.getGas()), lastSegment.getSetPoint(),
+                bottomPhase.getRuntimeSeconds(), bottomPhase.getCnsPercent(), carriedGases, candidates, carriedCandidates, subsetMasks, initialAmbientPressureFsw);
+    }
+
+    /**
+     * Plans the decompression with the carried gases plus the subset.
+     *
+     * @return The evaluation, or null if the plan was abandoned for exceeding {@code runtimeLimitSeconds} or has
+     *         a stop that cannot be cleared within the maximum stop time.
+     */
+    private Evaluation evaluate(Search search, DiveSettings settings, int mask, double runtimeLimitSeconds,
+                                DecoWorkspace workspace, CancellationToken cancellationToken) {
+        List<Gas> gases = new ArrayList<>(search.carriedGases);
+        gases.addAll(subsetGases(search.carriedCandidates, mask));
+        List<DecoStop> decoStops;
+        try {
+            decoStops = buhlmannAlgorithmService.calculateDecompressionPlan(
+                    search.tissueState,
+                    search.bottomDepthFsw,
+                    search.bottomGas,
+                    settings,
+                    gases,
+                    search.initialAmbientPressureFsw,
+                    workspace,
+                    runtimeLimitSeconds - search.bottomRuntimeSeconds,
+                    cancellationToken
+            );
+        } catch (DecompressionLimitException e) {
+            return null; // No valid plan with this subset
+        }
+        if (decoStops == null) {
+            return null;
+        }
+        double timeToSurfaceSeconds = buhlmannAlgorithmService.calculateTimeToSurfaceSeconds(
+                search.bottomDepthFsw, decoStops, settings);
+        double runtimeSeconds = search.bottomRuntimeSeconds + timeToSurfaceSeconds;
+        double cnsPercent = search.bottomCnsPercent
+                + calculateAscentCnsPercent(search, settings, decoStops, timeToSurfaceSeconds);
+        DecoGasOption option = new DecoGasOption(
+                subsetGases(search.candidates, mask),
+                decoStops,
+                (int) Math.round(timeToSurfaceSeconds),
+                (int) Math.round(runtimeSeconds),
+                cnsPercent
+        );
+        return new Evaluation(mask, runtimeSeconds, option);
+    }
+
+    /**
+     * CNS % of the ascent: each stop at its gas, each ascent leg as a ramp on the gas of the previous stop
+     * (the switch happens on arrival), with the leg times of {@link BuhlmannAlgorithmService#calculateTimeToSurfaceSeconds}.
+     */
+    private double calculateAscentCnsPercent(Search search, DiveSettings settings, List<DecoStop> decoStops,
+                                             double timeToSurfaceSeconds) {
+        double[] stopEndSeconds = buhlmannAlgorithmService.calculateStopEndTimesSeconds(
+                search.bottomDepthFsw, decoStops, settings);
+        double cnsPercent = 0;
+        double depthFsw = search.bottomDepthFsw;
+        Gas gas = search.bottomGas;
+        double legStartSeconds = 0;
+        for (int i = 0; i < decoStops.size(); i++) {
+            DecoStop stop = decoStops.get(i);
+            double stopStartSeconds = stopEndSeconds[i] - stop.getDurationMinutes() * 60.0;
+            cnsPercent += oxygenToxicityService.calculateCnsPercentOverRamp(
+                    ppo2(search, gas, depthFsw), ppo2(search, gas, stop.getDepthFsw()),
+                    (stopStartSeconds - legStartSeconds) / 60.0);
+            cnsPercent += oxygenToxicityService.calculateCnsPercentOverRamp(
+                    ppo2(search, stop.getGas(), stop.getDepthFsw()), ppo2(search, stop.getGas(), stop.getDepthFsw()),
+                    stop.getDurationMinutes());
+            depthFsw = stop.getDepthFsw();
+            gas = stop.getGas();
+            legStartSeconds = stopEndSeconds[i];
+        }
+        cnsPercent += oxygenToxicityService.calculateCnsPercentOverRamp(
+                ppo2(search, gas, depthFsw), ppo2(search, gas, 0), (timeToSurfaceSeconds - legStartSeconds) / 60.0);
+        return cnsPercent;
+    }
+
+    private double ppo2(Search search, Gas gas, double depthFsw) {
+        Double setPointAta = gas.getGasType() == GasType.CLOSED_CIRCUIT ? search.setPointAta : null;
+        return oxygenToxicityService.calculatePpo2(gas, depthFsw, search.initialAmbientPressureFsw, setPointAta);
+    }
+
+    private static List<Gas> subsetGases(List<Gas> gases, int mask) {
+        List<Gas> subset = new ArrayList<>(Integer.bitCount(mask));
+        for (int i = 0; i < gases.size(); i++) {
+            if ((mask & (1 << i)) != 0) {
+                subset.add(gases.get(i));
+            }
+        }
+        return subset;
+    }
+
+    private static Gas carried(Gas gas) {
+        return gas.isEnabled() ? gas : new Gas.Builder(gas).isEnabled(true).build();
+    }
+
+    /**
+     * Inputs shared read-only by every evaluation.
+     */
+    private static final class Search {
+        final TissueState tissueState;
+        final double bottomDepthFsw;
+        final Gas bottomGas;
+        final double setPointAta; // Of the last segment; used for closed circuit gases only
+        final double bottomRuntimeSeconds;
+        final double bottomCnsPercent;
+        final List<Gas> carriedGases;
+        final List<Gas> candidates; // As passed in, reported in the results
+        final List<Gas> carriedCandidates; // Enabled copies handed to the planner, same order
+        final List<Integer> subsetMasks;
+        final double initialAmbientPressureFsw;
+
+        Search(TissueState tissueState, double bottomDepthFsw, Gas bottomGas, double setPointAta,
+               double bottomRuntimeSeconds, double bottomCnsPercent, List<Gas> carriedGases, List<Gas> candidates,
+               List<Gas> carriedCandidates, List<Integer> subsetMasks, double initialAmbientPressureFsw) {
+            this.tissueState = tissueState;
+            this.bottomDepthFsw = bottomDepthFsw;
+            this.bottomGas = bottomGas;
+            this.setPointAta = setPointAta;
+            this.bottomRuntimeSeconds = bottomRuntimeSeconds;
+            this.bottomCnsPercent = bottomCnsPercent;
+            this.carriedGases = carriedGases;
+            this.candidates = candidates;
+            this.carriedCandidates = carriedCandidates;
+            this.subsetMasks = subsetMasks;
+            this.initialAmbientPressureFsw = initialAmbientPressureFsw;
+        }
+    }
+
+    private static final class Evaluation {
+        final int mask;
+        final double runtimeSeconds; // Unrounded, for ranking and for the bound
+        final DecoGasOption option;
+
+        Evaluation(int mask, double runtimeSeconds, DecoGasOption option) {
+            this.mask = mask;
+            this.runtimeSeconds = runtimeSeconds;
+            this.option = option;
+        }
+    }
+
+    /**
+     * The k best evaluations so far, shared by the tasks: shortest run time, then lowest CNS, then fewest
+     * gases, then lowest mask, so the ranking is a total order.
+     */
+    private static final class BestOptions {
+        private static final Comparator<Evaluation> RANKING = Comparator
+                .comparingDouble((Evaluation e) -> e.runtimeSeconds)
+                .thenComparingDouble(e -> e.option.getTotalCnsPercent())
+                .thenComparingInt(e -> Integer.bitCount(e.mask))
+                .thenComparingInt(e -> e.mask);
+
+        private final int capacity;
+        private final List<Evaluation> best = new ArrayList<>();
+
+        BestOptions(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** Run time a plan must not exceed to enter the list; infinite until the list is full. */
+        synchronized double getRuntimeLimitSeconds() {
+            return best.size() < capacity ? Double.POSITIVE_INFINITY : best.get(capacity - 1).runtimeSeconds;
+        }
+
+        synchronized void offer(Evaluation evaluation) {
+            int index = 0;
+            while (index < best.size() && RANKING.compare(best.get(index), evaluation) <= 0) {
+                index++;
+            }
+            if (index < capacity) {
+                best.add(index, evaluation);
+                if (best.size() > capacity) {
+                    best.remove(capacity);
+                }
+            }
+        }
+
+        synchronized List<Evaluation> getBest() {
+            return new ArrayList<>(best);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.model.CalculationStamp;
+import com.burc.novadiveplannerupdated.domain.model.PlanCalculationResult;
+import com.burc.novadiveplannerupdated.domain.repository.ActiveDivePlanRepository;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Keeps the calculated results of the active DivePlan up to date.
+ * <p>
+ * The active plan is calculated in the background whenever it or the set of enabled gases changes, but
+ * bursts of edits (e.g. scrolling a picker) are coalesced first with a short debounce. A calculation that is still running
+ * when a newer plan arrives is abandoned (switchMap): disposing it cancels its token, and the segment and
+ * deco loops stop at their next check. The last result is replayed to every new subscriber, so the plan,
+ * graph and segment screens all share one calculation.
+ * <p>
+ * Results are saved next to the plan with a {@link CalculationStamp}. The first calculation of a plan
+ * (e.g. after reopening the app) starts from those stored results: if the inputs are unchanged the stored
+ * dive is the result and the engine does not run at all; otherwise its segment checkpoints seed the
+ * incremental recalculation.
+ */
+@Singleton
+public class PlanCalculationEngine {
+
+    /** Quiet period after the last edit before a plan is calculated. */
+    public static final long DEBOUNCE_MILLIS = 150;
+
+    private final RecalculateDiveUseCase recalculateDiveUseCase;
+    private final ActiveDivePlanRepository activeDivePlanRepository;
+    private final Observable<PlanCalculationResult> results;
+
+    // Last successful calculation and its deco gases, the base for incremental recalculation of the next plan.
+    // Only touched from the calculation chain, which switchMap keeps sequential.
+    private volatile DivePlan lastCalculatedPlan;
+    private volatile List<Gas> lastCalculatedDecoGases;
+
+    @Inject
+    public PlanCalculationEngine(GetActiveDivePlanUseCase getActiveDivePlanUseCase,
+                                 RecalculateDiveUseCase recalculateDiveUseCase,
+                                 GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                 ActiveDivePlanRepository activeDivePlanRepository,
+                                 CalculationSchedulers calculationSchedulers) {
+        this.recalculateDiveUseCase = recalculateDiveUseCase;
+        this.activeDivePlanRepository = activeDivePlanRepository;
+        // The plan on screen is interactive work
+        Scheduler calculationScheduler = calculationSchedulers.interactive();
+        this.results = Observable.combineLatest(getActiveDivePlanUseCase.execute(),
+                        getAvailableGasesUseCase.observe(), CalculationInputs::new)
+                .debounce(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, calculationScheduler)
+                .switchMapSingle(inputs -> calculate(inputs.plan, inputs.decoGases).subscribeOn(calculationScheduler))
+                .replay(1)
+                .autoConnect();
+    }
+
+    /**
+     * @return A hot Observable of calculation results for the active plan. The latest result is replayed
+     *         to new subscribers; results for superseded plans are never emitted.
+     */
+    public Observable<PlanCalculationResult> getResults() {
+        return results;
+    }
+
+    private Single<PlanCalculationResult> calculate(DivePlan plan, List<Gas> decoGases) {
+        Dive currentDive = plan.getDives().get(plan.getDives().size() - 1);
+
+        return Single.defer(() -> {
+                    CalculationStamp stamp = CalculationStamp.of(plan.getSettings(), decoGases);
+                    Dive previousDive = findReusableDive(plan, decoGases);
+                    Single<Dive> calculatedDive = previousDive != null
+                            ? recalculateAndSave(plan, previousDive, currentDive, decoGases, stamp)
+                            : calculateFromStoredResults(plan, currentDive, decoGases, stamp);
+                    return calculatedDive.map(dive -> {
+                        DivePlan calculatedPlan = withCurrentDive(plan, dive);
+                        lastCalculatedPlan = calculatedPlan;
+                        lastCalculatedDecoGases = decoGases;
+                        return PlanCalculationResult.success(calculatedPlan);
+                    });
+                })
+                .onErrorReturn(throwable -> PlanCalculationResult.failure(plan, throwable.getMessage()));
+    }
+
+    /**
+     * Nothing calculated in this session can be reused, so start from the results stored for the plan:
+     * use them as they are if the inputs are unchanged, otherwise resume from their segment checkpoints.
+     */
+    private Single<Dive> calculateFromStoredResults(DivePlan plan, Dive currentDive, List<Gas> decoGases,
+                                                    CalculationStamp stamp) {
+        return activeDivePlanRepository.getCalculatedDivePlan(plan.getId(), stamp)
+                .filter(storedPlan -> storedPlan.getDives().size() == plan.getDives().size())
+                .map(storedPlan -> storedPlan.getDives().get(storedPlan.getDives().size() - 1))
+                .flatMapSingle(storedDive -> recalculateDiveUseCase.isUpToDate(storedDive, currentDive)
+                        ? Single.just(storedDive)
+                        : recalculateAndSave(plan, storedDive, currentDive, decoGases, stamp))
+                .switchIfEmpty(Single.defer(() -> recalculateAndSave(plan, null, currentDive, decoGases, stamp)));
+    }
+
+    private Single<Dive> recalculateAndSave(DivePlan plan, Dive previousDive, Dive currentDive, List<Gas> decoGases,
+                                            CalculationStamp stamp) {
+        return recalculateDiveUseCase.execute(previousDive, currentDive, plan.getSettings(), decoGases)
+                .doOnSuccess(calculatedDive ->
+                        activeDivePlanRepository.saveCalculatedDivePlan(withCurrentDive(plan, calculatedDive), stamp));
+    }
+
+    /**
+     * @return The last calculated version of the plan's current dive, if it was calculated for the
+     *         same plan, settings and deco gases; otherwise null, meaning everything is calculated from scratch.
+     */
+    private Dive findReusableDive(DivePlan plan, List<Gas> decoGases) {
+        DivePlan previousPlan = lastCalculatedPlan;
+        if (previousPlan == null
+                || !previousPlan.getId().equals(plan.getId())
+                || previousPlan.getDives().size() != plan.getDives().size()
+                || !previousPlan.getSettings().equals(plan.getSettings())
+                || !decoGases.equals(lastCalculatedDecoGases)) {
+            return null;
+        }
+        return previousPlan.getDives().get(previousPlan.getDives().size() - 1);
+    }
+
+    /** The latest plan together with the gases it is calculated with. */
+    private static final class CalculationInputs {
+        final DivePlan plan;
+        final List<Gas> decoGases;
+
+        CalculationInputs(DivePlan plan, List<Gas> decoGases) {
+            this.plan = plan;
+            this.decoGases = decoGases;
+        }
+    }
+
+    private static DivePlan withCurrentDive(DivePlan plan, Dive calculatedDive) {
+        List<Dive> dives = new ArrayList<>(plan.getDives());
+        dives.set(dives.size() - 1, calculatedDive);
+        return new DivePlan.Builder(plan.getId(), plan.getSettings())
+                .planTitle(plan.getPlanTitle())
+                .dives(dives)
+                .build();
+    }
+}
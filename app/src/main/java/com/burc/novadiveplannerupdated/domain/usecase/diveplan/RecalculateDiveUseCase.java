@@ -0,0 +1,265 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.SegmentCalculationResult;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.service.DecompressionLimitException;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+import com.burc.novadiveplannerupdated.domain.util.UnitConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case responsible for (re)calculating the results of a Dive after its segments were edited.
+ * <p>
+ * Every calculated {@link DiveSegment} stores the tissue state at its end, so a segment's loading only
+ * depends on its own inputs and the end state of the segment before it. The recalculation therefore
+ * keeps the calculated segments up to the first one whose inputs changed (compared with the previously
+ * calculated Dive), resumes from the stored end state before it, and recomputes only the downstream
+ * segments, the decompression plan, the dive totals and the tissue state on surfacing (which the next dive
+ * starts from). Editing or appending the last segment costs one segment plus the deco, however long the
+ * profile is.
+ */
+public class RecalculateDiveUseCase {
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public RecalculateDiveUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                  GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                  CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case, using the currently enabled gases for decompression.
+     * The calculation runs on the interactive calculation scheduler, whatever thread the gases arrive on.
+     * Disposing the returned Single cancels a calculation that is still running.
+     *
+     * @param previousDive The previously calculated version of the Dive, or null if nothing can be reused.
+     *                     It must have been calculated with the same {@code settings}.
+     * @param editedDive   The Dive with the edited segments. Segments carried over from {@code previousDive}
+     *                     may keep their calculated fields; new or edited ones usually have none.
+     * @param settings     The dive settings of the plan.
+     * @return A Single that emits the Dive with all calculated fields populated, or fails with a
+     *         {@link DecompressionLimitException} if the dive has no valid decompression plan.
+     */
+    public Single<Dive> execute(Dive previousDive, Dive editedDive, DiveSettings settings) {
+        return getAvailableGasesUseCase.execute()
+                .flatMap(decoGases -> execute(previousDive, editedDive, settings, decoGases));
+    }
+
+    /**
+     * Executes the use case with the given deco gases, on the interactive calculation scheduler.
+     *
+     * @param decoGases The (enabled) gases available for decompression.
+     * @see #execute(Dive, Dive, DiveSettings)
+     */
+    public Single<Dive> execute(Dive previousDive, Dive editedDive, DiveSettings settings, List<Gas> decoGases) {
+        return CalculationTasks.cancellableTask(cancellationToken ->
+                        recalculate(previousDive, editedDive, settings, decoGases, cancellationToken),
+                calculationSchedulers.interactive());
+    }
+
+    /**
+     * Checks whether a calculated Dive already holds the results for the edited one, i.e. recalculating
+     * would reuse every segment and only redo the deco, totals and surfacing state, which are stored as well.
+     *
+     * @param calculatedDive A Dive calculated with the same settings and deco gases, e.g. from the cache.
+     * @param editedDive     The Dive to calculate.
+     * @return true if {@code calculatedDive} can be used as the result for {@code editedDive} as is.
+     */
+    public boolean isUpToDate(Dive calculatedDive, Dive editedDive) {
+        Objects.requireNonNull(editedDive, "Edited Dive cannot be null.");
+        return calculatedDive != null
+                && calculatedDive.getDiveNumber() == editedDive.getDiveNumber()
+                && !editedDive.getSegments().isEmpty()
+                && calculatedDive.getSegments().size() == editedDive.getSegments().size()
+                && calculatedDive.getCalculatedTimeToSurfaceSeconds() != null
+                && calculatedDive.getTissueStateAtEndOfDive() != null
+                && findFirstChangedSegmentIndex(calculatedDive, editedDive) == editedDive.getSegments().size();
+    }
+
+    /**
+     * Recalculates the Dive synchronously, reusing the stored results of every unchanged leading segment.
+     *
+     * @param previousDive The previously calculated version of the Dive, or null to calculate from scratch.
+     * @param editedDive   The Dive with the edited segments.
+     * @param settings     The dive settings of the plan.
+     * @param decoGases    The (enabled) gases available for decompression.
+     * @return The recalculated Dive.
+     * @throws DecompressionLimitException if a decompression stop cannot be cleared within the maximum stop time.
+     */
+    public Dive recalculate(Dive previousDive, Dive editedDive, DiveSettings settings, List<Gas> decoGases) {
+        return recalculate(previousDive, editedDive, settings, decoGases, CancellationToken.NONE);
+    }
+
+    /**
+     * Recalculates the Dive synchronously, checking {@code cancellationToken} between segments and deco stops.
+     *
+     * @throws CancellationException if the token is cancelled during the calculation.
+     * @see #recalculate(Dive, Dive, DiveSettings, List)
+     */
+    public Dive recalculate(Dive previousDive, Dive editedDive, DiveSettings settings, List<Gas> decoGases,
+                            CancellationToken cancellationToken) {
+        Objects.requireNonNull(editedDive, "Edited Dive cannot be null.");
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(decoGases, "Deco gas list cannot be null.");
+        Objects.requireNonNull(cancellationToken, "CancellationToken cannot be null.");
+
+        List<DiveSegment> editedSegments = editedDive.getSegments();
+        if (editedSegments.isEmpty()) {
+            // Nothing to calculate yet (e.g. a freshly created plan)
+            return editedDive;
+        }
+
+        double initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+        int firstChangedIndex = findFirstChangedSegmentIndex(previousDive, editedDive);
+
+        // 1. Keep the unchanged prefix as calculated before
+        List<DiveSegment> calculatedSegments = new ArrayList<>(editedSegments.size());
+        for (int i = 0; i < firstChangedIndex; i++) {
+            calculatedSegments.add(previousDive.getSegments().get(i));
+        }
+
+        // 2. Resume from the last stored checkpoint and recompute everything downstream
+        TissueState tissueState = firstChangedIndex == 0
+                ? editedDive.getInitialTissueStateForThisDive()
+                : calculatedSegments.get(firstChangedIndex - 1).getTissueStateAtEndOfSegment();
+        double previousDepthFsw = firstChangedIndex == 0 ? 0 : calculatedSegments.get(firstChangedIndex - 1).getTargetDepth();
+        Gas previousGas = firstChangedIndex == 0 ? null : calculatedSegments.get(firstChangedIndex - 1).getGas();
+
+        for (int i = firstChangedIndex; i < editedSegments.size(); i++) {
+            cancellationToken.throwIfCancelled();
+            DiveSegment segment = editedSegments.get(i);
+            // The transit to the new depth is breathed on the previous segment's gas; the switch happens on arrival
+            Gas gasForTransit = previousGas != null ? previousGas : segment.getGas();
+
+            SegmentCalculationResult result = buhlmannAlgorithmService.calculateLoadingForDiveSegment(
+                    tissueState,
+                    segment,
+                    gasForTransit,
+                    previousDepthFsw,
+                    settings
+            );
+            tissueState = result.getTissueStateAtEndOfSegment();
+
+            calculatedSegments.add(new DiveSegment.Builder(segment)
+                    .tissueStateAtEndOfSegment(tissueState)
+                    .calculatedTransitDurationSeconds(result.getCalculatedTransitDurationSeconds())
+                    .gasConsumedInSegmentCuft(result.getGasConsumedCuft())
+                    .cnsAddedInSegmentPercent(result.getCnsAddedPercent())
+                    .otusAddedInSegment(result.getOtusAdded())
+                    .build());
+
+            previousDepthFsw = segment.getTargetDepth();
+            previousGas = segment.getGas();
+        }
+
+        // 3. Deco, NDL, surfacing state and totals from the end of the last segment
+        DiveSegment lastSegment = calculatedSegments.get(calculatedSegments.size() - 1);
+        double bottomDepthFsw = lastSegment.getTargetDepth();
+
+        List<DecoStop> decoStops = buhlmannAlgorithmService.calculateDecompressionPlan(
+                tissueState,
+                bottomDepthFsw,
+                lastSegment.getGas(),
+                settings,
+                decoGases,
+                initialAmbientPressureFsw,
+                cancellationToken
+        );
+
+        int ndlSeconds = 0;
+        if (decoStops.isEmpty()) {
+            ndlSeconds = buhlmannAlgorithmService.calculateNdlMinutes(
+                    tissueState,
+                    bottomDepthFsw,
+                    lastSegment.getGas(),
+                    settings,
+                    initialAmbientPressureFsw
+            ) * 60;
+        }
+        double timeToSurfaceSeconds = buhlmannAlgorithmService.calculateTimeToSurfaceSeconds(bottomDepthFsw, decoStops, settings);
+        TissueState tissueStateAtSurfacing = buhlmannAlgorithmService.calculateTissueStateAtSurfacing(
+                tissueState,
+                bottomDepthFsw,
+                lastSegment.getGas(),
+                decoStops,
+                settings,
+                decoGases,
+                initialAmbientPressureFsw
+        );
+
+        double maxDepthFeet = 0;
+        double totalGasConsumedCuft = 0;
+        double totalCnsPercent = 0;
+        double totalOtu = 0;
+        for (DiveSegment segment : calculatedSegments) {
+            maxDepthFeet = Math.max(maxDepthFeet, segment.getTargetDepth());
+            totalGasConsumedCuft += segment.getGasConsumedInSegmentCuft();
+            totalCnsPercent += segment.getCnsAddedInSegmentPercent();
+            totalOtu += segment.getOtusAddedInSegment();
+        }
+
+        return new Dive.Builder(editedDive.getDiveNumber())
+                .surfaceIntervalBeforeDiveInSeconds(editedDive.getSurfaceIntervalBeforeDiveInSeconds())
+                .initialTissueStateForThisDive(editedDive.getInitialTissueStateForThisDive())
+                .segments(calculatedSegments)
+                .decoStops(decoStops)
+                .calculatedMaxDepthMeters(maxDepthFeet * UnitConverter.METERS_PER_FOOT)
+                .calculatedNdlSeconds(ndlSeconds)
+                .calculatedTimeToSurfaceSeconds((int) Math.round(timeToSurfaceSeconds))
+                .calculatedTotalGasConsumedCuft(totalGasConsumedCuft)
+                .calculatedTotalCNSPercent(totalCnsPercent)
+                .calculatedTotalOTU(totalOtu)
+                .tissueStateAtEndOfDive(tissueStateAtSurfacing)
+                .build();
+    }
+
+    /**
+     * Finds the first segment whose stored results cannot be reused.
+     * A segment is reusable if the previous calculation holds a checkpoint for it and its inputs,
+     * as well as those of every segment before it, are unchanged.
+     *
+     * @return The index of the first segment to recompute; the segment count if all are reusable.
+     */
+    private int findFirstChangedSegmentIndex(Dive previousDive, Dive editedDive) {
+        if (previousDive == null
+                || previousDive.getSurfaceIntervalBeforeDiveInSeconds() != editedDive.getSurfaceIntervalBeforeDiveInSeconds()
+                || !previousDive.getInitialTissueStateForThisDive().equals(editedDive.getInitialTissueStateForThisDive())) {
+            return 0;
+        }
+
+        List<DiveSegment> previousSegments = previousDive.getSegments();
+        List<DiveSegment> editedSegments = editedDive.getSegments();
+        int commonCount = Math.min(previousSegments.size(), editedSegments.size());
+        int index = 0;
+        while (index < commonCount) {
+            DiveSegment previousSegment = previousSegments.get(index);
+            if (!previousSegment.hasCalculatedResults() || !previousSegment.hasSameInputsAs(editedSegments.get(index))) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,159 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.SegmentCalculationResult;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Walks the segments of a dive in order, keeping the state the planning use cases start their variations from:
+ * the tissue state, depth and gas at the end of the last segment walked, and the run time, CNS, OTUs and gas
+ * consumed so far.
+ * <p>
+ * {@link #walk} takes the segments of a Dive that hold calculated results (see
+ * {@link DiveSegment#hasCalculatedResults()}) from their checkpoints and calculates the others;
+ * {@link #calculate} always calculates, for segments that differ from the Dive's.
+ */
+final class SegmentWalker {
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final DiveSettings settings;
+
+    private TissueState tissueState;
+    private double depthFsw;
+    private Gas gas; // Null until a segment is walked
+    private double runtimeSeconds;
+    private double cnsPercent;
+    private double otu;
+    private double gasConsumedCuft;
+    private final Map<Integer, Double> gasConsumedCuftBySlot;
+
+    /**
+     * Starts at the surface, before the first segment.
+     */
+    SegmentWalker(BuhlmannAlgorithmService buhlmannAlgorithmService, DiveSettings settings,
+                  TissueState initialTissueState) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.settings = settings;
+        this.tissueState = initialTissueState;
+        this.gasConsumedCuftBySlot = new HashMap<>();
+    }
+
+    private SegmentWalker(SegmentWalker other) {
+        this.buhlmannAlgorithmService = other.buhlmannAlgorithmService;
+        this.settings = other.settings;
+        this.tissueState = other.tissueState;
+        this.depthFsw = other.depthFsw;
+        this.gas = other.gas;
+        this.runtimeSeconds = other.runtimeSeconds;
+        this.cnsPercent = other.cnsPercent;
+        this.otu = other.otu;
+        this.gasConsumedCuft = other.gasConsumedCuft;
+        this.gasConsumedCuftBySlot = new HashMap<>(other.gasConsumedCuftBySlot);
+    }
+
+    /**
+     * Walks the first {@code segmentCount} segments of a dive from its initial tissue state,
+     * reusing the results of the segments that hold them.
+     */
+    static SegmentWalker walk(BuhlmannAlgorithmService buhlmannAlgorithmService, Dive dive, int segmentCount,
+                              DiveSettings settings) {
+        SegmentWalker walker = new SegmentWalker(buhlmannAlgorithmService, settings, dive.getInitialTissueStateForThisDive());
+        for (int i = 0; i < segmentCount; i++) {
+            DiveSegment segment = dive.getSegments().get(i);
+            if (segment.hasCalculatedResults()) {
+                // Checkpoint of the calculated Dive
+                walker.advance(segment, segment.getTissueStateAtEndOfSegment(),
+                        segment.getCalculatedTransitDurationSeconds(), segment.getCnsAddedInSegmentPercent(),
+                        segment.getOtusAddedInSegment(), segment.getGasConsumedInSegmentCuft());
+            } else {
+                walker.calculate(segment);
+            }
+        }
+        return walker;
+    }
+
+    /**
+     * Calculates a segment from the current state and moves past it. The transit to its depth is breathed
+     * on the gas of the segment before it.
+     *
+     * @return The result of the segment.
+     */
+    SegmentCalculationResult calculate(DiveSegment segment) {
+        SegmentCalculationResult result = buhlmannAlgorithmService.calculateLoadingForDiveSegment(
+                tissueState, segment, gas != null ? gas : segment.getGas(), depthFsw, settings);
+        advance(segment, result.getTissueStateAtEndOfSegment(), result.getCalculatedTransitDurationSeconds(),
+                result.getCnsAddedPercent(), result.getOtusAdded(), result.getGasConsumedCuft());
+        return result;
+    }
+
+    /**
+     * @return An independent walker at the same point, e.g. to walk several variations from a shared prefix.
+     */
+    SegmentWalker copy() {
+        return new SegmentWalker(this);
+    }
+
+    private void advance(DiveSegment segment, TissueState endTissueState, Double transitSeconds,
+                         double segmentCnsPercent, double segmentOtu, double segmentGasConsumedCuft) {
+        tissueState = endTissueState;
+        runtimeSeconds += segmentDurationSeconds(segment, transitSeconds);
+        cnsPercent += segmentCnsPercent;
+        otu += segmentOtu;
+        gasConsumedCuft += segmentGasConsumedCuft;
+        gasConsumedCuftBySlot.merge(segment.getGas().getSlotNumber(), segmentGasConsumedCuft, Double::sum);
+        depthFsw = segment.getTargetDepth();
+        gas = segment.getGas();
+    }
+
+    /** Time a segment takes: the transit, then whatever is left of the entered duration at depth. */
+    static double segmentDurationSeconds(DiveSegment segment, Double transitSeconds) {
+        double transit = transitSeconds != null ? transitSeconds : 0;
+        return Math.max(segment.getUserInputTotalDurationInSeconds(), transit);
+    }
+
+    TissueState getTissueState() {
+        return tissueState;
+    }
+
+    double getDepthFsw() {
+        return depthFsw;
+    }
+
+    /**
+     * @return The gas of the last segment walked; null if none was.
+     */
+    Gas getGas() {
+        return gas;
+    }
+
+    double getRuntimeSeconds() {
+        return runtimeSeconds;
+    }
+
+    double getCnsPercent() {
+        return cnsPercent;
+    }
+
+    double getOtu() {
+        return otu;
+    }
+
+    double getGasConsumedCuft() {
+        return gasConsumedCuft;
+    }
+
+    /**
+     * @return The gas consumed (cu ft) on the segments whose gas is in {@code slotNumber}.
+     */
+    double getGasConsumedCuft(int slotNumber) {
+        Double consumed = gasConsumedCuftBySlot.get(slotNumber);
+        return consumed != null ? consumed : 0;
+    }
+}
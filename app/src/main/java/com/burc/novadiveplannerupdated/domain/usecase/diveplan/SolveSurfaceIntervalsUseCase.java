@@ -0,0 +1,251 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.SurfaceIntervalConstraint;
+import com.burc.novadiveplannerupdated.domain.model.SurfaceIntervalSolution;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.service.DecompressionLimitException;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case that finds, for every repetitive dive of a plan, the shortest surface interval before it that
+ * meets a {@link SurfaceIntervalConstraint}, e.g. "how long until I have 20 min of NDL at 60 ft again?".
+ * <p>
+ * The plan is walked once with the planned intervals to get the tissue state on surfacing from each dive
+ * (the ascent included), which the calculated Dive carries. The surface interval itself is closed-form, so
+ * any candidate interval costs one exponential per compartment; the solver doubles the interval until the
+ * constraint is met, then bisects to the whole minute. Off-gassing on air makes the NDL grow and the deco time and GF99 shrink with the
+ * interval, which the bisection relies on. The dives are solved in parallel.
+ */
+public class SolveSurfaceIntervalsUseCase {
+
+    /** Longest surface interval the solver considers. */
+    public static final long MAX_SURFACE_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(48);
+    private static final long STEP_SECONDS = 60; // Intervals are solved to the whole minute
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final RecalculateDiveUseCase recalculateDiveUseCase;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public SolveSurfaceIntervalsUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                        RecalculateDiveUseCase recalculateDiveUseCase,
+                                        GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                        CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.recalculateDiveUseCase = recalculateDiveUseCase;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case, using the currently enabled gases for decompression.
+     * Disposing the returned Single stops the solvers that are still running.
+     * <p>
+     * For {@link SurfaceIntervalConstraint.Type#MIN_NDL_AT_DEPTH} the NDL is taken on arrival at the depth,
+     * without the descent, on the gas of the dive's deepest segment (or of the last planned dive before it
+     * if the dive has no segments yet). {@link SurfaceIntervalConstraint.Type#MAX_DECO_TIME} plans the dive
+     * as entered and sums its stop minutes; an interval after which the dive has no valid plan does not meet it.
+     *
+     * @param plan       The dive plan; every dive after the first is solved.
+     * @param constraint What the tissues must allow before each repetitive dive.
+     * @return A Single that emits one solution per dive after the first, in dive order. It fails with a
+     *         {@link DecompressionLimitException} if a dive has no valid plan with its planned interval.
+     */
+    public Single<List<SurfaceIntervalSolution>> execute(DivePlan plan, SurfaceIntervalConstraint constraint) {
+        Objects.requireNonNull(plan, "DivePlan cannot be null.");
+        Objects.requireNonNull(constraint, "SurfaceIntervalConstraint cannot be null.");
+        if (plan.getDives().size() < 2) {
+            return Single.just(Collections.emptyList());
+        }
+        DiveSettings settings = plan.getSettings();
+        List<Dive> dives = plan.getDives();
+
+        return getAvailableGasesUseCase.execute()
+                .observeOn(calculationSchedulers.interactive())
+                .flatMap(decoGases -> {
+                    List<TissueState> surfacingStates = calculateSurfacingStates(dives, settings, decoGases);
+
+                    List<Single<SurfaceIntervalSolution>> solutions = new ArrayList<>(dives.size() - 1);
+                    for (int i = 1; i < dives.size(); i++) {
+                        Gas ndlGas = constraint.getType() == SurfaceIntervalConstraint.Type.MIN_NDL_AT_DEPTH
+                                ? findNdlGas(dives, i) : null;
+                        if (constraint.getType() == SurfaceIntervalConstraint.Type.MIN_NDL_AT_DEPTH && ndlGas == null) {
+                            return Single.error(new IllegalArgumentException(
+                                    "Cannot calculate the NDL before dive " + dives.get(i).getDiveNumber()
+                                            + " without a planned segment to take the gas from."));
+                        }
+                        solutions.add(solveAsync(dives.get(i), surfacingStates.get(i - 1), ndlGas,
+                                constraint, settings, decoGases));
+                    }
+                    // zip keeps the dive order whatever order the solvers finish in
+                    return Single.zip(solutions, results -> {
+                        List<SurfaceIntervalSolution> list = new ArrayList<>(results.length);
+                        for (Object result : results) {
+                            list.add((SurfaceIntervalSolution) result);
+                        }
+                        return list;
+                    });
+                });
+    }
+
+    private Single<SurfaceIntervalSolution> solveAsync(Dive dive, TissueState surfacingState, Gas ndlGas,
+                                                       SurfaceIntervalConstraint constraint, DiveSettings settings,
+                                                       List<Gas> decoGases) {
+        return CalculationTasks.cancellableTask(cancellationToken ->
+                        solve(dive, surfacingState, ndlGas, constraint, settings, decoGases, cancellationToken),
+                calculationSchedulers.interactive());
+    }
+
+    /**
+     * Walks the plan with the planned intervals.
+     *
+     * @return For each dive, the tissue state on reaching the surface at its end.
+     */
+    private List<TissueState> calculateSurfacingStates(List<Dive> dives, DiveSettings settings, List<Gas> decoGases) {
+        double initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+        List<TissueState> surfacingStates = new ArrayList<>(dives.size());
+        TissueState tissueState = dives.get(0).getInitialTissueStateForThisDive();
+        for (int i = 0; i < dives.size(); i++) {
+            Dive dive = dives.get(i);
+            if (i > 0) {
+                tissueState = buhlmannAlgorithmService.calculateSurfaceIntervalTissueState(
+                        tissueState, dive.getSurfaceIntervalBeforeDiveInSeconds(), initialAmbientPressureFsw);
+            }
+            if (!dive.getSegments().isEmpty()) {
+                Dive calculatedDive = recalculateDiveUseCase.recalculate(null,
+                        withInitialTissueState(dive, tissueState), settings, decoGases);
+                tissueState = calculatedDive.getTissueStateAtEndOfDive();
+            }
+            surfacingStates.add(tissueState);
+        }
+        return surfacingStates;
+    }
+
+    private SurfaceIntervalSolution solve(Dive dive, TissueState surfacingState, Gas ndlGas,
+                                          SurfaceIntervalConstraint constraint, DiveSettings settings,
+                                          List<Gas> decoGases, CancellationToken cancellationToken) {
+        long plannedSeconds = dive.getSurfaceIntervalBeforeDiveInSeconds();
+        double value = evaluate(dive, surfacingState, 0, ndlGas, constraint, settings, decoGases, cancellationToken);
+        if (constraint.isSatisfiedBy(value)) {
+            return new SurfaceIntervalSolution(dive.getDiveNumber(), true, 0, plannedSeconds, value);
+        }
+
+        // Double until the constraint is met, then bisect between the last failing and the first passing interval
+        long low = 0;
+        long high = 0;
+        double valueAtHigh = value;
+        long step = STEP_SECONDS;
+        while (high == 0) {
+            long candidate = Math.min(MAX_SURFACE_INTERVAL_SECONDS, low + step);
+            value = evaluate(dive, surfacingState, candidate, ndlGas, constraint, settings, decoGases, cancellationToken);
+            if (constraint.isSatisfiedBy(value)) {
+                high = candidate;
+                valueAtHigh = value;
+            } else if (candidate == MAX_SURFACE_INTERVAL_SECONDS) {
+                return new SurfaceIntervalSolution(dive.getDiveNumber(), false, candidate, plannedSeconds, value);
+            } else {
+                low = candidate;
+                step *= 2;
+            }
+        }
+        while (high - low > STEP_SECONDS) {
+            long middle = low + (high - low) / STEP_SECONDS / 2 * STEP_SECONDS;
+            value = evaluate(dive, surfacingState, middle, ndlGas, constraint, settings, decoGases, cancellationToken);
+            if (constraint.isSatisfiedBy(value)) {
+                high = middle;
+                valueAtHigh = value;
+            } else {
+                low = middle;
+            }
+        }
+        return new SurfaceIntervalSolution(dive.getDiveNumber(), true, high, plannedSeconds, valueAtHigh);
+    }
+
+    /**
+     * @return The NDL or deco minutes, or the GF99 percentage, after a surface interval of {@code intervalSeconds}.
+     */
+    private double evaluate(Dive dive, TissueState surfacingState, long intervalSeconds, Gas ndlGas,
+                            SurfaceIntervalConstraint constraint, DiveSettings settings, List<Gas> decoGases,
+                            CancellationToken cancellationToken) {
+        cancellationToken.throwIfCancelled();
+        double initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+        TissueState tissueState = buhlmannAlgorithmService.calculateSurfaceIntervalTissueState(
+                surfacingState, intervalSeconds, initialAmbientPressureFsw);
+
+        switch (constraint.getType()) {
+            case MIN_NDL_AT_DEPTH:
+                return buhlmannAlgorithmService.calculateNdlMinutes(
+                        tissueState, constraint.getDepthFsw(), ndlGas, settings, initialAmbientPressureFsw);
+            case MAX_DECO_TIME:
+                if (dive.getSegments().isEmpty()) {
+                    return 0;
+                }
+                Dive calculatedDive;
+                try {
+                    calculatedDive = recalculateDiveUseCase.recalculate(null,
+                            withInitialTissueState(dive, tissueState), settings, decoGases, cancellationToken);
+                } catch (DecompressionLimitException e) {
+                    return Double.POSITIVE_INFINITY; // No valid plan after this interval
+                }
+                int decoMinutes = 0;
+                for (DecoStop stop : calculatedDive.getDecoStops()) {
+                    decoMinutes += stop.getDurationMinutes();
+                }
+                return decoMinutes;
+            case MAX_SURFACE_GF:
+                return buhlmannAlgorithmService.calculateTissueLimits(tissueState, 0,
+                        settings.getGradientFactors().getGfHighFraction(), initialAmbientPressureFsw)
+                        .getCurrentGradientFactor() * 100.0;
+            default:
+                throw new IllegalStateException("Unknown surface interval constraint: " + constraint.getType());
+        }
+    }
+
+    /**
+     * @return The gas of the deepest segment of the dive, or of the last dive before it with segments; null if none.
+     */
+    private static Gas findNdlGas(List<Dive> dives, int diveIndex) {
+        for (int i = diveIndex; i >= 0; i--) {
+            List<DiveSegment> segments = dives.get(i).getSegments();
+            if (segments.isEmpty()) {
+                continue;
+            }
+            DiveSegment deepest = segments.get(0);
+            for (DiveSegment segment : segments) {
+                if (segment.getTargetDepth() >= deepest.getTargetDepth()) {
+                    deepest = segment;
+                }
+            }
+            return deepest.getGas();
+        }
+        return null;
+    }
+
+    private static Dive withInitialTissueState(Dive dive, TissueState tissueState) {
+        return new Dive.Builder(dive.getDiveNumber())
+                .surfaceIntervalBeforeDiveInSeconds(dive.getSurfaceIntervalBeforeDiveInSeconds())
+                .initialTissueStateForThisDive(tissueState)
+                .segments(dive.getSegments())
+                .build();
+    }
+}
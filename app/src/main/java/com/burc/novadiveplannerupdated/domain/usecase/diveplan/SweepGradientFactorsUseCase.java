@@ -0,0 +1,166 @@
+package com.burc.novadiveplannerupdated.domain.usecase.diveplan;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.common.CancellationToken;
+import com.burc.novadiveplannerupdated.domain.common.DomainDefaults;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.GradientFactorSweep;
+import com.burc.novadiveplannerupdated.domain.model.GradientFactors;
+import com.burc.novadiveplannerupdated.domain.service.BuhlmannAlgorithmService;
+import com.burc.novadiveplannerupdated.domain.service.DecoWorkspace;
+import com.burc.novadiveplannerupdated.domain.service.DecompressionLimitException;
+import com.burc.novadiveplannerupdated.domain.usecase.gas.GetAvailableGasesUseCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Use case that calculates the decompression of a dive for every combination of a grid of GF Low and
+ * GF High values, so the gradient factors can be picked from a heat map instead of by trial and error.
+ * <p>
+ * Gradient factors only change the ascent, so the tissue state at the end of the bottom phase is the same
+ * for every cell. It is taken from the calculated Dive (or calculated once) and every cell only plans its
+ * decompression. Every GF Low row is its own task on the background scheduler: it reuses one
+ * {@link DecoWorkspace} for all of its cells and writes into its own cells of the result matrices. Rows are
+ * short, so interactive work queued behind the sweep starts as soon as the current rows finish, and the
+ * background scheduler leaves a thread free for it meanwhile.
+ */
+public class SweepGradientFactorsUseCase {
+
+    private static final int DEFAULT_GF_STEP = 5;
+    private static final int DEFAULT_MIN_GF_HIGH = 50;
+
+    private final BuhlmannAlgorithmService buhlmannAlgorithmService;
+    private final GetAvailableGasesUseCase getAvailableGasesUseCase;
+    private final CalculationSchedulers calculationSchedulers;
+
+    @Inject
+    public SweepGradientFactorsUseCase(BuhlmannAlgorithmService buhlmannAlgorithmService,
+                                       GetAvailableGasesUseCase getAvailableGasesUseCase,
+                                       CalculationSchedulers calculationSchedulers) {
+        this.buhlmannAlgorithmService = buhlmannAlgorithmService;
+        this.getAvailableGasesUseCase = getAvailableGasesUseCase;
+        this.calculationSchedulers = calculationSchedulers;
+    }
+
+    /**
+     * Executes the use case with the default grid: GF Low from {@link DomainDefaults#MIN_GF_VALUE} and GF High
+     * from 50, both up to {@link DomainDefaults#MAX_GF_VALUE} in steps of 5.
+     *
+     * @see #execute(Dive, DiveSettings, int[], int[])
+     */
+    public Single<GradientFactorSweep> execute(Dive dive, DiveSettings settings) {
+        return execute(dive, settings,
+                range(DomainDefaults.MIN_GF_VALUE, DomainDefaults.MAX_GF_VALUE, DEFAULT_GF_STEP),
+                range(DEFAULT_MIN_GF_HIGH, DomainDefaults.MAX_GF_VALUE, DEFAULT_GF_STEP));
+    }
+
+    /**
+     * Executes the use case, using the currently enabled gases for decompression.
+     * Disposing the returned Single cancels the tasks that are still running.
+     *
+     * @param dive     The planned dive. If it is calculated, its end-of-bottom tissue state is reused.
+     * @param settings The dive settings of the plan; every field except the gradient factors is kept.
+     * @param gfLows   GF Low values of the rows, each within the range {@link GradientFactors} accepts.
+     * @param gfHighs  GF High values of the columns, each within the range {@link GradientFactors} accepts.
+     * @return A Single that emits the sweep.
+     */
+    public Single<GradientFactorSweep> execute(Dive dive, DiveSettings settings, int[] gfLows, int[] gfHighs) {
+        Objects.requireNonNull(dive, "Dive cannot be null.");
+        Objects.requireNonNull(settings, "DiveSettings cannot be null.");
+        Objects.requireNonNull(gfLows, "GF Low values cannot be null.");
+        Objects.requireNonNull(gfHighs, "GF High values cannot be null.");
+        if (dive.getSegments().isEmpty()) {
+            return Single.error(new IllegalArgumentException("Cannot sweep gradient factors for a dive without segments."));
+        }
+        int[] lows = gfLows.clone();
+        int[] highs = gfHighs.clone();
+        if (lows.length == 0 || highs.length == 0) {
+            return Single.error(new IllegalArgumentException("At least one GF Low and one GF High value are required."));
+        }
+        for (int[] values : new int[][]{lows, highs}) {
+            for (int gf : values) {
+                if (gf < DomainDefaults.MIN_GF_VALUE || gf > DomainDefaults.MAX_GF_VALUE) {
+                    return Single.error(new IllegalArgumentException("Gradient factors must be between "
+                            + DomainDefaults.MIN_GF_VALUE + " and " + DomainDefaults.MAX_GF_VALUE + ", inclusive. Was: " + gf));
+                }
+            }
+        }
+
+        return getAvailableGasesUseCase.execute()
+                .observeOn(calculationSchedulers.background())
+                .flatMap(decoGases -> {
+                    SegmentWalker bottomPhase = SegmentWalker.walk(
+                            buhlmannAlgorithmService, dive, dive.getSegments().size(), settings);
+                    int[] timeToSurfaceSeconds = new int[lows.length * highs.length];
+                    int[] firstStopDepthFsw = new int[lows.length * highs.length];
+
+                    List<Single<Integer>> tasks = new ArrayList<>(lows.length);
+                    for (int row = 0; row < lows.length; row++) {
+                        int taskRow = row;
+                        tasks.add(CalculationTasks.cancellableTask(cancellationToken -> {
+                            calculateRow(bottomPhase, settings, decoGases, lows, highs, taskRow,
+                                    new DecoWorkspace(), timeToSurfaceSeconds, firstStopDepthFsw, cancellationToken);
+                            return taskRow;
+                        }, calculationSchedulers.background()));
+                    }
+                    // zip completes after every task has written its rows
+                    return Single.zip(tasks, done -> new GradientFactorSweep(
+                            lows, highs, bottomPhase.getRuntimeSeconds(), timeToSurfaceSeconds, firstStopDepthFsw));
+                });
+    }
+
+    private void calculateRow(SegmentWalker bottomPhase, DiveSettings settings, List<Gas> decoGases,
+                              int[] gfLows, int[] gfHighs, int row, DecoWorkspace workspace,
+                              int[] timeToSurfaceSeconds, int[] firstStopDepthFsw,
+                              CancellationToken cancellationToken) {
+        double initialAmbientPressureFsw = settings.getAltitudeLevel().getInitialAmbientPressureFsw();
+        for (int column = 0; column < gfHighs.length; column++) {
+            int cell = row * gfHighs.length + column;
+            if (gfLows[row] > gfHighs[column]) {
+                timeToSurfaceSeconds[cell] = GradientFactorSweep.NOT_EVALUATED;
+                firstStopDepthFsw[cell] = GradientFactorSweep.NOT_EVALUATED;
+                continue;
+            }
+            DiveSettings cellSettings = new DiveSettings.Builder(settings)
+                    .gradientFactors(new GradientFactors(gfLows[row], gfHighs[column]))
+                    .build();
+            List<DecoStop> decoStops;
+            try {
+                decoStops = buhlmannAlgorithmService.calculateDecompressionPlan(
+                        bottomPhase.getTissueState(),
+                        bottomPhase.getDepthFsw(),
+                        bottomPhase.getGas(),
+                        cellSettings,
+                        decoGases,
+                        initialAmbientPressureFsw,
+                        workspace,
+                        cancellationToken
+                );
+            } catch (DecompressionLimitException e) {
+                timeToSurfaceSeconds[cell] = GradientFactorSweep.STOP_TIME_EXCEEDED;
+                firstStopDepthFsw[cell] = GradientFactorSweep.STOP_TIME_EXCEEDED;
+                continue;
+            }
+            timeToSurfaceSeconds[cell] = (int) Math.round(
+                    buhlmannAlgorithmService.calculateTimeToSurfaceSeconds(bottomPhase.getDepthFsw(), decoStops, cellSettings));
+            firstStopDepthFsw[cell] = decoStops.isEmpty() ? 0 : (int) Math.round(decoStops.get(0).getDepthFsw());
+        }
+    }
+
+    private static int[] range(int from, int to, int step) {
+        int[] values = new int[(to - from) / step + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+}
@@ -5,21 +5,21 @@ import com.burc.novadiveplannerupdated.domain.entity.Gas;
 import com.burc.novadiveplannerupdated.domain.model.AlarmSettings;
 import com.burc.novadiveplannerupdated.domain.model.GasProperties;
 import com.burc.novadiveplannerupdated.domain.model.UnitSystem;
-import com.burc.novadiveplannerupdated.domain.service.GasCalculationService;
+import com.burc.novadiveplannerupdated.domain.service.GasPropertiesCache;
 
 import javax.inject.Inject;
 
 public class CalculateGasPropertiesUseCase {
 
     private final GenerateGasNameUseCase generateGasNameUseCase;
-    private final GasCalculationService gasCalculationService;
+    private final GasPropertiesCache gasPropertiesCache; // Memoized GasCalculationService limits
 
     @Inject
     public CalculateGasPropertiesUseCase(
             GenerateGasNameUseCase generateGasNameUseCase,
-            GasCalculationService gasCalculationService) {
+            GasPropertiesCache gasPropertiesCache) {
         this.generateGasNameUseCase = generateGasNameUseCase;
-        this.gasCalculationService = gasCalculationService;
+        this.gasPropertiesCache = gasPropertiesCache;
     }
 
     public GasProperties execute(
@@ -49,7 +49,7 @@ public class CalculateGasPropertiesUseCase {
 
         String calculatedGasName = generateGasNameUseCase.execute(gas);
 
-        Integer modRaw = gasCalculationService.calculateMod(gas, unitSystem);
+        Integer modRaw = gasPropertiesCache.getMod(gas, unitSystem);
         Double mod = null;
         if (gas.getFo2() <= 0 || gas.getPo2Max() == null || gas.getPo2Max() <= 0) {
             mod = null;
@@ -57,18 +57,18 @@ public class CalculateGasPropertiesUseCase {
             mod = modRaw.doubleValue();
         }
 
-        Integer htRaw = gasCalculationService.calculateHypoxicThreshold(gas, unitSystem);
+        Integer htRaw = gasPropertiesCache.getHypoxicThreshold(gas, unitSystem);
         Double ht = (htRaw != null) ? htRaw.doubleValue() : null;
 
         Double endLimit = null;
         if (isEndAlarmEnabled) {
-            Integer endLimitRaw = gasCalculationService.calculateEndAlarmDepth(gas, unitSystem, isOxygenNarcotic, endAlarmThreshold);
+            Integer endLimitRaw = gasPropertiesCache.getEndAlarmDepth(gas, unitSystem, isOxygenNarcotic, endAlarmThreshold);
             endLimit = (endLimitRaw != null) ? endLimitRaw.doubleValue() : null;
         }
 
         Double wobLimit = null;
         if (isWobAlarmEnabled) {
-            Integer wobLimitRaw = gasCalculationService.calculateWobAlarmDepth(gas, unitSystem, wobAlarmThreshold);
+            Integer wobLimitRaw = gasPropertiesCache.getWobAlarmDepth(gas, unitSystem, wobAlarmThreshold);
             wobLimit = (wobLimitRaw != null) ? wobLimitRaw.doubleValue() : null;
         }
 
@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 
 /**
@@ -31,8 +32,25 @@ public class GetAvailableGasesUseCase {
     public Single<List<Gas>> execute() {
         return gasRepository.getGasesStream() // GasRepository'den tüm gazları al (Flowable<List<Gas>> veya Observable<List<Gas>> dönebilir)
                 .firstOrError() // İlk emisyonu al veya hata ver (Single'a dönüştür)
-                .map(gasList -> gasList.stream()
-                                      .filter(Gas::isEnabled) // Sadece 'enabled' olanları filtrele
-                                      .collect(Collectors.toList()));
+                .map(GetAvailableGasesUseCase::enabledGases);
+    }
+
+    /**
+     * Observes the available gases.
+     *
+     * @return An Observable that emits the list of enabled {@link Gas} objects, and again whenever
+     *         that list changes. Changes to disabled gases only are not emitted.
+     */
+    public Observable<List<Gas>> observe() {
+        return gasRepository.getGasesStream()
+                .map(GetAvailableGasesUseCase::enabledGases)
+                .toObservable()
+                .distinctUntilChanged();
+    }
+
+    private static List<Gas> enabledGases(List<Gas> gasList) {
+        return gasList.stream()
+                .filter(Gas::isEnabled) // Sadece 'enabled' olanları filtrele
+                .collect(Collectors.toList());
     }
 } 
\ No newline at end of file
@@ -62,7 +62,9 @@ public class MainViewModel extends ViewModel {
     private void loadInitialDivePlan() {
         _isLoading.setValue(true);
         compositeDisposable.add(
-            createNewDivePlanUseCase.execute()
+            // Kayıtlı son plan varsa onunla devam et, yoksa yeni boş plan oluştur
+            activeDivePlanRepository.getLastSavedDivePlan()
+                .switchIfEmpty(createNewDivePlanUseCase.execute())
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
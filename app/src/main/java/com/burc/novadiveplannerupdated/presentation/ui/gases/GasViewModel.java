@@ -1,6 +1,7 @@
 package com.burc.novadiveplannerupdated.presentation.ui.gases;
 
 import androidx.lifecycle.ViewModel;
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
 import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
 import com.burc.novadiveplannerupdated.domain.entity.Gas;
 import com.burc.novadiveplannerupdated.domain.model.GasProperties;
@@ -15,8 +16,10 @@ import com.burc.novadiveplannerupdated.presentation.ui.gases.state.GasScreenUiSt
 import com.burc.novadiveplannerupdated.domain.common.DomainDefaults; // For default unit system
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
 import dagger.hilt.android.lifecycle.HiltViewModel;
@@ -37,10 +40,14 @@ public class GasViewModel extends ViewModel {
     private final GetSettingsUseCase getSettingsUseCase;
     private final CalculateGasPropertiesUseCase calculateGasPropertiesUseCase;
     private final UpdateGasEnabledStateUseCase updateGasEnabledStateUseCase;
+    private final CalculationSchedulers calculationSchedulers;
     private final CompositeDisposable compositeDisposable = new CompositeDisposable();
     private final BehaviorSubject<GasScreenUiState> _uiState = BehaviorSubject.create();
     public final Flowable<GasScreenUiState> uiState = _uiState.hide().toFlowable(BackpressureStrategy.LATEST);
 
+    // Last row of each slot; only touched from the combineLatest stream, which is serialized
+    private final Map<Integer, GasRowDisplayData> lastRowsBySlot = new HashMap<>();
+
     // TODO: Add Navigation events (e.g., SingleLiveEvent for editing a gas)
 
     @Inject
@@ -48,12 +55,14 @@ public class GasViewModel extends ViewModel {
             GetGasesUseCase getGasesUseCase,
             GetSettingsUseCase getSettingsUseCase,
             CalculateGasPropertiesUseCase calculateGasPropertiesUseCase,
-            UpdateGasEnabledStateUseCase updateGasEnabledStateUseCase
+            UpdateGasEnabledStateUseCase updateGasEnabledStateUseCase,
+            CalculationSchedulers calculationSchedulers
     ) {
         this.getGasesUseCase = getGasesUseCase;
         this.getSettingsUseCase = getSettingsUseCase;
         this.calculateGasPropertiesUseCase = calculateGasPropertiesUseCase;
         this.updateGasEnabledStateUseCase = updateGasEnabledStateUseCase;
+        this.calculationSchedulers = calculationSchedulers;
 
         // Initialize with a default loading state
         // Note: DomainDefaults.DEFAULT_UNIT_SYSTEM might not be available at this exact point if it also comes from settings.
@@ -69,18 +78,25 @@ public class GasViewModel extends ViewModel {
             Flowable.combineLatest(
                 getGasesUseCase.execute().doOnNext(gases -> Log.d(TAG, "Gases received: " + gases.size())),
                 getSettingsUseCase.execute().doOnNext(settings -> Log.d(TAG, "Settings received: " + settings.getUnitSystem())),
-                (BiFunction<List<Gas>, DiveSettings, GasScreenUiState>) (gases, settings) -> {
-                    Log.d(TAG, "Combining gases and settings. Gas count: " + gases.size());
-                    List<GasRowDisplayData> displayDataList = new ArrayList<>();
-                    for (Gas gas : gases) {
-                        GasProperties properties = calculateGasPropertiesUseCase.execute(gas, settings);
-                        displayDataList.add(mapToDisplayData(gas, properties, settings.getUnitSystem()));
-                    }
-                    Log.d(TAG, "Successfully mapped to display data list. Size: " + displayDataList.size());
-                    return new GasScreenUiState(false, null, displayDataList, settings.getUnitSystem());
-                }
+                (BiFunction<List<Gas>, DiveSettings, GasesAndSettings>) GasesAndSettings::new
             )
-            .subscribeOn(Schedulers.io()) // Calculations and data fetching on IO thread
+            .subscribeOn(Schedulers.io()) // Data fetching on IO thread
+            .observeOn(calculationSchedulers.interactive()) // Gas property calculations on the bounded calculation pool
+            .map(gasesAndSettings -> {
+                List<Gas> gases = gasesAndSettings.gases;
+                DiveSettings settings = gasesAndSettings.settings;
+                Log.d(TAG, "Combining gases and settings. Gas count: " + gases.size());
+                List<GasRowDisplayData> displayDataList = new ArrayList<>();
+                for (Gas gas : gases) {
+                    // Limits come from the memoized cache; only the formatting is redone here
+                    GasProperties properties = calculateGasPropertiesUseCase.execute(gas, settings);
+                    displayDataList.add(reuseUnchangedRow(mapToDisplayData(gas, properties, settings.getUnitSystem())));
+                }
+                Log.d(TAG, "Successfully mapped to display data list. Size: " + displayDataList.size());
+                return new GasScreenUiState(false, null, displayDataList, settings.getUnitSystem());
+            })
+            // Skip the emission entirely when no row changed (e.g. an RMV or GF change in settings)
+            .distinctUntilChanged()
             // .observeOn(AndroidSchedulers.mainThread()) // UI updates on main thread - usually handled by Fragment/Activity observing
             .doOnError(throwable -> Log.e(TAG, "Error in combineLatest stream", throwable))
             .onErrorReturn(throwable -> {
@@ -123,6 +139,19 @@ public class GasViewModel extends ViewModel {
     
     // TODO: public void onEditGasClicked(int slotNumber) { ... }
 
+    /**
+     * Returns the previously emitted instance of a row if its content did not change, so the adapter's
+     * DiffUtil and the state comparison short-circuit on identity and untouched rows are not rebound.
+     */
+    private GasRowDisplayData reuseUnchangedRow(GasRowDisplayData row) {
+        GasRowDisplayData previous = lastRowsBySlot.get(row.getSlotNumber());
+        if (row.equals(previous)) {
+            return previous;
+        }
+        lastRowsBySlot.put(row.getSlotNumber(), row);
+        return row;
+    }
+
     private GasRowDisplayData mapToDisplayData(Gas gas, GasProperties properties, UnitSystem unitSystem) {
         // TODO: Implement proper String formatting and unit conversion based on UnitSystem
         // This is a placeholder implementation.
@@ -158,4 +187,14 @@ public class GasViewModel extends ViewModel {
         Log.d(TAG, "onCleared called, disposing of disposables.");
         compositeDisposable.clear(); // Dispose all RxJava subscriptions
     }
+
+    private static class GasesAndSettings {
+        final List<Gas> gases;
+        final DiveSettings settings;
+
+        GasesAndSettings(List<Gas> gases, DiveSettings settings) {
+            this.gases = gases;
+            this.settings = settings;
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,377 @@
+package com.burc.novadiveplannerupdated.presentation.ui.graph;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.burc.novadiveplannerupdated.R;
+import com.burc.novadiveplannerupdated.domain.model.DecimatedProfile;
+
+/**
+ * Dive profile chart: depth line, ceiling area, deco stops, gas-switch markers and a time cursor.
+ * <p>
+ * The depth and ceiling {@link Path}s are built in data coordinates (seconds, fsw) once per decimated profile.
+ * Zooming and panning only change {@link #dataToScreen}; the paths are mapped into reused screen-space paths
+ * when the matrix changes, and nothing is allocated in {@link #onDraw}. Lines keep a constant pixel width
+ * because the stroke is applied after the transform.
+ * <p>
+ * One finger moves the cursor, two fingers zoom and pan the time axis, a double tap shows the whole dive.
+ */
+public class DiveProfileView extends View {
+
+    /** Receives cursor moves and the settled viewport after a zoom or pan gesture. */
+    public interface Listener {
+        void onCursorMoved(double timeSeconds);
+
+        void onViewportChanged(double windowStartSeconds, double windowEndSeconds, int widthPx);
+    }
+
+    private static final float DEPTH_HEADROOM = 1.1f; // Leave room below the deepest point
+    private static final double MIN_WINDOW_SECONDS = 60;
+
+    private final Paint depthPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint ceilingPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint stopPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint markerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint cursorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Geometry in data coordinates, rebuilt only when a new profile arrives
+    private final Path depthPath = new Path();
+    private final Path ceilingPath = new Path();
+    // The same geometry in screen coordinates, refreshed when the matrix changes
+    private final Path screenDepthPath = new Path();
+    private final Path screenCeilingPath = new Path();
+    private final Matrix dataToScreen = new Matrix();
+    private boolean screenGeometryDirty = true;
+
+    private float[] gasSwitchScreenPoints = new float[0];
+    private float[] decoStopScreenPoints = new float[0];
+    private float[] decoStopScreenEnds = new float[0];
+
+    private final float topPaddingPx;
+    private final float markerRadiusPx;
+    private final float labelOffsetPx;
+
+    private ProfileGraphData graphData;
+    private double windowStartSeconds;
+    private double windowEndSeconds;
+    private boolean showingWholeDive = true;
+    private double cursorSeconds = -1; // No cursor until the user touches the graph
+    private final float[] cursorPoint = new float[2];
+
+    private Listener listener;
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+    private boolean viewportGestureActive;
+    private float lastFocusX;
+
+    public DiveProfileView(Context context) {
+        this(context, null);
+    }
+
+    public DiveProfileView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        topPaddingPx = 28 * density;
+        markerRadiusPx = 4 * density;
+        labelOffsetPx = 6 * density;
+
+        depthPaint.setStyle(Paint.Style.STROKE);
+        depthPaint.setStrokeWidth(2 * density);
+        depthPaint.setStrokeJoin(Paint.Join.ROUND);
+        depthPaint.setColor(ContextCompat.getColor(context, R.color.colorPrimary));
+
+        ceilingPaint.setStyle(Paint.Style.FILL);
+        int ceilingColor = ContextCompat.getColor(context, R.color.colorSecondary);
+        ceilingPaint.setColor(Color.argb(80, Color.red(ceilingColor), Color.green(ceilingColor), Color.blue(ceilingColor)));
+
+        stopPaint.setStyle(Paint.Style.STROKE);
+        stopPaint.setStrokeWidth(4 * density);
+        stopPaint.setColor(ContextCompat.getColor(context, R.color.colorPrimaryVariant));
+
+        markerPaint.setStyle(Paint.Style.FILL);
+        markerPaint.setColor(ContextCompat.getColor(context, R.color.colorSecondary));
+
+        labelPaint.setTextSize(11 * density);
+        labelPaint.setColor(ContextCompat.getColor(context, R.color.textColorSecondary));
+
+        cursorPaint.setStyle(Paint.Style.STROKE);
+        cursorPaint.setStrokeWidth(density);
+        cursorPaint.setColor(ContextCompat.getColor(context, R.color.textColorPrimary));
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleListener());
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                showWholeDive();
+                notifyViewportChanged();
+                return true;
+            }
+        });
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Shows a calculated dive. Paths are rebuilt only if the decimated profile changed; a new dive
+     * also resets the zoom.
+     */
+    public void setGraphData(@Nullable ProfileGraphData newData) {
+        if (newData == graphData) {
+            return;
+        }
+        boolean sameDive = newData != null && newData.isSameDiveAs(graphData);
+        boolean profileChanged = newData == null || graphData == null || newData.getProfile() != graphData.getProfile();
+        graphData = newData;
+        if (newData == null) {
+            depthPath.reset();
+            ceilingPath.reset();
+            cursorSeconds = -1;
+        } else {
+            if (profileChanged) {
+                buildPaths(newData.getProfile());
+            }
+            if (!sameDive) {
+                allocateMarkerBuffers(newData);
+                showWholeDive();
+                cursorSeconds = -1;
+                notifyViewportChanged();
+            }
+        }
+        updateMatrix();
+        invalidate();
+    }
+
+    /**
+     * Shows the whole dive, e.g. after a double tap.
+     */
+    public void showWholeDive() {
+        showingWholeDive = true;
+        windowStartSeconds = 0;
+        windowEndSeconds = graphData != null ? Math.max(MIN_WINDOW_SECONDS, graphData.getDiveDurationSeconds()) : MIN_WINDOW_SECONDS;
+        updateMatrix();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateMatrix();
+        notifyViewportChanged();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (graphData == null) {
+            return;
+        }
+        if (screenGeometryDirty) {
+            refreshScreenGeometry();
+        }
+
+        canvas.drawPath(screenCeilingPath, ceilingPaint);
+        canvas.drawPath(screenDepthPath, depthPaint);
+
+        String[] stopLabels = graphData.getDecoStopLabels();
+        for (int i = 0; i < stopLabels.length; i++) {
+            float x = decoStopScreenPoints[2 * i];
+            float y = decoStopScreenPoints[2 * i + 1];
+            canvas.drawLine(x, y, decoStopScreenEnds[i], y, stopPaint);
+            canvas.drawText(stopLabels[i], x, y + labelOffsetPx + labelPaint.getTextSize(), labelPaint);
+        }
+
+        String[] switchLabels = graphData.getGasSwitchLabels();
+        for (int i = 0; i < switchLabels.length; i++) {
+            float x = gasSwitchScreenPoints[2 * i];
+            float y = gasSwitchScreenPoints[2 * i + 1];
+            canvas.drawCircle(x, y, markerRadiusPx, markerPaint);
+            canvas.drawText(switchLabels[i], x + labelOffsetPx, y - labelOffsetPx, labelPaint);
+        }
+
+        if (cursorSeconds >= 0) {
+            cursorPoint[0] = (float) cursorSeconds;
+            cursorPoint[1] = 0;
+            dataToScreen.mapPoints(cursorPoint);
+            canvas.drawLine(cursorPoint[0], 0, cursorPoint[0], getHeight(), cursorPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (graphData == null) {
+            return false;
+        }
+        scaleDetector.onTouchEvent(event);
+        gestureDetector.onTouchEvent(event);
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_POINTER_DOWN:
+                viewportGestureActive = true;
+                lastFocusX = focusX(event);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (viewportGestureActive && event.getPointerCount() > 1) {
+                    // Two-finger drag pans
+                    float focusX = focusX(event);
+                    panByPixels(lastFocusX - focusX);
+                    lastFocusX = focusX;
+                } else if (!viewportGestureActive) {
+                    moveCursorTo(event.getX());
+                }
+                break;
+            case MotionEvent.ACTION_DOWN:
+                moveCursorTo(event.getX());
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                lastFocusX = focusX(event);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (viewportGestureActive) {
+                    viewportGestureActive = false;
+                    notifyViewportChanged(); // Re-decimate the settled window
+                }
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    private void moveCursorTo(float x) {
+        double seconds = windowStartSeconds + (x / Math.max(1, getWidth())) * (windowEndSeconds - windowStartSeconds);
+        cursorSeconds = Math.max(0, Math.min(graphData.getDiveDurationSeconds(), seconds));
+        invalidate();
+        if (listener != null) {
+            listener.onCursorMoved(cursorSeconds);
+        }
+    }
+
+    private void panByPixels(float dx) {
+        double window = windowEndSeconds - windowStartSeconds;
+        double shift = dx / Math.max(1, getWidth()) * window;
+        setWindow(windowStartSeconds + shift, window);
+    }
+
+    private void setWindow(double start, double window) {
+        double duration = Math.max(MIN_WINDOW_SECONDS, graphData.getDiveDurationSeconds());
+        window = Math.max(MIN_WINDOW_SECONDS, Math.min(duration, window));
+        start = Math.max(0, Math.min(duration - window, start));
+        showingWholeDive = start == 0 && window == duration;
+        windowStartSeconds = start;
+        windowEndSeconds = start + window;
+        updateMatrix();
+        invalidate();
+    }
+
+    private void notifyViewportChanged() {
+        if (listener != null && getWidth() > 0) {
+            // The whole dive is reported open-ended, so it stays valid when the dive gets longer
+            listener.onViewportChanged(windowStartSeconds,
+                    showingWholeDive ? Double.POSITIVE_INFINITY : windowEndSeconds, getWidth());
+        }
+    }
+
+    private static float focusX(MotionEvent event) {
+        float sum = 0;
+        int count = 0;
+        int skipIndex = event.getActionMasked() == MotionEvent.ACTION_POINTER_UP ? event.getActionIndex() : -1;
+        for (int i = 0; i < event.getPointerCount(); i++) {
+            if (i != skipIndex) {
+                sum += event.getX(i);
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : 0;
+    }
+
+    private void buildPaths(DecimatedProfile profile) {
+        depthPath.reset();
+        for (int i = 0; i < profile.getDepthPointCount(); i++) {
+            float x = (float) profile.getDepthTime(i);
+            float y = (float) profile.getDepthFsw(i);
+            if (i == 0) {
+                depthPath.moveTo(x, y);
+            } else {
+                depthPath.lineTo(x, y);
+            }
+        }
+
+        // Ceiling as an area hanging from the surface
+        ceilingPath.reset();
+        int ceilingCount = profile.getCeilingPointCount();
+        if (ceilingCount > 0) {
+            ceilingPath.moveTo((float) profile.getCeilingTime(0), 0);
+            for (int i = 0; i < ceilingCount; i++) {
+                ceilingPath.lineTo((float) profile.getCeilingTime(i), (float) profile.getCeilingDepthFsw(i));
+            }
+            ceilingPath.lineTo((float) profile.getCeilingTime(ceilingCount - 1), 0);
+            ceilingPath.close();
+        }
+        screenGeometryDirty = true;
+    }
+
+    private void allocateMarkerBuffers(ProfileGraphData data) {
+        gasSwitchScreenPoints = new float[data.getGasSwitchPoints().length];
+        decoStopScreenPoints = new float[data.getDecoStopPoints().length];
+        decoStopScreenEnds = new float[data.getDecoStopEndTimes().length];
+    }
+
+    private void updateMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width == 0 || height == 0 || graphData == null) {
+            return;
+        }
+        float scaleX = (float) (width / (windowEndSeconds - windowStartSeconds));
+        float maxDepth = (float) Math.max(10, graphData.getMaxDepthFsw() * DEPTH_HEADROOM);
+        float scaleY = (height - topPaddingPx) / maxDepth;
+        dataToScreen.setScale(scaleX, scaleY);
+        dataToScreen.postTranslate((float) (-windowStartSeconds * scaleX), topPaddingPx);
+        screenGeometryDirty = true;
+    }
+
+    /**
+     * Maps the data-space geometry through the current matrix into the reused screen-space buffers.
+     */
+    private void refreshScreenGeometry() {
+        depthPath.transform(dataToScreen, screenDepthPath);
+        ceilingPath.transform(dataToScreen, screenCeilingPath);
+        dataToScreen.mapPoints(gasSwitchScreenPoints, graphData.getGasSwitchPoints());
+        dataToScreen.mapPoints(decoStopScreenPoints, graphData.getDecoStopPoints());
+        float[] endTimes = graphData.getDecoStopEndTimes();
+        for (int i = 0; i < endTimes.length; i++) {
+            decoStopScreenEnds[i] = (float) ((endTimes[i] - windowStartSeconds) * (getWidth() / (windowEndSeconds - windowStartSeconds)));
+        }
+        screenGeometryDirty = false;
+    }
+
+    private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScale(@NonNull ScaleGestureDetector detector) {
+            // Zoom the time axis around the focus point
+            double window = windowEndSeconds - windowStartSeconds;
+            double newWindow = window / detector.getScaleFactor();
+            double focusSeconds = windowStartSeconds + detector.getFocusX() / Math.max(1, getWidth()) * window;
+            double focusFraction = detector.getFocusX() / Math.max(1, getWidth());
+            setWindow(focusSeconds - focusFraction * newWindow, newWindow);
+            return true;
+        }
+    }
+}
@@ -8,14 +8,72 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 
-import com.burc.novadiveplannerupdated.R;
+import com.burc.novadiveplannerupdated.databinding.FragmentGraphBinding;
 
+import dagger.hilt.android.AndroidEntryPoint;
+
+@AndroidEntryPoint
 public class GraphFragment extends Fragment {
 
+    private GraphViewModel viewModel;
+    private FragmentGraphBinding binding;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // Shares the engine's replayed result, so opening the screen does not trigger a new calculation
+        viewModel = new ViewModelProvider(this).get(GraphViewModel.class);
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.fragment_graph, container, false);
+        binding = FragmentGraphBinding.inflate(inflater, container, false);
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        setupUI();
+        observeViewModel();
+    }
+
+    private void setupUI() {
+        // The view reports its size and every settled zoom/pan; the ViewModel re-decimates for that window
+        binding.diveProfileView.setListener(new DiveProfileView.Listener() {
+            @Override
+            public void onCursorMoved(double timeSeconds) {
+                viewModel.onCursorMoved(timeSeconds);
+            }
+
+            @Override
+            public void onViewportChanged(double windowStartSeconds, double windowEndSeconds, int widthPx) {
+                viewModel.onViewportChanged(windowStartSeconds, windowEndSeconds, widthPx);
+            }
+        });
+    }
+
+    private void observeViewModel() {
+        viewModel.graphData.observe(getViewLifecycleOwner(), graphData -> {
+            if (binding == null) return;
+            binding.diveProfileView.setGraphData(graphData);
+        });
+
+        viewModel.cursorReadout.observe(getViewLifecycleOwner(), readout -> {
+            if (binding == null) return;
+            binding.textViewCursorReadout.setText(readout);
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (binding != null) {
+            binding.diveProfileView.setListener(null);
+            binding = null;
+        }
     }
-} 
\ No newline at end of file
+}
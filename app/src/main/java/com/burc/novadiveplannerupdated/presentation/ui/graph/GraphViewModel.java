@@ -0,0 +1,316 @@
+package com.burc.novadiveplannerupdated.presentation.ui.graph;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.burc.novadiveplannerupdated.domain.common.CalculationSchedulers;
+import com.burc.novadiveplannerupdated.domain.entity.Dive;
+import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
+import com.burc.novadiveplannerupdated.domain.model.DecimatedProfile;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.PlanCalculationResult;
+import com.burc.novadiveplannerupdated.domain.model.ProfileLeg;
+import com.burc.novadiveplannerupdated.domain.model.ProfileSeries;
+import com.burc.novadiveplannerupdated.domain.model.TimelinePoint;
+import com.burc.novadiveplannerupdated.domain.model.UnitSystem;
+import com.burc.novadiveplannerupdated.domain.service.LazyDiveTimeline;
+import com.burc.novadiveplannerupdated.domain.service.ProfileDecimator;
+import com.burc.novadiveplannerupdated.domain.usecase.diveplan.BuildDiveTimelineUseCase;
+import com.burc.novadiveplannerupdated.domain.usecase.diveplan.PlanCalculationEngine;
+import com.burc.novadiveplannerupdated.domain.util.UnitConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.lifecycle.HiltViewModel;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+
+@HiltViewModel
+public class GraphViewModel extends ViewModel {
+    private static final String TAG = "GraphViewModel";
+
+    /** Spacing of the raw graph samples; the decimator reduces them to the view width. */
+    private static final int SERIES_SAMPLE_INTERVAL_SECONDS = 1;
+
+    private final ProfileDecimator profileDecimator;
+    private final CompositeDisposable disposables = new CompositeDisposable();
+    private final BehaviorSubject<Viewport> viewportSubject = BehaviorSubject.create();
+    private final BehaviorSubject<Double> cursorSubject = BehaviorSubject.create();
+
+    private final MutableLiveData<PlanCalculationResult> _calculationResult = new MutableLiveData<>();
+    public LiveData<PlanCalculationResult> calculationResult = _calculationResult;
+
+    private final MutableLiveData<ProfileGraphData> _graphData = new MutableLiveData<>();
+    public LiveData<ProfileGraphData> graphData = _graphData;
+
+    private final MutableLiveData<String> _cursorReadout = new MutableLiveData<>();
+    public LiveData<String> cursorReadout = _cursorReadout;
+
+    @Inject
+    public GraphViewModel(PlanCalculationEngine planCalculationEngine,
+                          BuildDiveTimelineUseCase buildDiveTimelineUseCase,
+                          ProfileDecimator profileDecimator,
+                          CalculationSchedulers calculationSchedulers) {
+        this.profileDecimator = profileDecimator;
+        Observable<PlanCalculationResult> results = planCalculationEngine.getResults(); // Son sonuç yeni abonelere hemen tekrar iletilir
+
+        disposables.add(
+            results
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                    _calculationResult::setValue,
+                    throwable -> Log.e(TAG, "Error observing plan calculation results", throwable)
+                )
+        );
+
+        // Built and sampled once per calculated dive; shared by the graph and the cursor readout
+        Observable<GraphSource> sources = results
+                .filter(GraphViewModel::hasCalculatedDive)
+                .switchMapSingle(result -> buildDiveTimelineUseCase
+                        .execute(result.getCurrentDive(), result.getDivePlan().getSettings())
+                        .map(timeline -> new GraphSource(timeline, result.getCurrentDive(),
+                                result.getDivePlan().getSettings().getUnitSystem())))
+                .replay(1)
+                .autoConnect(1, disposables::add);
+
+        disposables.add(
+            Observable.combineLatest(sources, viewportSubject.distinctUntilChanged(), SourceAndViewport::new)
+                // A newer viewport (e.g. mid-gesture) supersedes a decimation that has not run yet
+                .switchMap(input -> Observable.fromCallable(() -> buildGraphData(input))
+                        .subscribeOn(calculationSchedulers.interactive()))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                    _graphData::setValue,
+                    throwable -> Log.e(TAG, "Error decimating the dive profile", throwable)
+                )
+        );
+
+        disposables.add(
+            Observable.combineLatest(sources, cursorSubject.distinctUntilChanged(), SourceAndCursor::new)
+                .switchMap(input -> Observable.fromCallable(() -> formatReadout(input))
+                        .subscribeOn(calculationSchedulers.interactive()))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                    _cursorReadout::setValue,
+                    throwable -> Log.e(TAG, "Error reconstructing the cursor point", throwable)
+                )
+        );
+    }
+
+    /**
+     * Shows the whole dive in a graph of the given width.
+     *
+     * @param widthPx Width of the graph in pixels.
+     */
+    public void onGraphWidthChanged(int widthPx) {
+        viewportSubject.onNext(new Viewport(0, Double.POSITIVE_INFINITY, widthPx));
+    }
+
+    /**
+     * Shows a zoomed or panned part of the dive.
+     *
+     * @param windowStartSeconds Start of the visible window, in seconds from the start of the dive.
+     * @param windowEndSeconds   End of the visible window; {@code Double.POSITIVE_INFINITY} for the end of the dive.
+     * @param widthPx            Width of the graph in pixels.
+     */
+    public void onViewportChanged(double windowStartSeconds, double windowEndSeconds, int widthPx) {
+        viewportSubject.onNext(new Viewport(windowStartSeconds, windowEndSeconds, widthPx));
+    }
+
+    /**
+     * Updates the cursor readout for a time on the graph.
+     *
+     * @param timeSeconds Time from the start of the dive.
+     */
+    public void onCursorMoved(double timeSeconds) {
+        // Whole seconds, so that scrubbing back and forth hits the timeline's point cache
+        cursorSubject.onNext((double) Math.round(timeSeconds));
+    }
+
+    private ProfileGraphData buildGraphData(SourceAndViewport input) {
+        GraphSource source = input.source;
+        ProfileSeries series = source.series;
+        double diveEndSeconds = series.size() > 0 ? series.getTimeSeconds(series.size() - 1) : 0;
+        double windowEnd = Math.min(input.viewport.windowEndSeconds, diveEndSeconds);
+        double windowStart = Math.max(0, Math.min(input.viewport.windowStartSeconds, windowEnd));
+        DecimatedProfile profile = profileDecimator.decimate(series, windowStart, windowEnd, input.viewport.widthPx);
+        return source.graphData.withProfile(profile);
+    }
+
+    private String formatReadout(SourceAndCursor input) {
+        TimelinePoint point = input.source.timeline.getPointAt(input.cursorSeconds.longValue());
+        UnitSystem unitSystem = input.source.unitSystem;
+        String decoStatus = point.isInDeco()
+                ? String.format(Locale.getDefault(), "Ceiling %s", formatDepth(point.getCeilingDepthFsw(), unitSystem))
+                : String.format(Locale.getDefault(), "NDL %s", formatMinutes(point.getNdlSeconds()));
+        return String.format(Locale.getDefault(), "%s  %s  %s  %s  TTS %s  GF99 %.0f%%",
+                formatClock(point.getTimeSeconds()),
+                formatDepth(point.getDepthFsw(), unitSystem),
+                point.getGas().getGasName(),
+                decoStatus,
+                point.getTimeToSurfaceSeconds() == TimelinePoint.NO_VALID_PLAN
+                        ? "--" : formatMinutes(point.getTimeToSurfaceSeconds()),
+                Math.max(0, point.getCurrentGradientFactor() * 100));
+    }
+
+    private static boolean hasCalculatedDive(PlanCalculationResult result) {
+        if (!result.isSuccessful()) {
+            return false;
+        }
+        Dive dive = result.getCurrentDive();
+        List<DiveSegment> segments = dive.getSegments();
+        return !segments.isEmpty() && segments.get(segments.size() - 1).getTissueStateAtEndOfSegment() != null;
+    }
+
+    // --- Formatting Helpers ---
+    private static String formatDepth(double depthInFeet, UnitSystem unitSystem) {
+        double displayDepth = (unitSystem == UnitSystem.METRIC) ? UnitConverter.toMeters(depthInFeet) : depthInFeet;
+        String unit = (unitSystem == UnitSystem.METRIC) ? "m" : "ft";
+        return String.format(Locale.getDefault(), "%.0f %s", displayDepth, unit);
+    }
+
+    private static String formatMinutes(int seconds) {
+        return String.format(Locale.getDefault(), "%d min", (int) Math.ceil(seconds / 60.0));
+    }
+
+    private static String formatClock(long totalSeconds) {
+        return String.format(Locale.getDefault(), "%d:%02d", totalSeconds / 60, totalSeconds % 60);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        disposables.clear();
+    }
+
+    /**
+     * The calculated dive behind the graph: its timeline, the raw series and the markers.
+     */
+    private static final class GraphSource {
+        final LazyDiveTimeline timeline;
+        final ProfileSeries series;
+        final UnitSystem unitSystem;
+        final ProfileGraphData graphData; // Markers of the dive; the profile is replaced per viewport
+
+        GraphSource(LazyDiveTimeline timeline, Dive dive, UnitSystem unitSystem) {
+            this.timeline = timeline;
+            this.series = timeline.sampleSeries(SERIES_SAMPLE_INTERVAL_SECONDS);
+            this.unitSystem = unitSystem;
+            this.graphData = buildMarkers(timeline, series, dive, unitSystem);
+        }
+
+        private static ProfileGraphData buildMarkers(LazyDiveTimeline timeline, ProfileSeries series, Dive dive,
+                                                     UnitSystem unitSystem) {
+            List<ProfileLeg> legs = timeline.getLegs();
+            double maxDepthFsw = 0;
+            for (ProfileLeg leg : legs) {
+                maxDepthFsw = Math.max(maxDepthFsw, Math.max(leg.getStartDepthFsw(), leg.getEndDepthFsw()));
+            }
+
+            // Gas switches: wherever the next leg is breathed on another gas
+            List<ProfileLeg> switchLegs = new ArrayList<>();
+            for (int i = 1; i < legs.size(); i++) {
+                if (!legs.get(i).getGas().equals(legs.get(i - 1).getGas())) {
+                    switchLegs.add(legs.get(i));
+                }
+            }
+            float[] switchPoints = new float[2 * switchLegs.size()];
+            String[] switchLabels = new String[switchLegs.size()];
+            for (int i = 0; i < switchLegs.size(); i++) {
+                switchPoints[2 * i] = (float) switchLegs.get(i).getStartTimeSeconds();
+                switchPoints[2 * i + 1] = (float) switchLegs.get(i).getStartDepthFsw();
+                switchLabels[i] = switchLegs.get(i).getGas().getGasName();
+            }
+
+            // Deco stops: the constant-depth legs after the last segment, in the order of the plan
+            double bottomEndSeconds = 0;
+            for (DiveSegment segment : dive.getSegments()) {
+                double transitSeconds = segment.getCalculatedTransitDurationSeconds() != null
+                        ? segment.getCalculatedTransitDurationSeconds() : 0;
+                bottomEndSeconds += Math.max(segment.getUserInputTotalDurationInSeconds(), transitSeconds);
+            }
+            List<DecoStop> stops = dive.getDecoStops();
+            List<ProfileLeg> stopLegs = new ArrayList<>();
+            for (ProfileLeg leg : legs) {
+                if (stopLegs.size() < stops.size()
+                        && leg.getStartTimeSeconds() >= bottomEndSeconds - 1e-6
+                        && leg.getStartDepthFsw() == leg.getEndDepthFsw()) {
+                    stopLegs.add(leg);
+                }
+            }
+            float[] stopPoints = new float[2 * stopLegs.size()];
+            float[] stopEndTimes = new float[stopLegs.size()];
+            String[] stopLabels = new String[stopLegs.size()];
+            for (int i = 0; i < stopLegs.size(); i++) {
+                ProfileLeg leg = stopLegs.get(i);
+                stopPoints[2 * i] = (float) leg.getStartTimeSeconds();
+                stopPoints[2 * i + 1] = (float) leg.getStartDepthFsw();
+                stopEndTimes[i] = (float) leg.getEndTimeSeconds();
+                stopLabels[i] = String.format(Locale.getDefault(), "%s %d'",
+                        formatDepth(leg.getStartDepthFsw(), unitSystem), stops.get(i).getDurationMinutes());
+            }
+
+            double[] empty = new double[0];
+            DecimatedProfile placeholder = new DecimatedProfile(0, 0, empty, empty, empty, empty, empty, empty);
+            return new ProfileGraphData(series, timeline.getTotalDurationSeconds(), maxDepthFsw, placeholder,
+                    switchPoints, switchLabels, stopPoints, stopEndTimes, stopLabels);
+        }
+    }
+
+    private static final class Viewport {
+        final double windowStartSeconds;
+        final double windowEndSeconds;
+        final int widthPx;
+
+        Viewport(double windowStartSeconds, double windowEndSeconds, int widthPx) {
+            this.windowStartSeconds = windowStartSeconds;
+            this.windowEndSeconds = windowEndSeconds;
+            this.widthPx = widthPx;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Viewport viewport = (Viewport) o;
+            return Double.compare(viewport.windowStartSeconds, windowStartSeconds) == 0 &&
+                    Double.compare(viewport.windowEndSeconds, windowEndSeconds) == 0 &&
+                    widthPx == viewport.widthPx;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(windowStartSeconds, windowEndSeconds, widthPx);
+        }
+    }
+
+    private static final class SourceAndViewport {
+        final GraphSource source;
+        final Viewport viewport;
+
+        SourceAndViewport(GraphSource source, Viewport viewport) {
+            this.source = source;
+            this.viewport = viewport;
+        }
+    }
+
+    private static final class SourceAndCursor {
+        final GraphSource source;
+        final Double cursorSeconds;
+
+        SourceAndCursor(GraphSource source, Double cursorSeconds) {
+            this.source = source;
+            this.cursorSeconds = cursorSeconds;
+        }
+    }
+}
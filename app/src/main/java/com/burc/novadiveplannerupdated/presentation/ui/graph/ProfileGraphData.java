@@ -0,0 +1,90 @@
+package com.burc.novadiveplannerupdated.presentation.ui.graph;
+
+import com.burc.novadiveplannerupdated.domain.model.DecimatedProfile;
+
+import java.util.Objects;
+
+/**
+ * Everything {@link DiveProfileView} draws for one calculated dive, in data coordinates
+ * (x = seconds from the start of the dive, y = depth in fsw). Labels are formatted for display already,
+ * so the view never builds strings while drawing.
+ */
+public final class ProfileGraphData {
+
+    private final Object diveVersion; // Identity of the calculated dive; a new one resets the zoom
+    private final double diveDurationSeconds;
+    private final double maxDepthFsw;
+    private final DecimatedProfile profile;
+
+    // Marker positions as interleaved (time, depth) pairs, with one label per marker
+    private final float[] gasSwitchPoints;
+    private final String[] gasSwitchLabels;
+    private final float[] decoStopPoints; // Start of each stop
+    private final float[] decoStopEndTimes;
+    private final String[] decoStopLabels;
+
+    public ProfileGraphData(Object diveVersion, double diveDurationSeconds, double maxDepthFsw, DecimatedProfile profile,
+                            float[] gasSwitchPoints, String[] gasSwitchLabels,
+                            float[] decoStopPoints, float[] decoStopEndTimes, String[] decoStopLabels) {
+        this.diveVersion = Objects.requireNonNull(diveVersion, "Dive version cannot be null.");
+        this.profile = Objects.requireNonNull(profile, "DecimatedProfile cannot be null.");
+        if (gasSwitchPoints.length != 2 * gasSwitchLabels.length
+                || decoStopPoints.length != 2 * decoStopLabels.length
+                || decoStopEndTimes.length != decoStopLabels.length) {
+            throw new IllegalArgumentException("Every marker needs a position and a label.");
+        }
+        this.diveDurationSeconds = diveDurationSeconds;
+        this.maxDepthFsw = maxDepthFsw;
+        this.gasSwitchPoints = gasSwitchPoints;
+        this.gasSwitchLabels = gasSwitchLabels;
+        this.decoStopPoints = decoStopPoints;
+        this.decoStopEndTimes = decoStopEndTimes;
+        this.decoStopLabels = decoStopLabels;
+    }
+
+    /**
+     * @return A copy of this graph with another decimated window of the same dive.
+     */
+    public ProfileGraphData withProfile(DecimatedProfile newProfile) {
+        return new ProfileGraphData(diveVersion, diveDurationSeconds, maxDepthFsw, newProfile,
+                gasSwitchPoints, gasSwitchLabels, decoStopPoints, decoStopEndTimes, decoStopLabels);
+    }
+
+    public boolean isSameDiveAs(ProfileGraphData other) {
+        return other != null && diveVersion == other.diveVersion;
+    }
+
+    public double getDiveDurationSeconds() {
+        return diveDurationSeconds;
+    }
+
+    public double getMaxDepthFsw() {
+        return maxDepthFsw;
+    }
+
+    public DecimatedProfile getProfile() {
+        return profile;
+    }
+
+    // Marker arrays are shared, not copied: they are only read by the view
+
+    float[] getGasSwitchPoints() {
+        return gasSwitchPoints;
+    }
+
+    String[] getGasSwitchLabels() {
+        return gasSwitchLabels;
+    }
+
+    float[] getDecoStopPoints() {
+        return decoStopPoints;
+    }
+
+    float[] getDecoStopEndTimes() {
+        return decoStopEndTimes;
+    }
+
+    String[] getDecoStopLabels() {
+        return decoStopLabels;
+    }
+}
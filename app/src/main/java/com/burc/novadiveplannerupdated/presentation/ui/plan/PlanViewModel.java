@@ -0,0 +1,44 @@
+package com.burc.novadiveplannerupdated.presentation.ui.plan;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.burc.novadiveplannerupdated.domain.model.PlanCalculationResult;
+import com.burc.novadiveplannerupdated.domain.usecase.diveplan.PlanCalculationEngine;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.lifecycle.HiltViewModel;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+
+@HiltViewModel
+public class PlanViewModel extends ViewModel {
+    private static final String TAG = "PlanViewModel";
+
+    private final CompositeDisposable disposables = new CompositeDisposable();
+
+    private final MutableLiveData<PlanCalculationResult> _calculationResult = new MutableLiveData<>();
+    public LiveData<PlanCalculationResult> calculationResult = _calculationResult;
+
+    @Inject
+    public PlanViewModel(PlanCalculationEngine planCalculationEngine) {
+        disposables.add(
+            planCalculationEngine.getResults() // Son sonuç yeni abonelere hemen tekrar iletilir
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                    _calculationResult::setValue,
+                    throwable -> Log.e(TAG, "Error observing plan calculation results", throwable)
+                )
+        );
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        disposables.clear();
+    }
+}
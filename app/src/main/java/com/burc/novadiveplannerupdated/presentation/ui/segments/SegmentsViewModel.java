@@ -9,7 +9,7 @@ import com.burc.novadiveplannerupdated.domain.entity.DivePlan;
 import com.burc.novadiveplannerupdated.domain.entity.DiveSegment;
 import com.burc.novadiveplannerupdated.domain.model.GasType;
 import com.burc.novadiveplannerupdated.domain.model.UnitSystem;
-import com.burc.novadiveplannerupdated.domain.usecase.diveplan.GetActiveDivePlanUseCase;
+import com.burc.novadiveplannerupdated.domain.usecase.diveplan.PlanCalculationEngine;
 import com.burc.novadiveplannerupdated.domain.util.UnitConverter;
 import com.burc.novadiveplannerupdated.domain.common.DomainDefaults; // Varsayılan birim sistemi için
 
@@ -25,22 +25,21 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers; // AndroidSchedulers importu
 import io.reactivex.rxjava3.annotations.Nullable;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 import android.util.Log; // Loglama için
 
 @HiltViewModel
 public class SegmentsViewModel extends ViewModel {
     private static final String TAG = "SegmentsViewModel";
 
-    private final GetActiveDivePlanUseCase getActiveDivePlanUseCase;
+    private final PlanCalculationEngine planCalculationEngine;
     private final CompositeDisposable disposables = new CompositeDisposable();
 
     private final MutableLiveData<SegmentsScreenUiState> _uiState = new MutableLiveData<>();
     public LiveData<SegmentsScreenUiState> uiState = _uiState;
 
     @Inject
-    public SegmentsViewModel(GetActiveDivePlanUseCase getActiveDivePlanUseCase) {
-        this.getActiveDivePlanUseCase = getActiveDivePlanUseCase;
+    public SegmentsViewModel(PlanCalculationEngine planCalculationEngine) {
+        this.planCalculationEngine = planCalculationEngine;
         // Başlangıç state'ini yükle
         _uiState.setValue(SegmentsScreenUiState.initialState(DomainDefaults.DEFAULT_UNIT_SYSTEM));
         loadActiveDivePlan();
@@ -58,13 +57,13 @@ public class SegmentsViewModel extends ViewModel {
         _uiState.setValue(currentState);
 
         disposables.add(
-            getActiveDivePlanUseCase.execute()
-                .subscribeOn(Schedulers.io())
+            planCalculationEngine.getResults() // Hesaplanmış plan; hızlı düzenlemeler motor tarafından birleştirilir
                 .observeOn(AndroidSchedulers.mainThread()) // Ana thread'e geçiş
                 .subscribe(
-                    plan -> {
-                        Log.d(TAG, "DivePlan loaded: " + (plan != null ? plan.getId() : "null"));
-                        updateUiStates(plan, false, null); // Hata yok, navigasyon yok
+                    result -> {
+                        DivePlan plan = result.getDivePlan();
+                        Log.d(TAG, "DivePlan loaded: " + plan.getId() + ", calculated: " + result.isSuccessful());
+                        updateUiStates(plan, false, result.getErrorMessage()); // Navigasyon yok
                     },
                     throwable -> {
                         Log.e(TAG, "Error loading active dive plan", throwable);
@@ -0,0 +1,142 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.entity.DiveSettings;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.entity.TissueState;
+import com.burc.novadiveplannerupdated.domain.model.DecoStop;
+import com.burc.novadiveplannerupdated.domain.model.GasType;
+import com.burc.novadiveplannerupdated.domain.model.GradientFactors;
+import com.burc.novadiveplannerupdated.domain.model.LastStopDepthOption;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Decompression schedules of {@link BuhlmannAlgorithmService}.
+ */
+public class BuhlmannAlgorithmServiceDecoTest {
+
+    private static final double SURFACE_PRESSURE_FSW = 33.0;
+
+    private final BuhlmannAlgorithmService service =
+            new BuhlmannAlgorithmService(new OxygenToxicityService(), new GasConsumptionService());
+
+    private final Gas air = gas(1, "Air", 0.21, 0.0, 1.4);
+    private final Gas ean50 = gas(2, "EAN50", 0.50, 0.0, 1.6);
+    private final Gas oxygen = gas(3, "O2", 1.00, 0.0, 1.6);
+    private final Gas trimix = gas(4, "Tx18/45", 0.18, 0.45, 1.4);
+
+    @Test
+    public void multiStopAscent_movesUpOneStopAtATime() {
+        List<DecoStop> stops = planAirDive(100, 50, 30, 85, LastStopDepthOption.TEN_FEET);
+
+        assertEquals("50:1 40:1 30:6 20:11 10:27", describe(stops));
+        for (int i = 1; i < stops.size(); i++) {
+            assertEquals(10.0, stops.get(i - 1).getDepthFsw() - stops.get(i).getDepthFsw(), 1e-9);
+        }
+    }
+
+    @Test
+    public void twentyFootLastStop_endsTheScheduleAtTwentyFeet() {
+        List<DecoStop> stops = planAirDive(100, 50, 30, 85, LastStopDepthOption.TWENTY_FEET);
+
+        assertTrue(stops.size() > 1);
+        assertEquals(20.0, stops.get(stops.size() - 1).getDepthFsw(), 1e-9);
+    }
+
+    @Test
+    public void stopThatCannotClear_throwsInsteadOfReturningACappedPlan() {
+        try {
+            List<DecoStop> stops = planAirDive(100, 60, 20, 70, LastStopDepthOption.TWENTY_FEET);
+            fail("Expected DecompressionLimitException, got " + describe(stops));
+        } catch (DecompressionLimitException e) {
+            assertEquals(20.0, e.getStopDepthFsw(), 1e-9);
+            assertEquals(240, e.getMaxStopMinutes());
+        }
+    }
+
+    /**
+     * Stop times found by the galloping and bisection search, pinned to the schedules of the minute-by-minute
+     * search it replaced. The cases cover short stops, long stops near the cap and gas switches.
+     */
+    @Test
+    public void stopTimes_matchTheMinuteByMinuteSearch() {
+        List<Gas> airEanO2 = Arrays.asList(air, ean50, oxygen);
+        List<Gas> trimixEanO2 = Arrays.asList(trimix, ean50, oxygen);
+
+        assertEquals("40:1Air 30:3Air 20:10Air 10:28Air",
+                describeWithGas(planDive(Collections.singletonList(air), 140, 30, 85, 85, LastStopDepthOption.TEN_FEET)));
+        assertEquals("90:2Air 80:5Air 70:4EAN50 60:5EAN50 50:8EAN50 40:12EAN50 30:18EAN50 20:30EAN50 10:37O2",
+                describeWithGas(planDive(airEanO2, 160, 70, 30, 85, LastStopDepthOption.TEN_FEET)));
+        assertEquals("100:1Air 90:6Air 80:8Air 70:8EAN50 60:10EAN50 50:14EAN50 40:22EAN50 30:32EAN50 20:216EAN50",
+                describeWithGas(planDive(airEanO2, 180, 90, 50, 80, LastStopDepthOption.TWENTY_FEET)));
+        assertEquals("100:1Tx18/45 90:1Tx18/45 80:6Tx18/45 70:4EAN50 60:5EAN50 50:8EAN50 40:11EAN50 30:18EAN50"
+                        + " 20:120EAN50",
+                describeWithGas(planDive(trimixEanO2, 220, 50, 85, 85, LastStopDepthOption.TWENTY_FEET)));
+        assertEquals("170:1Tx18/45 160:2Tx18/45 150:4Tx18/45 140:5Tx18/45 130:7Tx18/45 120:8Tx18/45 110:12Tx18/45"
+                        + " 100:14Tx18/45 90:20Tx18/45 80:26Tx18/45 70:13EAN50 60:17EAN50 50:26EAN50 40:39EAN50"
+                        + " 30:62EAN50 20:118EAN50 10:171O2",
+                describeWithGas(planDive(trimixEanO2, 240, 90, 20, 70, LastStopDepthOption.TEN_FEET)));
+    }
+
+    private List<DecoStop> planAirDive(double depthFsw, int bottomMinutes, int gfLow, int gfHigh,
+                                       LastStopDepthOption lastStop) {
+        return planDive(Collections.singletonList(air), depthFsw, bottomMinutes, gfLow, gfHigh, lastStop);
+    }
+
+    /** Plans a dive on the first gas of {@code gases}, with the others available for decompression. */
+    private List<DecoStop> planDive(List<Gas> gases, double depthFsw, int bottomMinutes, int gfLow, int gfHigh,
+                                    LastStopDepthOption lastStop) {
+        Gas bottomGas = gases.get(0);
+        DiveSettings settings = new DiveSettings.Builder()
+                .gradientFactors(new GradientFactors(gfLow, gfHigh))
+                .lastStopDepthOption(lastStop)
+                .build();
+        // Descend at 60 fsw/min, then stay on the bottom.
+        TissueState state = service.calculateTissueStateForDuration(new TissueState(SURFACE_PRESSURE_FSW),
+                0, depthFsw, depthFsw, bottomGas, SURFACE_PRESSURE_FSW, false);
+        state = service.calculateTissueStateForDuration(state, depthFsw, depthFsw, bottomMinutes * 60.0,
+                bottomGas, SURFACE_PRESSURE_FSW, false);
+        return service.calculateDecompressionPlan(state, depthFsw, bottomGas, settings, gases, SURFACE_PRESSURE_FSW);
+    }
+
+    private static Gas gas(int slot, String name, double fo2, double fhe, double po2Max) {
+        return new Gas.Builder()
+                .slotNumber(slot)
+                .isEnabled(true)
+                .gasName(name)
+                .fo2(fo2)
+                .fhe(fhe)
+                .po2Max(po2Max)
+                .gasType(GasType.OPEN_CIRCUIT)
+                .tankCapacity(80)
+                .reservePressurePercentage(10)
+                .build();
+    }
+
+    private static String describe(List<DecoStop> stops) {
+        StringBuilder sb = new StringBuilder();
+        for (DecoStop stop : stops) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append((int) stop.getDepthFsw()).append(':').append(stop.getDurationMinutes());
+        }
+        return sb.toString();
+    }
+
+    private static String describeWithGas(List<DecoStop> stops) {
+        StringBuilder sb = new StringBuilder();
+        for (DecoStop stop : stops) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append((int) stop.getDepthFsw()).append(':').append(stop.getDurationMinutes())
+                    .append(stop.getGas().getGasName());
+        }
+        return sb.toString();
+    }
+}
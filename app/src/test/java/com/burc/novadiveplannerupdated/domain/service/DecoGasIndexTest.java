@@ -0,0 +1,181 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import com.burc.novadiveplannerupdated.domain.common.DomainDefaults;
+import com.burc.novadiveplannerupdated.domain.entity.Gas;
+import com.burc.novadiveplannerupdated.domain.model.AltitudeLevel;
+import com.burc.novadiveplannerupdated.domain.model.GasType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link DecoGasIndex} lookups, checked against the full scan over the gas list that the index replaced.
+ */
+public class DecoGasIndexTest {
+
+    private static final double GLOBAL_MAX_PPO2_ATA = 1.6;
+
+    @Test
+    public void bestGasAt_matchesTheFullScanOnAFineDepthGrid() {
+        for (List<Gas> gases : gasSets()) {
+            for (AltitudeLevel altitude : AltitudeLevel.values()) {
+                double initialAmbientPressureFsw = altitude.getInitialAmbientPressureFsw();
+                DecoGasIndex index = DecoGasIndex.build(gases, initialAmbientPressureFsw);
+                for (int i = 0; i <= 50000; i++) {
+                    assertSameGas(gases, index, i * 0.01, initialAmbientPressureFsw);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bestGasAt_matchesTheFullScanAroundEveryBoundary() {
+        for (List<Gas> gases : gasSets()) {
+            for (AltitudeLevel altitude : AltitudeLevel.values()) {
+                double initialAmbientPressureFsw = altitude.getInitialAmbientPressureFsw();
+                DecoGasIndex index = DecoGasIndex.build(gases, initialAmbientPressureFsw);
+                for (Gas gas : gases) {
+                    if (gas.getFo2() <= 0) {
+                        continue;
+                    }
+                    double maxPpo2Ata = GLOBAL_MAX_PPO2_ATA;
+                    if (gas.getPo2Max() != null) {
+                        maxPpo2Ata = Math.min(maxPpo2Ata, gas.getPo2Max());
+                    }
+                    for (double ppo2Ata : new double[]{maxPpo2Ata, GLOBAL_MAX_PPO2_ATA, DomainDefaults.MIN_SAFE_PPO2_ATA}) {
+                        double boundaryFsw = ppo2Ata / gas.getFo2() * DomainDefaults.DEPTH_CONSTANT_IMPERIAL
+                                - initialAmbientPressureFsw;
+                        double depthFsw = boundaryFsw;
+                        for (int ulp = 0; ulp < 4; ulp++) {
+                            depthFsw = Math.nextDown(depthFsw);
+                        }
+                        for (int ulp = -4; ulp <= 4; ulp++) {
+                            assertSameGas(gases, index, depthFsw, initialAmbientPressureFsw);
+                            depthFsw = Math.nextUp(depthFsw);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bestGasAt_matchesTheFullScanAtRandomAndOutOfRangeDepths() {
+        Random random = new Random(18);
+        for (List<Gas> gases : gasSets()) {
+            double initialAmbientPressureFsw = AltitudeLevel.SEA_LEVEL.getInitialAmbientPressureFsw();
+            DecoGasIndex index = DecoGasIndex.build(gases, initialAmbientPressureFsw);
+            for (int i = 0; i < 100000; i++) {
+                assertSameGas(gases, index, random.nextDouble() * 600, initialAmbientPressureFsw);
+            }
+            for (double depthFsw : new double[]{-10, -0.0, 1999.5, 2500, 1e6, Double.NaN}) {
+                assertSameGas(gases, index, depthFsw, initialAmbientPressureFsw);
+            }
+        }
+    }
+
+    @Test
+    public void bestGasAt_returnsNullWithoutUsableGases() {
+        DecoGasIndex empty = DecoGasIndex.build(Collections.<Gas>emptyList(), 33.0);
+        assertNull(empty.bestGasAt(0));
+        assertNull(empty.bestGasAt(100));
+
+        DecoGasIndex disabledOnly = DecoGasIndex.build(
+                Collections.singletonList(gas(1, 0.5, 0.0, 1.6, false, GasType.OPEN_CIRCUIT)), 33.0);
+        assertNull(disabledOnly.bestGasAt(20));
+    }
+
+    @Test
+    public void isFor_matchesOnlyTheSameGasesAndAltitude() {
+        List<Gas> gases = gasSets().get(0);
+        DecoGasIndex index = DecoGasIndex.build(gases, 33.0);
+
+        assertTrue(index.isFor(new ArrayList<>(gases), 33.0));
+        assertFalse(index.isFor(gases, 28.8));
+        assertFalse(index.isFor(gases.subList(1, gases.size()), 33.0));
+    }
+
+    private static void assertSameGas(List<Gas> gases, DecoGasIndex index, double depthFsw,
+                                      double initialAmbientPressureFsw) {
+        assertSame("Depth " + depthFsw + " fsw, P_init " + initialAmbientPressureFsw,
+                fullScan(gases, depthFsw, initialAmbientPressureFsw), index.bestGasAt(depthFsw));
+    }
+
+    /** The scan over the gas list as it was written before the index. */
+    private static Gas fullScan(List<Gas> gases, double targetDepthFsw, double initialAmbientPressureFsw) {
+        Gas bestGas = null;
+        double bestGasHighestFo2 = -1.0;
+        for (Gas candidateGas : gases) {
+            if (!candidateGas.isEnabled()) {
+                continue;
+            }
+            double pAmbientTotalFsw = targetDepthFsw + initialAmbientPressureFsw;
+            double ppo2AtDepthAta = candidateGas.getFo2() * (pAmbientTotalFsw / DomainDefaults.DEPTH_CONSTANT_IMPERIAL);
+            if (candidateGas.getGasType() == GasType.OPEN_CIRCUIT && candidateGas.getPo2Max() != null
+                    && ppo2AtDepthAta > candidateGas.getPo2Max()) {
+                continue;
+            }
+            if (ppo2AtDepthAta > GLOBAL_MAX_PPO2_ATA) {
+                continue;
+            }
+            if (ppo2AtDepthAta < DomainDefaults.MIN_SAFE_PPO2_ATA) {
+                continue;
+            }
+            if (candidateGas.getFo2() > bestGasHighestFo2) {
+                bestGasHighestFo2 = candidateGas.getFo2();
+                bestGas = candidateGas;
+            } else if (candidateGas.getFo2() == bestGasHighestFo2 && bestGas != null
+                    && candidateGas.getFhe() < bestGas.getFhe()) {
+                bestGas = candidateGas;
+            }
+        }
+        return bestGas;
+    }
+
+    private static List<List<Gas>> gasSets() {
+        return Arrays.asList(
+                // Typical open circuit deco set
+                Arrays.asList(
+                        gas(1, 0.21, 0.0, 1.4, true, GasType.OPEN_CIRCUIT),
+                        gas(2, 0.50, 0.0, 1.6, true, GasType.OPEN_CIRCUIT),
+                        gas(3, 1.00, 0.0, 1.6, true, GasType.OPEN_CIRCUIT)),
+                // Hypoxic trimix, equal FO2 with different FHe, a disabled richer gas and a duplicate mix
+                Arrays.asList(
+                        gas(1, 0.10, 0.70, 1.4, true, GasType.OPEN_CIRCUIT),
+                        gas(2, 0.18, 0.45, 1.4, true, GasType.OPEN_CIRCUIT),
+                        gas(3, 0.18, 0.30, 1.4, true, GasType.OPEN_CIRCUIT),
+                        gas(4, 0.35, 0.25, 1.6, true, GasType.OPEN_CIRCUIT),
+                        gas(5, 0.80, 0.0, 1.6, false, GasType.OPEN_CIRCUIT),
+                        gas(6, 0.35, 0.25, 1.6, true, GasType.OPEN_CIRCUIT)),
+                // Closed circuit gases ignore their own PPO2 max, and a gas without one only has the global limit
+                Arrays.asList(
+                        gas(1, 0.32, 0.0, 1.2, true, GasType.CLOSED_CIRCUIT),
+                        gas(2, 0.40, 0.0, null, true, GasType.OPEN_CIRCUIT),
+                        gas(3, 0.0, 0.0, 1.6, true, GasType.OPEN_CIRCUIT),
+                        gas(4, 0.99, 0.0, 1.45, true, GasType.OPEN_CIRCUIT)));
+    }
+
+    private static Gas gas(int slot, double fo2, double fhe, Double po2Max, boolean enabled, GasType gasType) {
+        return new Gas.Builder()
+                .slotNumber(slot)
+                .isEnabled(enabled)
+                .gasName("Gas " + slot)
+                .fo2(fo2)
+                .fhe(fhe)
+                .po2Max(po2Max)
+                .gasType(gasType)
+                .tankCapacity(80)
+                .reservePressurePercentage(10)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.burc.novadiveplannerupdated.domain.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * CNS rates of {@link OxygenToxicityService}, pinned bit for bit to the NOAA if-chain the table lookup replaced.
+ */
+public class OxygenToxicityServiceTest {
+
+    private static final double[] BREAKPOINTS = {0.5, 0.6, 0.7, 0.8, 0.9, 1.0, 1.1, 1.2, 1.3, 1.4, 1.5, 1.6};
+
+    private final OxygenToxicityService service = new OxygenToxicityService();
+
+    @Test
+    public void cnsRate_matchesTheNoaaIfChainAroundEveryBreakpoint() {
+        for (double breakpoint : BREAKPOINTS) {
+            assertSameRate(Math.nextDown(breakpoint));
+            assertSameRate(breakpoint);
+            assertSameRate(Math.nextUp(breakpoint));
+        }
+    }
+
+    @Test
+    public void cnsRate_matchesTheNoaaIfChainAcrossTheTable() {
+        for (int i = 0; i <= 20000; i++) {
+            assertSameRate(i * 0.0001);
+        }
+    }
+
+    @Test
+    public void cnsRate_matchesTheNoaaIfChainOutsideTheTable() {
+        assertSameRate(-1.0);
+        assertSameRate(-0.0);
+        assertSameRate(0.0);
+        assertSameRate(1.61);
+        assertSameRate(2.0);
+        assertSameRate(10.0);
+        assertSameRate(Double.MAX_VALUE);
+        assertSameRate(Double.POSITIVE_INFINITY);
+        assertSameRate(Double.NEGATIVE_INFINITY);
+        assertSameRate(Double.NaN);
+    }
+
+    @Test
+    public void cnsRates_matchTheSingleValueMethod() {
+        double[] ppo2Ata = new double[BREAKPOINTS.length * 3 + 4];
+        int n = 0;
+        for (double breakpoint : BREAKPOINTS) {
+            ppo2Ata[n++] = Math.nextDown(breakpoint);
+            ppo2Ata[n++] = breakpoint;
+            ppo2Ata[n++] = Math.nextUp(breakpoint);
+        }
+        ppo2Ata[n++] = -0.2;
+        ppo2Ata[n++] = 1.05;
+        ppo2Ata[n++] = 2.4;
+        ppo2Ata[n] = Double.NaN;
+
+        double[] rates = new double[ppo2Ata.length + 1];
+        rates[ppo2Ata.length] = -1.0;
+        service.calculateCnsToxicityRates(ppo2Ata, rates);
+
+        for (int i = 0; i < ppo2Ata.length; i++) {
+            assertEquals("PPO2 " + ppo2Ata[i],
+                    Double.doubleToLongBits(service.calculateCnsToxicityRate(ppo2Ata[i])),
+                    Double.doubleToLongBits(rates[i]));
+        }
+        assertEquals("Entries past the samples are left alone", -1.0, rates[ppo2Ata.length], 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cnsRates_rejectAShorterOutputArray() {
+        service.calculateCnsToxicityRates(new double[3], new double[2]);
+    }
+
+    private void assertSameRate(double ppo2Ata) {
+        assertEquals("PPO2 " + ppo2Ata,
+                Double.doubleToLongBits(noaaIfChainRate(ppo2Ata)),
+                Double.doubleToLongBits(service.calculateCnsToxicityRate(ppo2Ata)));
+    }
+
+    /** The NOAA interpolation as it was written before the table lookup. */
+    private static double noaaIfChainRate(double ppo2Ata) {
+        if (ppo2Ata < 0) {
+            ppo2Ata = 0;
+        }
+        if (ppo2Ata <= 0.5) return 0.0;
+        if (ppo2Ata <= 0.6) return interpolate(ppo2Ata, 0.5, 0.6, 0.0, 0.1388888888888889);
+        if (ppo2Ata <= 0.7) return interpolate(ppo2Ata, 0.6, 0.7, 0.1388888888888889, 0.17543859649122806);
+        if (ppo2Ata <= 0.8) return interpolate(ppo2Ata, 0.7, 0.8, 0.17543859649122806, 0.2222222222222222);
+        if (ppo2Ata <= 0.9) return interpolate(ppo2Ata, 0.8, 0.9, 0.2222222222222222, 0.2777777777777778);
+        if (ppo2Ata <= 1.0) return interpolate(ppo2Ata, 0.9, 1.0, 0.2777777777777778, 0.3333333333333333);
+        if (ppo2Ata <= 1.1) return interpolate(ppo2Ata, 1.0, 1.1, 0.3333333333333333, 0.4166666666666667);
+        if (ppo2Ata <= 1.2) return interpolate(ppo2Ata, 1.1, 1.2, 0.4166666666666667, 0.47619047619047616);
+        if (ppo2Ata <= 1.3) return interpolate(ppo2Ata, 1.2, 1.3, 0.47619047619047616, 0.5555555555555556);
+        if (ppo2Ata <= 1.4) return interpolate(ppo2Ata, 1.3, 1.4, 0.5555555555555556, 0.6666666666666666);
+        if (ppo2Ata <= 1.5) return interpolate(ppo2Ata, 1.4, 1.5, 0.6666666666666666, 0.8333333333333334);
+        if (ppo2Ata <= 1.6) return interpolate(ppo2Ata, 1.5, 1.6, 0.8333333333333334, 2.2222222222222223);
+        return 2.2222222222222223;
+    }
+
+    private static double interpolate(double x, double x0, double x1, double y0, double y1) {
+        return y0 + (x - x0) * (y1 - y0) / (x1 - x0);
+    }
+}